@@ -0,0 +1,575 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Log-structured document store: put, get and delete of byte documents by
+ * string key, on a local directory.
+ *
+ * Writes append to a write-ahead log and land in a sorted in-memory
+ * memtable. When the memtable reaches memtableBytes it is frozen, a fresh
+ * one (with a fresh log) takes the writes, and a background thread writes
+ * the frozen one out as an immutable sorted segment file. All disk writes
+ * are sequential: the log is only appended to, and segments are written
+ * front to back and never modified.
+ *
+ * A read looks at the active memtable, then the frozen one, then the
+ * segments from newest to oldest, and stops at the first that knows the
+ * key; a delete is a tombstone that hides older values. Segments are read
+ * through memory mappings and a hit comes back as a read-only slice of
+ * the mapping, so documents are not copied through the heap. Readers take
+ * no lock: they read one immutable snapshot of (memtables, segments).
+ *
+ * Once compactionTrigger segments pile up, the background thread merges the
+ * newest run of them that fits in MAX_SEGMENT_BYTES into one, keeping the
+ * newest value per key. A merge that reaches the oldest segment also drops
+ * tombstones, since nothing older is left for them to hide. A failed merge
+ * leaves the segments as they were and is retried after the next flush;
+ * only a failed flush stops the store taking writes.
+ *
+ * The MANIFEST file lists the live segments, oldest first, and which logs
+ * are already in segments; it is replaced atomically after every flush and
+ * compaction, so a crash leaves either the old or the new set. Every
+ * rename is forced through the directory before the files it replaces are
+ * deleted. open() replays the logs that aren't in segments, and removes
+ * files the manifest doesn't know (a flush or merge cut short).
+ *
+ * A write is in the log's file before put or delete returns, so it
+ * survives the process crashing. Surviving an OS crash or power loss
+ * takes a sync(), which forces every write so far with one fsync. One open
+ * store per directory is assumed; nothing locks the directory against a
+ * second one.
+ */
+public class DocumentStore implements AutoCloseable {
+
+    public static final long DEFAULT_MEMTABLE_BYTES = 8L * 1024 * 1024;
+    public static final int DEFAULT_COMPACTION_TRIGGER = 8;
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final long memtableBytes;
+    private final int compactionTrigger;
+    private final AtomicLong nextFileNumber = new AtomicLong();
+
+    // Writers are serialized; the background thread takes it only to publish
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frozenReady = lock.newCondition();
+    private final Condition frozenFlushed = lock.newCondition();
+    private WriteAheadLog wal;
+    private Exception backgroundFailure; // a failed flush; every later write throws it
+
+    // Everything a read needs; replaced, never modified
+    private volatile Snapshot snapshot;
+
+    // Background thread only (and open)
+    private long walFloor; // logs numbered below this are in segments
+    private volatile long flushCount;
+    private volatile long compactionCount;
+    private volatile long compactionFailureCount;
+    private volatile Exception lastCompactionFailure;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private DocumentStore(Path directory, long memtableBytes, int compactionTrigger) throws IOException {
+        if (memtableBytes <= 0 || memtableBytes > MAX_SEGMENT_BYTES / 2) {
+            throw new IllegalArgumentException("memtableBytes out of range: " + memtableBytes);
+        }
+        if (compactionTrigger < 2) {
+            throw new IllegalArgumentException("compactionTrigger must be at least 2");
+        }
+        this.directory = directory;
+        this.memtableBytes = memtableBytes;
+        this.compactionTrigger = compactionTrigger;
+
+        Files.createDirectories(directory);
+        Segment[] segments = recover();
+
+        long number = nextFileNumber.getAndIncrement();
+        this.wal = WriteAheadLog.create(walPath(number));
+        this.snapshot = new Snapshot(new Memtable(number), null, segments);
+        this.flusher = Thread.ofPlatform().daemon().name("document-store-flusher").start(this::flushLoop);
+    }
+
+    public static DocumentStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_MEMTABLE_BYTES, DEFAULT_COMPACTION_TRIGGER);
+    }
+
+    public static DocumentStore open(Path directory, long memtableBytes, int compactionTrigger) throws IOException {
+        return new DocumentStore(directory, memtableBytes, compactionTrigger);
+    }
+
+    public void put(String key, byte[] document) {
+        write(keyBytes(key), document.clone());
+    }
+
+    public void delete(String key) {
+        write(keyBytes(key), Memtable.TOMBSTONE);
+    }
+
+    // Read-only; for a key found in a segment, a view of the file's mapping
+    public Optional<ByteBuffer> get(String key) {
+        byte[] k = keyBytes(key);
+        if (closed) {
+            throw new IllegalStateException("Document store is closed");
+        }
+        Snapshot s = snapshot;
+
+        byte[] value = s.active.get(k);
+        if (value == null && s.frozen != null) {
+            value = s.frozen.get(k);
+        }
+        if (value != null) {
+            return value == Memtable.TOMBSTONE ? Optional.empty() : Optional.of(ByteBuffer.wrap(value).asReadOnlyBuffer());
+        }
+        for (int i = s.segments.length - 1; i >= 0; i--) {
+            Segment segment = s.segments[i];
+            int record = segment.find(k);
+            if (record >= 0) {
+                return segment.isTombstone(record) ? Optional.empty() : Optional.of(segment.value(record));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Writes the memtable out now and waits for it, e.g. before a bulk read
+    public void flush() {
+        lock.lock();
+        try {
+            checkOpen();
+            if (!snapshot.active.isEmpty()) {
+                rotate();
+            }
+            awaitFrozenFlushed();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll the write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forces the log, so every write so far survives a crash
+    public void sync() {
+        lock.lock();
+        try {
+            checkOpen();
+            wal.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync the write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        return snapshot.segments.length;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getCompactionCount() {
+        return compactionCount;
+    }
+
+    public long getCompactionFailureCount() {
+        return compactionFailureCount;
+    }
+
+    // Null if no merge has failed
+    public Exception getLastCompactionFailure() {
+        return lastCompactionFailure;
+    }
+
+    /*
+     * Finishes a flush in progress and closes the log. The active memtable
+     * is not flushed: its log is replayed by the next open().
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            frozenReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        lock.lock();
+        try {
+            wal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close the write-ahead log", e);
+        } finally {
+            lock.unlock();
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ----- write path ----- */
+
+    private void write(byte[] key, byte[] value) {
+        lock.lock();
+        try {
+            checkOpen();
+            checkBackgroundFailure();
+            // Rotates a memtable the last write filled before logging this one,
+            // so a write that throws has not reached the log or the memtable
+            if (snapshot.active.sizeBytes() >= memtableBytes) {
+                rotate();
+            }
+            wal.append(key, value == Memtable.TOMBSTONE ? null : value);
+            snapshot.active.put(key, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to the write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lock held: freezes the active memtable and hands it to the background thread
+    private void rotate() throws IOException {
+        // One frozen memtable at a time; writers wait if the disk falls behind
+        awaitFrozenFlushed();
+        long number = nextFileNumber.getAndIncrement();
+        WriteAheadLog next = WriteAheadLog.create(walPath(number));
+        wal.close();
+        wal = next;
+        Snapshot s = snapshot;
+        snapshot = new Snapshot(new Memtable(number), s.active, s.segments);
+        frozenReady.signal();
+    }
+
+    private void awaitFrozenFlushed() {
+        while (snapshot.frozen != null && backgroundFailure == null) {
+            frozenFlushed.awaitUninterruptibly();
+        }
+        checkBackgroundFailure();
+    }
+
+    private void checkBackgroundFailure() {
+        if (backgroundFailure != null) {
+            throw new UncheckedIOException("Background flush failed", asIOException(backgroundFailure));
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Document store is closed");
+        }
+    }
+
+    /* ----- background: flush and compaction ----- */
+
+    private void flushLoop() {
+        while (true) {
+            Memtable frozen;
+            lock.lock();
+            try {
+                while (snapshot.frozen == null && !closed) {
+                    frozenReady.awaitUninterruptibly();
+                }
+                frozen = snapshot.frozen;
+                if (frozen == null) return; // closed, nothing left to flush
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flushMemtable(frozen);
+            } catch (IOException | RuntimeException e) {
+                lock.lock();
+                try {
+                    backgroundFailure = e;
+                    frozenFlushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            if (closed) continue;
+            try {
+                compactIfNeeded();
+            } catch (IOException | RuntimeException e) {
+                // The manifest and snapshot still list the old segments; any
+                // file the merge left behind is cleared by the next open()
+                lastCompactionFailure = e;
+                compactionFailureCount++;
+            }
+        }
+    }
+
+    private void flushMemtable(Memtable frozen) throws IOException {
+        Segment[] segments = snapshot.segments; // only this thread replaces them
+        Segment segment = writeSegment(frozen, segments.length == 0);
+        Segment[] next = segment == null ? segments : append(segments, segment);
+        walFloor = frozen.walNumber() + 1;
+        writeManifest(next);
+
+        lock.lock();
+        try {
+            snapshot = new Snapshot(snapshot.active, null, next);
+            flushCount++;
+            frozenFlushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Files.deleteIfExists(walPath(frozen.walNumber()));
+    }
+
+    // Null if nothing was left to write
+    private Segment writeSegment(Memtable memtable, boolean dropTombstones) throws IOException {
+        long number = nextFileNumber.getAndIncrement();
+        Path path = segmentPath(number);
+        try (SegmentWriter writer = new SegmentWriter(path, memtable.size())) {
+            for (Map.Entry<byte[], byte[]> e : memtable.entries()) {
+                byte[] value = e.getValue();
+                if (value == Memtable.TOMBSTONE) {
+                    if (!dropTombstones) writer.add(e.getKey(), null);
+                } else {
+                    writer.add(e.getKey(), ByteBuffer.wrap(value));
+                }
+            }
+            if (writer.count() == 0) return null;
+            writer.finish();
+        }
+        return Segment.open(path, number);
+    }
+
+    private void compactIfNeeded() throws IOException {
+        Segment[] segments = snapshot.segments;
+        if (segments.length < compactionTrigger) return;
+
+        // The newest run that fits in one segment
+        int from = segments.length;
+        long bytes = 0;
+        while (from > 0 && bytes + segments[from - 1].sizeBytes() <= MAX_SEGMENT_BYTES) {
+            bytes += segments[--from].sizeBytes();
+        }
+        if (segments.length - from < 2) return;
+
+        Segment[] run = Arrays.copyOfRange(segments, from, segments.length);
+        Segment merged = merge(run, from == 0);
+        Segment[] next = Arrays.copyOf(segments, from + (merged == null ? 0 : 1));
+        if (merged != null) next[from] = merged;
+        writeManifest(next);
+
+        lock.lock();
+        try {
+            Snapshot s = snapshot;
+            snapshot = new Snapshot(s.active, s.frozen, next);
+            compactionCount++;
+        } finally {
+            lock.unlock();
+        }
+        // Readers holding the old snapshot keep their mappings
+        for (Segment old : run) {
+            Files.deleteIfExists(segmentPath(old.number));
+        }
+    }
+
+    // k-way merge, newest version of each key wins; null if nothing survives
+    private Segment merge(Segment[] run, boolean dropTombstones) throws IOException {
+        // Equal keys: the newer segment (higher index in run) first
+        PriorityQueue<Segment.Cursor> heap = new PriorityQueue<>((a, b) -> {
+            int c = Arrays.compareUnsigned(a.key(), b.key());
+            return c != 0 ? c : Integer.compare(b.age, a.age);
+        });
+        int expected = 0;
+        for (int i = 0; i < run.length; i++) {
+            Segment.Cursor cursor = run[i].cursor(i);
+            expected += run[i].count();
+            if (cursor.advance()) heap.add(cursor);
+        }
+
+        long number = nextFileNumber.getAndIncrement();
+        Path path = segmentPath(number);
+        try (SegmentWriter writer = new SegmentWriter(path, expected)) {
+            while (!heap.isEmpty()) {
+                Segment.Cursor newest = heap.poll();
+                byte[] key = newest.key();
+                if (!newest.isTombstone()) {
+                    writer.add(key, newest.value());
+                } else if (!dropTombstones) {
+                    writer.add(key, null);
+                }
+                if (newest.advance()) heap.add(newest);
+                // Older versions of the same key
+                while (!heap.isEmpty() && Arrays.equals(heap.peek().key(), key)) {
+                    Segment.Cursor older = heap.poll();
+                    if (older.advance()) heap.add(older);
+                }
+            }
+            if (writer.count() == 0) return null;
+            writer.finish();
+        }
+        return Segment.open(path, number);
+    }
+
+    /* ----- files ----- */
+
+    /*
+     * Loads the manifest's segments, replays the logs it doesn't cover into
+     * a new segment, and clears out leftovers. Returns the live segments.
+     */
+    private Segment[] recover() throws IOException {
+        List<Long> live = new ArrayList<>();
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.US_ASCII)) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 2) continue;
+                switch (parts[0]) {
+                    case "wal-floor" -> walFloor = Long.parseLong(parts[1]);
+                    case "segment" -> live.add(Long.parseLong(parts[1]));
+                    default -> throw new IOException("Unknown manifest entry: " + line);
+                }
+            }
+        }
+
+        long maxNumber = walFloor;
+        List<Long> logs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(path); // a flush, merge or manifest write cut short
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long number = fileNumber(name, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                    maxNumber = Math.max(maxNumber, number);
+                    if (!live.contains(number)) Files.delete(path); // merged away, or never listed
+                } else if (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)) {
+                    long number = fileNumber(name, WAL_PREFIX, WAL_SUFFIX);
+                    maxNumber = Math.max(maxNumber, number);
+                    if (number < walFloor) {
+                        Files.delete(path); // already in a segment
+                    } else {
+                        logs.add(number);
+                    }
+                }
+            }
+        }
+        nextFileNumber.set(maxNumber + 1);
+
+        Segment[] segments = new Segment[live.size()];
+        for (int i = 0; i < segments.length; i++) {
+            Path path = segmentPath(live.get(i));
+            if (!Files.exists(path)) {
+                throw new IOException("Manifest lists a missing segment: " + path);
+            }
+            segments[i] = Segment.open(path, live.get(i));
+        }
+
+        Collections.sort(logs);
+        Memtable replayed = new Memtable(-1);
+        for (long number : logs) {
+            WriteAheadLog.replay(walPath(number), (key, value) -> replayed.put(key, value == null ? Memtable.TOMBSTONE : value));
+        }
+        if (!replayed.isEmpty()) {
+            Segment segment = writeSegment(replayed, segments.length == 0);
+            if (segment != null) segments = append(segments, segment);
+        }
+        // The log opened next is the first one not in a segment
+        walFloor = nextFileNumber.get();
+        writeManifest(segments);
+        for (long number : logs) {
+            Files.delete(walPath(number));
+        }
+        return segments;
+    }
+
+    // Replaces the manifest atomically: the old list or the new one, never half.
+    // The move is forced before callers delete what the old list still needs.
+    private void writeManifest(Segment[] segments) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("wal-floor ").append(walFloor).append('\n');
+        for (Segment segment : segments) {
+            text.append("segment ").append(segment.number).append('\n');
+        }
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII));
+            while (bytes.hasRemaining()) channel.write(bytes);
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(directory);
+    }
+
+    /*
+     * Forcing a file doesn't force its name: creates, renames and deletes
+     * live in the directory, which a power cut can roll back on its own.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.toAbsolutePath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Path walPath(long number) {
+        return directory.resolve(String.format("%s%08d%s", WAL_PREFIX, number, WAL_SUFFIX));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static long fileNumber(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static byte[] keyBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Segment[] append(Segment[] segments, Segment segment) {
+        Segment[] next = Arrays.copyOf(segments, segments.length + 1);
+        next[segments.length] = segment;
+        return next;
+    }
+
+    private static IOException asIOException(Exception e) {
+        return e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+
+    private static final class Snapshot {
+        final Memtable active;
+        final Memtable frozen;     // being written out, or null
+        final Segment[] segments;  // oldest first
+
+        Snapshot(Memtable active, Memtable frozen, Segment[] segments) {
+            this.active = active;
+            this.frozen = frozen;
+            this.segments = segments;
+        }
+    }
+}
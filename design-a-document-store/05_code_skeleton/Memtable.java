@@ -0,0 +1,63 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * The in-memory, sorted side of the store: the latest writes, newest value
+ * per key. Keys are UTF-8 bytes in unsigned byte order, the same order the
+ * segment files use, so a flush is a plain walk over the map.
+ *
+ * Writes come from one writer at a time (DocumentStore's lock); reads need
+ * no lock. A delete is stored as TOMBSTONE, so it can hide older values in
+ * the segments until a compaction drops both.
+ */
+final class Memtable {
+
+    // Identity marks a delete; an empty document is a different array
+    static final byte[] TOMBSTONE = new byte[0];
+
+    // Rough per-entry cost of a skip list node, for sizing only
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final ConcurrentSkipListMap<byte[], byte[]> entries = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+    private final long walNumber;
+    private volatile long sizeBytes;
+
+    Memtable(long walNumber) {
+        this.walNumber = walNumber;
+    }
+
+    // Writer only
+    void put(byte[] key, byte[] value) {
+        byte[] previous = entries.put(key, value);
+        long size = sizeBytes + value.length;
+        size += previous == null ? key.length + ENTRY_OVERHEAD : -previous.length;
+        sizeBytes = size;
+    }
+
+    // The value, TOMBSTONE if deleted here, or null if this memtable doesn't know the key
+    byte[] get(byte[] key) {
+        return entries.get(key);
+    }
+
+    Iterable<Map.Entry<byte[], byte[]>> entries() {
+        return entries.entrySet();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    // The log holding this memtable's writes
+    long walNumber() {
+        return walNumber;
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * An immutable, sorted segment file, read through one read-only mapping.
+ *
+ * Layout (big endian), written by SegmentWriter:
+ *   records   key length (int), value length (int, -1 = delete), key, value;
+ *             sorted by key, one record per key
+ *   index     offset (int) of every record, in key order
+ *   bloom     Bloom filter words (long) over the keys
+ *   footer    count, index offset, bloom offset, bloom words, bloom hashes, magic
+ *
+ * A lookup checks the Bloom filter, then binary-searches the index,
+ * comparing keys in place in the mapping. A hit is handed out as a
+ * read-only slice of the mapping, so the document is never copied onto
+ * the heap. The slice stays valid after the segment is compacted away and
+ * its file deleted; the mapping goes when the last slice is collected.
+ */
+final class Segment {
+
+    static final int MAGIC = 0x444F4353; // "DOCS"
+    static final int FOOTER_BYTES = 24;
+    static final int RECORD_HEADER = 8;
+
+    final long number;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexOffset;
+    private final int bloomOffset;
+    private final int bloomWords;
+    private final int bloomHashes;
+
+    private Segment(long number, MappedByteBuffer buffer) throws IOException {
+        this.number = number;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (footer < 0 || buffer.getInt(footer + 20) != MAGIC) {
+            throw new IOException("Not a segment file (bad footer): " + number);
+        }
+        this.count = buffer.getInt(footer);
+        this.indexOffset = buffer.getInt(footer + 4);
+        this.bloomOffset = buffer.getInt(footer + 8);
+        this.bloomWords = buffer.getInt(footer + 12);
+        this.bloomHashes = buffer.getInt(footer + 16);
+    }
+
+    // The mapping stays valid after the channel is closed, so it is not kept around
+    static Segment open(Path path, long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large to map: " + path);
+            }
+            return new Segment(number, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    // Offset of the key's record, or -1
+    int find(byte[] key) {
+        if (!mightContain(key)) return -1;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = buffer.getInt(indexOffset + 4 * mid);
+            int c = compareKey(record, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    boolean isTombstone(int record) {
+        return buffer.getInt(record + 4) < 0;
+    }
+
+    // Read-only view of the document in the mapping
+    ByteBuffer value(int record) {
+        int keyLength = buffer.getInt(record);
+        int valueLength = buffer.getInt(record + 4);
+        return buffer.slice(record + RECORD_HEADER + keyLength, valueLength).asReadOnlyBuffer();
+    }
+
+    // age orders equal keys across segments in a merge: higher is newer
+    Cursor cursor(int age) {
+        return new Cursor(age);
+    }
+
+    // Record's key against key, in unsigned byte order
+    private int compareKey(int record, byte[] key) {
+        int length = buffer.getInt(record);
+        int common = Math.min(length, key.length);
+        int base = record + RECORD_HEADER;
+        for (int i = 0; i < common; i++) {
+            int c = Byte.compareUnsigned(buffer.get(base + i), key[i]);
+            if (c != 0) return c;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private boolean mightContain(byte[] key) {
+        long hash = bloomHash(key);
+        long bits = (long) bloomWords << 6;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bits);
+            if ((buffer.getLong(bloomOffset + 8 * (int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // 64-bit FNV-1a with a final mix, shared with SegmentWriter
+    static long bloomHash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Walks the records in key order, for compaction
+    final class Cursor {
+        final int age;
+        private int next;
+        private int record = -1;
+        private byte[] key;
+
+        private Cursor(int age) {
+            this.age = age;
+        }
+
+        boolean advance() {
+            if (next == count) return false;
+            record = buffer.getInt(indexOffset + 4 * next++);
+            key = new byte[buffer.getInt(record)];
+            buffer.get(record + RECORD_HEADER, key);
+            return true;
+        }
+
+        byte[] key() {
+            return key;
+        }
+
+        boolean isTombstone() {
+            return Segment.this.isTombstone(record);
+        }
+
+        ByteBuffer value() {
+            return Segment.this.value(record);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Writes one segment file (layout in Segment) front to back: records are
+ * staged in a direct buffer and written in large sequential chunks, then
+ * the index, Bloom filter and footer follow. Keys must arrive in strictly
+ * increasing order.
+ *
+ * The file is written under a temp name, forced, and renamed into place by
+ * finish(), so a segment file either exists complete or not at all; the
+ * rename is forced through the directory before a manifest can list it.
+ * Closing without finish() abandons it.
+ */
+final class SegmentWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private final long[] bloom;
+    private int[] offsets = new int[1024];
+    private int count;
+    private long position;
+    private byte[] lastKey;
+    private boolean finished;
+
+    SegmentWriter(Path target, int expectedKeys) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        long bits = Math.max(64, (long) Math.max(expectedKeys, 1) * BLOOM_BITS_PER_KEY);
+        this.bloom = new long[(int) ((bits + 63) >>> 6)];
+    }
+
+    // value null for a delete
+    void add(byte[] key, ByteBuffer value) throws IOException {
+        if (lastKey != null && Arrays.compareUnsigned(lastKey, key) >= 0) {
+            throw new IllegalStateException("Segment keys must be strictly increasing");
+        }
+        lastKey = key;
+
+        int valueLength = value == null ? -1 : value.remaining();
+        long length = Segment.RECORD_HEADER + key.length + Math.max(valueLength, 0);
+        if (position + length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segment would exceed 2 GB");
+        }
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = (int) position;
+        addToBloom(key);
+
+        if (out.remaining() < Segment.RECORD_HEADER + key.length) drain();
+        out.putInt(key.length).putInt(valueLength);
+        if (out.remaining() >= key.length) {
+            out.put(key);
+        } else {
+            put(ByteBuffer.wrap(key));
+        }
+        if (value != null) put(value.duplicate());
+        position += length;
+    }
+
+    int count() {
+        return count;
+    }
+
+    void finish() throws IOException {
+        int indexOffset = (int) position;
+        for (int i = 0; i < count; i++) {
+            if (out.remaining() < 4) drain();
+            out.putInt(offsets[i]);
+        }
+        long bloomOffset = indexOffset + 4L * count;
+        for (long word : bloom) {
+            if (out.remaining() < 8) drain();
+            out.putLong(word);
+        }
+        long end = bloomOffset + 8L * bloom.length + Segment.FOOTER_BYTES;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segment would exceed 2 GB");
+        }
+        if (out.remaining() < Segment.FOOTER_BYTES) drain();
+        out.putInt(count).putInt(indexOffset).putInt((int) bloomOffset)
+                .putInt(bloom.length).putInt(BLOOM_HASHES).putInt(Segment.MAGIC);
+        drain();
+
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        DocumentStore.forceDirectory(target.toAbsolutePath().getParent());
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        channel.close();
+        Files.deleteIfExists(temp);
+    }
+
+    // Copies source into the staging buffer, draining it as it fills
+    private void put(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            if (!out.hasRemaining()) drain();
+            int n = Math.min(out.remaining(), source.remaining());
+            out.put(out.position(), source, source.position(), n);
+            out.position(out.position() + n);
+            source.position(source.position() + n);
+        }
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private void addToBloom(byte[] key) {
+        long hash = Segment.bloomHash(key);
+        long bits = (long) bloom.length << 6;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Long.remainderUnsigned(hash + i * h2, bits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+}
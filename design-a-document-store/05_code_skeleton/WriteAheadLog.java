@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/*
+ * Append-only log of the writes in the active memtable, so they survive a
+ * crash before the memtable is flushed to a segment.
+ *
+ * Every append is written through to the file before it returns, so a
+ * write survives the process dying (kill -9 included) as soon as it is
+ * acknowledged. Only the fsync is left to the caller: sync() forces
+ * everything appended so far, so one force covers a whole batch of writes,
+ * and only writes since the last sync() can be lost if the machine itself
+ * goes down.
+ *
+ * Record layout (big endian):
+ *   0 CRC32C of bytes 4..   4 key length   8 value length (-1 = delete)
+ *   12 key   12 + key length value
+ *
+ * Replay stops at the first record that is cut short or fails its CRC:
+ * that is where the crash happened.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    private static final int HEADER = 12;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    // Scratch for one record, so the write needs no copy into a temporary direct buffer
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    // A write that failed may have left part of a record; anything after it would be lost on replay
+    private boolean broken;
+
+    private WriteAheadLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // The new name is forced right away, so sync() later only has to force the file
+    static WriteAheadLog create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            DocumentStore.forceDirectory(path.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new WriteAheadLog(channel);
+    }
+
+    // value null for a delete; caller serializes appends
+    void append(byte[] key, byte[] value) throws IOException {
+        if (broken) {
+            throw new IOException("An earlier write to the log failed");
+        }
+        int valueLength = value == null ? -1 : value.length;
+        int length = HEADER + key.length + Math.max(valueLength, 0);
+
+        crc.reset();
+        crc.update(key.length >>> 24);
+        crc.update(key.length >>> 16);
+        crc.update(key.length >>> 8);
+        crc.update(key.length);
+        crc.update(valueLength >>> 24);
+        crc.update(valueLength >>> 16);
+        crc.update(valueLength >>> 8);
+        crc.update(valueLength);
+        crc.update(key);
+        if (value != null) crc.update(value);
+
+        ByteBuffer record = length <= buffer.capacity() ? buffer.clear() : ByteBuffer.allocate(length);
+        record.putInt((int) crc.getValue()).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) record.put(value);
+        write(record.flip());
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(ByteBuffer source) throws IOException {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    // Hands every intact record to the consumer, value null for a delete; returns how many
+    static int replay(Path path, BiConsumer<byte[], byte[]> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            int records = 0;
+            while (log.remaining() >= HEADER) {
+                int start = log.position();
+                int expected = log.getInt();
+                int keyLength = log.getInt();
+                int valueLength = log.getInt();
+                if (keyLength < 0 || valueLength < -1
+                        || (long) keyLength + Math.max(valueLength, 0) > log.remaining()) {
+                    break; // torn or garbage length
+                }
+                crc.reset();
+                crc.update(log.slice(start + 4, HEADER - 4 + keyLength + Math.max(valueLength, 0)));
+                if ((int) crc.getValue() != expected) break;
+
+                byte[] key = new byte[keyLength];
+                log.get(key);
+                byte[] value = null;
+                if (valueLength >= 0) {
+                    value = new byte[valueLength];
+                    log.get(value);
+                }
+                consumer.accept(key, value);
+                records++;
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Write and read throughput of DocumentStore on the local disk.
+ *
+ * Writes: one thread puts DOCUMENTS documents of DOCUMENT_BYTES each under
+ * random keys, then flushes, so the number covers the log, the memtable
+ * and every segment and compaction write behind it. Bytes are reported as
+ * document payload, not as what reached the disk.
+ *
+ * Reads: THREAD_COUNTS threads get random keys, all of them from segments
+ * (the memtable is empty after the flush). Reported per read as the
+ * average, since one read takes a few microseconds; reads consume the
+ * document in place, without copying it out of the mapping.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.Stream;
+
+public class DocumentStoreBenchmark {
+
+    static final int DOCUMENTS = 1_000_000;
+    static final int DOCUMENT_BYTES = 256;
+    static final int[] THREAD_COUNTS = {1, 4};
+    static final long READ_MILLIS = 2_000;
+
+    // Keeps the JIT from dropping the reads
+    static final LongAdder sink = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("document-store-benchmark");
+        try (DocumentStore store = DocumentStore.open(dir)) {
+            byte[] document = new byte[DOCUMENT_BYTES];
+            Random random = new Random(1);
+            random.nextBytes(document);
+
+            System.out.println("\n=== WRITES (" + DOCUMENTS + " x " + DOCUMENT_BYTES + " bytes) ===");
+            long begin = System.nanoTime();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                store.put(key(random.nextInt(DOCUMENTS)), document);
+            }
+            store.flush();
+            long elapsed = System.nanoTime() - begin;
+            double seconds = elapsed / 1e9;
+            System.out.printf("%,.0f puts/s, %,.1f MB/s payload%n",
+                    DOCUMENTS / seconds, (double) DOCUMENTS * DOCUMENT_BYTES / seconds / (1 << 20));
+            System.out.println("segments=" + store.getSegmentCount() + " flushes=" + store.getFlushCount()
+                    + " compactions=" + store.getCompactionCount());
+
+            System.out.println("\n=== READS (from segments) ===");
+            System.out.printf("%8s %16s %12s%n", "threads", "gets/s", "ns/get");
+            read(store, 1, 500); // warmup
+            for (int threads : THREAD_COUNTS) {
+                long gets = read(store, threads, READ_MILLIS);
+                double perSecond = gets * 1_000.0 / READ_MILLIS;
+                System.out.printf("%8d %,16.0f %,12.0f%n", threads, perSecond, threads * 1e9 / perSecond);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    static String key(int i) {
+        return "user:" + i + ":profile";
+    }
+
+    static long read(DocumentStore store, int threads, long millis) throws Exception {
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder gets = new LongAdder();
+
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            ex.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                long local = 0;
+                while (!stop.get()) {
+                    Optional<ByteBuffer> document = store.get(key(random.nextInt(DOCUMENTS)));
+                    if (document.isPresent()) {
+                        ByteBuffer d = document.get();
+                        sink.add(d.get(d.limit() - 1)); // touch the mapped bytes
+                    }
+                    local++;
+                }
+                gets.add(local);
+                return null;
+            });
+        }
+
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        ex.shutdown();
+        ex.awaitTermination(30, TimeUnit.SECONDS);
+        return gets.sum();
+    }
+}
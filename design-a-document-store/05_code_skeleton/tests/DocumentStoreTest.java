@@ -0,0 +1,328 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+public class DocumentStoreTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            basicTest();
+            segmentReadTest();
+            compactionTest();
+            restartTest();
+            concurrentReadWriteTest();
+            killedProcessTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ DOCUMENT STORE FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static Path tempDir() throws IOException {
+        Path dir = Files.createTempDirectory("document-store");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    private static long filesEndingWith(Path dir, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+
+    private static byte[] doc(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String read(DocumentStore store, String key) {
+        return store.get(key).map(DocumentStoreTest::text).orElse(null);
+    }
+
+    // Random puts and deletes, mirrored in a map
+    private static void randomWrites(DocumentStore store, Map<String, String> expected, int ops, int keys, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < ops; i++) {
+            String key = "doc-" + random.nextInt(keys);
+            if (random.nextInt(5) == 0) {
+                store.delete(key);
+                expected.remove(key);
+            } else {
+                String value = "{\"n\":" + i + ",\"pad\":\"" + "x".repeat(random.nextInt(200)) + "\"}";
+                store.put(key, doc(value));
+                expected.put(key, value);
+            }
+        }
+    }
+
+    private static void checkContents(DocumentStore store, Map<String, String> expected, int keys) {
+        for (int k = 0; k < keys; k++) {
+            String key = "doc-" + k;
+            String actual = read(store, key);
+            check(Objects.equals(actual, expected.get(key)), key + ": expected " + expected.get(key) + ", got " + actual);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Put, get, delete                            */
+    /* -------------------------------------------------- */
+
+    private static void basicTest() throws Exception {
+        System.out.println("\n==== BASIC ====");
+        Path dir = tempDir();
+        try (DocumentStore store = DocumentStore.open(dir)) {
+            check(store.get("missing").isEmpty(), "Missing key found");
+
+            byte[] original = doc("{\"title\":\"first\"}");
+            store.put("a", original);
+            original[2] = 'X'; // the store keeps its own copy
+            check("{\"title\":\"first\"}".equals(read(store, "a")), "Got " + read(store, "a"));
+
+            store.put("a", doc("{\"title\":\"second\"}"));
+            check("{\"title\":\"second\"}".equals(read(store, "a")), "Overwrite lost");
+
+            store.put("empty", new byte[0]);
+            check(store.get("empty").isPresent() && store.get("empty").get().remaining() == 0, "Empty document");
+            store.delete("a");
+            check(store.get("a").isEmpty(), "Deleted key still found");
+
+            store.put("ключ-🔑", doc("unicode"));
+            check("unicode".equals(read(store, "ключ-🔑")), "Unicode key");
+            check(store.get("ключ-🔑").get().isReadOnly(), "Documents must be read-only");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Reads through the segment files             */
+    /* -------------------------------------------------- */
+
+    private static void segmentReadTest() throws Exception {
+        System.out.println("\n==== SEGMENT READS ====");
+        Path dir = tempDir();
+        Map<String, String> expected = new HashMap<>();
+        // Small memtables and no compaction: many overlapping segments
+        try (DocumentStore store = DocumentStore.open(dir, 64 * 1024, 1_000)) {
+            randomWrites(store, expected, 20_000, 2_000, 1);
+            store.flush();
+            System.out.println("segments=" + store.getSegmentCount() + " flushes=" + store.getFlushCount());
+            check(store.getSegmentCount() > 10, "Expected many segments, got " + store.getSegmentCount());
+            check(filesEndingWith(dir, ".seg") == store.getSegmentCount(), "Segment files on disk");
+            checkContents(store, expected, 2_000);
+
+            // A hit in a segment is a read-only view of the mapping, not a heap copy
+            String key = expected.keySet().iterator().next();
+            ByteBuffer value = store.get(key).orElseThrow();
+            check(value.isDirect() && value.isReadOnly(), "Segment read copied to the heap");
+            check(store.get("doc-999999").isEmpty(), "Absent key found");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Compaction keeps the newest, drops deletes  */
+    /* -------------------------------------------------- */
+
+    private static void compactionTest() throws Exception {
+        System.out.println("\n==== COMPACTION ====");
+        Path dir = tempDir();
+        Map<String, String> expected = new HashMap<>();
+        try (DocumentStore store = DocumentStore.open(dir, 32 * 1024, 4)) {
+            randomWrites(store, expected, 30_000, 1_000, 2);
+            store.flush();
+            System.out.println("segments=" + store.getSegmentCount() + " compactions=" + store.getCompactionCount());
+            check(store.getCompactionCount() > 0, "No compaction ran");
+            check(store.getSegmentCount() < 4 + 1, "Segments piled up: " + store.getSegmentCount());
+            checkContents(store, expected, 1_000);
+
+            // Delete everything: once a merge reaches the oldest segment, nothing is left
+            for (int round = 0; round < 4; round++) {
+                for (int k = 0; k < 1_000; k++) {
+                    store.delete("doc-" + k);
+                }
+                store.flush();
+            }
+            expected.clear();
+            checkContents(store, expected, 1_000);
+            check(store.getSegmentCount() <= 1, "Tombstones kept: " + store.getSegmentCount() + " segments");
+            check(filesEndingWith(dir, ".seg") == store.getSegmentCount(), "Merged segments left on disk");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Restart after close and after a crash       */
+    /* -------------------------------------------------- */
+
+    private static void restartTest() throws Exception {
+        System.out.println("\n==== RESTART ====");
+        Path dir = tempDir();
+        Map<String, String> expected = new HashMap<>();
+
+        try (DocumentStore store = DocumentStore.open(dir, 64 * 1024, 4)) {
+            randomWrites(store, expected, 5_000, 500, 3);
+        }
+        // Never closed: stands in for a crash after the log was forced. Its
+        // memtable is big enough that no background flush is left running.
+        DocumentStore crashed = DocumentStore.open(dir);
+        checkContents(crashed, expected, 500);
+        randomWrites(crashed, expected, 5_000, 500, 4);
+        crashed.sync();
+
+        // A crash mid-write: garbage after the last record of the newest log
+        Path newestLog;
+        try (Stream<Path> files = Files.list(dir)) {
+            newestLog = files.filter(p -> p.getFileName().toString().startsWith("wal-"))
+                    .max(Comparator.naturalOrder()).orElseThrow();
+        }
+        Files.write(newestLog, new byte[] {0, 0, 0, 7, 0, 0, 0, 3, 1, 2}, StandardOpenOption.APPEND);
+        // Leftovers of a flush cut short
+        Files.write(dir.resolve("segment-99999999.seg.tmp"), new byte[100]);
+        Files.write(dir.resolve("segment-99999998.seg"), new byte[100]);
+
+        try (DocumentStore store = DocumentStore.open(dir, 64 * 1024, 4)) {
+            checkContents(store, expected, 500);
+            check(!Files.exists(dir.resolve("segment-99999999.seg.tmp")), "Temp file kept");
+            check(!Files.exists(dir.resolve("segment-99999998.seg")), "Unlisted segment kept");
+            store.put("after-restart", doc("ok"));
+            check("ok".equals(read(store, "after-restart")), "Write after recovery");
+        }
+        try (DocumentStore store = DocumentStore.open(dir, 64 * 1024, 4)) {
+            checkContents(store, expected, 500);
+            check("ok".equals(read(store, "after-restart")), "Write after recovery lost");
+        }
+
+        DocumentStore closed = DocumentStore.open(dir);
+        closed.close();
+        try {
+            closed.put("x", doc("y"));
+            throw new AssertionError("Write after close accepted");
+        } catch (IllegalStateException expectedFailure) {
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Readers never see a value go backwards      */
+    /* -------------------------------------------------- */
+
+    private static void concurrentReadWriteTest() throws Exception {
+        System.out.println("\n==== CONCURRENT READ/WRITE ====");
+        Path dir = tempDir();
+        int keys = 500;
+        int readers = 4;
+        AtomicBoolean done = new AtomicBoolean();
+
+        try (DocumentStore store = DocumentStore.open(dir, 32 * 1024, 4)) {
+            ExecutorService ex = Executors.newFixedThreadPool(readers + 1);
+            List<Future<?>> futures = new ArrayList<>();
+            try {
+                // Each key's version only goes up, through flushes and compactions
+                futures.add(ex.submit(() -> {
+                    int[] versions = new int[keys];
+                    Random random = new Random(5);
+                    for (int i = 0; i < 100_000; i++) {
+                        int k = random.nextInt(keys);
+                        store.put("doc-" + k, doc(Integer.toString(++versions[k])));
+                    }
+                    done.set(true);
+                    return null;
+                }));
+                for (int r = 0; r < readers; r++) {
+                    final int seed = r;
+                    futures.add(ex.submit(() -> {
+                        int[] seen = new int[keys];
+                        Random random = new Random(100 + seed);
+                        while (!done.get()) {
+                            int k = random.nextInt(keys);
+                            String value = read(store, "doc-" + k);
+                            int version = value == null ? 0 : Integer.parseInt(value);
+                            check(version >= seen[k], "doc-" + k + " went from " + seen[k] + " to " + version);
+                            seen[k] = version;
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : futures) f.get(120, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof AssertionError) throw (AssertionError) e.getCause();
+                throw e;
+            } finally {
+                ex.shutdownNow();
+            }
+            System.out.println("flushes=" + store.getFlushCount() + " compactions=" + store.getCompactionCount());
+            check(store.getFlushCount() > 0 && store.getCompactionCount() > 0, "Flush and compaction should have run");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Acknowledged writes survive a kill -9       */
+    /* -------------------------------------------------- */
+
+    private static final int KILLED_WRITES = 1_000;
+
+    // Runs in a child JVM: writes without sync(), reports, then waits to be killed
+    static final class KilledWriter {
+        public static void main(String[] args) throws Exception {
+            DocumentStore store = DocumentStore.open(Path.of(args[0]));
+            for (int i = 0; i < KILLED_WRITES; i++) {
+                store.put("doc-" + i, doc("v" + i));
+            }
+            System.out.println("written");
+            System.out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+
+    private static void killedProcessTest() throws Exception {
+        System.out.println("\n==== KILLED PROCESS ====");
+        Path dir = tempDir();
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                KilledWriter.class.getName(), dir.toString()).redirectErrorStream(true).start();
+        try (var out = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+            String line = out.readLine();
+            check("written".equals(line), "Writer did not finish: " + line);
+            child.destroyForcibly();
+            check(child.waitFor(30, TimeUnit.SECONDS), "Writer not killed");
+        }
+
+        try (DocumentStore store = DocumentStore.open(dir)) {
+            for (int i = 0; i < KILLED_WRITES; i++) {
+                check(("v" + i).equals(read(store, "doc-" + i)), "Acknowledged write doc-" + i + " lost");
+            }
+        }
+        deleteAll(dir);
+    }
+}
@@ -0,0 +1,240 @@
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Wraps another allocator and switches between two reservation modes:
+ *
+ * - OPTIMISTIC: go straight to the lock-free pool and fail fast when it
+ *   comes back empty (the original behaviour).
+ * - PESSIMISTIC: queue up on a fair ReentrantLock and wait (bounded) for a
+ *   released spot, so requests are served in arrival order instead of
+ *   whoever happens to win the next poll().
+ *
+ * Contention is measured per time window: optimistic attempts that lost
+ * the race for the spots in the pool (it came back empty-handed although
+ * the pool is not empty) in OPTIMISTIC mode, threads that found the lock
+ * taken in PESSIMISTIC mode. An empty pool is a full lot, not contention,
+ * and does not count. Reaching the threshold within a window switches to
+ * PESSIMISTIC; a window with less than half the threshold (at least a
+ * window without any) switches back.
+ *
+ * Only tryAcquire waits; poll never does, so callers that must not block
+ * (handing a released spot on, see ParkingLot.pollSpot) use that.
+ */
+public class AdaptiveSpotAllocator implements SpotAllocator {
+
+    public enum Mode {
+        OPTIMISTIC,
+        PESSIMISTIC
+    }
+
+    public static final int DEFAULT_CONTENTION_THRESHOLD = 64;
+    public static final long DEFAULT_WINDOW_MILLIS = 100;
+    public static final long DEFAULT_PESSIMISTIC_WAIT_MILLIS = 50;
+
+    private final SpotAllocator delegate;
+    private final int contentionThreshold;
+    private final long windowNanos;
+    private final long pessimisticWaitNanos;
+
+    private final ReentrantLock reservationLock = new ReentrantLock(true);
+    private final Condition spotReleased = reservationLock.newCondition();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+
+    private final AtomicReference<Mode> mode = new AtomicReference<>(Mode.OPTIMISTIC);
+    private final AtomicLong windowStartNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder windowContention = new LongAdder();
+
+    private final LongAdder failedOptimisticAttempts = new LongAdder();
+    private final LongAdder blockedAcquisitions = new LongAdder();
+    private final LongAdder pessimisticTimeouts = new LongAdder();
+    private final AtomicLong modeSwitches = new AtomicLong();
+
+    public AdaptiveSpotAllocator(SpotAllocator delegate) {
+        this(delegate, DEFAULT_CONTENTION_THRESHOLD, DEFAULT_WINDOW_MILLIS, DEFAULT_PESSIMISTIC_WAIT_MILLIS);
+    }
+
+    public AdaptiveSpotAllocator(SpotAllocator delegate, int contentionThreshold,
+            long windowMillis, long pessimisticWaitMillis) {
+        if (contentionThreshold < 1 || windowMillis < 1 || pessimisticWaitMillis < 0) {
+            throw new IllegalArgumentException("Threshold and window must be positive, wait must not be negative");
+        }
+        this.delegate = delegate;
+        this.contentionThreshold = contentionThreshold;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.pessimisticWaitNanos = TimeUnit.MILLISECONDS.toNanos(pessimisticWaitMillis);
+    }
+
+    @Override
+    public ParkingSpot tryAcquire(int gate) {
+        rollWindowIfElapsed();
+
+        if (mode.get() == Mode.OPTIMISTIC) {
+            ParkingSpot spot = delegate.tryAcquire(gate);
+            if (spot == null && !delegate.isEmpty()) {
+                failedOptimisticAttempts.increment();
+                recordContention();
+            }
+            return spot;
+        }
+
+        return acquirePessimistically(gate);
+    }
+
+    // Skips the lock and the wait in either mode, and counts nothing
+    @Override
+    public ParkingSpot poll(int gate) {
+        return delegate.poll(gate);
+    }
+
+    @Override
+    public void release(ParkingSpot spot) {
+        delegate.release(spot);
+        wakeWaiters(1);
+    }
+
+    @Override
+    public void releaseAll(Collection<ParkingSpot> spots) {
+        delegate.releaseAll(spots);
+        wakeWaiters(spots.size());
+    }
+
+    @Override
+    public boolean remove(ParkingSpot spot) {
+        return delegate.remove(spot);
+    }
+
+    @Override
+    public void claimAll(Collection<ParkingSpot> spots) {
+        delegate.claimAll(spots);
+    }
+
+    @Override
+    public Collection<ParkingSpot> availableSpots() {
+        return delegate.availableSpots();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    public Mode getMode() {
+        return mode.get();
+    }
+
+    public int getContentionThreshold() {
+        return contentionThreshold;
+    }
+
+    public long getFailedOptimisticAttempts() {
+        return failedOptimisticAttempts.sum();
+    }
+
+    public long getBlockedAcquisitions() {
+        return blockedAcquisitions.sum();
+    }
+
+    public long getPessimisticTimeouts() {
+        return pessimisticTimeouts.sum();
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    public long getModeSwitches() {
+        return modeSwitches.get();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveSpotAllocator{" +
+               "mode=" + mode.get() +
+               ", contentionThreshold=" + contentionThreshold +
+               ", failedOptimisticAttempts=" + getFailedOptimisticAttempts() +
+               ", blockedAcquisitions=" + getBlockedAcquisitions() +
+               ", pessimisticTimeouts=" + getPessimisticTimeouts() +
+               ", waitingThreads=" + getWaitingThreads() +
+               ", modeSwitches=" + getModeSwitches() +
+               '}';
+    }
+
+    private ParkingSpot acquirePessimistically(int gate) {
+        if (!reservationLock.tryLock()) {
+            blockedAcquisitions.increment();
+            recordContention();
+            reservationLock.lock();
+        }
+
+        waitingThreads.incrementAndGet();
+        try {
+            long remaining = pessimisticWaitNanos;
+            ParkingSpot spot;
+            while ((spot = delegate.tryAcquire(gate)) == null) {
+                if (remaining <= 0) {
+                    pessimisticTimeouts.increment();
+                    return null;
+                }
+                // Waiting for a release is scarcity, not contention
+                blockedAcquisitions.increment();
+                remaining = spotReleased.awaitNanos(remaining);
+            }
+            return spot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            waitingThreads.decrementAndGet();
+            reservationLock.unlock();
+        }
+    }
+
+    // waitingThreads is bumped before a waiter checks the pool, so either
+    // the waiter sees the released spots or we see the waiter and wake it up
+    private void wakeWaiters(int released) {
+        if (waitingThreads.get() == 0) return;
+
+        reservationLock.lock();
+        try {
+            for (int i = 0; i < released; i++) {
+                spotReleased.signal();
+            }
+        } finally {
+            reservationLock.unlock();
+        }
+    }
+
+    private void recordContention() {
+        windowContention.increment();
+        if (mode.get() == Mode.OPTIMISTIC && windowContention.sum() >= contentionThreshold) {
+            switchTo(Mode.OPTIMISTIC, Mode.PESSIMISTIC);
+        }
+    }
+
+    private void rollWindowIfElapsed() {
+        long start = windowStartNanos.get();
+        long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStartNanos.compareAndSet(start, now)) {
+            return;
+        }
+
+        long contention = windowContention.sumThenReset();
+        // Half of a threshold of 1 rounds to 0, which no window could get under
+        if (contention < Math.max(1, contentionThreshold / 2)) {
+            switchTo(Mode.PESSIMISTIC, Mode.OPTIMISTIC);
+        }
+    }
+
+    private void switchTo(Mode from, Mode to) {
+        if (mode.compareAndSet(from, to)) {
+            modeSwitches.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Flow publisher of a lot's availability, for display boards and apps.
+ *
+ * Nothing is added to tryAcquireSpot/releaseSpot. A timer thread samples
+ * the lot's per-floor free counters (the LongAdders behind
+ * ParkingLot.getAvailableSpotCount) every period and publishes only when
+ * a count moved, so any amount of churn within a period becomes one
+ * update, and a spot taken and given back in between is no update at all.
+ *
+ * Each subscriber holds just the latest sample, not a queue: a subscriber
+ * that has no demand, or is still busy with its last update, gets the
+ * newest counts once it asks again, with the changes folded together.
+ * So a slow subscriber costs one reference and never holds up the timer
+ * or other subscribers; signals to a subscriber are run one at a time on
+ * the executor (the common pool by default), and never while onSubscribe
+ * is still running. A subscriber whose signal the executor rejects gets
+ * onError and is dropped; the others keep their updates. forFloor(n)
+ * gives a publisher that only signals when floor n changed.
+ *
+ * The floors are read one after another, so a sample taken while a car
+ * moves between floors may see both spots free or both taken for one
+ * period; the next sample corrects it.
+ */
+public class AvailabilityPublisher implements Flow.Publisher<AvailabilityUpdate>, AutoCloseable {
+
+    private static final int ALL_FLOORS = -1;
+
+    private final ParkingLot lot;
+    private final Executor executor;
+    private final int[] floors;
+    private final Set<AvailabilitySubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+
+    private volatile Sample latest;
+    private volatile boolean closed;
+
+    public AvailabilityPublisher(ParkingLot lot, long periodMillis) {
+        this(lot, periodMillis, ForkJoinPool.commonPool());
+    }
+
+    public AvailabilityPublisher(ParkingLot lot, long periodMillis, Executor executor) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        this.lot = lot;
+        this.executor = executor;
+        this.floors = floorsOf(lot);
+        this.latest = new Sample(0, System.currentTimeMillis(), readFreeCounts());
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "availability-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::sample, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super AvailabilityUpdate> subscriber) {
+        subscribe(subscriber, ALL_FLOORS);
+    }
+
+    public Flow.Publisher<AvailabilityUpdate> forFloor(int floor) {
+        int ordinal = Arrays.binarySearch(floors, floor);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Lot has no floor " + floor);
+        }
+        return subscriber -> subscribe(subscriber, ordinal);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Stops sampling; every subscriber gets onComplete, after its last update if it still has demand
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        for (AvailabilitySubscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    private void subscribe(Flow.Subscriber<? super AvailabilityUpdate> subscriber, int floorOrdinal) {
+        // Starts out holding the drain, so a request made inside onSubscribe
+        // is only recorded and no signal can overlap it (rule 1.3)
+        AvailabilitySubscription subscription = new AvailabilitySubscription(subscriber, floorOrdinal);
+        subscriber.onSubscribe(subscription);
+        // The current counts are the first update, sent once the subscriber asks.
+        // Offered again after joining, in case a sample was published in between.
+        subscription.offer(latest);
+        subscriptions.add(subscription);
+        subscription.offer(latest);
+        subscription.execute();
+    }
+
+    private void sample() {
+        Sample previous = latest;
+        int[] free = readFreeCounts();
+        if (Arrays.equals(free, previous.freeByFloor)) return;
+
+        Sample next = new Sample(previous.sequence + 1, System.currentTimeMillis(), free);
+        latest = next;
+        for (AvailabilitySubscription subscription : subscriptions) {
+            subscription.offer(next);
+        }
+    }
+
+    private int[] readFreeCounts() {
+        int[] free = new int[floors.length];
+        for (int ordinal = 0; ordinal < floors.length; ordinal++) {
+            free[ordinal] = lot.getAvailableSpotCount(floors[ordinal]);
+        }
+        return free;
+    }
+
+    private static int[] floorsOf(ParkingLot lot) {
+        // Spots are indexed floor by floor, so floors come out ascending
+        int[] floors = new int[lot.getTotalSpots()];
+        int count = 0;
+        for (int i = 0; i < lot.getTotalSpots(); i++) {
+            int floor = lot.spotAt(i).getFloor();
+            if (count == 0 || floors[count - 1] != floor) floors[count++] = floor;
+        }
+        return Arrays.copyOf(floors, count);
+    }
+
+    private static final class Sample {
+        final long sequence;
+        final long epochMillis;
+        final int[] freeByFloor;
+
+        Sample(long sequence, long epochMillis, int[] freeByFloor) {
+            this.sequence = sequence;
+            this.epochMillis = epochMillis;
+            this.freeByFloor = freeByFloor;
+        }
+    }
+
+    private final class AvailabilitySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super AvailabilityUpdate> subscriber;
+        private final int floorOrdinal;
+        private final AtomicLong demand = new AtomicLong();
+        // Work-in-progress counter: whoever raises it from 0 schedules the drain;
+        // subscribe holds it from the start until onSubscribe has returned
+        private final AtomicInteger wip = new AtomicInteger(1);
+
+        private final AtomicReference<Sample> pending = new AtomicReference<>();
+        private volatile boolean cancelled;
+        private volatile Throwable badRequest;
+        private Sample delivered; // drain only
+
+        AvailabilitySubscription(Flow.Subscriber<? super AvailabilityUpdate> subscriber, int floorOrdinal) {
+            this.subscriber = subscriber;
+            this.floorOrdinal = floorOrdinal;
+        }
+
+        // Newest sample wins; an older one arriving late is ignored
+        void offer(Sample sample) {
+            Sample current;
+            do {
+                current = pending.get();
+                if (current != null && current.sequence >= sample.sequence) return;
+            } while (!pending.compareAndSet(current, sample));
+            if (demand.get() > 0) schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request(" + n + ") must be positive (rule 3.9)");
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                execute();
+            }
+        }
+
+        // Only called while holding wip, so no drain can signal concurrently.
+        // A rejection leaves wip raised: the subscription is done with.
+        void execute() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                cancel();
+                try {
+                    subscriber.onError(e);
+                } catch (RuntimeException ignored) {
+                    // keep the caller (the timer thread on a sample) going
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (cancelled) return;
+
+                if (badRequest != null) {
+                    cancel();
+                    subscriber.onError(badRequest);
+                    return;
+                }
+
+                Sample sample = pending.get();
+                if (sample != delivered && demand.get() > 0) {
+                    Sample previous = delivered;
+                    delivered = sample;
+                    // A floor subscriber skips samples where its floor did not move
+                    if (floorOrdinal == ALL_FLOORS || previous == null
+                            || sample.freeByFloor[floorOrdinal] != previous.freeByFloor[floorOrdinal]) {
+                        if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                        try {
+                            subscriber.onNext(new AvailabilityUpdate(lot.getParkingLotId(), sample.sequence,
+                                    sample.epochMillis, floors, sample.freeByFloor,
+                                    previous == null ? null : previous.freeByFloor));
+                        } catch (RuntimeException e) {
+                            cancel(); // a throwing subscriber is dropped, like SubmissionPublisher does
+                            return;
+                        }
+                    }
+                    continue; // a newer sample may have landed meanwhile
+                }
+
+                if (closed && (sample == delivered || demand.get() == 0)) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+import java.util.UUID;
+
+/*
+ * Free spot counts of one lot at a moment, plus the change since the
+ * previous update this subscriber received. Updates the subscriber never
+ * asked for are folded in, so the changes always add up to the counts.
+ * The first update a subscriber receives reports no change.
+ */
+public class AvailabilityUpdate {
+
+    private final UUID parkingLotId;
+    private final long sequence;
+    private final long epochMillis;
+    private final int[] floors;          // floor numbers, ascending, shared
+    private final int[] freeByFloor;     // shared with other subscribers, never written
+    private final int[] previousByFloor; // null for the first update
+
+    AvailabilityUpdate(UUID parkingLotId, long sequence, long epochMillis, int[] floors, int[] freeByFloor,
+            int[] previousByFloor) {
+        this.parkingLotId = parkingLotId;
+        this.sequence = sequence;
+        this.epochMillis = epochMillis;
+        this.floors = floors;
+        this.freeByFloor = freeByFloor;
+        this.previousByFloor = previousByFloor;
+    }
+
+    public UUID getParkingLotId() {
+        return parkingLotId;
+    }
+
+    // Increases with every sample that differed from the one before
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public int[] getFloors() {
+        return floors.clone();
+    }
+
+    public int getFreeCount() {
+        int free = 0;
+        for (int f : freeByFloor) free += f;
+        return free;
+    }
+
+    public int getFreeCount(int floor) {
+        int ordinal = Arrays.binarySearch(floors, floor);
+        return ordinal < 0 ? 0 : freeByFloor[ordinal];
+    }
+
+    // Positive when spots were freed
+    public int getChange() {
+        int change = 0;
+        for (int ordinal = 0; ordinal < floors.length; ordinal++) change += changeAt(ordinal);
+        return change;
+    }
+
+    public int getChange(int floor) {
+        int ordinal = Arrays.binarySearch(floors, floor);
+        return ordinal < 0 ? 0 : changeAt(ordinal);
+    }
+
+    private int changeAt(int ordinal) {
+        return previousByFloor == null ? 0 : freeByFloor[ordinal] - previousByFloor[ordinal];
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityUpdate{" +
+               "sequence=" + sequence +
+               ", free=" + getFreeCount() +
+               ", change=" + getChange() +
+               '}';
+    }
+}
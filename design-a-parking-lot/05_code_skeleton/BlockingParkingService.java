@@ -0,0 +1,75 @@
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Blocking front end over ParkingService, meant to be called from one
+ * virtual thread per gate or app request.
+ *
+ * "Wait for a spot up to T" is built on the async waitlist: the caller
+ * blocks in CompletableFuture.get, which parks through LockSupport. No
+ * monitor is held while waiting, so a waiting virtual thread unmounts
+ * from its carrier instead of pinning it. The same code works on
+ * platform threads, it just costs a whole OS thread per waiting client.
+ */
+public class BlockingParkingService {
+
+    private final ParkingService parkingService;
+
+    public BlockingParkingService(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    /*
+     * Returns the session id, or empty if no spot freed up within maxWait.
+     * A zero or negative maxWait only takes a spot that is free right now.
+     * Throws IllegalStateException if the user already has a session.
+     */
+    public Optional<UUID> park(User user, Vehicle vehicle, Duration maxWait) throws InterruptedException {
+        // The async call reads a timeout <= 0 as "wait indefinitely", so a
+        // single try joins without one and leaves again at once
+        boolean singleTry = !maxWait.isPositive();
+        CompletableFuture<UUID> request =
+                parkingService.startParkingSessionAsync(user, vehicle, singleTry ? 0 : nanos(maxWait), TimeUnit.NANOSECONDS);
+        if (singleTry && request.cancel(false)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(request.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                return Optional.empty();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            // Leave the waitlist. If a spot was handed to us just before the
+            // cancel, the session exists, so report it rather than leak it.
+            if (!request.cancel(false) && !request.isCompletedExceptionally()) {
+                Thread.currentThread().interrupt();
+                return Optional.of(request.join());
+            }
+            throw e;
+        }
+    }
+
+    public boolean leave(User user) {
+        return parkingService.endParkingSession(user);
+    }
+
+    // Longer than ~292 years is as good as forever
+    private static long nanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
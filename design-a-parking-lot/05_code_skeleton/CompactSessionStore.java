@@ -0,0 +1,310 @@
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * Session store without a per-session object graph. A session is 8 longs
+ * in a flat slab: user id, session id and vehicle id as long pairs, the
+ * start as epoch millis, and one word packing the spot index, vehicle type
+ * and pass flag. The slab is an open-addressing table keyed by user id
+ * (linear probing, backward-shift deletes, so no tombstones), split into
+ * segments by hash to keep writers on different users apart.
+ *
+ * Writers take their segment's lock. Readers (contains, get) read
+ * optimistically and only fall back to the read lock if a writer got in
+ * their way, so gate traffic never blocks on lookups.
+ *
+ * Sessions handed out are rebuilt on each call: the caller's User, a
+ * Vehicle with the stored id and type (owned by that user), the lot's own
+ * ParkingSpot, and the start truncated to milliseconds.
+ */
+public class CompactSessionStore implements SessionStore {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int MIN_SLOTS_PER_SEGMENT = 16;
+
+    // Longs per slot and their meaning
+    static final int SLOT_LONGS = 8;
+    private static final int USER_MSB = 0;
+    private static final int USER_LSB = 1;
+    private static final int SESSION_MSB = 2;
+    private static final int SESSION_LSB = 3;
+    private static final int VEHICLE_MSB = 4;
+    private static final int VEHICLE_LSB = 5;
+    private static final int START_MILLIS = 6;
+    private static final int META = 7;
+
+    // META: bit 0 in use, bit 1 covered by pass, bits 8..15 vehicle type, bits 32..63 spot index
+    private static final long IN_USE = 1L;
+    private static final long COVERED_BY_PASS = 1L << 1;
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final ParkingLot lot;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public CompactSessionStore(ParkingLot lot) {
+        this(lot, lot.getTotalSpots());
+    }
+
+    // Pre-sizes the table so that expectedSessions fit without a resize
+    public CompactSessionStore(ParkingLot lot, int expectedSessions) {
+        this.lot = lot;
+        // Table sizes need not be powers of two (see home), so this sizes them
+        // exactly, plus four standard deviations for the uneven split over segments
+        double perSegmentSessions = (double) expectedSessions / SEGMENTS;
+        int perSegment = Math.max(MIN_SLOTS_PER_SEGMENT,
+                (int) ((perSegmentSessions + 4 * Math.sqrt(perSegmentSessions)) * 4 / 3) + 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(ParkingSession session) {
+        UUID userId = session.getUser().getUserId();
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        Segment segment = segments[segmentOf(hash)];
+
+        long stamp = segment.lock.writeLock();
+        try {
+            if (find(segment.slab, msb, lsb, hash) >= 0) {
+                return false;
+            }
+            if (segment.size + 1 > maxSize(segment.slab)) {
+                segment.slab = resize(segment.slab);
+            }
+            long[] slab = segment.slab;
+            int slot = home(hash, slotCount(slab));
+            while ((slab[slot * SLOT_LONGS + META] & IN_USE) != 0) {
+                slot = next(slot, slotCount(slab));
+            }
+            write(slab, slot * SLOT_LONGS, msb, lsb, session);
+            segment.size++;
+            return true;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(UUID userId) {
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        Segment segment = segments[segmentOf(hash)];
+
+        long stamp = segment.lock.tryOptimisticRead();
+        boolean found = find(segment.slab, msb, lsb, hash) >= 0;
+        if (segment.lock.validate(stamp)) {
+            return found;
+        }
+        stamp = segment.lock.readLock();
+        try {
+            return find(segment.slab, msb, lsb, hash) >= 0;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public ParkingSession get(User user) {
+        UUID userId = user.getUserId();
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        Segment segment = segments[segmentOf(hash)];
+        long[] record = new long[SLOT_LONGS];
+
+        long stamp = segment.lock.tryOptimisticRead();
+        boolean found = copy(segment.slab, msb, lsb, hash, record);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                found = copy(segment.slab, msb, lsb, hash, record);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return found ? toSession(record, user) : null;
+    }
+
+    @Override
+    public ParkingSession remove(User user) {
+        return remove(user, null);
+    }
+
+    @Override
+    public ParkingSession remove(User user, UUID parkingSessionId) {
+        UUID userId = user.getUserId();
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        Segment segment = segments[segmentOf(hash)];
+        long[] record = new long[SLOT_LONGS];
+
+        long stamp = segment.lock.writeLock();
+        try {
+            long[] slab = segment.slab;
+            int slot = find(slab, msb, lsb, hash);
+            if (slot < 0) {
+                return null;
+            }
+            int base = slot * SLOT_LONGS;
+            if (parkingSessionId != null
+                    && (slab[base + SESSION_MSB] != parkingSessionId.getMostSignificantBits()
+                    || slab[base + SESSION_LSB] != parkingSessionId.getLeastSignificantBits())) {
+                return null;
+            }
+            System.arraycopy(slab, base, record, 0, SLOT_LONGS);
+            delete(slab, slot);
+            segment.size--;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        return toSession(record, user);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // Heap held by the tables, for footprint reports
+    long getSlabBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += (long) segment.slab.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    private void write(long[] slab, int base, long msb, long lsb, ParkingSession session) {
+        UUID sessionId = session.getParkingSessionId();
+        UUID vehicleId = session.getVehicle().getVehicleId();
+        slab[base + USER_MSB] = msb;
+        slab[base + USER_LSB] = lsb;
+        slab[base + SESSION_MSB] = sessionId.getMostSignificantBits();
+        slab[base + SESSION_LSB] = sessionId.getLeastSignificantBits();
+        slab[base + VEHICLE_MSB] = vehicleId.getMostSignificantBits();
+        slab[base + VEHICLE_LSB] = vehicleId.getLeastSignificantBits();
+        slab[base + START_MILLIS] = session.getStartTime().toEpochMilli();
+        slab[base + META] = IN_USE
+                | (session.isCoveredByPass() ? COVERED_BY_PASS : 0)
+                | (long) session.getVehicle().getVehicleType().ordinal() << 8
+                | (long) lot.indexOf(session.getParkingSpot()) << 32;
+    }
+
+    private ParkingSession toSession(long[] record, User user) {
+        long meta = record[META];
+        Vehicle vehicle = new Vehicle(new UUID(record[VEHICLE_MSB], record[VEHICLE_LSB]),
+                VEHICLE_TYPES[(int) (meta >>> 8) & 0xFF], user.getUserId());
+        return new ParkingSession(new UUID(record[SESSION_MSB], record[SESSION_LSB]),
+                Instant.ofEpochMilli(record[START_MILLIS]), user, vehicle, lot.spotAt((int) (meta >>> 32)),
+                (meta & COVERED_BY_PASS) != 0);
+    }
+
+    /*
+     * Slot of the user, or -1. Safe on a slab that is being changed under an
+     * optimistic reader: the probe is bounded by the slab it was handed, and
+     * a table never fills up, so it always reaches an empty slot.
+     */
+    private static int find(long[] slab, long msb, long lsb, long hash) {
+        int slots = slotCount(slab);
+        for (int slot = home(hash, slots), probes = 0; probes < slots; slot = next(slot, slots), probes++) {
+            int base = slot * SLOT_LONGS;
+            if ((slab[base + META] & IN_USE) == 0) return -1;
+            if (slab[base + USER_MSB] == msb && slab[base + USER_LSB] == lsb) return slot;
+        }
+        return -1;
+    }
+
+    private static boolean copy(long[] slab, long msb, long lsb, long hash, long[] into) {
+        int slot = find(slab, msb, lsb, hash);
+        if (slot < 0) return false;
+        System.arraycopy(slab, slot * SLOT_LONGS, into, 0, SLOT_LONGS);
+        return true;
+    }
+
+    // Backward-shift delete: pull later entries of the probe run into the hole
+    private static void delete(long[] slab, int slot) {
+        int slots = slotCount(slab);
+        int hole = slot;
+        int probe = slot;
+        while (true) {
+            probe = next(probe, slots);
+            int base = probe * SLOT_LONGS;
+            if ((slab[base + META] & IN_USE) == 0) break;
+            int home = home(hash(slab[base + USER_MSB], slab[base + USER_LSB]), slots);
+            // Movable unless its home lies cyclically in (hole, probe]
+            boolean homeBetween = hole <= probe ? (home > hole && home <= probe) : (home > hole || home <= probe);
+            if (!homeBetween) {
+                System.arraycopy(slab, base, slab, hole * SLOT_LONGS, SLOT_LONGS);
+                hole = probe;
+            }
+        }
+        java.util.Arrays.fill(slab, hole * SLOT_LONGS, (hole + 1) * SLOT_LONGS, 0L);
+    }
+
+    private static long[] resize(long[] slab) {
+        int slots = slotCount(slab) + slotCount(slab) / 2;
+        long[] grown = new long[slots * SLOT_LONGS];
+        for (int base = 0; base < slab.length; base += SLOT_LONGS) {
+            if ((slab[base + META] & IN_USE) == 0) continue;
+            int slot = home(hash(slab[base + USER_MSB], slab[base + USER_LSB]), slots);
+            while ((grown[slot * SLOT_LONGS + META] & IN_USE) != 0) {
+                slot = next(slot, slots);
+            }
+            System.arraycopy(slab, base, grown, slot * SLOT_LONGS, SLOT_LONGS);
+        }
+        return grown;
+    }
+
+    private static int slotCount(long[] slab) {
+        return slab.length / SLOT_LONGS;
+    }
+
+    // 75% load factor
+    private static int maxSize(long[] slab) {
+        return slotCount(slab) / 4 * 3;
+    }
+
+    // Maps the low 32 hash bits onto [0, slots) with a multiply instead of a modulo
+    private static int home(long hash, int slots) {
+        return (int) (((hash & 0xFFFF_FFFFL) * slots) >>> 32);
+    }
+
+    private static int next(int slot, int slots) {
+        return slot + 1 == slots ? 0 : slot + 1;
+    }
+
+    private static int segmentOf(long hash) {
+        return (int) (hash >>> (Long.SIZE - SEGMENT_BITS));
+    }
+
+    // Random UUIDs are already well mixed, but ids from other sources may not be
+    private static long hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        long[] slab;
+        volatile int size;
+
+        Segment(int slots) {
+            this.slab = new long[slots * SLOT_LONGS];
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * A Tariff flattened into one lookup table: for every vehicle type, the
+ * cumulative price of 0..24 started hours. Pricing a stay is then
+ *
+ *   full days * price of 24 hours + table[started hours of the remainder]
+ *
+ * which is two divisions and two array reads, with no allocation, so it is
+ * safe to call millions of times during settlement.
+ */
+public final class CompiledTariff {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = Tariff.HOURS_PER_DAY * HOUR_MILLIS;
+    private static final int ROW = Tariff.HOURS_PER_DAY + 1;
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    // [type.ordinal() * 25 + hours]
+    private final long[] cumulativeCents;
+
+    CompiledTariff(Tariff tariff) {
+        this.cumulativeCents = new long[TYPES.length * ROW];
+        for (VehicleType type : TYPES) {
+            long previous = 0;
+            for (int hours = 0; hours <= Tariff.HOURS_PER_DAY; hours++) {
+                long cents = tariff.cumulativeCents(type, hours);
+                if (cents < previous) {
+                    throw new IllegalArgumentException("Tariff " + tariff + " gets cheaper at hour " + hours
+                            + " for " + type);
+                }
+                cumulativeCents[type.ordinal() * ROW + hours] = cents;
+                previous = cents;
+            }
+        }
+    }
+
+    // Every started hour is billed; a stay of 0 ms or less is free
+    public long feeCents(VehicleType vehicleType, long durationMillis) {
+        if (durationMillis <= 0) return 0;
+
+        int base = vehicleType.ordinal() * ROW;
+        long days = durationMillis / DAY_MILLIS;
+        long remainder = durationMillis - days * DAY_MILLIS;
+        int hours = (int) ((remainder + HOUR_MILLIS - 1) / HOUR_MILLIS);
+        return days * cumulativeCents[base + Tariff.HOURS_PER_DAY] + cumulativeCents[base + hours];
+    }
+
+    public long dailyCents(VehicleType vehicleType) {
+        return cumulativeCents[vehicleType.ordinal() * ROW + Tariff.HOURS_PER_DAY];
+    }
+}
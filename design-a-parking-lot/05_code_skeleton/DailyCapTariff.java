@@ -0,0 +1,24 @@
+// Caps what one day of parking can cost under another tariff
+public class DailyCapTariff implements Tariff {
+
+    private final Tariff tariff;
+    private final long capCents;
+
+    public DailyCapTariff(Tariff tariff, long capCents) {
+        if (capCents < 0) {
+            throw new IllegalArgumentException("Cap must not be negative");
+        }
+        this.tariff = tariff;
+        this.capCents = capCents;
+    }
+
+    @Override
+    public long cumulativeCents(VehicleType vehicleType, int hours) {
+        return Math.min(capCents, tariff.cumulativeCents(vehicleType, hours));
+    }
+
+    @Override
+    public String toString() {
+        return "DailyCapTariff [tariff=" + tariff + ", capCents=" + capCents + "]";
+    }
+}
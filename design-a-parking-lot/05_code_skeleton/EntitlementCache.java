@@ -0,0 +1,236 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Read-through cache answering "does this user's pass cover this vehicle
+ * right now?" on the session start path.
+ *
+ * An entry holds the answer for the current moment, precomputed from the
+ * user's passes, and stays valid until the next pass boundary (a pass
+ * starting or ending) or maxStalenessMillis, whichever comes first. So a
+ * hit is a map lookup and a couple of field reads, and no entry can
+ * outlive the validity it was computed from. Call invalidate() when a
+ * pass is bought or cancelled to see it before the staleness bound.
+ *
+ * Size is bounded with CLOCK (second chance) eviction: hits only set a
+ * referenced flag, and inserts past maxEntries sweep a queue of keys,
+ * giving referenced entries another round and dropping the rest. A key is
+ * in the queue at most once, however often it is invalidated and loaded
+ * again, and keys left behind by invalidate() are swept out once they
+ * outnumber maxEntries.
+ *
+ * Concurrent misses for the same user share one store load. invalidate()
+ * fences a load already in flight: its result is still returned to the
+ * callers waiting for it, but it is not cached.
+ */
+public class EntitlementCache {
+
+    private final PassStore store;
+    private final int maxEntries;
+    private final long maxStalenessMillis;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UUID> clockQueue = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet(); // keys in clockQueue
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public EntitlementCache(PassStore store, int maxEntries, long maxStalenessMillis) {
+        this(store, maxEntries, maxStalenessMillis, System::currentTimeMillis);
+    }
+
+    // The clock is injectable so tests can step over pass boundaries
+    EntitlementCache(PassStore store, int maxEntries, long maxStalenessMillis, LongSupplier clock) {
+        if (maxEntries <= 0 || maxStalenessMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxStalenessMillis must be positive");
+        }
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.clock = clock;
+    }
+
+    public boolean isCovered(User user, Vehicle vehicle) {
+        return isCovered(user.getUserId(), vehicle.getVehicleId());
+    }
+
+    public boolean isCovered(UUID userId, UUID vehicleId) {
+        long now = clock.getAsLong();
+        Entry entry = entries.get(userId);
+        if (entry != null && now < entry.expiresAtMillis) {
+            hits.increment();
+            if (!entry.referenced) entry.referenced = true;
+            return entry.covers(vehicleId);
+        }
+        misses.increment();
+        return load(userId, entry, now).covers(vehicleId);
+    }
+
+    /*
+     * Fills the cache at startup from a bulk export of active passes,
+     * instead of one store round trip per user at the first gate rush.
+     * Users beyond maxEntries are evicted as usual.
+     */
+    public void preload(Collection<Pass> passes) {
+        long now = clock.getAsLong();
+        Map<UUID, List<Pass>> byUser = new HashMap<>();
+        for (Pass pass : passes) {
+            byUser.computeIfAbsent(pass.getUserId(), id -> new ArrayList<>()).add(pass);
+        }
+        for (Map.Entry<UUID, List<Pass>> user : byUser.entrySet()) {
+            install(user.getKey(), null, Entry.of(user.getValue(), now, maxStalenessMillis), null);
+        }
+    }
+
+    // Unregisters a load in flight first, so it can't put back what it read before the change
+    public void invalidate(UUID userId) {
+        loading.remove(userId);
+        entries.remove(userId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Keys in the CLOCK queue, live or not
+    int getQueuedKeyCount() {
+        return queued.size();
+    }
+
+    private Entry load(UUID userId, Entry stale, long now) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> inFlight = loading.putIfAbsent(userId, mine);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+
+        try {
+            Entry fresh = Entry.of(store.loadPasses(userId), now, maxStalenessMillis);
+            install(userId, stale, fresh, mine);
+            mine.complete(fresh);
+            return fresh;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(userId, mine);
+        }
+    }
+
+    // load is the in-flight load the entry comes from, or null for a preload
+    private void install(UUID userId, Entry stale, Entry fresh, CompletableFuture<Entry> load) {
+        Entry installed = entries.compute(userId, (key, previous) -> {
+            if (load != null && loading.get(key) != load) return previous; // invalidated while loading
+            // Someone else refreshed or preloaded meanwhile; keep whichever is newer
+            if (previous != null && previous != stale && previous.expiresAtMillis > fresh.expiresAtMillis) {
+                return previous;
+            }
+            return fresh;
+        });
+        if (installed != fresh) return;
+
+        if (queued.add(userId)) clockQueue.add(userId);
+        if (entries.size() > maxEntries || queued.size() > 2L * maxEntries) evict();
+    }
+
+    /*
+     * One CLOCK sweep: bounded so a queue full of referenced keys can't spin
+     * forever. Also drops the keys of invalidated entries; while the cache
+     * is within bounds, live entries are only passed over.
+     */
+    private void evict() {
+        int budget = 2 * maxEntries;
+        UUID key;
+        while ((entries.size() > maxEntries || queued.size() > 2L * maxEntries)
+                && budget-- > 0 && (key = clockQueue.poll()) != null) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                dequeued(key); // invalidated
+            } else if (entries.size() <= maxEntries) {
+                clockQueue.add(key);
+            } else if (entry.referenced) {
+                entry.referenced = false;
+                clockQueue.add(key);
+            } else if (entries.remove(key, entry)) {
+                evictions.increment();
+                dequeued(key);
+            } else {
+                clockQueue.add(key); // replaced meanwhile
+            }
+        }
+    }
+
+    // Called for a key just taken off the queue for good; requeues it if an install raced in
+    private void dequeued(UUID key) {
+        queued.remove(key);
+        if (entries.containsKey(key) && queued.add(key)) clockQueue.add(key);
+    }
+
+    private static final class Entry {
+        private static final UUID[] NONE = new UUID[0];
+
+        final boolean anyVehicle;
+        final UUID[] vehicles;        // covered vehicles when !anyVehicle
+        final long expiresAtMillis;
+        volatile boolean referenced;
+
+        private Entry(boolean anyVehicle, UUID[] vehicles, long expiresAtMillis) {
+            this.anyVehicle = anyVehicle;
+            this.vehicles = vehicles;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean covers(UUID vehicleId) {
+            if (anyVehicle) return true;
+            for (UUID covered : vehicles) {
+                if (covered.equals(vehicleId)) return true;
+            }
+            return false;
+        }
+
+        // The answer for `now`, valid until the next time a pass starts or ends
+        static Entry of(List<Pass> passes, long now, long maxStalenessMillis) {
+            long expiresAt = now + maxStalenessMillis;
+            boolean anyVehicle = false;
+            List<UUID> vehicles = new ArrayList<>(0);
+
+            for (Pass pass : passes) {
+                long from = pass.getValidFromMillis();
+                long to = pass.getValidToMillis();
+                if (to <= now) continue;
+
+                if (from > now) {
+                    expiresAt = Math.min(expiresAt, from);
+                    continue;
+                }
+                expiresAt = Math.min(expiresAt, to);
+                if (pass.getVehicleId() == null) {
+                    anyVehicle = true;
+                } else {
+                    vehicles.add(pass.getVehicleId());
+                }
+            }
+            return new Entry(anyVehicle, anyVehicle ? NONE : vehicles.toArray(NONE), expiresAt);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * One front end over many lots, each run by its own ParkingService.
+ *
+ * Routing uses the power of two choices: pick two lots at random and
+ * send the driver to the less loaded one, by occupied fraction read from
+ * the lots' own free-spot gauges (ParkingLot.getAvailableSpotCount). That
+ * is two gauge reads per request, no matter how many lots there are,
+ * and it keeps the lots almost as evenly filled as always picking the
+ * emptiest one. Picks are weighted by lot size, otherwise a big garage
+ * would be offered no more often than a small one and fall behind. Only
+ * when both picks are full do we scan every lot.
+ *
+ * One active session per user across all lots is enforced here: a start
+ * first claims the user (ROUTING), and the claim records the lot and
+ * session once the start succeeds. Go through this class for every start
+ * and end; a session started or ended on a member service directly is
+ * invisible to the claims.
+ */
+public class FederatedParkingService {
+
+    private static final Claim ROUTING = new Claim(null, null);
+
+    // Copy-on-write, so routing reads one volatile array
+    private volatile Member[] members = new Member[0];
+    // spotsUpTo[i] = total spots of members[0..i], for size-weighted picks
+    private volatile long[] spotsUpTo = new long[0];
+    private final ConcurrentHashMap<UUID, Claim> claimsByUserId = new ConcurrentHashMap<>();
+
+    public ParkingService register(ParkingLot lot) {
+        return register(lot, null);
+    }
+
+    // Returns the lot's service, e.g. to attach listeners
+    public synchronized ParkingService register(ParkingLot lot, EntitlementCache entitlements) {
+        for (Member member : members) {
+            if (member.lot == lot) {
+                throw new IllegalArgumentException("Lot already registered: " + lot.getParkingLotId());
+            }
+        }
+        if (lot.getTotalSpots() == 0) {
+            throw new IllegalArgumentException("Lot has no spots: " + lot.getParkingLotId());
+        }
+        Member member = new Member(lot, new ParkingService(lot, entitlements));
+        Member[] grown = Arrays.copyOf(members, members.length + 1);
+        grown[members.length] = member;
+        long[] cumulative = Arrays.copyOf(spotsUpTo, grown.length);
+        cumulative[grown.length - 1] = (grown.length == 1 ? 0 : cumulative[grown.length - 2]) + member.totalSpots;
+        // Published together: members is written last and read first
+        spotsUpTo = cumulative;
+        members = grown;
+        return member.service;
+    }
+
+    public Optional<UUID> startParkingSession(User user, Vehicle vehicle) throws Exception {
+        UUID userId = user.getUserId();
+        if (claimsByUserId.putIfAbsent(userId, ROUTING) != null) {
+            return Optional.empty(); // parked, or being routed, somewhere
+        }
+
+        Claim claim = null;
+        try {
+            Member[] lots = members;
+            Member first = pickTwo(lots, spotsUpTo);
+            Optional<UUID> sessionId = first == null ? Optional.empty() : first.service.startParkingSession(user, vehicle);
+            if (sessionId.isPresent()) {
+                claim = new Claim(first, sessionId.get());
+                return sessionId;
+            }
+
+            // Both picks were full, or filled up under us: least loaded first
+            for (Member member : byLoad(lots)) {
+                if (member == first || member.lot.getAvailableSpotCount() == 0) continue;
+                sessionId = member.service.startParkingSession(user, vehicle);
+                if (sessionId.isPresent()) {
+                    claim = new Claim(member, sessionId.get());
+                    return sessionId;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            if (claim != null) {
+                claimsByUserId.replace(userId, ROUTING, claim);
+            } else {
+                claimsByUserId.remove(userId, ROUTING);
+            }
+        }
+    }
+
+    /*
+     * Ends the session the user's claim points at. The claim is dropped only
+     * by the call that actually ended that session, so a late duplicate end
+     * can never unlock a session the user started since.
+     */
+    public boolean endParkingSession(User user) {
+        Claim claim = claimsByUserId.get(user.getUserId());
+        if (claim == null || claim == ROUTING) {
+            return false;
+        }
+        if (!claim.member.service.endParkingSession(user, claim.parkingSessionId)) {
+            return false;
+        }
+        claimsByUserId.remove(user.getUserId(), claim);
+        return true;
+    }
+
+    public Optional<ParkingLot> getActiveLot(User user) {
+        Claim claim = claimsByUserId.get(user.getUserId());
+        return claim == null || claim == ROUTING ? Optional.empty() : Optional.of(claim.member.lot);
+    }
+
+    public List<ParkingLot> getLots() {
+        List<ParkingLot> lots = new ArrayList<>();
+        for (Member member : members) {
+            lots.add(member.lot);
+        }
+        return lots;
+    }
+
+    public int getAvailableSpotCount() {
+        int free = 0;
+        for (Member member : members) {
+            free += member.lot.getAvailableSpotCount();
+        }
+        return free;
+    }
+
+    // Two random lots, weighted by size; the one with spare spots and the lower load wins
+    private static Member pickTwo(Member[] lots, long[] spotsUpTo) {
+        int n = lots.length;
+        if (n == 0) return null;
+        if (n == 1) return lots[0];
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = pickWeighted(spotsUpTo, n, random);
+        int j = pickWeighted(spotsUpTo, n, random);
+        if (j == i) j = (i + 1 + random.nextInt(n - 1)) % n;
+        Member a = lots[i];
+        Member b = lots[j];
+        int freeA = a.lot.getAvailableSpotCount();
+        int freeB = b.lot.getAvailableSpotCount();
+        if (freeA == 0) return freeB == 0 ? null : b;
+        if (freeB == 0) return a;
+        return compareLoad(freeA, a.totalSpots, freeB, b.totalSpots) <= 0 ? a : b;
+    }
+
+    private static int pickWeighted(long[] spotsUpTo, int n, ThreadLocalRandom random) {
+        int found = Arrays.binarySearch(spotsUpTo, 0, n, random.nextLong(spotsUpTo[n - 1]) + 1);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // Compares occupiedA / totalA with occupiedB / totalB, without dividing
+    private static int compareLoad(int freeA, int totalA, int freeB, int totalB) {
+        return Long.compare((long) (totalA - freeA) * totalB, (long) (totalB - freeB) * totalA);
+    }
+
+    private static List<Member> byLoad(Member[] lots) {
+        int[] free = new int[lots.length];
+        Integer[] order = new Integer[lots.length];
+        for (int i = 0; i < lots.length; i++) {
+            free[i] = lots[i].lot.getAvailableSpotCount();
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> compareLoad(free[x], lots[x].totalSpots, free[y], lots[y].totalSpots));
+
+        List<Member> sorted = new ArrayList<>(lots.length);
+        for (int i : order) {
+            sorted.add(lots[i]);
+        }
+        return sorted;
+    }
+
+    private static final class Member {
+        final ParkingLot lot;
+        final ParkingService service;
+        final int totalSpots;
+
+        Member(ParkingLot lot, ParkingService service) {
+            this.lot = lot;
+            this.service = service;
+            this.totalSpots = lot.getTotalSpots();
+        }
+    }
+
+    private static final class Claim {
+        final Member member;
+        final UUID parkingSessionId;
+
+        Claim(Member member, UUID parkingSessionId) {
+            this.member = member;
+            this.parkingSessionId = parkingSessionId;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+ * Prices sessions with a compiled tariff, one at a time at the exit gate or
+ * in bulk over a SessionArchive for the nightly settlement run.
+ */
+public class FeeCalculator {
+
+    private final CompiledTariff tariff;
+
+    public FeeCalculator(Tariff tariff) {
+        this.tariff = tariff.compile();
+    }
+
+    public CompiledTariff getTariff() {
+        return tariff;
+    }
+
+    // For a session that is still running this is the fee so far; pass holders pay nothing
+    public long feeCents(ParkingSession session) {
+        if (session.isCoveredByPass()) return 0;
+        return tariff.feeCents(session.getVehicle().getVehicleType(), session.getDurationMillis());
+    }
+
+    public Settlement settle(SessionArchive archive, long endedFromMillis, long endedToMillis) {
+        return settle(archive, endedFromMillis, endedToMillis, null);
+    }
+
+    /*
+     * Bills every archived session that ended in [endedFromMillis,
+     * endedToMillis), scanning the archive in parallel. Sessions covered by a
+     * pass are counted with a fee of 0. If a sink is given it
+     * receives one call per billed session, from several threads at once and
+     * in no particular order.
+     */
+    public Settlement settle(SessionArchive archive, long endedFromMillis, long endedToMillis, BillingSink sink) {
+        int types = VehicleType.values().length;
+
+        // [2t] = cents, [2t + 1] = sessions
+        long[] totals = archive.scanRows(() -> new long[types * 2],
+                (acc, startMillis, endMillis, spotIndex, floor, vehicleType, coveredByPass, userIdMsb, userIdLsb) -> {
+                    if (endMillis < endedFromMillis || endMillis >= endedToMillis) return;
+
+                    long cents = coveredByPass ? 0 : tariff.feeCents(vehicleType, endMillis - startMillis);
+                    acc[2 * vehicleType.ordinal()] += cents;
+                    acc[2 * vehicleType.ordinal() + 1]++;
+                    if (sink != null) {
+                        sink.bill(userIdMsb, userIdLsb, endMillis, cents);
+                    }
+                },
+                (into, from) -> {
+                    for (int i = 0; i < into.length; i++) into[i] += from[i];
+                });
+
+        return new Settlement(totals);
+    }
+
+    @FunctionalInterface
+    public interface BillingSink {
+        void bill(long userIdMsb, long userIdLsb, long endMillis, long feeCents);
+    }
+
+    public static final class Settlement {
+        private final long[] totals;
+
+        private Settlement(long[] totals) {
+            this.totals = totals;
+        }
+
+        public long getSessionCount() {
+            long count = 0;
+            for (int i = 1; i < totals.length; i += 2) count += totals[i];
+            return count;
+        }
+
+        public long getTotalCents() {
+            long cents = 0;
+            for (int i = 0; i < totals.length; i += 2) cents += totals[i];
+            return cents;
+        }
+
+        public long getSessionCount(VehicleType vehicleType) {
+            return totals[2 * vehicleType.ordinal() + 1];
+        }
+
+        public long getTotalCents(VehicleType vehicleType) {
+            return totals[2 * vehicleType.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            Map<VehicleType, String> byType = new EnumMap<>(VehicleType.class);
+            for (VehicleType type : VehicleType.values()) {
+                byType.put(type, getSessionCount(type) + " sessions/" + getTotalCents(type) + " cents");
+            }
+            return "Settlement " + byType;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/*
+ * The free windows of a group of spots, for finding a spot that is free for
+ * a whole [from, to) without visiting every spot.
+ *
+ * A spot's timeline is split by its reservations into disjoint free windows
+ * [start, end); the spot is free for [from, to) exactly when one of its
+ * windows has start <= from and end >= to. Windows of all spots in the
+ * group live in one treap ordered by (start, spot), where every node also
+ * keeps the greatest end in its subtree. A lookup descends only into
+ * subtrees whose starts can be <= from and whose greatest end reaches to,
+ * so it finds a match in O(log n) expected steps.
+ *
+ * Not thread-safe; ReservationBook guards each tree with its stripe's lock.
+ */
+final class FreeWindowTree {
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final int spot;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, int spot) {
+            this.start = start;
+            this.end = end;
+            this.spot = spot;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(long start, long end, int spot) {
+        root = insert(root, new Node(start, end, spot));
+        size++;
+    }
+
+    boolean remove(long start, int spot) {
+        int before = size;
+        root = delete(root, start, spot);
+        return size < before;
+    }
+
+    /*
+     * Some spot with a window covering [from, to) that accept agrees to, or
+     * -1. With an accept that always agrees this is O(log n); each refusal
+     * costs another descent.
+     */
+    int find(long from, long to, IntPredicate accept) {
+        return find(root, from, to, accept);
+    }
+
+    private static int find(Node node, long from, long to, IntPredicate accept) {
+        if (node == null || node.maxEnd < to) return -1;
+        if (node.start > from) {
+            // Everything to the right starts even later
+            return find(node.left, from, to, accept);
+        }
+        int spot = find(node.left, from, to, accept);
+        if (spot >= 0) return spot;
+        if (node.end >= to && accept.test(node.spot)) return node.spot;
+        return find(node.right, from, to, accept);
+    }
+
+    private static int compare(long start, int spot, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Integer.compare(spot, node.spot);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+        if (compare(added.start, added.spot, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, long start, int spot) {
+        if (node == null) return null;
+        int c = compare(start, spot, node);
+        if (c == 0) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = delete(node.left, start, spot);
+        } else {
+            node.right = delete(node.right, start, spot);
+        }
+        update(node);
+        return node;
+    }
+
+    // Every key in a is below every key in b
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        return top;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        return top;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        node.maxEnd = maxEnd;
+    }
+}
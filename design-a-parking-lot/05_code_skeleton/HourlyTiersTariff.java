@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/*
+ * Per-hour rates that change with the length of the stay, e.g. 300 cents for
+ * each of the first 2 hours and 200 cents for every hour after that:
+ *
+ *   new HourlyTiersTariff(new int[] {2, 24}, new long[] {300, 200})
+ *
+ * tierEndHours[i] is the last hour (exclusive upper bound, counted from the
+ * start of the stay) billed at centsPerHour[i]. The last tier covers the
+ * rest of the day. Same rates for every vehicle type; wrap in a
+ * VehicleTypeTariff to price them differently.
+ */
+public class HourlyTiersTariff implements Tariff {
+
+    private final int[] tierEndHours;
+    private final long[] centsPerHour;
+
+    public HourlyTiersTariff(int[] tierEndHours, long[] centsPerHour) {
+        if (tierEndHours.length == 0 || tierEndHours.length != centsPerHour.length) {
+            throw new IllegalArgumentException("Need one rate per tier");
+        }
+        for (int i = 0; i < tierEndHours.length; i++) {
+            if (tierEndHours[i] <= (i == 0 ? 0 : tierEndHours[i - 1])) {
+                throw new IllegalArgumentException("Tier ends must be positive and increasing");
+            }
+            if (centsPerHour[i] < 0) {
+                throw new IllegalArgumentException("Rates must not be negative");
+            }
+        }
+        this.tierEndHours = tierEndHours.clone();
+        this.centsPerHour = centsPerHour.clone();
+    }
+
+    public static HourlyTiersTariff flat(long centsPerHour) {
+        return new HourlyTiersTariff(new int[] {HOURS_PER_DAY}, new long[] {centsPerHour});
+    }
+
+    @Override
+    public long cumulativeCents(VehicleType vehicleType, int hours) {
+        long cents = 0;
+        int billed = 0;
+        for (int i = 0; i < tierEndHours.length && billed < hours; i++) {
+            int until = (i == tierEndHours.length - 1) ? hours : Math.min(hours, tierEndHours[i]);
+            cents += (long) (until - billed) * centsPerHour[i];
+            billed = until;
+        }
+        return cents;
+    }
+
+    @Override
+    public String toString() {
+        return "HourlyTiersTariff [tierEndHours=" + Arrays.toString(tierEndHours)
+                + ", centsPerHour=" + Arrays.toString(centsPerHour) + "]";
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.UUID;
+
+/*
+ * A session start decoded from the SessionJournal during replay.
+ */
+public class JournalRecord {
+
+    private final UUID sessionId;
+    private final UUID userId;
+    private final UUID vehicleId;
+    private final VehicleType vehicleType;
+    private final int floor;
+    private final int spotId;
+    private final long epochMillis;
+    private final boolean coveredByPass;
+
+    public JournalRecord(UUID sessionId, UUID userId, UUID vehicleId, VehicleType vehicleType,
+            int floor, int spotId, long epochMillis, boolean coveredByPass) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.vehicleId = vehicleId;
+        this.vehicleType = vehicleType;
+        this.floor = floor;
+        this.spotId = spotId;
+        this.epochMillis = epochMillis;
+        this.coveredByPass = coveredByPass;
+    }
+
+    public UUID getSessionId() {
+        return sessionId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public UUID getVehicleId() {
+        return vehicleId;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getSpotId() {
+        return spotId;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public boolean isCoveredByPass() {
+        return coveredByPass;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord [sessionId=" + sessionId + ", userId=" + userId + ", vehicleId=" + vehicleId
+                + ", vehicleType=" + vehicleType + ", floor=" + floor + ", spotId=" + spotId
+                + ", epochMillis=" + epochMillis + ", coveredByPass=" + coveredByPass + "]";
+    }
+}
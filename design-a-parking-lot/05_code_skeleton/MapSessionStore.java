@@ -0,0 +1,55 @@
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * The default store: session objects in a ConcurrentHashMap keyed by user id.
+ * Simple and fast, but each session keeps its User, Vehicle, UUIDs and
+ * Instants on the heap; see CompactSessionStore for large deployments.
+ */
+public class MapSessionStore implements SessionStore {
+
+    private final ConcurrentHashMap<UUID, ParkingSession> sessionsByUserId;
+
+    public MapSessionStore() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    // Wraps an existing map, which stays usable for reads
+    MapSessionStore(ConcurrentHashMap<UUID, ParkingSession> sessionsByUserId) {
+        this.sessionsByUserId = sessionsByUserId;
+    }
+
+    @Override
+    public boolean putIfAbsent(ParkingSession session) {
+        return sessionsByUserId.putIfAbsent(session.getUser().getUserId(), session) == null;
+    }
+
+    @Override
+    public boolean contains(UUID userId) {
+        return sessionsByUserId.containsKey(userId);
+    }
+
+    @Override
+    public ParkingSession get(User user) {
+        return sessionsByUserId.get(user.getUserId());
+    }
+
+    @Override
+    public ParkingSession remove(User user) {
+        return sessionsByUserId.remove(user.getUserId());
+    }
+
+    @Override
+    public ParkingSession remove(User user, UUID parkingSessionId) {
+        ParkingSession session = sessionsByUserId.get(user.getUserId());
+        if (session == null || !session.getParkingSessionId().equals(parkingSessionId)) {
+            return null;
+        }
+        return sessionsByUserId.remove(user.getUserId(), session) ? session : null;
+    }
+
+    @Override
+    public int size() {
+        return sessionsByUserId.size();
+    }
+}
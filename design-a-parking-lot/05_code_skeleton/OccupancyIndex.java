@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free occupancy bitmap over the dense spot indices of one lot.
+ *
+ * Each 64-bit word covers 32 spots: the low half holds one occupied bit
+ * per spot and the high half a stamp that is bumped on every change.
+ * Acquire/release is a single CAS on one word, and because every change
+ * also moves the stamp, two identical collects of all words prove that
+ * nothing changed in between. That gives readers a consistent snapshot
+ * without writers ever waiting on them.
+ *
+ * Spots must be indexed floor by floor so every floor is one contiguous
+ * index range. Per-floor free counts are kept in LongAdders, so the
+ * counters don't become a new hot spot for gates on the same floor.
+ */
+public class OccupancyIndex {
+
+    static final int SPOTS_PER_WORD = 32;
+    private static final long BITS_MASK = 0xFFFF_FFFFL;
+    private static final long STAMP_ONE = 1L << 32;
+    private static final int SNAPSHOT_ATTEMPTS = 16;
+
+    private final int spotCount;
+    private final AtomicLongArray words;
+    private final int[] floorOrdinalBySpot;
+    private final FloorLayout layout;
+    private final LongAdder[] freeByFloor;
+
+    public OccupancyIndex(List<ParkingSpot> spotsInIndexOrder) {
+        this.spotCount = spotsInIndexOrder.size();
+        this.words = new AtomicLongArray((spotCount + SPOTS_PER_WORD - 1) / SPOTS_PER_WORD);
+        this.floorOrdinalBySpot = new int[spotCount];
+        this.layout = new FloorLayout(spotsInIndexOrder);
+        this.freeByFloor = new LongAdder[layout.floorCount()];
+
+        for (int f = 0; f < freeByFloor.length; f++) {
+            freeByFloor[f] = new LongAdder();
+            freeByFloor[f].add(layout.spotsOnFloor(f));
+            for (int i = layout.firstIndex(f); i < layout.endIndex(f); i++) {
+                floorOrdinalBySpot[i] = f;
+            }
+        }
+    }
+
+    public int getSpotCount() {
+        return spotCount;
+    }
+
+    // false if the spot was already occupied
+    public boolean markOccupied(int spotIndex) {
+        if (!flip(spotIndex, true)) return false;
+        freeByFloor[floorOrdinalBySpot[spotIndex]].decrement();
+        return true;
+    }
+
+    // false if the spot was already free
+    public boolean markFree(int spotIndex) {
+        if (!flip(spotIndex, false)) return false;
+        freeByFloor[floorOrdinalBySpot[spotIndex]].increment();
+        return true;
+    }
+
+    public boolean isOccupied(int spotIndex) {
+        checkIndex(spotIndex);
+        return (words.get(spotIndex / SPOTS_PER_WORD) & bit(spotIndex)) != 0;
+    }
+
+    public int getFreeCount() {
+        long free = 0;
+        for (LongAdder floor : freeByFloor) {
+            free += floor.sum();
+        }
+        return (int) free;
+    }
+
+    public int getFreeCount(int floor) {
+        int ordinal = layout.ordinalOf(floor);
+        return ordinal < 0 ? 0 : (int) freeByFloor[ordinal].sum();
+    }
+
+    /*
+     * Copies the bitmap until two consecutive copies match. Writers are never
+     * blocked, so under extreme churn the copies may keep differing; after a
+     * bounded number of attempts the latest copy is returned and flagged as
+     * not consistent (every word is still individually atomic).
+     */
+    public OccupancySnapshot snapshot() {
+        long[] previous = collect();
+        for (int attempt = 1; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            long[] current = collect();
+            if (Arrays.equals(previous, current)) {
+                return new OccupancySnapshot(current, spotCount, layout, true);
+            }
+            previous = current;
+        }
+        return new OccupancySnapshot(previous, spotCount, layout, false);
+    }
+
+    private long[] collect() {
+        long[] copy = new long[words.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = words.get(i);
+        }
+        return copy;
+    }
+
+    private boolean flip(int spotIndex, boolean occupy) {
+        checkIndex(spotIndex);
+        int w = spotIndex / SPOTS_PER_WORD;
+        long bit = bit(spotIndex);
+
+        while (true) {
+            long current = words.get(w);
+            boolean occupied = (current & bit) != 0;
+            if (occupied == occupy) return false;
+
+            long bits = occupy ? (current | bit) : (current & ~bit);
+            long next = ((current & ~BITS_MASK) + STAMP_ONE) | (bits & BITS_MASK);
+            if (words.compareAndSet(w, current, next)) return true;
+        }
+    }
+
+    private void checkIndex(int spotIndex) {
+        if (spotIndex < 0 || spotIndex >= spotCount) {
+            throw new IndexOutOfBoundsException("Spot index " + spotIndex + " outside 0.." + (spotCount - 1));
+        }
+    }
+
+    static long bit(int spotIndex) {
+        return 1L << (spotIndex % SPOTS_PER_WORD);
+    }
+
+    /*
+     * Floor number <-> contiguous index range mapping shared by the index and
+     * its snapshots.
+     */
+    static final class FloorLayout {
+        private final int[] floors;
+        private final int[] firstIndex;
+
+        FloorLayout(List<ParkingSpot> spotsInIndexOrder) {
+            int count = 0;
+            int previous = Integer.MIN_VALUE;
+            for (ParkingSpot spot : spotsInIndexOrder) {
+                if (spot.getFloor() < previous) {
+                    throw new IllegalArgumentException("Spots must be indexed floor by floor");
+                }
+                if (count == 0 || spot.getFloor() != previous) count++;
+                previous = spot.getFloor();
+            }
+
+            this.floors = new int[count];
+            this.firstIndex = new int[count + 1];
+
+            int f = -1;
+            for (int i = 0; i < spotsInIndexOrder.size(); i++) {
+                int floor = spotsInIndexOrder.get(i).getFloor();
+                if (f < 0 || floors[f] != floor) {
+                    floors[++f] = floor;
+                    firstIndex[f] = i;
+                }
+            }
+            firstIndex[count] = spotsInIndexOrder.size();
+        }
+
+        int floorCount() {
+            return floors.length;
+        }
+
+        int floorAt(int ordinal) {
+            return floors[ordinal];
+        }
+
+        int ordinalOf(int floor) {
+            int ordinal = Arrays.binarySearch(floors, floor);
+            return ordinal >= 0 ? ordinal : -1;
+        }
+
+        int firstIndex(int ordinal) {
+            return firstIndex[ordinal];
+        }
+
+        int endIndex(int ordinal) {
+            return firstIndex[ordinal + 1];
+        }
+
+        int spotsOnFloor(int ordinal) {
+            return endIndex(ordinal) - firstIndex(ordinal);
+        }
+    }
+}
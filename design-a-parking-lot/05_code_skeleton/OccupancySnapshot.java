@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Immutable copy of a lot's occupancy bitmap taken by OccupancyIndex.
+ * Counts are computed once with popcounts when the snapshot is built.
+ */
+public class OccupancySnapshot {
+
+    private final long[] words;
+    private final int spotCount;
+    private final OccupancyIndex.FloorLayout layout;
+    private final boolean consistent;
+    private final int[] freeByFloor;
+    private final int free;
+
+    OccupancySnapshot(long[] words, int spotCount, OccupancyIndex.FloorLayout layout, boolean consistent) {
+        this.words = words;
+        this.spotCount = spotCount;
+        this.layout = layout;
+        this.consistent = consistent;
+        this.freeByFloor = new int[layout.floorCount()];
+
+        int total = 0;
+        for (int f = 0; f < freeByFloor.length; f++) {
+            freeByFloor[f] = layout.spotsOnFloor(f) - countOccupied(layout.firstIndex(f), layout.endIndex(f));
+            total += freeByFloor[f];
+        }
+        this.free = total;
+    }
+
+    // true when the copy is a single point-in-time view of the whole lot
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    public int getSpotCount() {
+        return spotCount;
+    }
+
+    public int getFreeCount() {
+        return free;
+    }
+
+    public int getFreeCount(int floor) {
+        int ordinal = layout.ordinalOf(floor);
+        return ordinal < 0 ? 0 : freeByFloor[ordinal];
+    }
+
+    public boolean isOccupied(int spotIndex) {
+        if (spotIndex < 0 || spotIndex >= spotCount) {
+            throw new IndexOutOfBoundsException("Spot index " + spotIndex + " outside 0.." + (spotCount - 1));
+        }
+        return (words[spotIndex / OccupancyIndex.SPOTS_PER_WORD] & OccupancyIndex.bit(spotIndex)) != 0;
+    }
+
+    public List<Integer> getFreeSpotIndices() {
+        List<Integer> indices = new ArrayList<>(free);
+        for (int i = 0; i < spotCount; i++) {
+            if (!isOccupied(i)) indices.add(i);
+        }
+        return indices;
+    }
+
+    private int countOccupied(int from, int to) {
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            int w = i / OccupancyIndex.SPOTS_PER_WORD;
+            int lo = i % OccupancyIndex.SPOTS_PER_WORD;
+            int hi = Math.min(OccupancyIndex.SPOTS_PER_WORD, lo + (to - i));
+            long mask = ((1L << (hi - lo)) - 1) << lo;
+            count += Long.bitCount(words[w] & mask);
+            i += hi - lo;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "OccupancySnapshot{" +
+               "spots=" + spotCount +
+               ", free=" + free +
+               ", consistent=" + consistent +
+               '}';
+    }
+}
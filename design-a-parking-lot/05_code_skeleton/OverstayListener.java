@@ -0,0 +1,12 @@
+import java.util.List;
+
+/*
+ * Told about sessions that ran past their allowed duration, see
+ * OverstayMonitor. Called on the monitor's thread with every session that
+ * expired in the same tick, so it may take its time without holding up
+ * gates; the next batch just fires a little late.
+ */
+public interface OverstayListener {
+
+    void onOverstay(List<ParkingSession> sessions);
+}
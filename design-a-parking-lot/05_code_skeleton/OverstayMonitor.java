@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/*
+ * Flags sessions that run past their allowed duration, without scanning.
+ *
+ * Deadlines live in a hierarchical timer wheel (Varghese & Lauck): four
+ * levels of 64 slots, where a level-L slot spans 64^L ticks. A timeout is
+ * filed in the lowest level whose range still reaches its deadline, and
+ * whenever a level comes round, the slot it lands on is re-filed one level
+ * down. A tick therefore touches one level-0 slot (plus a cascade every
+ * 64 ticks), however many sessions are parked; four levels of one-second
+ * ticks cover about 190 days, and longer deadlines are re-filed until
+ * they fit.
+ *
+ * The wheel, and the map from session id to timeout, belong to a single
+ * scheduler thread and have no locks. Registered as a
+ * ParkingSessionListener, a gate only offers to a lock-free queue: the
+ * new timeout on a start, the session id on an end. The scheduler drains
+ * that queue every few milliseconds, linking new timeouts into their
+ * slot's list and unlinking cancelled ones, both O(1). Everything that
+ * expires in one tick goes to the OverstayListener as one batch. Sessions
+ * are flagged once; a session still parked after that stays the
+ * listener's business.
+ *
+ * Listeners of a start and an end on different threads may run in either
+ * order, so an end that finds nothing to cancel is remembered for a few
+ * ticks in case its start shows up late.
+ *
+ * Restored sessions don't reach listeners (see restoreSessions), so call
+ * watch() for them.
+ */
+public final class OverstayMonitor implements ParkingSessionListener, AutoCloseable {
+
+    // Allowed duration meaning the session never overstays
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    // How often the scheduler drains the queue when ticks are longer than that
+    private static final long DRAIN_MILLIS = 10;
+    // How long an end that overtook its start is remembered
+    private static final long EARLY_CANCEL_TICKS = SLOTS;
+
+    private final long tickMillis;
+    private final ToLongFunction<ParkingSession> allowedMillis;
+    private final OverstayListener listener;
+    private final LongSupplier clock;
+    private final long originMillis;
+
+    // From gates to the scheduler: a Timeout to add, or the UUID of a session to cancel
+    private final ConcurrentLinkedQueue<Object> commands = new ConcurrentLinkedQueue<>();
+
+    // Scheduler thread only
+    private final Timeout[] slots = new Timeout[LEVELS * SLOTS];
+    private final Map<UUID, Timeout> timeoutsBySessionId = new HashMap<>();
+    private final Map<UUID, Long> earlyCancels = new HashMap<>(); // session id -> tick it arrived
+    private long currentTick;
+    private long pendingCount;
+
+    private volatile int watchedCount;
+
+    private final Thread scheduler;
+    private volatile boolean closed;
+
+    public OverstayMonitor(long tickMillis, ToLongFunction<ParkingSession> allowedMillis, OverstayListener listener) {
+        this(tickMillis, allowedMillis, listener, System::currentTimeMillis, true);
+    }
+
+    // Without the thread, the caller drives the wheel through tick()
+    OverstayMonitor(long tickMillis, ToLongFunction<ParkingSession> allowedMillis, OverstayListener listener,
+            LongSupplier clock, boolean startScheduler) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.allowedMillis = allowedMillis;
+        this.listener = listener;
+        this.clock = clock;
+        this.originMillis = clock.getAsLong();
+
+        if (startScheduler) {
+            scheduler = new Thread(this::run, "overstay-monitor");
+            scheduler.setDaemon(true);
+            scheduler.start();
+        } else {
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public void onSessionStarted(ParkingSession session) {
+        watch(session);
+    }
+
+    @Override
+    public void onSessionEnded(ParkingSession session) {
+        if (allowedMillis.applyAsLong(session) != UNLIMITED) {
+            commands.offer(session.getParkingSessionId());
+        }
+    }
+
+    public void watch(ParkingSession session) {
+        long allowed = allowedMillis.applyAsLong(session);
+        if (allowed == UNLIMITED) return;
+
+        long deadlineMillis = session.getStartTime().toEpochMilli() + allowed;
+        // Rounded up, so a session is never flagged before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis);
+        commands.offer(new Timeout(session, deadlineTick));
+    }
+
+    // Sessions being watched, as of the scheduler's last round
+    public int getWatchedCount() {
+        return watchedCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (scheduler != null) {
+            LockSupport.unpark(scheduler);
+        }
+    }
+
+    private void run() {
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(tickMillis, DRAIN_MILLIS));
+        long nextRoundNanos = System.nanoTime();
+        while (!closed) {
+            nextRoundNanos += periodNanos;
+            long wait = nextRoundNanos - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(this, wait);
+            if (closed) return;
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // A failing listener must not stop the clock; the batch is lost
+            }
+        }
+    }
+
+    /*
+     * One scheduler round: apply queued adds and cancels, then advance the
+     * wheel to the clock and hand everything that expired to the listener.
+     * Returns the number of sessions flagged.
+     */
+    int tick() {
+        List<ParkingSession> expired = new ArrayList<>();
+        Object command;
+        while ((command = commands.poll()) != null) {
+            if (command instanceof Timeout) {
+                add((Timeout) command, expired);
+            } else {
+                cancel((UUID) command);
+            }
+        }
+
+        long nowTick = Math.floorDiv(clock.getAsLong() - originMillis, tickMillis);
+        if (!earlyCancels.isEmpty() && nowTick > currentTick) {
+            long oldest = nowTick - EARLY_CANCEL_TICKS;
+            earlyCancels.values().removeIf(tick -> tick < oldest);
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            // Higher levels first, so what they hand down lands in slots not yet visited
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, slotIndex(currentTick, level), expired);
+                }
+            }
+            expire(slotIndex(currentTick, 0), expired);
+        }
+
+        watchedCount = timeoutsBySessionId.size();
+        if (!expired.isEmpty()) {
+            listener.onOverstay(expired);
+        }
+        return expired.size();
+    }
+
+    // Timeouts linked into the wheel, for tests
+    long getPendingCount() {
+        return pendingCount;
+    }
+
+    private void add(Timeout timeout, List<ParkingSession> expired) {
+        UUID sessionId = timeout.session.getParkingSessionId();
+        if (earlyCancels.remove(sessionId) != null) return; // ended before we heard it started
+        timeoutsBySessionId.put(sessionId, timeout);
+        schedule(timeout, expired);
+    }
+
+    private void cancel(UUID sessionId) {
+        Timeout timeout = timeoutsBySessionId.remove(sessionId);
+        if (timeout == null) {
+            earlyCancels.put(sessionId, currentTick);
+        } else if (timeout.slot >= 0) {
+            unlink(timeout);
+        }
+    }
+
+    private void schedule(Timeout timeout, List<ParkingSession> expired) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            fire(timeout, expired);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // Past the top level's range: park it in the farthest slot and re-file when that comes round
+        long tick = Math.min(timeout.deadlineTick, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        link(timeout, slotIndex(tick, level));
+    }
+
+    private void cascade(int level, int slot, List<ParkingSession> expired) {
+        Timeout timeout = slots[slot];
+        slots[slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout.slot = -1;
+            pendingCount--;
+            schedule(timeout, expired);
+            timeout = next;
+        }
+    }
+
+    private void expire(int slot, List<ParkingSession> expired) {
+        Timeout timeout = slots[slot];
+        slots[slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout.slot = -1;
+            pendingCount--;
+            fire(timeout, expired);
+            timeout = next;
+        }
+    }
+
+    private void fire(Timeout timeout, List<ParkingSession> expired) {
+        timeoutsBySessionId.remove(timeout.session.getParkingSessionId());
+        expired.add(timeout.session);
+    }
+
+    private void link(Timeout timeout, int slot) {
+        Timeout head = slots[slot];
+        timeout.next = head;
+        if (head != null) head.prev = timeout;
+        slots[slot] = timeout;
+        timeout.slot = slot;
+        pendingCount++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+        timeout.slot = -1;
+        pendingCount--;
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static final class Timeout {
+        final ParkingSession session;
+        final long deadlineTick;
+        // Scheduler thread only
+        Timeout prev;
+        Timeout next;
+        int slot = -1;
+
+        Timeout(ParkingSession session, long deadlineTick) {
+            this.session = session;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -1,15 +1,47 @@
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ParkingLot {
     private final UUID parkingLotId;
     private final int numFloors;
-    private ConcurrentLinkedQueue<ParkingSpot> availableParkingSpots;
+    private final SpotAllocator spotAllocator;
+
+    // Dense 0..n-1 numbering of the spots, floor by floor
+    private final List<ParkingSpot> spotsByIndex;
+    private final Map<ParkingSpot, Integer> indexBySpot;
+    private final OccupancyIndex occupancyIndex;
+    private final ParkingMetrics metrics;
+    // Set once a ReservationBook is created for this lot
+    private volatile ReservationBook reservationBook;
 
     public ParkingLot(int numFloors, ConcurrentLinkedQueue<ParkingSpot> availableParkingSpots) {
+        this(numFloors, new QueueSpotAllocator(availableParkingSpots));
+    }
+
+    public ParkingLot(int numFloors, SpotAllocator spotAllocator) {
+        this(numFloors, spotAllocator, new ParkingMetrics());
+    }
+
+    // Every spot the allocator holds at construction time belongs to the lot and starts out free
+    public ParkingLot(int numFloors, SpotAllocator spotAllocator, ParkingMetrics metrics) {
         this.parkingLotId = UUID.randomUUID();
         this.numFloors = numFloors;
-        this.availableParkingSpots = availableParkingSpots;
+        this.spotAllocator = spotAllocator;
+        this.metrics = metrics;
+
+        List<ParkingSpot> spots = new ArrayList<>(spotAllocator.availableSpots());
+        spots.sort(Comparator.comparingInt(ParkingSpot::getFloor).thenComparingInt(ParkingSpot::getSpotId));
+
+        Map<ParkingSpot, Integer> indices = new HashMap<>();
+        for (int i = 0; i < spots.size(); i++) {
+            if (indices.put(spots.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate parking spot: " + spots.get(i));
+            }
+        }
+
+        this.spotsByIndex = Collections.unmodifiableList(spots);
+        this.indexBySpot = indices;
+        this.occupancyIndex = new OccupancyIndex(spotsByIndex);
     }
 
     public UUID getParkingLotId() {
@@ -20,18 +52,203 @@ public class ParkingLot {
         return numFloors;
     }
 
+    public ParkingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getTotalSpots() {
+        return spotsByIndex.size();
+    }
+
+    public ParkingSpot spotAt(int spotIndex) {
+        return spotsByIndex.get(spotIndex);
+    }
+
+    public int indexOf(ParkingSpot spot) {
+        Integer index = indexBySpot.get(spot);
+        if (index == null) {
+            throw new IllegalArgumentException("Spot does not belong to this lot: " + spot);
+        }
+        return index;
+    }
+
+    // Like indexOf, but -1 for a spot the lot doesn't have, for input that may be wrong (sensor feeds)
+    int findIndex(int floor, int spotId) {
+        Integer index = indexBySpot.get(new ParkingSpot(floor, spotId));
+        return index == null ? -1 : index;
+    }
+
     // This method is useful for my unit tests
-    ConcurrentLinkedQueue<ParkingSpot> getAvailableParkingSpots() {
-        return availableParkingSpots;
+    Collection<ParkingSpot> getAvailableParkingSpots() {
+        return spotAllocator.availableSpots();
+    }
+
+    public int getAvailableSpotCount() {
+        return occupancyIndex.getFreeCount();
     }
 
+    public int getAvailableSpotCount(int floor) {
+        return occupancyIndex.getFreeCount(floor);
+    }
+
+    public OccupancySnapshot getOccupancySnapshot() {
+        return occupancyIndex.snapshot();
+    }
+
+    // Callers that don't know their gate are spread over gates by thread,
+    // which keeps a striped allocator from funnelling everyone into one stripe
     public ParkingSpot tryAcquireSpot() {
-        return availableParkingSpots.poll();
+        return tryAcquireSpot(Thread.currentThread().hashCode());
+    }
+
+    /*
+     * Walk-in acquisition. Spots whose reservation starts soon are set aside
+     * and put back once we have a spot (or the pool is empty). A spot whose
+     * occupancy bit is already set was taken by tryClaimSpot while it sat in
+     * the pool; it is simply dropped, the claimer owns it now.
+     */
+    public ParkingSpot tryAcquireSpot(int gate) {
+        return acquireSpot(gate, false);
+    }
+
+    /*
+     * Like tryAcquireSpot, but never waits for a release even when the
+     * allocator would (see AdaptiveSpotAllocator); for handing spots on to
+     * waiters from paths that must not block, such as ending a session.
+     */
+    ParkingSpot pollSpot() {
+        return acquireSpot(Thread.currentThread().hashCode(), true);
     }
 
+    private ParkingSpot acquireSpot(int gate, boolean poll) {
+        long begin = metrics.startTimer();
+        ReservationBook book = reservationBook;
+        List<ParkingSpot> passedOver = null;
+        ParkingSpot spot;
+
+        while ((spot = poll ? spotAllocator.poll(gate) : spotAllocator.tryAcquire(gate)) != null) {
+            int index = indexOf(spot);
+            if (book != null && book.isReservedSoon(index, System.currentTimeMillis())) {
+                if (passedOver == null) passedOver = new ArrayList<>();
+                passedOver.add(spot);
+                continue;
+            }
+            if (!occupancyIndex.markOccupied(index)) continue;
+            // Re-check after taking it: a booking may have landed since (see ReservationBook)
+            if (book != null && book.isReservedSoon(index, System.currentTimeMillis())) {
+                occupancyIndex.markFree(index);
+                if (passedOver == null) passedOver = new ArrayList<>();
+                passedOver.add(spot);
+                continue;
+            }
+            break;
+        }
+
+        if (passedOver != null) {
+            metrics.add(ParkingMetrics.Counter.RESERVATION_SKIPS, passedOver.size());
+            spotAllocator.releaseAll(passedOver);
+        }
+        if (spot == null) {
+            metrics.increment(ParkingMetrics.Counter.ACQUIRE_EMPTY);
+        }
+        metrics.record(ParkingMetrics.Operation.ACQUIRE, begin);
+        return spot;
+    }
+
+    // Reserves up to max spots in a single pass over the pool
+    public List<ParkingSpot> tryAcquireSpots(int gate, int max) {
+        List<ParkingSpot> polled = new ArrayList<>(max);
+        if (spotAllocator.tryAcquire(gate, max, polled) < max) {
+            metrics.increment(ParkingMetrics.Counter.ACQUIRE_EMPTY);
+        }
+
+        ReservationBook book = reservationBook;
+        List<ParkingSpot> spots = new ArrayList<>(polled.size());
+        List<ParkingSpot> passedOver = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ParkingSpot spot : polled) {
+            int index = indexOf(spot);
+            if (book != null && book.isReservedSoon(index, now)) {
+                passedOver.add(spot);
+            } else if (occupancyIndex.markOccupied(index)) {
+                if (book != null && book.isReservedSoon(index, now)) {
+                    occupancyIndex.markFree(index);
+                    passedOver.add(spot);
+                } else {
+                    spots.add(spot);
+                }
+            }
+        }
+        if (!passedOver.isEmpty()) {
+            metrics.add(ParkingMetrics.Counter.RESERVATION_SKIPS, passedOver.size());
+            spotAllocator.releaseAll(passedOver);
+        }
+        return spots;
+    }
+
+    /*
+     * Takes one specific spot, e.g. the one a reservation holds. The
+     * occupancy bit decides who wins: if it is set here, a walk-in that
+     * polls the spot afterwards drops it. False if the spot is occupied.
+     */
+    public boolean tryClaimSpot(ParkingSpot spot) {
+        if (!occupancyIndex.markOccupied(indexOf(spot))) {
+            return false;
+        }
+        spotAllocator.remove(spot);
+        return true;
+    }
+
+    public boolean isOccupied(int spotIndex) {
+        return occupancyIndex.isOccupied(spotIndex);
+    }
+
+    public ReservationBook getReservationBook() {
+        return reservationBook;
+    }
+
+    void attachReservationBook(ReservationBook book) {
+        if (reservationBook != null) {
+            throw new IllegalStateException("Lot already has a reservation book");
+        }
+        reservationBook = book;
+    }
+
+    // Releasing a spot that is already free is a no-op, so a duplicate
+    // release can never put the same spot into the pool twice
     public void releaseSpot(ParkingSpot spot) {
-        if (spot != null) {
-            availableParkingSpots.add(spot);
+        long begin = metrics.startTimer();
+        if (spot != null && occupancyIndex.markFree(indexOf(spot))) {
+            spotAllocator.release(spot);
+        }
+        metrics.record(ParkingMetrics.Operation.RELEASE, begin);
+    }
+
+    /*
+     * Marks spots as taken without going through a gate, e.g. for sessions
+     * replayed from the journal at startup. Spots that are already taken are
+     * skipped; returns the spots that were actually claimed.
+     */
+    public List<ParkingSpot> claimSpots(Collection<ParkingSpot> spots) {
+        List<ParkingSpot> claimed = new ArrayList<>(spots.size());
+        for (ParkingSpot spot : spots) {
+            if (occupancyIndex.markOccupied(indexOf(spot))) {
+                claimed.add(spot);
+            }
+        }
+        spotAllocator.claimAll(claimed);
+        return claimed;
+    }
+
+    public void releaseSpots(Collection<ParkingSpot> spots) {
+        List<ParkingSpot> freed = new ArrayList<>(spots.size());
+        for (ParkingSpot spot : spots) {
+            if (spot != null && occupancyIndex.markFree(indexOf(spot))) {
+                freed.add(spot);
+            }
+        }
+        if (!freed.isEmpty()) {
+            spotAllocator.releaseAll(freed);
         }
     }
 
@@ -0,0 +1,208 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Counters and latency histograms for the parking hot paths.
+ *
+ * Everything is recorded into striped adders, so gates never contend on a
+ * shared counter. Counters are exact. Latencies are sampled: reading the
+ * clock twice costs about as much as a whole spot acquisition, so by
+ * default only one operation in 16 (picked per thread at random) is timed.
+ * A disabled instance skips all of it, which makes it easy to measure what
+ * the instrumentation itself costs.
+ */
+public class ParkingMetrics implements ParkingMetricsMXBean {
+
+    public enum Operation {
+        START,    // ParkingService.startParkingSession
+        END,      // ParkingService.endParkingSession
+        ACQUIRE,  // ParkingLot.tryAcquireSpot
+        RELEASE   // ParkingLot.releaseSpot
+    }
+
+    public enum Counter {
+        SESSIONS_STARTED,
+        SESSIONS_ENDED,
+        END_WITHOUT_SESSION,
+        LOT_FULL_REJECTIONS,  // start found no free spot
+        RACE_ROLLBACKS,       // spot acquired, putIfAbsent lost, spot released again
+        WAITLIST_HAND_OFFS,   // released spot went straight to a waiter
+        ACQUIRE_EMPTY,        // allocator had nothing to hand out
+        RESERVATION_SKIPS,    // walk-in passed over a spot whose reservation starts soon
+        LISTENER_FAILURES     // a session listener threw; the session was ended or taken back anyway
+    }
+
+    public static final int DEFAULT_LATENCY_SAMPLE_RATE = 16;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final int latencySampleRate;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    public ParkingMetrics() {
+        this(DEFAULT_LATENCY_SAMPLE_RATE);
+    }
+
+    // Times one operation in latencySampleRate; 1 times every operation
+    public ParkingMetrics(int latencySampleRate) {
+        this(true, latencySampleRate);
+    }
+
+    private ParkingMetrics(boolean enabled, int latencySampleRate) {
+        if (latencySampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        }
+        this.enabled = enabled;
+        this.latencySampleRate = latencySampleRate;
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+        }
+        for (Counter c : Counter.values()) {
+            counters.put(c, new LongAdder());
+        }
+    }
+
+    public static ParkingMetrics disabled() {
+        return new ParkingMetrics(false, 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLatencySampleRate() {
+        return latencySampleRate;
+    }
+
+    // Returns the token to hand back to record(); the clock is only read
+    // when this operation is sampled
+    public long startTimer() {
+        if (!enabled) return NOT_TIMED;
+        if (latencySampleRate > 1 && ThreadLocalRandom.current().nextInt(latencySampleRate) != 0) return NOT_TIMED;
+        return System.nanoTime();
+    }
+
+    public void record(Operation op, long startNanos) {
+        if (startNanos != NOT_TIMED) {
+            latencies.get(op).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void increment(Counter counter) {
+        if (enabled) {
+            counters.get(counter).increment();
+        }
+    }
+
+    public void add(Counter counter, long delta) {
+        if (enabled && delta != 0) {
+            counters.get(counter).add(delta);
+        }
+    }
+
+    public long get(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    public LatencyHistogram.Snapshot latency(Operation op) {
+        return latencies.get(op).snapshot();
+    }
+
+    public Snapshot snapshot() {
+        Map<Counter, Long> c = new EnumMap<>(Counter.class);
+        for (Map.Entry<Counter, LongAdder> e : counters.entrySet()) {
+            c.put(e.getKey(), e.getValue().sum());
+        }
+        Map<Operation, LatencyHistogram.Snapshot> l = new EnumMap<>(Operation.class);
+        for (Map.Entry<Operation, LatencyHistogram> e : latencies.entrySet()) {
+            l.put(e.getKey(), e.getValue().snapshot());
+        }
+        return new Snapshot(c, l);
+    }
+
+    /*
+     * Registers this instance with the platform MBean server as
+     * "parking:type=ParkingMetrics,name=<name>" and returns the object name.
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("parking:type=ParkingMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register parking metrics MBean " + name, e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<Counter, Long> e : snapshot().getCounters().entrySet()) {
+            values.put(e.getKey().name().toLowerCase(Locale.ROOT), e.getValue());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyNanos() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation op : Operation.values()) {
+            LatencyHistogram.Snapshot s = latencies.get(op).snapshot();
+            String prefix = op.name().toLowerCase(Locale.ROOT) + ".";
+            values.put(prefix + "count", s.getCount());
+            values.put(prefix + "p50", s.percentileNanos(50));
+            values.put(prefix + "p99", s.percentileNanos(99));
+            values.put(prefix + "p999", s.percentileNanos(99.9));
+            values.put(prefix + "max", s.getMaxNanos());
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : latencies.values()) h.reset();
+        for (LongAdder c : counters.values()) c.reset();
+    }
+
+    public static class Snapshot {
+        private final Map<Counter, Long> counters;
+        private final Map<Operation, LatencyHistogram.Snapshot> latencies;
+
+        Snapshot(Map<Counter, Long> counters, Map<Operation, LatencyHistogram.Snapshot> latencies) {
+            this.counters = counters;
+            this.latencies = latencies;
+        }
+
+        public Map<Counter, Long> getCounters() {
+            return counters;
+        }
+
+        public long get(Counter counter) {
+            return counters.get(counter);
+        }
+
+        public LatencyHistogram.Snapshot latency(Operation op) {
+            return latencies.get(op);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("ParkingMetrics.Snapshot{\n");
+            for (Map.Entry<Counter, Long> e : counters.entrySet()) {
+                sb.append("  ").append(e.getKey()).append('=').append(e.getValue()).append('\n');
+            }
+            for (Map.Entry<Operation, LatencyHistogram.Snapshot> e : latencies.entrySet()) {
+                sb.append("  ").append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
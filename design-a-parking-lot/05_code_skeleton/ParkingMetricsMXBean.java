@@ -0,0 +1,15 @@
+import java.util.Map;
+
+/*
+ * JMX view of ParkingMetrics. Map keys are lower-case counter names and
+ * "<operation>.<stat>" for latencies, e.g. "start.p99" (nanoseconds).
+ * Latency counts are counts of sampled operations.
+ */
+public interface ParkingMetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getLatencyNanos();
+
+    void reset();
+}
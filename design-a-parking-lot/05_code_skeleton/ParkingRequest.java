@@ -0,0 +1,29 @@
+/*
+ * One arrival in a batch sent by a gate controller.
+ */
+public class ParkingRequest {
+
+    private final User user;
+    private final Vehicle vehicle;
+
+    public ParkingRequest(User user, Vehicle vehicle) {
+        this.user = user;
+        this.vehicle = vehicle;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingRequest{" +
+               "user=" + user +
+               ", vehicle=" + vehicle +
+               '}';
+    }
+}
@@ -1,15 +1,54 @@
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 class ParkingService {
 
+    // Backs the default MapSessionStore; stays empty when another store is plugged in
     private ConcurrentHashMap<UUID, ParkingSession> currentParkingSessionsByUserId = new ConcurrentHashMap<>();
+    private final SessionStore sessions;
+    // Lookups by session id, vehicle and spot, validated against the store
+    private final SessionIndex sessionIndex;
+    private final ParkingLot parkingLot;
+    private final ParkingMetrics metrics;
+    // Requests waiting for a spot, oldest first
+    private final ConcurrentLinkedQueue<Waiter> waitlist = new ConcurrentLinkedQueue<>();
+    private final List<ParkingSessionListener> sessionListeners = new CopyOnWriteArrayList<>();
+    // Null when passes are not sold
+    private final EntitlementCache entitlements;
+    // Ids for new sessions; UUID.randomUUID goes through SecureRandom, see setSessionIdSupplier
+    private volatile Supplier<UUID> sessionIds = UUID::randomUUID;
+
     // Generating/Building a parkingLot and ParkingSpots
-    private ConcurrentLinkedQueue<ParkingSpot> parkingSpots = init();
-    private ParkingLot parkingLot = new ParkingLot(2, parkingSpots);
+    public ParkingService() {
+        this(new ParkingLot(2, init()));
+    }
+
+    // Service-level metrics are recorded next to the lot's own
+    public ParkingService(ParkingLot parkingLot) {
+        this(parkingLot, null);
+    }
+
+    // Every session start checks the user's pass through the cache
+    public ParkingService(ParkingLot parkingLot, EntitlementCache entitlements) {
+        this(parkingLot, entitlements, null);
+    }
+
+    // A null store keeps sessions as objects in a map (MapSessionStore)
+    public ParkingService(ParkingLot parkingLot, EntitlementCache entitlements, SessionStore sessions) {
+        this.parkingLot = parkingLot;
+        this.metrics = parkingLot.getMetrics();
+        this.entitlements = entitlements;
+        this.sessions = sessions != null ? sessions : new MapSessionStore(currentParkingSessionsByUserId);
+        this.sessionIndex = new SessionIndex(parkingLot, this.sessions);
+    }
 
-    private ConcurrentLinkedQueue<ParkingSpot> init() {
+    private static ConcurrentLinkedQueue<ParkingSpot> init() {
         ConcurrentLinkedQueue<ParkingSpot> parkingSpots = new ConcurrentLinkedQueue<>();
         parkingSpots.add(new ParkingSpot(1, 1));
         parkingSpots.add(new ParkingSpot(1, 2));
@@ -20,32 +59,582 @@ class ParkingService {
     }
 
     public Optional<UUID> startParkingSession(User user, Vehicle vehicle) throws Exception {
+        long begin = metrics.startTimer();
+        boolean covered = isCovered(user, vehicle);
+        Optional<UUID> sessionId = startParkingSessionOn(user, vehicle, covered, parkingLot.tryAcquireSpot());
+        metrics.record(ParkingMetrics.Operation.START, begin);
+        return sessionId;
+    }
 
-        ParkingSpot spot = parkingLot.tryAcquireSpot();
-        if (spot == null) return Optional.empty();
+    // Gate-aware variant: lets a striped lot keep each gate on its home floor
+    public Optional<UUID> startParkingSession(User user, Vehicle vehicle, int gate) throws Exception {
+        long begin = metrics.startTimer();
+        boolean covered = isCovered(user, vehicle);
+        Optional<UUID> sessionId = startParkingSessionOn(user, vehicle, covered, parkingLot.tryAcquireSpot(gate));
+        metrics.record(ParkingMetrics.Operation.START, begin);
+        return sessionId;
+    }
 
-        ParkingSession session = new ParkingSession(user, vehicle, spot);
-        ParkingSession raced = currentParkingSessionsByUserId.putIfAbsent(user.getUserId(), session);
+    private Optional<UUID> startParkingSessionOn(User user, Vehicle vehicle, boolean covered, ParkingSpot spot) {
 
-        if (raced != null) {
-            parkingLot.releaseSpot(spot);
+        if (spot == null) {
+            metrics.increment(ParkingMetrics.Counter.LOT_FULL_REJECTIONS);
             return Optional.empty();
         }
 
+        ParkingSession session = newSession(user, vehicle, spot, covered);
+
+        if (!sessions.putIfAbsent(session)) {
+            metrics.increment(ParkingMetrics.Counter.RACE_ROLLBACKS);
+            handOffSpot(spot);
+            return Optional.empty();
+        }
+
+        sessionIndex.add(session);
+        metrics.increment(ParkingMetrics.Counter.SESSIONS_STARTED);
+        try {
+            fireSessionStarted(session);
+        } catch (RuntimeException e) {
+            if (undoStart(session, e)) handOffSpot(spot);
+            throw e;
+        }
         return Optional.of(session.getParkingSessionId());
     }
 
+    /*
+     * Starts a session on the spot a reservation holds. Empty if the user is
+     * already parked, the reservation is no longer booked (cancelled, used,
+     * or over), or the spot is still occupied by someone who overstayed.
+     * The reservation is used up once the session starts.
+     */
+    public Optional<UUID> startReservedSession(Reservation reservation, User user, Vehicle vehicle) {
+        long begin = metrics.startTimer();
+        try {
+            ReservationBook book = parkingLot.getReservationBook();
+            if (book == null) {
+                throw new IllegalStateException("Lot has no reservation book");
+            }
+            if (vehicle.getVehicleType() != reservation.getVehicleType()) {
+                throw new IllegalArgumentException("Reservation is for a " + reservation.getVehicleType() + " spot");
+            }
+            if (sessions.contains(user.getUserId())
+                    || reservation.getToMillis() <= System.currentTimeMillis()
+                    || !book.isBooked(reservation)) {
+                return Optional.empty();
+            }
+
+            boolean covered = isCovered(user, vehicle);
+            ParkingSpot spot = reservation.getParkingSpot();
+            if (!parkingLot.tryClaimSpot(spot)) {
+                return Optional.empty();
+            }
+            if (!book.consume(reservation)) {
+                handOffSpot(spot); // cancelled while we were claiming
+                return Optional.empty();
+            }
+            return startParkingSessionOn(user, vehicle, covered, spot);
+        } finally {
+            metrics.record(ParkingMetrics.Operation.START, begin);
+        }
+    }
+
+    public List<Optional<UUID>> startParkingSessions(List<ParkingRequest> requests) {
+        return startParkingSessions(requests, Thread.currentThread().hashCode());
+    }
+
+    /*
+     * Batch start for gate controllers. Requests from users that already have
+     * a session (or appear twice in the batch) are rejected up front. Spots for
+     * the rest are reserved in one pass and assigned in request order.
+     * results.get(i) belongs to requests.get(i).
+     */
+    public List<Optional<UUID>> startParkingSessions(List<ParkingRequest> requests, int gate) {
+        List<Optional<UUID>> results = new ArrayList<>(Collections.nCopies(requests.size(), Optional.<UUID>empty()));
+
+        Set<UUID> usersInBatch = new HashSet<>();
+        List<Integer> eligible = new ArrayList<>(requests.size());
+        boolean[] covered = new boolean[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            ParkingRequest request = requests.get(i);
+            UUID userId = request.getUser().getUserId();
+            if (usersInBatch.add(userId) && !sessions.contains(userId)) {
+                eligible.add(i);
+                covered[i] = isCovered(request.getUser(), request.getVehicle());
+            }
+        }
+
+        List<ParkingSpot> spots = parkingLot.tryAcquireSpots(gate, eligible.size());
+        List<ParkingSpot> unused = new ArrayList<>();
+
+        int next = 0;
+        try {
+            for (int i : eligible) {
+                if (next == spots.size()) break;
+
+                ParkingRequest request = requests.get(i);
+                ParkingSpot spot = spots.get(next++);
+                ParkingSession session = newSession(request.getUser(), request.getVehicle(), spot, covered[i]);
+
+                if (!sessions.putIfAbsent(session)) {
+                    metrics.increment(ParkingMetrics.Counter.RACE_ROLLBACKS);
+                    unused.add(spot);
+                } else {
+                    sessionIndex.add(session);
+                    metrics.increment(ParkingMetrics.Counter.SESSIONS_STARTED);
+                    try {
+                        fireSessionStarted(session);
+                    } catch (RuntimeException e) {
+                        if (undoStart(session, e)) unused.add(spot);
+                        throw e;
+                    }
+                    results.set(i, Optional.of(session.getParkingSessionId()));
+                }
+            }
+            metrics.add(ParkingMetrics.Counter.LOT_FULL_REJECTIONS, Math.max(0, eligible.size() - spots.size()));
+        } finally {
+            // After a listener failure the spots not assigned yet are still ours
+            unused.addAll(spots.subList(next, spots.size()));
+            if (!unused.isEmpty()) {
+                handOffSpots(unused);
+            }
+        }
+
+        return results;
+    }
+
+    public CompletableFuture<UUID> startParkingSessionAsync(User user, Vehicle vehicle) {
+        return startParkingSessionAsync(user, vehicle, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Starts a session right away if a spot is free and nobody is queued ahead,
+     * otherwise joins the FIFO waitlist until endParkingSession hands over a spot.
+     * A timeout <= 0 waits indefinitely. Cancelling the future leaves the waitlist.
+     */
+    public CompletableFuture<UUID> startParkingSessionAsync(User user, Vehicle vehicle, long timeout, TimeUnit unit) {
+
+        if (sessions.contains(user.getUserId())) {
+            return CompletableFuture.failedFuture(alreadyParked());
+        }
+
+        boolean covered = isCovered(user, vehicle);
+        if (waitlist.isEmpty()) {
+            ParkingSpot spot = parkingLot.pollSpot();
+            if (spot != null) {
+                ParkingSession session = newSession(user, vehicle, spot, covered);
+                if (!sessions.putIfAbsent(session)) {
+                    metrics.increment(ParkingMetrics.Counter.RACE_ROLLBACKS);
+                    handOffSpot(spot);
+                    return CompletableFuture.failedFuture(alreadyParked());
+                }
+                sessionIndex.add(session);
+                metrics.increment(ParkingMetrics.Counter.SESSIONS_STARTED);
+                try {
+                    fireSessionStarted(session);
+                } catch (RuntimeException e) {
+                    if (undoStart(session, e)) handOffSpot(spot);
+                    return CompletableFuture.failedFuture(e);
+                }
+                return CompletableFuture.completedFuture(session.getParkingSessionId());
+            }
+        }
+
+        Waiter waiter = new Waiter(user, vehicle, covered);
+        waitlist.add(waiter);
+        waiter.future.whenComplete((id, error) -> {
+            if (error != null) waitlist.remove(waiter);
+        });
+        if (timeout > 0) {
+            waiter.future.orTimeout(timeout, unit);
+        }
+
+        // Re-check after joining: a spot released just before we were
+        // visible in the waitlist would otherwise sit in the pool unused
+        ParkingSpot late = parkingLot.pollSpot();
+        if (late != null) {
+            handOffSpot(late);
+        }
+
+        return waiter.future;
+    }
+
+    public ParkingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ParkingLot getParkingLot() {
+        return parkingLot;
+    }
+
+    public Optional<ParkingSession> getCurrentParkingSession(User user) {
+        return Optional.ofNullable(sessions.get(user));
+    }
+
+    // By the id startParkingSession returned
+    public Optional<ParkingSession> findParkingSession(UUID parkingSessionId) {
+        return sessionIndex.findBySessionId(parkingSessionId);
+    }
+
+    public Optional<ParkingSession> findParkingSessionByVehicle(UUID vehicleId) {
+        return sessionIndex.findByVehicleId(vehicleId);
+    }
+
+    public Optional<ParkingSession> findParkingSessionBySpot(ParkingSpot spot) {
+        return sessionIndex.findBySpot(spot);
+    }
+
+    /*
+     * Replaces UUID.randomUUID for new session ids, e.g. with
+     * UniqueIDGenerator::nextUUIDv7 (implementations/unique_id_generator),
+     * which keeps the UUID type but issues ids in time order, so the
+     * session index and archive append instead of inserting at random.
+     * Ids must be unique across everything that stores sessions, including
+     * the journal and archive of earlier runs.
+     */
+    public void setSessionIdSupplier(Supplier<UUID> sessionIds) {
+        this.sessionIds = Objects.requireNonNull(sessionIds);
+    }
+
+    public void addSessionListener(ParkingSessionListener listener) {
+        sessionListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeSessionListener(ParkingSessionListener listener) {
+        sessionListeners.remove(listener);
+    }
+
+    /*
+     * Re-installs sessions recovered at startup (see SessionJournal.recover)
+     * and takes their spots out of the pool. Listeners are not told, since the
+     * sessions are already recorded. A session whose user or spot was already
+     * restored is skipped; returns the number restored.
+     *
+     * Spots are matched to the lot's own by floor and id, since a recovered
+     * spot may be a placeholder without the right type; a session on a spot
+     * the lot does not have is skipped too.
+     */
+    public int restoreSessions(Collection<ParkingSession> sessions) {
+        Set<ParkingSpot> requested = new HashSet<>();
+        List<ParkingSession> candidates = new ArrayList<>(sessions.size());
+        for (ParkingSession session : sessions) {
+            ParkingSpot recorded = session.getParkingSpot();
+            int index = parkingLot.findIndex(recorded.getFloor(), recorded.getSpotId());
+            if (index < 0) continue;
+
+            ParkingSpot spot = parkingLot.spotAt(index);
+            if (spot != recorded) {
+                session = new ParkingSession(session.getParkingSessionId(), session.getStartTime(),
+                        session.getUser(), session.getVehicle(), spot, session.isCoveredByPass());
+            }
+            if (requested.add(spot)) {
+                candidates.add(session);
+            }
+        }
+
+        List<ParkingSession> installed = new ArrayList<>(candidates.size());
+        for (ParkingSession session : candidates) {
+            if (this.sessions.putIfAbsent(session)) {
+                installed.add(session);
+            }
+        }
+
+        List<ParkingSpot> spots = new ArrayList<>(installed.size());
+        for (ParkingSession session : installed) {
+            spots.add(session.getParkingSpot());
+        }
+        Set<ParkingSpot> claimed = new HashSet<>(parkingLot.claimSpots(spots));
+
+        int restored = 0;
+        for (ParkingSession session : installed) {
+            if (claimed.contains(session.getParkingSpot())) {
+                sessionIndex.add(session);
+                restored++;
+            } else {
+                // Spot already taken by a live session; drop the stale one
+                this.sessions.remove(session.getUser(), session.getParkingSessionId());
+            }
+        }
+        return restored;
+    }
+
+    public int getWaitlistSize() {
+        return waitlist.size();
+    }
+
     public boolean endParkingSession(User user) {
+        long begin = metrics.startTimer();
+
+        ParkingSession session = sessions.remove(user);
+
+        if (session == null) {
+            metrics.increment(ParkingMetrics.Counter.END_WITHOUT_SESSION);
+            metrics.record(ParkingMetrics.Operation.END, begin);
+            return false;
+        }
+
+        finishSession(session, begin);
+        return true;
+    }
 
-        ParkingSession session = currentParkingSessionsByUserId.remove(user.getUserId());
+    /*
+     * Ends the user's session only if it is the given one. Lets a caller that
+     * looked the session up earlier (see FederatedParkingService) end it
+     * without ever ending a newer session the user started meanwhile.
+     */
+    boolean endParkingSession(User user, UUID parkingSessionId) {
+        long begin = metrics.startTimer();
+
+        ParkingSession session = sessions.remove(user, parkingSessionId);
 
         if (session == null) {
+            metrics.increment(ParkingMetrics.Counter.END_WITHOUT_SESSION);
+            metrics.record(ParkingMetrics.Operation.END, begin);
+            return false;
+        }
+
+        finishSession(session, begin);
+        return true;
+    }
+
+    private void finishSession(ParkingSession session, long begin) {
+        sessionIndex.remove(session);
+        session.endSession();
+        try {
+            // Before the hand-off, so the end is recorded ahead of the spot's next session
+            fireSessionEnded(session);
+        } finally {
+            // The session is gone whatever a listener did, so its spot must not be
+            handOffSpot(session.getParkingSpot());
+
+            metrics.increment(ParkingMetrics.Counter.SESSIONS_ENDED);
+            metrics.record(ParkingMetrics.Operation.END, begin);
+        }
+    }
+
+    // Batch end: results.get(i) tells whether users.get(i) had a session
+    public List<Boolean> endParkingSessions(List<User> users) {
+        List<Boolean> results = new ArrayList<>(users.size());
+        List<ParkingSpot> freed = new ArrayList<>(users.size());
+
+        // A listener failure doesn't stop the batch; the first is rethrown once every spot is back
+        RuntimeException failure = null;
+        for (User user : users) {
+            ParkingSession session = sessions.remove(user);
+            if (session == null) {
+                metrics.increment(ParkingMetrics.Counter.END_WITHOUT_SESSION);
+                results.add(false);
+                continue;
+            }
+            sessionIndex.remove(session);
+            session.endSession();
+            try {
+                fireSessionEnded(session);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else if (e != failure) {
+                    failure.addSuppressed(e);
+                }
+            }
+            freed.add(session.getParkingSpot());
+            results.add(true);
+        }
+        metrics.add(ParkingMetrics.Counter.SESSIONS_ENDED, freed.size());
+
+        if (!freed.isEmpty()) {
+            handOffSpots(freed);
+        }
+        if (failure != null) throw failure;
+
+        return results;
+    }
+
+    /*
+     * Gives a spot we hold straight to the oldest live waiter, skipping the
+     * pool. Only when nobody is waiting does the spot go back to the lot; we
+     * then look at the waitlist once more, because a waiter that joined after
+     * our check has re-checked the pool before our release landed.
+     */
+    private void handOffSpot(ParkingSpot spot) {
+        if (serveOldestWaiter(spot)) return;
+        parkingLot.releaseSpot(spot);
+        drainWaitlistFromPool();
+    }
+
+    private void handOffSpots(List<ParkingSpot> spots) {
+        List<ParkingSpot> unclaimed = new ArrayList<>(spots.size());
+        for (ParkingSpot spot : spots) {
+            if (!serveOldestWaiter(spot)) unclaimed.add(spot);
+        }
+        if (unclaimed.isEmpty()) return;
+
+        parkingLot.releaseSpots(unclaimed);
+        drainWaitlistFromPool();
+    }
+
+    private void drainWaitlistFromPool() {
+        while (!waitlist.isEmpty()) {
+            ParkingSpot spot = parkingLot.pollSpot();
+            if (spot == null) return;
+            if (!serveOldestWaiter(spot)) {
+                parkingLot.releaseSpot(spot);
+            }
+        }
+    }
+
+    private boolean serveOldestWaiter(ParkingSpot spot) {
+        Waiter waiter;
+        while ((waiter = waitlist.poll()) != null) {
+            if (tryServe(waiter, spot)) return true;
+        }
+        return false;
+    }
+
+    private boolean tryServe(Waiter waiter, ParkingSpot spot) {
+        if (waiter.future.isDone()) return false; // timed out or cancelled
+
+        ParkingSession session = newSession(waiter.user, waiter.vehicle, spot, waiter.covered);
+
+        if (!sessions.putIfAbsent(session)) {
+            waiter.future.completeExceptionally(alreadyParked());
             return false;
         }
 
+        sessionIndex.add(session);
+        metrics.increment(ParkingMetrics.Counter.SESSIONS_STARTED);
+        try {
+            // Listeners run before the future completes, so the waiter never
+            // sees a session the journal has not recorded
+            fireSessionStarted(session);
+        } catch (RuntimeException e) {
+            waiter.future.completeExceptionally(e);
+            // Not undone means the user ended it meanwhile, and that end handed the spot off
+            return !undoStart(session, e);
+        }
+        if (waiter.future.complete(session.getParkingSessionId())) {
+            metrics.increment(ParkingMetrics.Counter.WAITLIST_HAND_OFFS);
+            return true;
+        }
+
+        // Cancelled or timed out between the check and the install
+        if (sessions.remove(waiter.user, session.getParkingSessionId()) == null) {
+            // Already ended by someone else, whose end handed the spot off;
+            // offering it to the next waiter too would give it two owners
+            return true;
+        }
+        sessionIndex.remove(session);
         session.endSession();
-        parkingLot.releaseSpot(session.getParkingSpot());
+        metrics.increment(ParkingMetrics.Counter.SESSIONS_ENDED);
+        try {
+            fireSessionEnded(session);
+        } catch (RuntimeException e) {
+            // Nobody to tell: the waiter is gone and the caller is handing off
+            // a spot of its own; fireSessionEnded has counted it
+        }
+        return false;
+    }
 
+    /*
+     * Takes back a session whose start a listener refused. All listeners are
+     * told it ended, so none is left with a start and no end; their failures
+     * are added to the one from the start. False if the user ended the session
+     * meanwhile, in which case that end has already handed the spot off.
+     */
+    private boolean undoStart(ParkingSession session, RuntimeException failure) {
+        if (sessions.remove(session.getUser(), session.getParkingSessionId()) == null) return false;
+
+        sessionIndex.remove(session);
+        session.endSession();
+        try {
+            fireSessionEnded(session);
+        } catch (RuntimeException e) {
+            if (e != failure) failure.addSuppressed(e);
+        }
+        metrics.increment(ParkingMetrics.Counter.SESSIONS_ENDED);
         return true;
     }
-}
\ No newline at end of file
+
+    /*
+     * Resolved before a spot is taken: a cache miss goes to the pass store,
+     * and a spot held across that load is one nobody else can have.
+     */
+    private boolean isCovered(User user, Vehicle vehicle) {
+        return entitlements != null && entitlements.isCovered(user, vehicle);
+    }
+
+    private ParkingSession newSession(User user, Vehicle vehicle, ParkingSpot spot, boolean covered) {
+        return new ParkingSession(sessionIds.get(), Instant.now(), user, vehicle, spot, covered);
+    }
+
+    /*
+     * Every listener hears of the start even if an earlier one throws, so a
+     * later undoStart can tell them all it ended. The first failure is
+     * rethrown with the rest suppressed; fireSessionEnded works the same way.
+     */
+    private void fireSessionStarted(ParkingSession session) {
+        RuntimeException failure = null;
+        for (ParkingSessionListener listener : sessionListeners) {
+            try {
+                listener.onSessionStarted(session);
+            } catch (RuntimeException e) {
+                metrics.increment(ParkingMetrics.Counter.LISTENER_FAILURES);
+                if (failure == null) {
+                    failure = e;
+                } else if (e != failure) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private void fireSessionEnded(ParkingSession session) {
+        RuntimeException failure = null;
+        for (ParkingSessionListener listener : sessionListeners) {
+            try {
+                listener.onSessionEnded(session);
+            } catch (RuntimeException e) {
+                metrics.increment(ParkingMetrics.Counter.LISTENER_FAILURES);
+                if (failure == null) {
+                    failure = e;
+                } else if (e != failure) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private static IllegalStateException alreadyParked() {
+        return new IllegalStateException("User already has an active parking session");
+    }
+
+    // Backed by the lot's occupancy index, so display boards can poll this
+    // as often as they like without touching the spot pools
+    public OccupancySnapshot getOccupancySnapshot() {
+        return parkingLot.getOccupancySnapshot();
+    }
+
+    public List<ParkingSpot> getAvailableParkingSpots() {
+        OccupancySnapshot snapshot = parkingLot.getOccupancySnapshot();
+        List<ParkingSpot> available = new ArrayList<>(snapshot.getFreeCount());
+        for (int index : snapshot.getFreeSpotIndices()) {
+            available.add(parkingLot.spotAt(index));
+        }
+        return available;
+    }
+
+    private static final class Waiter {
+        final User user;
+        final Vehicle vehicle;
+        // As of joining, so a hand-off never waits on the pass store
+        final boolean covered;
+        final CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        Waiter(User user, Vehicle vehicle, boolean covered) {
+            this.user = user;
+            this.vehicle = vehicle;
+            this.covered = covered;
+        }
+    }
+}
@@ -9,18 +9,30 @@ public class ParkingSession {
     private final User user;
     private final Vehicle vehicle;
     private final ParkingSpot parkingSpot;
+    // Decided once at the gate; a pass that lapses mid-session still covers it
+    private final boolean coveredByPass;
 
     public ParkingSession(UUID parkingSessionId, Instant startTime, User user, Vehicle vehicle,
             ParkingSpot parkingSpot) {
+        this(parkingSessionId, startTime, user, vehicle, parkingSpot, false);
+    }
+
+    public ParkingSession(UUID parkingSessionId, Instant startTime, User user, Vehicle vehicle,
+            ParkingSpot parkingSpot, boolean coveredByPass) {
         this.parkingSessionId = parkingSessionId;
         this.startTime = startTime;
         this.user = user;
         this.vehicle = vehicle;
         this.parkingSpot = parkingSpot;
+        this.coveredByPass = coveredByPass;
     }
 
     public ParkingSession(User user, Vehicle vehicle, ParkingSpot parkingSpot) {
-        this(UUID.randomUUID(), Instant.now(), user, vehicle, parkingSpot);
+        this(user, vehicle, parkingSpot, false);
+    }
+
+    public ParkingSession(User user, Vehicle vehicle, ParkingSpot parkingSpot, boolean coveredByPass) {
+        this(UUID.randomUUID(), Instant.now(), user, vehicle, parkingSpot, coveredByPass);
     }
 
     @Override
@@ -47,6 +59,9 @@ public class ParkingSession {
     public ParkingSpot getParkingSpot() {
         return parkingSpot;
     }
+    public boolean isCoveredByPass() {
+        return coveredByPass;
+    }
 
     public void endSession() {
         if (this.endTime != null) {
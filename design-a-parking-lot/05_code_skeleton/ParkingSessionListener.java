@@ -0,0 +1,17 @@
+/*
+ * Observer for session lifecycle events in ParkingService.
+ *
+ * Listeners run synchronously on the thread that started or ended the
+ * session, before the call returns to the client, so they must be cheap
+ * and must not call back into ParkingService.
+ *
+ * A listener that throws fails the call, but never strands a spot: an end
+ * still hands the spot on, and a refused start is taken back, with every
+ * listener told the session ended.
+ */
+public interface ParkingSessionListener {
+
+    void onSessionStarted(ParkingSession session);
+
+    void onSessionEnded(ParkingSession session);
+}
@@ -1,13 +1,18 @@
-import java.util.Objects;
-
 public class ParkingSpot {
     
     private final int floor;
     private final int spotId;
+    // Kind of vehicle the spot is sized for; not part of equality
+    private final VehicleType spotType;
 
     public ParkingSpot(int floor, int spotId) {
+        this(floor, spotId, VehicleType.CAR);
+    }
+
+    public ParkingSpot(int floor, int spotId, VehicleType spotType) {
         this.floor = floor;
         this.spotId = spotId;
+        this.spotType = spotType;
     }
 
     public int getFloor() {
@@ -18,6 +23,10 @@ public class ParkingSpot {
         return spotId;
     }
 
+    public VehicleType getSpotType() {
+        return spotType;
+    }
+
     @Override
     public String toString() {
         return "ParkingSpot{" +
@@ -39,6 +48,8 @@ public class ParkingSpot {
 
     @Override
     public int hashCode() {
-        return Objects.hash(floor, spotId);
+        // Same value as Objects.hash(floor, spotId) without the varargs array,
+        // since this sits on the acquire/release path
+        return 31 * (31 + floor) + spotId;
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+import java.util.UUID;
+
+/*
+ * A monthly pass or subscription: lets a user park without paying during
+ * [validFromMillis, validToMillis). A pass bound to a vehicle only covers
+ * that vehicle; vehicleId == null covers any of the user's vehicles.
+ */
+public class Pass {
+
+    private final UUID passId;
+    private final UUID userId;
+    private final UUID vehicleId;
+    private final long validFromMillis;
+    private final long validToMillis;
+
+    public Pass(UUID passId, UUID userId, UUID vehicleId, long validFromMillis, long validToMillis) {
+        if (validFromMillis >= validToMillis) {
+            throw new IllegalArgumentException("Empty validity window");
+        }
+        this.passId = passId;
+        this.userId = userId;
+        this.vehicleId = vehicleId;
+        this.validFromMillis = validFromMillis;
+        this.validToMillis = validToMillis;
+    }
+
+    public UUID getPassId() {
+        return passId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public UUID getVehicleId() {
+        return vehicleId;
+    }
+
+    public long getValidFromMillis() {
+        return validFromMillis;
+    }
+
+    public long getValidToMillis() {
+        return validToMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Pass [passId=" + passId + ", userId=" + userId + ", vehicleId=" + vehicleId
+                + ", validFromMillis=" + validFromMillis + ", validToMillis=" + validToMillis + "]";
+    }
+}
@@ -0,0 +1,10 @@
+import java.util.List;
+import java.util.UUID;
+
+// System of record for passes (billing database, subscription service, ...)
+@FunctionalInterface
+public interface PassStore {
+
+    // Every pass of the user that has not expired yet; may be slow
+    List<Pass> loadPasses(UUID userId);
+}
@@ -0,0 +1,52 @@
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * The original allocator: every spot lives in one lock-free FIFO queue.
+ * Simple and fair in order, but every gate contends on the same head/tail.
+ */
+public class QueueSpotAllocator implements SpotAllocator {
+
+    private final ConcurrentLinkedQueue<ParkingSpot> availableParkingSpots;
+
+    public QueueSpotAllocator(ConcurrentLinkedQueue<ParkingSpot> availableParkingSpots) {
+        this.availableParkingSpots = availableParkingSpots;
+    }
+
+    @Override
+    public ParkingSpot tryAcquire(int gate) {
+        return availableParkingSpots.poll();
+    }
+
+    @Override
+    public void release(ParkingSpot spot) {
+        availableParkingSpots.add(spot);
+    }
+
+    // addAll links the whole batch in with a single tail CAS
+    @Override
+    public void releaseAll(Collection<ParkingSpot> spots) {
+        availableParkingSpots.addAll(spots);
+    }
+
+    @Override
+    public boolean remove(ParkingSpot spot) {
+        return availableParkingSpots.remove(spot);
+    }
+
+    @Override
+    public void claimAll(Collection<ParkingSpot> spots) {
+        availableParkingSpots.removeAll(new HashSet<>(spots));
+    }
+
+    @Override
+    public Collection<ParkingSpot> availableSpots() {
+        return availableParkingSpots;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return availableParkingSpots.isEmpty();
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Spot allocator that hands out the free spot closest to the gate's
+ * entrance.
+ *
+ * Every entrance has its own order of all spots, ranked by the distance
+ * function, and a bitset over that order (bit r set = the spot ranked r is
+ * free) with a summary word per 64 words (bit w set = word w may have free
+ * spots). Acquiring finds the first set summary bit, then the first set
+ * bit of that word: the nearest free spot in two trailing-zero counts
+ * plus a short walk past the words known to be full.
+ *
+ * Which spot belongs to whom is decided by one more bitset in plain spot
+ * order: a gate owns a spot once its CAS clears that bit. The per-entrance
+ * bitsets only say where to look. A release sets the owner bit first and
+ * then the spot's bit in every entrance; an acquire clears the spot's bit
+ * in every entrance after winning it. A gate that runs into a bit of a
+ * spot someone else won clears it, and sets it again if the spot turns
+ * out to be free by then. The same pattern keeps summary bits honest, so
+ * a free spot is never hidden from any entrance for longer than the
+ * release that freed it.
+ *
+ * Gates map to entrances by floorMod(gate, entrances). A release costs a
+ * CAS per entrance, so this suits a handful of entrances.
+ */
+public class RankedSpotAllocator implements SpotAllocator {
+
+    // Lower is better; ties go to the lower floor, then the lower spot id
+    @FunctionalInterface
+    public interface EntranceDistance {
+        int distance(int entrance, ParkingSpot spot);
+    }
+
+    private final ParkingSpot[] spots;                 // plain order
+    private final Map<ParkingSpot, Integer> indexBySpot;
+    private final AtomicLongArray free;                // plain order; the owner bits
+    private final int[][] spotByRank;                  // [entrance][rank] -> spot index
+    private final int[][] rankBySpot;                  // [entrance][spot index] -> rank
+    private final AtomicLongArray[] freeByRank;        // [entrance], bit per rank
+    private final AtomicLongArray[] summary;           // [entrance], bit per word of freeByRank
+
+    public RankedSpotAllocator(Collection<ParkingSpot> spots, int entrances, EntranceDistance distance) {
+        if (spots.isEmpty()) {
+            throw new IllegalArgumentException("A parking lot needs at least one spot");
+        }
+        if (entrances <= 0) {
+            throw new IllegalArgumentException("A parking lot needs at least one entrance");
+        }
+
+        List<ParkingSpot> ordered = new ArrayList<>(spots);
+        ordered.sort(Comparator.comparingInt(ParkingSpot::getFloor).thenComparingInt(ParkingSpot::getSpotId));
+        this.spots = ordered.toArray(new ParkingSpot[0]);
+        this.indexBySpot = new HashMap<>();
+        for (int i = 0; i < this.spots.length; i++) {
+            if (indexBySpot.put(this.spots[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate parking spot: " + this.spots[i]);
+            }
+        }
+
+        int n = this.spots.length;
+        int words = (n + 63) >>> 6;
+        this.free = new AtomicLongArray(words);
+        this.spotByRank = new int[entrances][];
+        this.rankBySpot = new int[entrances][n];
+        this.freeByRank = new AtomicLongArray[entrances];
+        this.summary = new AtomicLongArray[entrances];
+
+        for (int e = 0; e < entrances; e++) {
+            final int entrance = e;
+            int[] distances = new int[n];
+            Integer[] byRank = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                distances[i] = distance.distance(entrance, this.spots[i]);
+                byRank[i] = i;
+            }
+            // Stable, and plain order already breaks ties by floor and spot id
+            Arrays.sort(byRank, Comparator.comparingInt(i -> distances[i]));
+
+            spotByRank[e] = new int[n];
+            for (int rank = 0; rank < n; rank++) {
+                spotByRank[e][rank] = byRank[rank];
+                rankBySpot[e][byRank[rank]] = rank;
+            }
+            freeByRank[e] = new AtomicLongArray(words);
+            summary[e] = new AtomicLongArray((words + 63) >>> 6);
+        }
+
+        for (int i = 0; i < n; i++) {
+            release(i);
+        }
+    }
+
+    public int getEntranceCount() {
+        return spotByRank.length;
+    }
+
+    public int entranceOf(int gate) {
+        return Math.floorMod(gate, spotByRank.length);
+    }
+
+    // 0 for the spot nearest the entrance
+    public int rankOf(int entrance, ParkingSpot spot) {
+        return rankBySpot[entrance][indexOf(spot)];
+    }
+
+    @Override
+    public ParkingSpot tryAcquire(int gate) {
+        int e = entranceOf(gate);
+        AtomicLongArray bits = freeByRank[e];
+        AtomicLongArray hints = summary[e];
+
+        for (int s = 0; s < hints.length(); s++) {
+            long hint;
+            while ((hint = hints.get(s)) != 0) {
+                int word = (s << 6) + Long.numberOfTrailingZeros(hint);
+                long w = bits.get(word);
+                if (w == 0) {
+                    // Word ran empty; drop its hint unless a release refilled it meanwhile
+                    clearBit(hints, word);
+                    if (bits.get(word) != 0) setBit(hints, word);
+                    continue;
+                }
+                int rank = (word << 6) + Long.numberOfTrailingZeros(w);
+                int index = spotByRank[e][rank];
+                if (take(index)) {
+                    return spots[index];
+                }
+                // Someone else won it and hasn't cleared our bit yet
+                clearBit(bits, rank);
+                if (isFree(index)) setBit(bits, rank);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void release(ParkingSpot spot) {
+        release(indexOf(spot));
+    }
+
+    @Override
+    public boolean remove(ParkingSpot spot) {
+        return take(indexOf(spot));
+    }
+
+    @Override
+    public void claimAll(Collection<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            remove(spot);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (int w = 0; w < free.length(); w++) {
+            if (free.get(w) != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Collection<ParkingSpot> availableSpots() {
+        List<ParkingSpot> available = new ArrayList<>();
+        for (int i = 0; i < spots.length; i++) {
+            if (isFree(i)) available.add(spots[i]);
+        }
+        return available;
+    }
+
+    // Wins the spot by clearing its owner bit, then hides it from every entrance
+    private boolean take(int index) {
+        if (!clearBit(free, index)) return false;
+        for (int e = 0; e < freeByRank.length; e++) {
+            clearBit(freeByRank[e], rankBySpot[e][index]);
+        }
+        return true;
+    }
+
+    private void release(int index) {
+        if (!setBit(free, index)) return; // already free
+        for (int e = 0; e < freeByRank.length; e++) {
+            int rank = rankBySpot[e][index];
+            setBit(freeByRank[e], rank);
+            int word = rank >>> 6;
+            // Checked after the bit, so a gate clearing the hint meanwhile sees our bit and restores it
+            if ((summary[e].get(word >>> 6) & (1L << word)) == 0) setBit(summary[e], word);
+        }
+    }
+
+    private boolean isFree(int index) {
+        return (free.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private int indexOf(ParkingSpot spot) {
+        Integer index = indexBySpot.get(spot);
+        if (index == null) {
+            throw new IllegalArgumentException("Spot is not part of this allocator: " + spot);
+        }
+        return index;
+    }
+
+    // Both return whether this call changed the bit
+    private static boolean setBit(AtomicLongArray bits, int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) return false;
+            if (bits.compareAndSet(word, current, current | mask)) return true;
+        }
+    }
+
+    private static boolean clearBit(AtomicLongArray bits, int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) == 0) return false;
+            if (bits.compareAndSet(word, current, current & ~mask)) return true;
+        }
+    }
+}
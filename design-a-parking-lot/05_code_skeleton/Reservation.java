@@ -0,0 +1,45 @@
+import java.util.UUID;
+
+// A spot held for [fromMillis, toMillis), see ReservationBook
+public class Reservation {
+
+    private final UUID reservationId;
+    private final ParkingSpot parkingSpot;
+    private final VehicleType vehicleType;
+    private final long fromMillis;
+    private final long toMillis;
+
+    public Reservation(ParkingSpot parkingSpot, VehicleType vehicleType, long fromMillis, long toMillis) {
+        this.reservationId = UUID.randomUUID();
+        this.parkingSpot = parkingSpot;
+        this.vehicleType = vehicleType;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    public UUID getReservationId() {
+        return reservationId;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation [reservationId=" + reservationId + ", parkingSpot=" + parkingSpot + ", vehicleType="
+                + vehicleType + ", fromMillis=" + fromMillis + ", toMillis=" + toMillis + "]";
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+/*
+ * Advance reservations for the spots of one ParkingLot.
+ *
+ * Every spot has its own interval index: a ConcurrentSkipListMap of
+ * non-overlapping reservations keyed by start time. Because the intervals
+ * don't overlap, the only one that can collide with [from, to) is the one
+ * with the greatest start before `to`, so checking one spot is a single
+ * O(log n) lowerEntry, without a lock.
+ *
+ * Finding any free spot of a type doesn't visit the spots one by one: the
+ * spots of each type are split into a few stripes, and each stripe keeps
+ * the free windows between its spots' reservations in a FreeWindowTree, so
+ * a stripe answers "which spot is free for all of [from, to)" in
+ * O(log n). A search asks at most STRIPES trees, starting at a rotating
+ * stripe so concurrent bookings spread out. Booking takes the lock of the
+ * spot's stripe only, and the tree and the spot's reservations change
+ * together under it.
+ *
+ * Walk-ins: once the book is attached, ParkingLot.tryAcquireSpot passes over
+ * spots with a reservation starting within walkInHorizonMillis. A booking
+ * that starts within the horizon is only made on a spot that is free right
+ * now; the tree doesn't know occupancy, so such a search skips occupied
+ * spots one descent at a time. Both sides write first (occupancy bit /
+ * reservation) and then check the other, so a walk-in and a booking racing
+ * for the same spot can't both win; at worst both back off.
+ */
+public final class ReservationBook {
+
+    private static final int STRIPES = 8;
+
+    private final ParkingLot parkingLot;
+    private final long walkInHorizonMillis;
+    private final ConcurrentSkipListMap<Long, Reservation>[] schedules; // by spot index
+    private final Stripe[] stripeBySpot;
+    private final Stripe[][] stripesByType;        // by VehicleType ordinal
+    private final AtomicInteger searchStart = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    public ReservationBook(ParkingLot parkingLot, long walkInHorizonMillis) {
+        if (walkInHorizonMillis < 0) {
+            throw new IllegalArgumentException("walkInHorizonMillis must not be negative");
+        }
+        this.parkingLot = parkingLot;
+        this.walkInHorizonMillis = walkInHorizonMillis;
+
+        int spots = parkingLot.getTotalSpots();
+        this.schedules = (ConcurrentSkipListMap<Long, Reservation>[]) new ConcurrentSkipListMap<?, ?>[spots];
+        this.stripeBySpot = new Stripe[spots];
+        List<List<Integer>> byType = new ArrayList<>();
+        for (int t = 0; t < VehicleType.values().length; t++) byType.add(new ArrayList<>());
+        for (int i = 0; i < spots; i++) {
+            schedules[i] = new ConcurrentSkipListMap<>();
+            byType.get(parkingLot.spotAt(i).getSpotType().ordinal()).add(i);
+        }
+        this.stripesByType = new Stripe[byType.size()][];
+        for (int t = 0; t < byType.size(); t++) {
+            List<Integer> indices = byType.get(t);
+            Stripe[] stripes = new Stripe[Math.min(STRIPES, indices.size())];
+            for (int s = 0; s < stripes.length; s++) stripes[s] = new Stripe();
+            for (int k = 0; k < indices.size(); k++) {
+                Stripe stripe = stripes[k % stripes.length];
+                stripe.addSpot(indices.get(k));
+                stripeBySpot[indices.get(k)] = stripe;
+            }
+            stripesByType[t] = stripes;
+        }
+
+        parkingLot.attachReservationBook(this);
+    }
+
+    public long getWalkInHorizonMillis() {
+        return walkInHorizonMillis;
+    }
+
+    /*
+     * Books any spot of the given type for [fromMillis, toMillis), in
+     * O(STRIPES log n) unless the window starts within the walk-in horizon
+     * and occupied spots have to be skipped.
+     */
+    public Optional<Reservation> reserve(VehicleType spotType, long fromMillis, long toMillis) {
+        long now = System.currentTimeMillis();
+        if (fromMillis >= toMillis) {
+            throw new IllegalArgumentException("Empty reservation window");
+        }
+        if (toMillis <= now) {
+            throw new IllegalArgumentException("Reservation window is in the past");
+        }
+
+        Stripe[] stripes = stripesByType[spotType.ordinal()];
+        int n = stripes.length;
+        if (n == 0) return Optional.empty();
+
+        boolean startsSoon = fromMillis < now + walkInHorizonMillis;
+        IntPredicate accept = startsSoon ? spotIndex -> !parkingLot.isOccupied(spotIndex) : spotIndex -> true;
+        int first = Math.floorMod(searchStart.getAndIncrement(), n);
+
+        for (int k = 0; k < n; k++) {
+            Stripe stripe = stripes[(first + k) % n];
+            // Each lost race is a walk-in taking one of the stripe's spots
+            for (int attempt = 0; attempt < stripe.spotCount; attempt++) {
+                Reservation reservation = stripe.tryBook(spotType, fromMillis, toMillis, now, accept);
+                if (reservation == null) break;
+
+                // Re-check after publishing: a walk-in may have taken the spot meanwhile
+                if (startsSoon && parkingLot.isOccupied(parkingLot.indexOf(reservation.getParkingSpot()))) {
+                    stripe.remove(reservation);
+                    continue;
+                }
+                return Optional.of(reservation);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean cancel(Reservation reservation) {
+        return stripeBySpot[parkingLot.indexOf(reservation.getParkingSpot())].remove(reservation);
+    }
+
+    public boolean isFree(ParkingSpot spot, long fromMillis, long toMillis) {
+        return isFree(schedules[parkingLot.indexOf(spot)], fromMillis, toMillis);
+    }
+
+    // Still booked, i.e. neither cancelled nor already used to start a session
+    public boolean isBooked(Reservation reservation) {
+        return schedules[parkingLot.indexOf(reservation.getParkingSpot())].get(reservation.getFromMillis()) == reservation;
+    }
+
+    // Used by walk-in acquisition: does a reservation on this spot start (or run) within the horizon?
+    boolean isReservedSoon(int spotIndex, long nowMillis) {
+        return !isFree(schedules[spotIndex], nowMillis, nowMillis + walkInHorizonMillis + 1);
+    }
+
+    // Removes the reservation once its holder has parked; false if it was cancelled first
+    boolean consume(Reservation reservation) {
+        return cancel(reservation);
+    }
+
+    private static boolean isFree(ConcurrentSkipListMap<Long, Reservation> schedule, long fromMillis, long toMillis) {
+        Map.Entry<Long, Reservation> before = schedule.lowerEntry(toMillis);
+        return before == null || before.getValue().getToMillis() <= fromMillis;
+    }
+
+    /*
+     * A share of one type's spots. The tree holds every spot's free windows,
+     * the gaps between its reservations (unbounded at both ends), minus
+     * the empty ones; it changes only together with the spot's schedule.
+     */
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FreeWindowTree freeWindows = new FreeWindowTree();
+        private int spotCount;
+
+        void addSpot(int spotIndex) {
+            freeWindows.add(Long.MIN_VALUE, Long.MAX_VALUE, spotIndex);
+            spotCount++;
+        }
+
+        Reservation tryBook(VehicleType spotType, long fromMillis, long toMillis, long now, IntPredicate accept) {
+            lock.lock();
+            try {
+                int spotIndex = freeWindows.find(fromMillis, toMillis, accept);
+                if (spotIndex < 0) return null;
+                pruneEndedBefore(spotIndex, now);
+                Reservation reservation = new Reservation(parkingLot.spotAt(spotIndex), spotType, fromMillis, toMillis);
+                add(spotIndex, reservation);
+                return reservation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean remove(Reservation reservation) {
+            lock.lock();
+            try {
+                return remove(parkingLot.indexOf(reservation.getParkingSpot()), reservation);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Splits the free window around the reservation
+        private void add(int spotIndex, Reservation reservation) {
+            ConcurrentSkipListMap<Long, Reservation> schedule = schedules[spotIndex];
+            long from = reservation.getFromMillis();
+            long to = reservation.getToMillis();
+            long windowStart = windowStartBefore(schedule, from);
+            long windowEnd = windowEndAfter(schedule, from);
+
+            freeWindows.remove(windowStart, spotIndex);
+            if (windowStart < from) freeWindows.add(windowStart, from, spotIndex);
+            if (to < windowEnd) freeWindows.add(to, windowEnd, spotIndex);
+            schedule.put(from, reservation);
+        }
+
+        // Joins the free windows on either side of the reservation
+        private boolean remove(int spotIndex, Reservation reservation) {
+            ConcurrentSkipListMap<Long, Reservation> schedule = schedules[spotIndex];
+            long from = reservation.getFromMillis();
+            long to = reservation.getToMillis();
+            if (!schedule.remove(from, reservation)) return false;
+            long windowStart = windowStartBefore(schedule, from);
+            long windowEnd = windowEndAfter(schedule, from);
+
+            if (windowStart < from) freeWindows.remove(windowStart, spotIndex);
+            if (to < windowEnd) freeWindows.remove(to, spotIndex);
+            freeWindows.add(windowStart, windowEnd, spotIndex);
+            return true;
+        }
+
+        // Old reservations can't collide with anything new; drop them while we hold the lock anyway
+        private void pruneEndedBefore(int spotIndex, long now) {
+            Map.Entry<Long, Reservation> oldest;
+            while ((oldest = schedules[spotIndex].firstEntry()) != null && oldest.getValue().getToMillis() <= now) {
+                remove(spotIndex, oldest.getValue());
+            }
+        }
+
+        private static long windowStartBefore(ConcurrentSkipListMap<Long, Reservation> schedule, long from) {
+            Map.Entry<Long, Reservation> before = schedule.lowerEntry(from);
+            return before == null ? Long.MIN_VALUE : before.getValue().getToMillis();
+        }
+
+        private static long windowEndAfter(ConcurrentSkipListMap<Long, Reservation> schedule, long from) {
+            Map.Entry<Long, Reservation> after = schedule.higherEntry(from);
+            return after == null ? Long.MAX_VALUE : after.getKey();
+        }
+    }
+}
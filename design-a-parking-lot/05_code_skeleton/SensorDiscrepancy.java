@@ -0,0 +1,55 @@
+/*
+ * A spot where the sensor and the lot have disagreed for longer than the
+ * grace period, see SensorIngestor.
+ */
+public class SensorDiscrepancy {
+
+    public enum Kind {
+        GHOST_OCCUPANCY, // lot has the spot taken, sensor sees it empty
+        UNPAID_PARKING   // sensor sees a car, no session holds the spot
+    }
+
+    private final Kind kind;
+    private final ParkingSpot parkingSpot;
+    private final ParkingSession parkingSession; // the session on the spot, if any
+    private final long sinceMillis;
+    private final long detectedMillis;
+
+    public SensorDiscrepancy(Kind kind, ParkingSpot parkingSpot, ParkingSession parkingSession, long sinceMillis,
+            long detectedMillis) {
+        this.kind = kind;
+        this.parkingSpot = parkingSpot;
+        this.parkingSession = parkingSession;
+        this.sinceMillis = sinceMillis;
+        this.detectedMillis = detectedMillis;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    // Null for unpaid parking, and for a ghost spot that was taken without a session
+    public ParkingSession getParkingSession() {
+        return parkingSession;
+    }
+
+    // Sensor time of the first reading that disagreed
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    // Sensor time of the reading that pushed it past the grace period
+    public long getDetectedMillis() {
+        return detectedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorDiscrepancy [kind=" + kind + ", parkingSpot=" + parkingSpot + ", sinceMillis=" + sinceMillis
+                + ", detectedMillis=" + detectedMillis + "]";
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * Told about spots where sensor and lot disagree, see SensorIngestor.
+ *
+ * Called on the thread that ingests the batch, so implementations must be
+ * cheap, e.g. hand the discrepancy to an enforcement queue.
+ */
+public interface SensorDiscrepancyListener {
+
+    void onDiscrepancy(SensorDiscrepancy discrepancy);
+
+    // The spot agrees again, e.g. the car left or its session started
+    void onResolved(SensorDiscrepancy discrepancy);
+}
@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Takes batches of spot sensor readings and checks them against the lot.
+ *
+ * Per spot we keep the newest reading as one word (timestamp << 1 | occupied)
+ * in an array indexed like the lot. A reading is applied with a CAS only
+ * if it is newer than that word, so duplicates and readings that arrive
+ * late are dropped, and each spot's state only moves forward in sensor
+ * time whatever order the batches come in. A batch is put in timestamp
+ * order first (feeds are nearly sorted, which TimSort handles in about
+ * one pass), so a spot's readings within a batch are all seen in order
+ * rather than all but the newest being dropped.
+ *
+ * Reconciliation is incremental: each applied reading re-checks only its
+ * own spot against ParkingLot.isOccupied and the session index.
+ *   - sensor empty, lot has the spot taken   -> ghost occupancy
+ *   - sensor occupied, no session on the spot -> unpaid parking
+ * A disagreement must last graceMillis of sensor time before it is
+ * flagged, since the two sides never change at the same instant (a driver
+ * starts the session at the gate and reaches the spot a minute later).
+ * Listeners get each discrepancy once, and again when it resolves.
+ *
+ * Readings for one spot are expected from one feed; concurrent batches are
+ * safe, but two threads racing on the same spot may delay a flag by one
+ * reading.
+ */
+public class SensorIngestor {
+
+    private static final long NO_READING = -1;
+
+    // Mismatch word: sinceMillis << 3 | flagged << 2 | kind (ordinal + 1); 0 when the spot agrees
+    private static final long KIND_MASK = 0b11;
+    private static final long FLAGGED = 0b100;
+    private static final int SINCE_SHIFT = 3;
+
+    private static final SensorDiscrepancy.Kind[] KINDS = SensorDiscrepancy.Kind.values();
+    private static final Comparator<SensorReading> BY_TIME = Comparator.comparingLong(SensorReading::getTimestampMillis);
+
+    private final ParkingService parkingService;
+    private final ParkingLot lot;
+    private final long graceMillis;
+
+    private final AtomicLongArray readingBySpot;
+    private final AtomicLongArray mismatchBySpot;
+    private final AtomicReferenceArray<SensorDiscrepancy> flaggedBySpot;
+    private final List<SensorDiscrepancyListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+    private final LongAdder unknownSpots = new LongAdder();
+    private final LongAdder flagged = new LongAdder();
+
+    public SensorIngestor(ParkingService parkingService, long graceMillis) {
+        if (graceMillis < 0) {
+            throw new IllegalArgumentException("graceMillis must not be negative");
+        }
+        this.parkingService = parkingService;
+        this.lot = parkingService.getParkingLot();
+        this.graceMillis = graceMillis;
+
+        int spots = lot.getTotalSpots();
+        this.readingBySpot = new AtomicLongArray(spots);
+        for (int i = 0; i < spots; i++) {
+            readingBySpot.set(i, NO_READING);
+        }
+        this.mismatchBySpot = new AtomicLongArray(spots);
+        this.flaggedBySpot = new AtomicReferenceArray<>(spots);
+    }
+
+    public void addDiscrepancyListener(SensorDiscrepancyListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeDiscrepancyListener(SensorDiscrepancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Returns how many readings were applied; the rest were duplicates, late or for unknown spots
+    public int ingest(Collection<SensorReading> batch) {
+        SensorReading[] readings = batch.toArray(new SensorReading[0]);
+        Arrays.sort(readings, BY_TIME);
+
+        int appliedInBatch = 0;
+        for (SensorReading reading : readings) {
+            int spotIndex = lot.findIndex(reading.getFloor(), reading.getSpotId());
+            if (spotIndex < 0) {
+                unknownSpots.increment();
+            } else if (apply(spotIndex, reading)) {
+                appliedInBatch++;
+            }
+        }
+        applied.add(appliedInBatch);
+        return appliedInBatch;
+    }
+
+    // Unresolved discrepancies, in spot order
+    public List<SensorDiscrepancy> getDiscrepancies() {
+        List<SensorDiscrepancy> open = new ArrayList<>();
+        for (int i = 0; i < flaggedBySpot.length(); i++) {
+            SensorDiscrepancy discrepancy = flaggedBySpot.get(i);
+            if (discrepancy != null) open.add(discrepancy);
+        }
+        return open;
+    }
+
+    // Empty until the spot's sensor has reported
+    public Optional<Boolean> getSensorOccupied(ParkingSpot spot) {
+        long reading = readingBySpot.get(lot.indexOf(spot));
+        return reading == NO_READING ? Optional.empty() : Optional.of((reading & 1) != 0);
+    }
+
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    // Same timestamp and state as the reading already applied
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    // Older than the reading already applied
+    public long getOutOfOrderCount() {
+        return outOfOrder.sum();
+    }
+
+    public long getUnknownSpotCount() {
+        return unknownSpots.sum();
+    }
+
+    public long getFlaggedCount() {
+        return flagged.sum();
+    }
+
+    private boolean apply(int spotIndex, SensorReading reading) {
+        long timestamp = reading.getTimestampMillis();
+        long word = timestamp << 1 | (reading.isOccupied() ? 1 : 0);
+        while (true) {
+            long current = readingBySpot.get(spotIndex);
+            if (current != NO_READING && timestamp <= current >>> 1) {
+                (current == word ? duplicates : outOfOrder).increment();
+                return false;
+            }
+            if (readingBySpot.compareAndSet(spotIndex, current, word)) break;
+        }
+        reconcile(spotIndex, word);
+        return true;
+    }
+
+    private void reconcile(int spotIndex, long reading) {
+        boolean sensorOccupied = (reading & 1) != 0;
+        long timestamp = reading >>> 1;
+        ParkingSpot spot = lot.spotAt(spotIndex);
+
+        ParkingSession session = null;
+        SensorDiscrepancy.Kind kind = null;
+        if (sensorOccupied) {
+            session = parkingService.findParkingSessionBySpot(spot).orElse(null);
+            if (session == null) kind = SensorDiscrepancy.Kind.UNPAID_PARKING;
+        } else if (lot.isOccupied(spotIndex)) {
+            session = parkingService.findParkingSessionBySpot(spot).orElse(null);
+            kind = SensorDiscrepancy.Kind.GHOST_OCCUPANCY;
+        }
+
+        while (true) {
+            // A newer reading has landed; its own reconcile takes over
+            if (readingBySpot.get(spotIndex) != reading) return;
+
+            long mismatch = mismatchBySpot.get(spotIndex);
+            if (kind == null) {
+                if (mismatch == 0) return;
+                if (mismatchBySpot.compareAndSet(spotIndex, mismatch, 0)) {
+                    resolve(spotIndex, mismatch);
+                    return;
+                }
+            } else if (mismatch == 0 || kindOf(mismatch) != kind) {
+                // A new disagreement starts its grace period now
+                if (mismatchBySpot.compareAndSet(spotIndex, mismatch,
+                        timestamp << SINCE_SHIFT | (kind.ordinal() + 1))) {
+                    if (mismatch != 0) resolve(spotIndex, mismatch);
+                    return;
+                }
+            } else if ((mismatch & FLAGGED) != 0 || timestamp - (mismatch >>> SINCE_SHIFT) < graceMillis) {
+                return;
+            } else {
+                // Published before the flag, so whoever clears the flag also finds it
+                SensorDiscrepancy discrepancy =
+                        new SensorDiscrepancy(kind, spot, session, mismatch >>> SINCE_SHIFT, timestamp);
+                flaggedBySpot.set(spotIndex, discrepancy);
+                if (!mismatchBySpot.compareAndSet(spotIndex, mismatch, mismatch | FLAGGED)) {
+                    flaggedBySpot.compareAndSet(spotIndex, discrepancy, null);
+                    continue;
+                }
+                flagged.increment();
+                for (SensorDiscrepancyListener listener : listeners) {
+                    listener.onDiscrepancy(discrepancy);
+                }
+                return;
+            }
+        }
+    }
+
+    private void resolve(int spotIndex, long mismatch) {
+        if ((mismatch & FLAGGED) == 0) return;
+        SensorDiscrepancy discrepancy = flaggedBySpot.getAndSet(spotIndex, null);
+        if (discrepancy == null) return;
+        for (SensorDiscrepancyListener listener : listeners) {
+            listener.onResolved(discrepancy);
+        }
+    }
+
+    private static SensorDiscrepancy.Kind kindOf(long mismatch) {
+        return KINDS[(int) (mismatch & KIND_MASK) - 1];
+    }
+}
@@ -0,0 +1,41 @@
+// One report from the occupancy sensor on a spot, see SensorIngestor
+public class SensorReading {
+
+    private final int floor;
+    private final int spotId;
+    private final boolean occupied;
+    private final long timestampMillis;
+
+    public SensorReading(int floor, int spotId, boolean occupied, long timestampMillis) {
+        if (timestampMillis < 0) {
+            throw new IllegalArgumentException("timestampMillis must not be negative");
+        }
+        this.floor = floor;
+        this.spotId = spotId;
+        this.occupied = occupied;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getSpotId() {
+        return spotId;
+    }
+
+    public boolean isOccupied() {
+        return occupied;
+    }
+
+    // Sensor clock; readings of one spot are ordered by it
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorReading [floor=" + floor + ", spotId=" + spotId + ", occupied=" + occupied
+                + ", timestampMillis=" + timestampMillis + "]";
+    }
+}
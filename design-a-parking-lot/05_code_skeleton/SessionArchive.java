@@ -0,0 +1,281 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/*
+ * Append-only archive of ended sessions for usage reports. Register it with
+ * ParkingService.addSessionListener.
+ *
+ * Rows are kept column by column in fixed-size segments of primitive arrays
+ * (start/end millis, spot index, floor, vehicle type, pass flag, user id bits), so a
+ * report walks a few flat arrays instead of millions of ParkingSession
+ * objects. Segments are scanned in parallel.
+ *
+ * Appends are lock-free: a row number comes from one getAndIncrement, the
+ * columns are written in place, and the row's bit in the segment's commit
+ * bitmap is set last. Readers only look at rows whose bit is set, so a
+ * report never sees half-written rows.
+ *
+ * The archive lives on the heap, at about 42 bytes a row, so it keeps only
+ * the newest maxRows rows, rounded up to whole segments (DEFAULT_MAX_ROWS,
+ * about 16.7M rows or 700 MB, unless given). Once full, each new segment
+ * drops the oldest one, and reports cover only what is still kept: run the
+ * nightly settlement before its day falls out of the window, or export it.
+ */
+public class SessionArchive implements ParkingSessionListener {
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    public static final long DEFAULT_MAX_ROWS = 1L << 24;
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final ParkingLot parkingLot;
+    private final AtomicLong nextRow = new AtomicLong();
+    // Ring of the newest segments: segment n lives in slot n % retainedSegments
+    private final int retainedSegments;
+    private final AtomicReferenceArray<Segment> segments;
+    private final AtomicLong droppedSegments = new AtomicLong();
+
+    // Floors of the lot in order, and floor - minFloor -> position in that order (-1 for gaps)
+    private final int[] floors;
+    private final int minFloor;
+    private final int[] ordinalByFloor;
+
+    public SessionArchive(ParkingLot parkingLot) {
+        this(parkingLot, DEFAULT_MAX_ROWS);
+    }
+
+    public SessionArchive(ParkingLot parkingLot, long maxRows) {
+        if (maxRows <= 0 || maxRows > (long) Integer.MAX_VALUE << SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("maxRows out of range: " + maxRows);
+        }
+        this.parkingLot = parkingLot;
+        this.retainedSegments = (int) ((maxRows + SEGMENT_ROWS - 1) >>> SEGMENT_SHIFT);
+        this.segments = new AtomicReferenceArray<>(retainedSegments);
+
+        TreeSet<Integer> distinct = new TreeSet<>();
+        for (int i = 0; i < parkingLot.getTotalSpots(); i++) {
+            distinct.add(parkingLot.spotAt(i).getFloor());
+        }
+        this.floors = distinct.stream().mapToInt(Integer::intValue).toArray();
+        this.minFloor = floors.length == 0 ? 0 : floors[0];
+        this.ordinalByFloor = new int[floors.length == 0 ? 0 : floors[floors.length - 1] - minFloor + 1];
+        Arrays.fill(ordinalByFloor, -1);
+        for (int i = 0; i < floors.length; i++) {
+            ordinalByFloor[floors[i] - minFloor] = i;
+        }
+    }
+
+    @Override
+    public void onSessionStarted(ParkingSession session) {
+        // Only ended sessions are archived
+    }
+
+    @Override
+    public void onSessionEnded(ParkingSession session) {
+        ParkingSpot spot = session.getParkingSpot();
+        UUID userId = session.getUser().getUserId();
+        append(session.getStartTime().toEpochMilli(), session.getEndTime().toEpochMilli(),
+                parkingLot.indexOf(spot), spot.getFloor(), session.getVehicle().getVehicleType(),
+                session.isCoveredByPass(), userId.getMostSignificantBits(), userId.getLeastSignificantBits());
+    }
+
+    // Column-level append, also used to load archives in bulk without building sessions
+    void append(long startMillis, long endMillis, int spotIndex, int floor, VehicleType vehicleType,
+            long userIdMsb, long userIdLsb) {
+        append(startMillis, endMillis, spotIndex, floor, vehicleType, false, userIdMsb, userIdLsb);
+    }
+
+    void append(long startMillis, long endMillis, int spotIndex, int floor, VehicleType vehicleType,
+            boolean coveredByPass, long userIdMsb, long userIdLsb) {
+        long row = nextRow.getAndIncrement();
+        Segment segment = segment(row >>> SEGMENT_SHIFT);
+        if (segment == null) return; // stalled so long its segment was already dropped
+
+        int i = (int) row & (SEGMENT_ROWS - 1);
+        segment.startMillis[i] = startMillis;
+        segment.endMillis[i] = endMillis;
+        segment.spotIndex[i] = spotIndex;
+        segment.floor[i] = floor;
+        segment.vehicleType[i] = (byte) vehicleType.ordinal();
+        segment.coveredByPass[i] = coveredByPass;
+        segment.userIdMsb[i] = userIdMsb;
+        segment.userIdLsb[i] = userIdLsb;
+        // Publishes the columns above to any reader that sees the bit
+        segment.committed.getAndAccumulate(i >>> 6, 1L << i, (bits, bit) -> bits | bit);
+    }
+
+    /*
+     * The segment for a row, replacing the one retainedSegments older in its
+     * slot. A fresh segment is swapped in rather than the old one cleared, so
+     * a report still scanning the old one never sees its rows change.
+     */
+    private Segment segment(long number) {
+        int slot = (int) (number % retainedSegments);
+        Segment created = null;
+        while (true) {
+            Segment segment = segments.get(slot);
+            if (segment != null && segment.number >= number) {
+                return segment.number == number ? segment : null;
+            }
+            if (created == null) created = new Segment(number);
+            if (segments.compareAndSet(slot, segment, created)) {
+                if (segment != null) droppedSegments.incrementAndGet();
+                return created;
+            }
+        }
+    }
+
+    // Committed rows still kept; rows still being written are not counted
+    public long size() {
+        return scan(() -> new long[1], (segment, row, acc) -> acc[0]++, (a, b) -> a[0] += b[0])[0];
+    }
+
+    /*
+     * Average number of occupied spots per floor for each hour starting at
+     * fromMillis: parked milliseconds inside the hour divided by the hour's
+     * length. Sessions are clipped to the window. Keys are floor numbers,
+     * values are indexed by hour.
+     */
+    public Map<Integer, double[]> averageOccupancyByFloorPerHour(long fromMillis, int hours) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("hours must be positive");
+        }
+        long toMillis = fromMillis + hours * HOUR_MILLIS;
+
+        long[] parkedMillis = scan(() -> new long[floors.length * hours], (segment, row, acc) -> {
+            long start = Math.max(segment.startMillis[row], fromMillis);
+            long end = Math.min(segment.endMillis[row], toMillis);
+            if (start >= end) return;
+
+            int floorIndex = segment.floor[row] - minFloor;
+            if (floorIndex < 0 || floorIndex >= ordinalByFloor.length || ordinalByFloor[floorIndex] < 0) return;
+            int base = ordinalByFloor[floorIndex] * hours;
+
+            int firstHour = (int) ((start - fromMillis) / HOUR_MILLIS);
+            int lastHour = (int) ((end - 1 - fromMillis) / HOUR_MILLIS);
+            for (int h = firstHour; h <= lastHour; h++) {
+                long hourStart = fromMillis + h * HOUR_MILLIS;
+                acc[base + h] += Math.min(end, hourStart + HOUR_MILLIS) - Math.max(start, hourStart);
+            }
+        }, SessionArchive::addInto);
+
+        Map<Integer, double[]> byFloor = new LinkedHashMap<>();
+        for (int f = 0; f < floors.length; f++) {
+            double[] perHour = new double[hours];
+            for (int h = 0; h < hours; h++) {
+                perHour[h] = (double) parkedMillis[f * hours + h] / HOUR_MILLIS;
+            }
+            byFloor.put(floors[f], perHour);
+        }
+        return byFloor;
+    }
+
+    // Types without archived sessions are left out
+    public Map<VehicleType, Double> averageDurationMillisByVehicleType() {
+        VehicleType[] types = VehicleType.values();
+
+        // [2t] = total millis, [2t + 1] = sessions
+        long[] totals = scan(() -> new long[types.length * 2], (segment, row, acc) -> {
+            int t = segment.vehicleType[row];
+            acc[2 * t] += segment.endMillis[row] - segment.startMillis[row];
+            acc[2 * t + 1]++;
+        }, SessionArchive::addInto);
+
+        Map<VehicleType, Double> averages = new EnumMap<>(VehicleType.class);
+        for (VehicleType type : types) {
+            long count = totals[2 * type.ordinal() + 1];
+            if (count > 0) {
+                averages.put(type, (double) totals[2 * type.ordinal()] / count);
+            }
+        }
+        return averages;
+    }
+
+    /*
+     * Column values of one archived row, for reports built outside this
+     * class (e.g. FeeCalculator.settle). Called from several threads at once,
+     * each with its own accumulator.
+     */
+    @FunctionalInterface
+    interface RowConsumer<A> {
+        void accept(A accumulator, long startMillis, long endMillis, int spotIndex, int floor,
+                VehicleType vehicleType, boolean coveredByPass, long userIdMsb, long userIdLsb);
+    }
+
+    <A> A scanRows(Supplier<A> newAccumulator, RowConsumer<A> consumer, BiConsumer<A, A> merge) {
+        VehicleType[] types = VehicleType.values();
+        return scan(newAccumulator, (segment, row, acc) -> consumer.accept(acc,
+                segment.startMillis[row], segment.endMillis[row], segment.spotIndex[row], segment.floor[row],
+                types[segment.vehicleType[row]], segment.coveredByPass[row],
+                segment.userIdMsb[row], segment.userIdLsb[row]), merge);
+    }
+
+    private static void addInto(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowVisitor<A> {
+        void visit(Segment segment, int row, A accumulator);
+    }
+
+    // Rows that fell out of the retention window
+    public long getDroppedRowCount() {
+        return droppedSegments.get() << SEGMENT_SHIFT;
+    }
+
+    // Visits every committed row, one segment per task, merging per-task accumulators
+    private <A> A scan(Supplier<A> newAccumulator, RowVisitor<A> visitor,
+            BiConsumer<A, A> merge) {
+        long segmentCount = (nextRow.get() + SEGMENT_ROWS - 1) >>> SEGMENT_SHIFT;
+        long first = Math.max(0, segmentCount - retainedSegments);
+
+        return IntStream.range(0, (int) (segmentCount - first)).parallel().collect(newAccumulator, (acc, offset) -> {
+            long number = first + offset;
+            Segment segment = segments.get((int) (number % retainedSegments));
+            // Not created yet, or already replaced by a newer one
+            if (segment == null || segment.number != number) return;
+
+            for (int w = 0; w < Segment.COMMIT_WORDS; w++) {
+                long bits = segment.committed.get(w);
+                if (bits == -1L) {
+                    int end = (w + 1) << 6;
+                    for (int row = w << 6; row < end; row++) {
+                        visitor.visit(segment, row, acc);
+                    }
+                } else {
+                    while (bits != 0) {
+                        visitor.visit(segment, (w << 6) + Long.numberOfTrailingZeros(bits), acc);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }, merge);
+    }
+
+    private static final class Segment {
+        static final int COMMIT_WORDS = SEGMENT_ROWS / 64;
+
+        final long number;
+        final long[] startMillis = new long[SEGMENT_ROWS];
+        final long[] endMillis = new long[SEGMENT_ROWS];
+        final int[] spotIndex = new int[SEGMENT_ROWS];
+        final int[] floor = new int[SEGMENT_ROWS];
+        final byte[] vehicleType = new byte[SEGMENT_ROWS];
+        final boolean[] coveredByPass = new boolean[SEGMENT_ROWS];
+        final long[] userIdMsb = new long[SEGMENT_ROWS];
+        final long[] userIdLsb = new long[SEGMENT_ROWS];
+        final AtomicLongArray committed = new AtomicLongArray(COMMIT_WORDS);
+
+        Segment(long number) {
+            this.number = number;
+        }
+    }
+}
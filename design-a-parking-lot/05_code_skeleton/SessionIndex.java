@@ -0,0 +1,106 @@
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Secondary lookups of active sessions by session id, vehicle and spot.
+ *
+ * The SessionStore stays the only source of truth. The index entries just
+ * point back into it: session id -> user, vehicle -> session id and
+ * spot -> session id. Writers install the primary entry first and
+ * remove it first, and every read goes back to the store and checks that
+ * the user's session there is still the one the index pointed at. So a
+ * session is visible through an index only while it is in the store, and
+ * a reader racing a start or an end sees the whole session or nothing.
+ *
+ * Reads are CHM gets and an array read, plus the store lookup. Writes
+ * never overwrite a vehicle or spot entry that belongs to a session still
+ * in the store, and removals are compare-and-remove on the session id,
+ * so a late writer can't clobber the entries of the next session.
+ */
+class SessionIndex {
+
+    private final ParkingLot parkingLot;
+    private final SessionStore sessions;
+
+    private final ConcurrentHashMap<UUID, User> userBySessionId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, UUID> sessionIdByVehicleId = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<UUID> sessionIdBySpot;
+
+    SessionIndex(ParkingLot parkingLot, SessionStore sessions) {
+        this.parkingLot = parkingLot;
+        this.sessions = sessions;
+        this.sessionIdBySpot = new AtomicReferenceArray<>(parkingLot.getTotalSpots());
+    }
+
+    /*
+     * Call after the session is in the store. An end that overtook us may
+     * already have run its remove, so we look at the store once more and
+     * clean up ourselves; either that end sees our entries or we see it.
+     */
+    void add(ParkingSession session) {
+        UUID sessionId = session.getParkingSessionId();
+        userBySessionId.put(sessionId, session.getUser());
+        claimVehicle(session.getVehicle().getVehicleId(), sessionId);
+        claimSpot(parkingLot.indexOf(session.getParkingSpot()), sessionId);
+
+        if (findBySessionId(sessionId).isEmpty()) {
+            remove(session);
+        }
+    }
+
+    // Call after the session has left the store, before its spot is handed on
+    void remove(ParkingSession session) {
+        UUID sessionId = session.getParkingSessionId();
+        userBySessionId.remove(sessionId);
+        sessionIdByVehicleId.remove(session.getVehicle().getVehicleId(), sessionId);
+
+        int spotIndex = parkingLot.indexOf(session.getParkingSpot());
+        UUID current = sessionIdBySpot.get(spotIndex);
+        if (sessionId.equals(current)) {
+            sessionIdBySpot.compareAndSet(spotIndex, current, null);
+        }
+    }
+
+    Optional<ParkingSession> findBySessionId(UUID sessionId) {
+        if (sessionId == null) return Optional.empty();
+        User user = userBySessionId.get(sessionId);
+        if (user == null) return Optional.empty();
+
+        ParkingSession session = sessions.get(user);
+        return session != null && session.getParkingSessionId().equals(sessionId)
+                ? Optional.of(session) : Optional.empty();
+    }
+
+    Optional<ParkingSession> findByVehicleId(UUID vehicleId) {
+        return findBySessionId(sessionIdByVehicleId.get(vehicleId));
+    }
+
+    Optional<ParkingSession> findBySpot(ParkingSpot spot) {
+        return findBySessionId(sessionIdBySpot.get(parkingLot.indexOf(spot)));
+    }
+
+    // A vehicle can be parked once; an entry of an active session is left alone
+    private void claimVehicle(UUID vehicleId, UUID sessionId) {
+        while (true) {
+            UUID current = sessionIdByVehicleId.get(vehicleId);
+            if (current == null) {
+                if (sessionIdByVehicleId.putIfAbsent(vehicleId, sessionId) == null) return;
+            } else if (current.equals(sessionId) || findBySessionId(current).isPresent()) {
+                return;
+            } else if (sessionIdByVehicleId.replace(vehicleId, current, sessionId)) {
+                return;
+            }
+        }
+    }
+
+    // A spot holds one session at a time, so an active owner means we are late
+    private void claimSpot(int spotIndex, UUID sessionId) {
+        while (true) {
+            UUID current = sessionIdBySpot.get(spotIndex);
+            if (current != null && (current.equals(sessionId) || findBySessionId(current).isPresent())) return;
+            if (sessionIdBySpot.compareAndSet(spotIndex, current, sessionId)) return;
+        }
+    }
+}
@@ -0,0 +1,600 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/*
+ * Write-ahead journal of session starts and ends, so active sessions survive
+ * a restart. Register it with ParkingService.addSessionListener.
+ *
+ * The journal is a directory of memory-mapped segment files cut into fixed
+ * 72-byte slots. A writer reserves a slot with one getAndAdd on the segment's
+ * position and fills it in place; there is no shared lock on the write path.
+ * Each record carries a CRC32C, so a slot torn by a crash is skipped on replay
+ * without losing the records around it.
+ *
+ * Records from different threads can land out of order (an end can be
+ * written before its start), so replay matches them by session id rather
+ * than by position.
+ *
+ * How much can be lost on a crash depends on the Durability mode:
+ *   SYNC          - each append waits until its record is forced to disk.
+ *                   Concurrent writers share one force (group commit).
+ *   GROUP_COMMIT  - a background thread forces every flushIntervalMillis;
+ *                   appends never wait, so up to one interval can be lost.
+ *   OS            - never forced by us; the page cache decides.
+ *
+ * Layout of a slot (big endian):
+ *   0  type (1 = start, 2 = end)   1  vehicle type ordinal   2  flags (1 = pass)  3 unused
+ *   4  CRC32C of bytes 0..3, 8..71 8  session id             24 user id
+ *   40 vehicle id                  56 floor                  60 spot id
+ *   64 epoch millis (start time or end time)
+ */
+public class SessionJournal implements ParkingSessionListener, AutoCloseable {
+
+    public enum Durability { SYNC, GROUP_COMMIT, OS }
+
+    static final int RECORD_SIZE = 72;
+    static final byte START = 1;
+    static final byte END = 2;
+
+    private static final byte FLAG_COVERED_BY_PASS = 1;
+    private static final int CRC_OFFSET = 4;
+    private static final int BODY_OFFSET = 8;
+    private static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Durability durability;
+    private final long flushIntervalNanos;
+    private final int segmentCapacity;
+
+    private final AtomicReference<Segment> active = new AtomicReference<>();
+    // Segments that were rolled over but may still hold unforced records;
+    // one leaves only once it is forced after every reserved slot was written
+    private final ConcurrentLinkedQueue<Segment> retired = new ConcurrentLinkedQueue<>();
+    // SYNC appends waiting for the next force
+    private final ConcurrentLinkedQueue<CommitWaiter> commitWaiters = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ByteBuffer> scratch =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(RECORD_SIZE));
+    private final Thread flusher;
+    // Set when a force failed; the flusher has stopped and every append fails
+    private volatile IOException flushFailure;
+    private volatile boolean closed;
+
+    private final List<JournalRecord> recovered;
+    private long replayedRecords;
+    private long skippedRecords;
+
+    private SessionJournal(Path directory, Durability durability, long flushIntervalMillis, long segmentBytes)
+            throws IOException {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        }
+        if (segmentBytes < RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes out of range: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.durability = durability;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.segmentCapacity = (int) (segmentBytes / RECORD_SIZE * RECORD_SIZE);
+
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments(directory);
+        this.recovered = replay(existing);
+        checkpoint(existing);
+
+        if (durability == Durability.OS) {
+            this.flusher = null;
+        } else {
+            this.flusher = Thread.ofPlatform().daemon().name("session-journal-flusher").start(this::flushLoop);
+        }
+    }
+
+    public static SessionJournal open(Path directory, Durability durability) throws IOException {
+        return open(directory, durability, 5, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /*
+     * Replays whatever is in the directory, then compacts it: the sessions
+     * still active are rewritten into a fresh segment and the old segments are
+     * deleted, so the journal only grows with traffic since the last start.
+     */
+    public static SessionJournal open(Path directory, Durability durability, long flushIntervalMillis,
+            long segmentBytes) throws IOException {
+        return new SessionJournal(directory, durability, flushIntervalMillis, segmentBytes);
+    }
+
+    // Sessions that were active when the journal was last written, in journal order
+    public List<JournalRecord> getRecoveredRecords() {
+        return recovered;
+    }
+
+    /*
+     * Rebuilds the recovered sessions for ParkingService.restoreSessions.
+     * The journal only keeps ids, so users and vehicles come back as
+     * placeholders carrying the same ids; that is enough to end the session.
+     * Spots are placeholders as well (floor and id only); restoreSessions
+     * swaps in the lot's own.
+     */
+    public List<ParkingSession> recoverSessions() {
+        List<ParkingSession> sessions = new ArrayList<>(recovered.size());
+        for (JournalRecord record : recovered) {
+            User user = new User(record.getUserId(), null, null);
+            Vehicle vehicle = new Vehicle(record.getVehicleId(), record.getVehicleType(), record.getUserId());
+            ParkingSpot spot = new ParkingSpot(record.getFloor(), record.getSpotId());
+            sessions.add(new ParkingSession(record.getSessionId(), Instant.ofEpochMilli(record.getEpochMillis()),
+                    user, vehicle, spot, record.isCoveredByPass()));
+        }
+        return sessions;
+    }
+
+    public long getReplayedRecordCount() {
+        return replayedRecords;
+    }
+
+    // Slots that failed their checksum during the last replay
+    public long getSkippedRecordCount() {
+        return skippedRecords;
+    }
+
+    @Override
+    public void onSessionStarted(ParkingSession session) {
+        append(START, session, session.getStartTime());
+    }
+
+    @Override
+    public void onSessionEnded(ParkingSession session) {
+        append(END, session, session.getEndTime());
+    }
+
+    private void append(byte type, ParkingSession session, Instant time) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkFlushFailure();
+
+        ByteBuffer record = scratch.get();
+        encode(record, type, session, time);
+        Segment segment = reserveAndWrite(record);
+
+        if (durability == Durability.SYNC) {
+            awaitForce();
+        } else {
+            segment.dirty = true;
+        }
+    }
+
+    private Segment reserveAndWrite(ByteBuffer record) {
+        while (true) {
+            Segment segment = active.get();
+            long position = segment.position.getAndAdd(RECORD_SIZE);
+            if (position + RECORD_SIZE <= segmentCapacity) {
+                segment.buffer.put((int) position, record, 0, RECORD_SIZE);
+                segment.written.incrementAndGet();
+                return segment;
+            }
+            // Exactly one writer lands on the boundary and rolls; the rest wait for it
+            if (position == segmentCapacity) {
+                roll(segment);
+            } else {
+                while (active.get() == segment) {
+                    IOException failure = segment.rollFailure;
+                    if (failure != null) {
+                        throw new UncheckedIOException("Cannot roll session journal", failure);
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    private void roll(Segment full) {
+        try {
+            Segment next = Segment.create(directory, full.number + 1, segmentCapacity);
+            retired.add(full);
+            active.set(next);
+        } catch (IOException e) {
+            // The full segment stays active; its marker fails the writers
+            // waiting on it, and every later one, instead of leaving them spinning
+            full.rollFailure = e;
+            throw new UncheckedIOException("Cannot roll session journal", e);
+        }
+    }
+
+    private void awaitForce() {
+        CommitWaiter waiter = new CommitWaiter(Thread.currentThread());
+        commitWaiters.add(waiter);
+        LockSupport.unpark(flusher);
+        while (!waiter.done) {
+            // Read after joining the queue: a flusher that failed earlier will not drain it again
+            checkFlushFailure();
+            LockSupport.park(this);
+            if (closed && !waiter.done) {
+                throw new IllegalStateException("Journal closed before the record was forced");
+            }
+        }
+    }
+
+    private void checkFlushFailure() {
+        IOException failure = flushFailure;
+        if (failure != null) {
+            throw new UncheckedIOException("Session journal cannot force records", failure);
+        }
+    }
+
+    /*
+     * Group commit: every waiter in the queue enqueued after writing its
+     * record, so a single force covers the whole batch.
+     *
+     * A failed force stops the loop for good. The failure is published before
+     * the waiters are woken, so they, and every later append, throw it rather
+     * than wait for a force that will never come.
+     */
+    private void flushLoop() {
+        List<CommitWaiter> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                CommitWaiter waiter;
+                while ((waiter = commitWaiters.poll()) != null) {
+                    batch.add(waiter);
+                }
+
+                if (batch.isEmpty()) {
+                    if (durability == Durability.GROUP_COMMIT) {
+                        forceDirty();
+                    }
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                    continue;
+                }
+
+                forceAll();
+                for (CommitWaiter done : batch) {
+                    done.done = true;
+                    LockSupport.unpark(done.thread);
+                }
+                batch.clear();
+            }
+        } catch (UncheckedIOException e) {
+            failFlush(batch, e.getCause());
+        } catch (RuntimeException | Error e) {
+            failFlush(batch, new IOException("Session journal flusher failed", e));
+            throw e;
+        }
+    }
+
+    private void failFlush(List<CommitWaiter> batch, IOException failure) {
+        flushFailure = failure;
+        for (CommitWaiter waiter : batch) {
+            LockSupport.unpark(waiter.thread);
+        }
+        CommitWaiter waiter;
+        while ((waiter = commitWaiters.poll()) != null) {
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    /*
+     * Both read the active segment before looking at the retired ones: a
+     * segment rolled in between is already in the retired queue by then.
+     */
+    private void forceDirty() {
+        Segment current = active.get();
+        forceRetired();
+        if (current.dirty) {
+            current.dirty = false;
+            current.buffer.force();
+        }
+    }
+
+    private void forceAll() {
+        Segment current = active.get();
+        forceRetired();
+        current.buffer.force();
+    }
+
+    /*
+     * A writer can reserve a slot, stall, and fill it after its segment was
+     * rolled and forced, so a retired segment stays queued, and is forced
+     * again on every round, until a force starts after its last slot was
+     * written.
+     */
+    private void forceRetired() {
+        for (Iterator<Segment> it = retired.iterator(); it.hasNext(); ) {
+            Segment old = it.next();
+            boolean complete = old.written.get() == old.slots;
+            old.buffer.force();
+            if (complete) it.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (flushFailure != null) {
+            // Nothing more can be forced; anyone still queued throws the failure
+            failFlush(List.of(), flushFailure);
+            return;
+        }
+        if (durability != Durability.OS) {
+            forceAll();
+        }
+        // Whatever is still queued was covered by the final force
+        CommitWaiter waiter;
+        while ((waiter = commitWaiters.poll()) != null) {
+            waiter.done = true;
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    private static void encode(ByteBuffer record, byte type, ParkingSession session, Instant time) {
+        Vehicle vehicle = session.getVehicle();
+        ParkingSpot spot = session.getParkingSpot();
+
+        record.clear();
+        record.put(0, type);
+        record.put(1, (byte) vehicle.getVehicleType().ordinal());
+        record.put(2, session.isCoveredByPass() ? FLAG_COVERED_BY_PASS : 0);
+        record.put(3, (byte) 0);
+        putUuid(record, BODY_OFFSET, session.getParkingSessionId());
+        putUuid(record, 24, session.getUser().getUserId());
+        putUuid(record, 40, vehicle.getVehicleId());
+        record.putInt(56, spot.getFloor());
+        record.putInt(60, spot.getSpotId());
+        record.putLong(64, time.toEpochMilli());
+        record.putInt(CRC_OFFSET, checksum(record.duplicate(), 0, new CRC32C()));
+    }
+
+    private static void putUuid(ByteBuffer record, int offset, UUID id) {
+        record.putLong(offset, id.getMostSignificantBits());
+        record.putLong(offset + 8, id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+    }
+
+    /*
+     * CRC32C of bytes 0..3 (type, vehicle type, flags) and 8..71 of the slot
+     * starting at offset; bytes 4..7 hold the CRC itself.
+     * Moves the view's position and limit, so callers pass a view they own;
+     * replay reuses one view and one CRC32C for a whole segment.
+     */
+    private static int checksum(ByteBuffer view, int offset, CRC32C crc) {
+        crc.reset();
+        view.limit(offset + CRC_OFFSET).position(offset);
+        crc.update(view);
+        view.limit(offset + RECORD_SIZE).position(offset + BODY_OFFSET);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    /*
+     * A session is active if the journal holds its start and no end, wherever
+     * the two landed, so replay needs no ordering. One pass verifies every
+     * slot, collects end ids in a primitive hash set and remembers where the
+     * starts are; only starts without an end are decoded afterwards.
+     */
+    private List<JournalRecord> replay(List<Path> segments) throws IOException {
+        List<MappedByteBuffer> buffers = new ArrayList<>(segments.size());
+        SessionIdSet ended = new SessionIdSet();
+        long[] starts = new long[1024]; // segment index << 32 | slot offset
+        int startCount = 0;
+        CRC32C crc = new CRC32C();
+        int vehicleTypeCount = VehicleType.values().length;
+
+        for (Path path : segments) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int segment = buffers.size();
+            buffers.add(buffer);
+            ByteBuffer view = buffer.duplicate();
+            int limit = buffer.capacity() - RECORD_SIZE;
+
+            for (int offset = 0; offset <= limit; offset += RECORD_SIZE) {
+                byte type = buffer.get(offset);
+                if (type == 0) continue; // reserved but never written, or unused tail
+
+                int vehicleOrdinal = buffer.get(offset + 1);
+                if ((type != START && type != END)
+                        || vehicleOrdinal < 0 || vehicleOrdinal >= vehicleTypeCount
+                        || buffer.getInt(offset + CRC_OFFSET) != checksum(view.clear(), offset, crc)) {
+                    skippedRecords++;
+                    continue;
+                }
+                replayedRecords++;
+
+                if (type == END) {
+                    ended.add(buffer.getLong(offset + BODY_OFFSET), buffer.getLong(offset + BODY_OFFSET + 8));
+                } else {
+                    if (startCount == starts.length) starts = Arrays.copyOf(starts, startCount * 2);
+                    starts[startCount++] = (long) segment << 32 | offset;
+                }
+            }
+        }
+
+        VehicleType[] vehicleTypes = VehicleType.values();
+        // Keyed by session id: a checkpoint interrupted by a crash can leave a start twice
+        Map<UUID, JournalRecord> open = new LinkedHashMap<>();
+        for (int i = 0; i < startCount; i++) {
+            ByteBuffer buffer = buffers.get((int) (starts[i] >>> 32));
+            int offset = (int) starts[i];
+            long msb = buffer.getLong(offset + BODY_OFFSET);
+            long lsb = buffer.getLong(offset + BODY_OFFSET + 8);
+            if (ended.contains(msb, lsb)) continue;
+
+            UUID sessionId = new UUID(msb, lsb);
+            open.put(sessionId, new JournalRecord(sessionId,
+                    getUuid(buffer, offset + 24),
+                    getUuid(buffer, offset + 40),
+                    vehicleTypes[buffer.get(offset + 1)],
+                    buffer.getInt(offset + 56),
+                    buffer.getInt(offset + 60),
+                    buffer.getLong(offset + 64),
+                    (buffer.get(offset + 2) & FLAG_COVERED_BY_PASS) != 0));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(open.values()));
+    }
+
+    private void checkpoint(List<Path> oldSegments) throws IOException {
+        long number = oldSegments.isEmpty() ? 1 : segmentNumber(oldSegments.get(oldSegments.size() - 1)) + 1;
+        Segment fresh = Segment.create(directory, number, segmentCapacity);
+        active.set(fresh);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (ParkingSession session : recoverSessions()) {
+            encode(record, START, session, session.getStartTime());
+            reserveAndWrite(record);
+        }
+        // The live sessions may have spilled past `fresh` into rolled segments;
+        // all of them, and their directory entries (see Segment.create), must
+        // be on disk before the only other copy goes
+        forceAll();
+
+        for (Path old : oldSegments) {
+            Files.delete(old);
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingLong(SessionJournal::segmentNumber));
+        return segments;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        final long number;
+        final MappedByteBuffer buffer;
+        final int slots;
+        final AtomicLong position = new AtomicLong();
+        final AtomicInteger written = new AtomicInteger(); // slots filled in
+        volatile boolean dirty;
+        volatile IOException rollFailure;                  // set if rolling past this segment failed
+
+        private Segment(long number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+            this.slots = buffer.capacity() / RECORD_SIZE;
+        }
+
+        // The mapping stays valid after the channel is closed, so it is not kept around
+        static Segment create(Path directory, long number, int capacity) throws IOException {
+            Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+            Segment segment;
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = new Segment(number, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+            }
+            // Forcing the mapping covers the records, not the file's name: without
+            // this a crash could lose a whole segment, or a checkpoint could delete
+            // the old segments before the new one is reachable
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            }
+            return segment;
+        }
+    }
+
+    /*
+     * Open-addressing set of session ids as raw longs, so replay does not box
+     * millions of UUIDs. Both halves of an id sit next to each other, so a
+     * probe costs one cache miss; the all-zero id marks an empty slot and is
+     * tracked on the side.
+     */
+    private static final class SessionIdSet {
+        private long[] table = new long[2 * 1024];
+        private int size;
+        private boolean containsZero;
+
+        void add(long msb, long lsb) {
+            if ((msb | lsb) == 0) {
+                containsZero = true;
+                return;
+            }
+            if (size * 4 >= table.length) grow(); // load factor 1/2
+            int i = find(table, msb, lsb);
+            if (table[i] == 0 && table[i + 1] == 0) {
+                table[i] = msb;
+                table[i + 1] = lsb;
+                size++;
+            }
+        }
+
+        boolean contains(long msb, long lsb) {
+            if ((msb | lsb) == 0) return containsZero;
+            int i = find(table, msb, lsb);
+            return table[i] != 0 || table[i + 1] != 0;
+        }
+
+        // Index of the id's slot, or of the empty slot where it would go
+        private static int find(long[] table, long msb, long lsb) {
+            int mask = table.length / 2 - 1;
+            long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h >>> 32) & mask;
+            while (true) {
+                int i = slot * 2;
+                long m = table[i];
+                long l = table[i + 1];
+                if ((m == msb && l == lsb) || (m | l) == 0) return i;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            for (int i = 0; i < old.length; i += 2) {
+                if ((old[i] | old[i + 1]) != 0) {
+                    int j = find(table, old[i], old[i + 1]);
+                    table[j] = old[i];
+                    table[j + 1] = old[i + 1];
+                }
+            }
+        }
+    }
+
+    private static final class CommitWaiter {
+        final Thread thread;
+        volatile boolean done;
+
+        CommitWaiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
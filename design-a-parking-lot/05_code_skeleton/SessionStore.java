@@ -0,0 +1,28 @@
+import java.util.UUID;
+
+/*
+ * Where ParkingService keeps the active session of every user: at most one
+ * session per user id, and every operation is atomic per user.
+ *
+ * Implementations may hand out copies, so compare sessions by id rather
+ * than by reference. Lookups take the caller's User so a store that keeps
+ * only ids can rebuild the session around the real object.
+ */
+public interface SessionStore {
+
+    // false, and nothing stored, if the user already has a session
+    boolean putIfAbsent(ParkingSession session);
+
+    boolean contains(UUID userId);
+
+    // The user's session, or null
+    ParkingSession get(User user);
+
+    // Removes and returns the user's session, or null if there was none
+    ParkingSession remove(User user);
+
+    // Like remove(user), but only if the user's session has this id
+    ParkingSession remove(User user, UUID parkingSessionId);
+
+    int size();
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/*
+ * Strategy for handing out and taking back free parking spots.
+ *
+ * A "gate" is the entrance a request comes through. Allocators that
+ * partition their spots can use it to keep each gate on its own
+ * partition; allocators with a single pool are free to ignore it.
+ */
+public interface SpotAllocator {
+
+    ParkingSpot tryAcquire(int gate);
+
+    // Like tryAcquire, but never waits for a release; for callers that must
+    // not block, such as handing a released spot on to a waiter
+    default ParkingSpot poll(int gate) {
+        return tryAcquire(gate);
+    }
+
+    void release(ParkingSpot spot);
+
+    // Bulk variants for gate controllers that send arrivals and departures in
+    // bursts. Allocators override them when they can do better than a loop.
+
+    default int tryAcquire(int gate, int max, List<ParkingSpot> into) {
+        int acquired = 0;
+        while (acquired < max) {
+            ParkingSpot spot = tryAcquire(gate);
+            if (spot == null) break;
+            into.add(spot);
+            acquired++;
+        }
+        return acquired;
+    }
+
+    default void releaseAll(Collection<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            release(spot);
+        }
+    }
+
+    // Takes one specific spot out of the pool; false if it is not there
+    boolean remove(ParkingSpot spot);
+
+    /*
+     * Takes the given spots out of the pool without handing them to a gate.
+     * Used when sessions are restored at startup, before any traffic; the
+     * default drains the whole pool, so it is not meant for concurrent use.
+     */
+    default void claimAll(Collection<ParkingSpot> spots) {
+        List<ParkingSpot> drained = new ArrayList<>();
+        ParkingSpot spot;
+        while ((spot = tryAcquire(0)) != null) {
+            drained.add(spot);
+        }
+        drained.removeAll(new HashSet<>(spots));
+        releaseAll(drained);
+    }
+
+    // The free spots at the time of the call; callers must treat it as read-only
+    Collection<ParkingSpot> availableSpots();
+
+    // Allocators override it when they can tell without copying the pool
+    default boolean isEmpty() {
+        return availableSpots().isEmpty();
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Spot allocator with one pool ("stripe") per floor.
+ *
+ * Each gate has a home stripe and polls it first, so gates on different
+ * floors never touch the same queue nodes. Only when the home stripe is
+ * empty does a gate walk the other stripes and steal a spot from them.
+ * A released spot always goes back to the stripe of its own floor.
+ */
+public class StripedSpotAllocator implements SpotAllocator {
+
+    private final ConcurrentLinkedQueue<ParkingSpot>[] stripes;
+    private final int[] stripeByFloor;
+    private final int minFloor;
+
+    @SuppressWarnings("unchecked")
+    public StripedSpotAllocator(Collection<ParkingSpot> spots) {
+        if (spots.isEmpty()) {
+            throw new IllegalArgumentException("A parking lot needs at least one spot");
+        }
+
+        TreeSet<Integer> floors = new TreeSet<>();
+        for (ParkingSpot spot : spots) {
+            floors.add(spot.getFloor());
+        }
+
+        this.minFloor = floors.first();
+        this.stripeByFloor = new int[floors.last() - minFloor + 1];
+        this.stripes = (ConcurrentLinkedQueue<ParkingSpot>[]) new ConcurrentLinkedQueue<?>[floors.size()];
+        Arrays.fill(stripeByFloor, -1);
+
+        int stripe = 0;
+        for (int floor : floors) {
+            stripeByFloor[floor - minFloor] = stripe;
+            stripes[stripe++] = new ConcurrentLinkedQueue<>();
+        }
+
+        for (ParkingSpot spot : spots) {
+            stripes[stripeOf(spot)].add(spot);
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int homeStripe(int gate) {
+        return Math.floorMod(gate, stripes.length);
+    }
+
+    @Override
+    public ParkingSpot tryAcquire(int gate) {
+        int home = homeStripe(gate);
+
+        ParkingSpot spot = stripes[home].poll();
+        if (spot != null) return spot;
+
+        // Home stripe is empty: steal, walking away from home so that
+        // gates with different homes start stealing from different stripes
+        for (int i = 1; i < stripes.length; i++) {
+            spot = stripes[(home + i) % stripes.length].poll();
+            if (spot != null) return spot;
+        }
+
+        return null;
+    }
+
+    // One pass: drain the home stripe first, then steal stripe by stripe
+    @Override
+    public int tryAcquire(int gate, int max, List<ParkingSpot> into) {
+        int home = homeStripe(gate);
+        int acquired = 0;
+
+        for (int i = 0; i < stripes.length && acquired < max; i++) {
+            ConcurrentLinkedQueue<ParkingSpot> stripe = stripes[(home + i) % stripes.length];
+            ParkingSpot spot;
+            while (acquired < max && (spot = stripe.poll()) != null) {
+                into.add(spot);
+                acquired++;
+            }
+        }
+
+        return acquired;
+    }
+
+    @Override
+    public void release(ParkingSpot spot) {
+        stripes[stripeOf(spot)].add(spot);
+    }
+
+    // Groups the batch by stripe so each stripe gets a single addAll
+    @Override
+    public void releaseAll(Collection<ParkingSpot> spots) {
+        List<List<ParkingSpot>> byStripe = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            byStripe.add(new ArrayList<>());
+        }
+        for (ParkingSpot spot : spots) {
+            byStripe.get(stripeOf(spot)).add(spot);
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            if (!byStripe.get(i).isEmpty()) {
+                stripes[i].addAll(byStripe.get(i));
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(ParkingSpot spot) {
+        return stripes[stripeOf(spot)].remove(spot);
+    }
+
+    @Override
+    public void claimAll(Collection<ParkingSpot> spots) {
+        Set<ParkingSpot> claimed = new HashSet<>(spots);
+        for (ConcurrentLinkedQueue<ParkingSpot> stripe : stripes) {
+            stripe.removeAll(claimed);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (ConcurrentLinkedQueue<ParkingSpot> stripe : stripes) {
+            if (!stripe.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Collection<ParkingSpot> availableSpots() {
+        List<ParkingSpot> available = new ArrayList<>();
+        for (ConcurrentLinkedQueue<ParkingSpot> stripe : stripes) {
+            available.addAll(stripe);
+        }
+        return available;
+    }
+
+    private int stripeOf(ParkingSpot spot) {
+        int offset = spot.getFloor() - minFloor;
+        int stripe = (offset < 0 || offset >= stripeByFloor.length) ? -1 : stripeByFloor[offset];
+        if (stripe < 0) {
+            throw new IllegalArgumentException("Spot is not on a floor of this lot: " + spot);
+        }
+        return stripe;
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * Pricing strategy. A tariff describes one day of parking: what the first
+ * `hours` started hours cost for a vehicle type, for hours in 0..24.
+ * Longer stays are billed as whole days plus the remainder (see
+ * CompiledTariff), so a daily cap is just a cap on this curve.
+ *
+ * Tariffs are only consulted when compiled; pricing a session goes through
+ * the CompiledTariff lookup tables.
+ */
+public interface Tariff {
+
+    int HOURS_PER_DAY = 24;
+
+    // Must not decrease as hours grow
+    long cumulativeCents(VehicleType vehicleType, int hours);
+
+    default CompiledTariff compile() {
+        return new CompiledTariff(this);
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+// Picks a different tariff per vehicle type; every type must be covered
+public class VehicleTypeTariff implements Tariff {
+
+    private final EnumMap<VehicleType, Tariff> tariffs;
+
+    public VehicleTypeTariff(Map<VehicleType, ? extends Tariff> tariffs) {
+        this.tariffs = new EnumMap<>(VehicleType.class);
+        this.tariffs.putAll(tariffs);
+        for (VehicleType type : VehicleType.values()) {
+            if (!this.tariffs.containsKey(type)) {
+                throw new IllegalArgumentException("No tariff for vehicle type " + type);
+            }
+        }
+    }
+
+    @Override
+    public long cumulativeCents(VehicleType vehicleType, int hours) {
+        return tariffs.get(vehicleType).cumulativeCents(vehicleType, hours);
+    }
+
+    @Override
+    public String toString() {
+        return "VehicleTypeTariff " + tariffs;
+    }
+}
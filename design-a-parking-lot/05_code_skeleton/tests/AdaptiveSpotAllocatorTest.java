@@ -0,0 +1,282 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class AdaptiveSpotAllocatorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            staysOptimisticWithoutContentionTest();
+            switchesToPessimisticUnderRushTest();
+            switchesBackWhenQuietTest();
+            thresholdOfOneSwitchesBackTest();
+            pessimisticWaiterGetsReleasedSpotTest();
+            noLeakUnderChurnTest();
+            fullLotIsNotContentionTest();
+            pollNeverWaitsTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ ADAPTIVE ALLOCATOR FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static QueueSpotAllocator pool(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> q = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= spots; i++) {
+            q.add(new ParkingSpot(1, i));
+        }
+        return new QueueSpotAllocator(q);
+    }
+
+    /*
+     * Loses the next `losses` acquires as if another thread had taken the
+     * spot first, while the pool stays non-empty: what a failed CAS looks
+     * like from outside, without needing a real race.
+     */
+    private static final class RacyPool implements SpotAllocator {
+        final QueueSpotAllocator pool;
+        volatile int losses;
+
+        RacyPool(int spots) {
+            this.pool = pool(spots);
+        }
+
+        @Override
+        public ParkingSpot tryAcquire(int gate) {
+            if (losses > 0) {
+                losses--;
+                return null;
+            }
+            return pool.tryAcquire(gate);
+        }
+
+        @Override
+        public void release(ParkingSpot spot) {
+            pool.release(spot);
+        }
+
+        @Override
+        public boolean remove(ParkingSpot spot) {
+            return pool.remove(spot);
+        }
+
+        @Override
+        public Collection<ParkingSpot> availableSpots() {
+            return pool.availableSpots();
+        }
+    }
+
+    // Loses `losses` acquires, which is contention the allocator must count
+    private static void loseRaces(AdaptiveSpotAllocator a, RacyPool racy, int losses) {
+        racy.losses = losses;
+        for (int i = 0; i < losses; i++) {
+            check(a.tryAcquire(0) == null, "Expected a lost race");
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: No contention -> stays optimistic          */
+    /* -------------------------------------------------- */
+
+    private static void staysOptimisticWithoutContentionTest() {
+        System.out.println("\n==== STAYS OPTIMISTIC ====");
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(pool(5), 4, 1_000, 10);
+
+        for (int i = 0; i < 1_000; i++) {
+            ParkingSpot s = a.tryAcquire(0);
+            check(s != null, "Spot expected on an idle lot");
+            a.release(s);
+        }
+
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.OPTIMISTIC, "Switched without contention: " + a);
+        check(a.getFailedOptimisticAttempts() == 0, "Unexpected failures: " + a);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Lost races -> pessimistic                   */
+    /* -------------------------------------------------- */
+
+    private static void switchesToPessimisticUnderRushTest() {
+        System.out.println("\n==== SWITCHES TO PESSIMISTIC ====");
+        RacyPool racy = new RacyPool(2);
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(racy, 4, 10_000, 0);
+
+        check(a.tryAcquire(0) != null, "First acquire must succeed");
+        loseRaces(a, racy, 3);
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.OPTIMISTIC, "Switched below the threshold: " + a);
+        loseRaces(a, racy, 1);
+
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.PESSIMISTIC, "Threshold reached but still optimistic: " + a);
+        check(a.getFailedOptimisticAttempts() == 4, "Expected 4 failed attempts: " + a);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Quiet window -> back to optimistic          */
+    /* -------------------------------------------------- */
+
+    private static void switchesBackWhenQuietTest() throws Exception {
+        System.out.println("\n==== SWITCHES BACK WHEN QUIET ====");
+        RacyPool racy = new RacyPool(1);
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(racy, 4, 20, 0);
+
+        loseRaces(a, racy, 4);
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.PESSIMISTIC, "Expected pessimistic: " + a);
+
+        Thread.sleep(50);
+        a.release(a.tryAcquire(0)); // rolls the busy window
+        Thread.sleep(50);
+        a.release(a.tryAcquire(0)); // rolls the quiet window
+
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.OPTIMISTIC, "Expected optimistic after quiet window: " + a);
+        check(a.getModeSwitches() == 2, "Expected two switches: " + a);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Threshold 1 still switches back             */
+    /* -------------------------------------------------- */
+
+    private static void thresholdOfOneSwitchesBackTest() throws Exception {
+        System.out.println("\n==== THRESHOLD OF ONE ====");
+        RacyPool racy = new RacyPool(1);
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(racy, 1, 20, 0);
+
+        loseRaces(a, racy, 1);
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.PESSIMISTIC, "One lost race should switch: " + a);
+
+        Thread.sleep(50);
+        a.release(a.tryAcquire(0)); // rolls the busy window
+        Thread.sleep(50);
+        a.release(a.tryAcquire(0)); // rolls the quiet window
+
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.OPTIMISTIC, "Stuck pessimistic with threshold 1: " + a);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Pessimistic waiter is handed a release      */
+    /* -------------------------------------------------- */
+
+    private static void pessimisticWaiterGetsReleasedSpotTest() throws Exception {
+        System.out.println("\n==== PESSIMISTIC WAITER ====");
+        RacyPool racy = new RacyPool(1);
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(racy, 1, 60_000, 5_000);
+
+        loseRaces(a, racy, 1);
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.PESSIMISTIC, "Expected pessimistic: " + a);
+        ParkingSpot held = a.tryAcquire(0);
+        check(held != null, "Pessimistic acquire on a free lot failed");
+
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        Future<ParkingSpot> waiter = ex.submit(() -> a.tryAcquire(0));
+
+        while (a.getWaitingThreads() == 0) Thread.onSpinWait();
+        a.release(held);
+
+        check(held.equals(waiter.get(5, TimeUnit.SECONDS)), "Waiter did not receive the released spot");
+        ex.shutdownNow();
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Churn across mode switches, no leaks        */
+    /* -------------------------------------------------- */
+
+    private static void noLeakUnderChurnTest() throws Exception {
+        System.out.println("\n==== CHURN ACROSS MODE SWITCHES ====");
+        final int spots = 5;
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(pool(spots), 8, 5, 1);
+
+        ExecutorService ex = Executors.newFixedThreadPool(16);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        Set<ParkingSpot> held = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 16; t++) {
+            futures.add(ex.submit(() -> {
+                while (!stop.get()) {
+                    ParkingSpot s = a.tryAcquire(0);
+                    if (s == null) continue;
+                    if (!held.add(s)) throw new AssertionError("Spot handed out twice: " + s);
+                    held.remove(s);
+                    a.release(s);
+                }
+                return null;
+            }));
+        }
+
+        Thread.sleep(2_000);
+        stop.set(true);
+        for (Future<?> f : futures) f.get();
+        ex.shutdown();
+
+        int available = a.availableSpots().size();
+        check(available == spots, "Spot leak or duplication: available=" + available);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 7: A full lot is not contention                */
+    /* -------------------------------------------------- */
+
+    private static void fullLotIsNotContentionTest() {
+        System.out.println("\n==== FULL LOT IS NOT CONTENTION ====");
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(pool(1), 4, 10_000, 0);
+
+        check(a.tryAcquire(0) != null, "First acquire must succeed");
+        for (int i = 0; i < 100; i++) {
+            check(a.tryAcquire(0) == null, "Lot should be full");
+        }
+
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.OPTIMISTIC, "Empty polls counted as contention: " + a);
+        check(a.getFailedOptimisticAttempts() == 0, "Empty polls counted as failures: " + a);
+        System.out.println(a);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 8: poll never waits, even when pessimistic     */
+    /* -------------------------------------------------- */
+
+    private static void pollNeverWaitsTest() throws Exception {
+        System.out.println("\n==== POLL NEVER WAITS ====");
+        RacyPool racy = new RacyPool(1);
+        AdaptiveSpotAllocator a = new AdaptiveSpotAllocator(racy, 1, 60_000, 10_000);
+
+        loseRaces(a, racy, 1);
+        check(a.getMode() == AdaptiveSpotAllocator.Mode.PESSIMISTIC, "Expected pessimistic: " + a);
+        ParkingSpot held = a.poll(0);
+        check(held != null, "poll on a free lot failed");
+
+        long begin = System.nanoTime();
+        check(a.poll(0) == null, "Lot should be full");
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        check(waitedMillis < 1_000, "poll waited " + waitedMillis + " ms for a release");
+
+        // The service's non-blocking paths poll too: an async start joins the waitlist at once
+        begin = System.nanoTime();
+        ParkingLot lot = new ParkingLot(1, a);
+        ParkingService svc = new ParkingService(lot);
+        User u = new User(UUID.randomUUID(), "waiter", "p");
+        CompletableFuture<UUID> f = svc.startParkingSessionAsync(u, new Vehicle(UUID.randomUUID(),
+                VehicleType.CAR, u.getUserId()));
+        waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        check(!f.isDone() && waitedMillis < 1_000, "Async start on a full lot waited " + waitedMillis + " ms");
+
+        a.release(held);
+        check(a.getPessimisticTimeouts() == 0, "Something waited on the pessimistic path: " + a);
+        System.out.println(a);
+    }
+}
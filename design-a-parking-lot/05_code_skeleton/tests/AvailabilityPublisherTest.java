@@ -0,0 +1,444 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AvailabilityPublisherTest {
+
+    private static final long PERIOD_MILLIS = 20;
+
+    public static void main(String[] args) throws Exception {
+        try {
+            coalescingTest();
+            backpressureTest();
+            slowSubscriberTest();
+            floorTest();
+            manySubscribersTest();
+            closeTest();
+            noSignalDuringOnSubscribeTest();
+            rejectedExecutionTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ AVAILABILITY PUBLISHER FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static ParkingLot lot(int floors, int spotsPerFloor) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        int id = 1;
+        for (int floor = 1; floor <= floors; floor++) {
+            for (int i = 0; i < spotsPerFloor; i++) pool.add(new ParkingSpot(floor, id++));
+        }
+        return new ParkingLot(floors, pool);
+    }
+
+    // Collects updates; asks for more one at a time unless told otherwise
+    private static class Recorder implements Flow.Subscriber<AvailabilityUpdate> {
+        final List<AvailabilityUpdate> updates = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final boolean autoRequest;
+        volatile Flow.Subscription subscription;
+
+        Recorder(boolean autoRequest) {
+            this.autoRequest = autoRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (autoRequest) subscription.request(1);
+        }
+
+        @Override
+        public void onNext(AvailabilityUpdate update) {
+            updates.add(update);
+            if (autoRequest) subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        AvailabilityUpdate last() {
+            return updates.isEmpty() ? null : updates.get(updates.size() - 1);
+        }
+
+        int totalChange() {
+            int change = 0;
+            for (AvailabilityUpdate update : updates) change += update.getChange();
+            return change;
+        }
+    }
+
+    // Waits a few periods until the recorder has seen the lot's current count
+    private static void awaitFree(Recorder recorder, int free) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            AvailabilityUpdate last = recorder.last();
+            if (last != null && last.getFreeCount() == free) return;
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Subscriber never saw free=" + free + ", last=" + recorder.last());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Churn within a period is one update         */
+    /* -------------------------------------------------- */
+
+    private static void coalescingTest() throws Exception {
+        System.out.println("\n==== COALESCING ====");
+        ParkingLot lot = lot(3, 100);
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS)) {
+            Recorder recorder = new Recorder(true);
+            publisher.subscribe(recorder);
+            awaitFree(recorder, 300);
+
+            // 100k gate operations, ending with 120 cars parked
+            Deque<ParkingSpot> parked = new ArrayDeque<>();
+            Random random = new Random(1);
+            for (int i = 0; i < 100_000; i++) {
+                if (parked.size() < 120 && (parked.isEmpty() || random.nextInt(3) > 0)) {
+                    parked.push(lot.tryAcquireSpot());
+                } else {
+                    lot.releaseSpot(parked.pop());
+                }
+            }
+            while (parked.size() < 120) parked.push(lot.tryAcquireSpot());
+            while (parked.size() > 120) lot.releaseSpot(parked.pop());
+
+            awaitFree(recorder, 180);
+            int updates = recorder.updates.size();
+            System.out.println("updates=" + updates + " for 100000 operations");
+            check(updates < 1_000, "Not coalesced: " + updates + " updates");
+            check(recorder.updates.get(0).getChange() == 0, "First update must report no change");
+            check(recorder.totalChange() == 180 - 300, "Changes add up to " + recorder.totalChange());
+
+            AvailabilityUpdate last = recorder.last();
+            for (int floor = 1; floor <= 3; floor++) {
+                check(last.getFreeCount(floor) == lot.getAvailableSpotCount(floor), "Floor " + floor + " count");
+            }
+            long sequence = -1;
+            for (AvailabilityUpdate update : recorder.updates) {
+                check(update.getSequence() > sequence, "Sequence went back");
+                sequence = update.getSequence();
+            }
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: No demand, no signals; then the latest      */
+    /* -------------------------------------------------- */
+
+    private static void backpressureTest() throws Exception {
+        System.out.println("\n==== BACKPRESSURE ====");
+        ParkingLot lot = lot(2, 50);
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS)) {
+            Recorder recorder = new Recorder(false);
+            publisher.subscribe(recorder);
+            recorder.subscription.request(1);
+            awaitFree(recorder, 100);
+
+            // Many changes over many periods, nothing requested
+            List<ParkingSpot> taken = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                taken.add(lot.tryAcquireSpot());
+                Thread.sleep(PERIOD_MILLIS / 4);
+            }
+            Thread.sleep(PERIOD_MILLIS * 3);
+            check(recorder.updates.size() == 1, "Signalled without demand: " + recorder.updates.size());
+
+            // One request, one update, carrying all 30 changes folded together
+            recorder.subscription.request(1);
+            awaitFree(recorder, 70);
+            Thread.sleep(PERIOD_MILLIS * 3);
+            check(recorder.updates.size() == 2, "Expected exactly 2 updates, got " + recorder.updates.size());
+            check(recorder.last().getChange() == -30, "Folded change was " + recorder.last().getChange());
+
+            lot.releaseSpots(taken);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: A stuck subscriber holds up nobody          */
+    /* -------------------------------------------------- */
+
+    private static void slowSubscriberTest() throws Exception {
+        System.out.println("\n==== SLOW SUBSCRIBER ====");
+        ParkingLot lot = lot(2, 200);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger stuckCalls = new AtomicInteger();
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS, executor)) {
+            publisher.subscribe(new Recorder(true) {
+                @Override
+                public void onNext(AvailabilityUpdate update) {
+                    stuckCalls.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    subscription.request(1);
+                }
+            });
+            Recorder fast = new Recorder(true);
+            publisher.subscribe(fast);
+            awaitFree(fast, 400);
+
+            // The gate path runs at full speed while the slow subscriber is stuck
+            long start = System.nanoTime();
+            List<ParkingSpot> taken = new ArrayList<>();
+            for (int round = 0; round < 20; round++) {
+                taken.add(lot.tryAcquireSpot());
+                for (int i = 0; i < 10_000; i++) lot.releaseSpot(lot.tryAcquireSpot());
+                Thread.sleep(PERIOD_MILLIS / 2);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            awaitFree(fast, 380);
+            check(stuckCalls.get() == 1, "Stuck subscriber got " + stuckCalls.get() + " updates");
+            System.out.println("fast updates=" + fast.updates.size() + " elapsed=" + elapsedMillis + "ms");
+            check(fast.updates.size() > 2, "Fast subscriber starved");
+
+            // Once unstuck, it catches up with one update holding everything it missed
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (stuckCalls.get() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+            check(stuckCalls.get() == 2, "Stuck subscriber did not catch up in one update");
+            lot.releaseSpots(taken);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Floor publishers skip other floors          */
+    /* -------------------------------------------------- */
+
+    private static void floorTest() throws Exception {
+        System.out.println("\n==== FLOOR ====");
+        ParkingLot lot = lot(3, 20);
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS)) {
+            Recorder floor2 = new Recorder(true);
+            publisher.forFloor(2).subscribe(floor2);
+            Recorder all = new Recorder(true);
+            publisher.subscribe(all);
+            awaitFree(all, 60);
+            awaitFree(floor2, 60);
+
+            // Fill floor 1 over several periods; floor 2 never changes
+            List<ParkingSpot> floor1 = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ParkingSpot spot = lot.spotAt(i);
+                check(spot.getFloor() == 1 && lot.tryClaimSpot(spot), "Could not claim floor 1 spot");
+                floor1.add(spot);
+                Thread.sleep(PERIOD_MILLIS / 2);
+            }
+            awaitFree(all, 40);
+            check(all.updates.size() > 2, "Lot subscriber missed floor 1 changes");
+            check(floor2.updates.size() == 1, "Floor 2 subscriber got " + floor2.updates.size() + " updates");
+
+            ParkingSpot spot = lot.spotAt(25);
+            check(spot.getFloor() == 2 && lot.tryClaimSpot(spot), "Could not claim floor 2 spot");
+            awaitFree(floor2, 39);
+            check(floor2.last().getChange(2) == -1, "Floor 2 change was " + floor2.last().getChange(2));
+
+            try {
+                publisher.forFloor(9);
+                throw new AssertionError("Unknown floor accepted");
+            } catch (IllegalArgumentException expected) {
+            }
+            lot.releaseSpots(floor1);
+            lot.releaseSpot(spot);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Thousands of subscribers                    */
+    /* -------------------------------------------------- */
+
+    private static void manySubscribersTest() throws Exception {
+        System.out.println("\n==== MANY SUBSCRIBERS ====");
+        ParkingLot lot = lot(4, 250);
+        int subscribers = 5_000;
+        AtomicLong signals = new AtomicLong();
+        int[] lastFree = new int[subscribers];
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS)) {
+            for (int s = 0; s < subscribers; s++) {
+                final int id = s;
+                publisher.subscribe(new Flow.Subscriber<AvailabilityUpdate>() {
+                    Flow.Subscription subscription;
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        this.subscription = subscription;
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(AvailabilityUpdate update) {
+                        signals.incrementAndGet();
+                        lastFree[id] = update.getFreeCount();
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+            }
+            check(publisher.getSubscriberCount() == subscribers, "Subscriber count");
+
+            List<ParkingSpot> taken = new ArrayList<>();
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 50; i++) taken.add(lot.tryAcquireSpot());
+                Thread.sleep(PERIOD_MILLIS);
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            int behind = subscribers;
+            while (behind > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                behind = 0;
+                for (int s = 0; s < subscribers; s++) {
+                    if (lastFree[s] != 500) behind++;
+                }
+            }
+            System.out.println("signals=" + signals.get() + " behind=" + behind);
+            check(behind == 0, behind + " subscribers never saw the final count");
+            lot.releaseSpots(taken);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Close completes every subscriber            */
+    /* -------------------------------------------------- */
+
+    private static void closeTest() throws Exception {
+        System.out.println("\n==== CLOSE ====");
+        ParkingLot lot = lot(1, 10);
+        AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS);
+        Recorder eager = new Recorder(true);
+        Recorder idle = new Recorder(false);
+        publisher.subscribe(eager);
+        publisher.subscribe(idle);
+        awaitFree(eager, 10);
+
+        publisher.close();
+        check(eager.completed.await(5, TimeUnit.SECONDS), "Subscriber with demand not completed");
+        check(idle.completed.await(5, TimeUnit.SECONDS), "Subscriber without demand not completed");
+        check(publisher.getSubscriberCount() == 0, "Completed subscribers still registered");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 7: No signal while onSubscribe is running      */
+    /* -------------------------------------------------- */
+
+    private static void noSignalDuringOnSubscribeTest() throws Exception {
+        System.out.println("\n==== NO SIGNAL DURING ON SUBSCRIBE ====");
+        ParkingLot lot = lot(1, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS, executor)) {
+            for (long n : new long[] {1, 0}) {
+                AtomicInteger inOnSubscribe = new AtomicInteger();
+                AtomicInteger overlapping = new AtomicInteger();
+                CountDownLatch signalled = new CountDownLatch(1);
+                publisher.subscribe(new Flow.Subscriber<AvailabilityUpdate>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        inOnSubscribe.set(1);
+                        subscription.request(n);
+                        try {
+                            Thread.sleep(PERIOD_MILLIS * 5);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        inOnSubscribe.set(0);
+                    }
+
+                    @Override
+                    public void onNext(AvailabilityUpdate update) {
+                        overlapping.addAndGet(inOnSubscribe.get());
+                        signalled.countDown();
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        overlapping.addAndGet(inOnSubscribe.get());
+                        signalled.countDown();
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+                check(signalled.await(5, TimeUnit.SECONDS), "No signal after request(" + n + ")");
+                check(overlapping.get() == 0, "Signalled while onSubscribe was running, request(" + n + ")");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 8: A rejected signal drops only its subscriber */
+    /* -------------------------------------------------- */
+
+    private static void rejectedExecutionTest() throws Exception {
+        System.out.println("\n==== REJECTED EXECUTION ====");
+        ParkingLot lot = lot(1, 10);
+        AtomicInteger rejections = new AtomicInteger();
+        Executor executor = task -> {
+            if (rejections.getAndDecrement() > 0) throw new RejectedExecutionException("saturated");
+            ForkJoinPool.commonPool().execute(task);
+        };
+        try (AvailabilityPublisher publisher = new AvailabilityPublisher(lot, PERIOD_MILLIS, executor)) {
+            CountDownLatch failed = new CountDownLatch(1);
+            Recorder rejected = new Recorder(true) {
+                @Override
+                public void onError(Throwable throwable) {
+                    if (throwable instanceof RejectedExecutionException) failed.countDown();
+                }
+            };
+            publisher.subscribe(rejected);
+            awaitFree(rejected, 10);
+
+            // The next sample is offered on the timer thread, which gets the rejection
+            rejections.set(1);
+            ParkingSpot first = lot.tryAcquireSpot();
+            check(failed.await(5, TimeUnit.SECONDS), "Rejected subscriber not told");
+            check(publisher.getSubscriberCount() == 0, "Rejected subscriber still registered");
+
+            // The timer kept sampling: later changes still reach a new subscriber
+            Recorder healthy = new Recorder(true);
+            publisher.subscribe(healthy);
+            awaitFree(healthy, 9);
+            ParkingSpot second = lot.tryAcquireSpot();
+            awaitFree(healthy, 8);
+            check(rejected.updates.size() == 1, "Rejected subscriber still signalled");
+            lot.releaseSpot(first);
+            lot.releaseSpot(second);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.lang.ref.Reference;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class CompactSessionStoreTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            roundTripTest();
+            probingTest();
+            serviceChurnTest();
+            footprintTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ SESSION STORE FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static ParkingLot lot(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < spots; i++) pool.add(new ParkingSpot(1 + i / 1000, i));
+        return new ParkingLot(1 + (spots - 1) / 1000, pool);
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "555-0100");
+    }
+
+    private static ParkingSession session(User u, ParkingLot lot, int spotIndex) {
+        Vehicle car = new Vehicle(UUID.randomUUID(), spotIndex % 3 == 0 ? VehicleType.BIKE : VehicleType.CAR, u.getUserId());
+        return new ParkingSession(UUID.randomUUID(), Instant.ofEpochMilli(1_700_000_000_000L + spotIndex), u, car,
+                lot.spotAt(spotIndex), spotIndex % 2 == 0);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Every field survives the encoding           */
+    /* -------------------------------------------------- */
+
+    private static void roundTripTest() {
+        System.out.println("\n==== ROUND TRIP ====");
+        ParkingLot lot = lot(10);
+        CompactSessionStore store = new CompactSessionStore(lot);
+        User u = user(1);
+        ParkingSession original = session(u, lot, 6);
+
+        check(store.putIfAbsent(original), "Insert failed");
+        check(!store.putIfAbsent(session(u, lot, 7)), "Second session for the same user");
+        check(store.contains(u.getUserId()) && store.size() == 1, "Not stored");
+
+        ParkingSession copy = store.get(u);
+        check(copy.getParkingSessionId().equals(original.getParkingSessionId()), "Session id");
+        check(copy.getStartTime().equals(original.getStartTime()), "Start time");
+        check(copy.getUser() == u, "Caller's user not reused");
+        check(copy.getVehicle().getVehicleId().equals(original.getVehicle().getVehicleId()), "Vehicle id");
+        check(copy.getVehicle().getVehicleType() == VehicleType.BIKE, "Vehicle type");
+        check(copy.getParkingSpot() == lot.spotAt(6), "Spot");
+        check(copy.isCoveredByPass(), "Pass flag");
+
+        check(store.remove(u, UUID.randomUUID()) == null, "Removed with the wrong session id");
+        check(store.remove(u, original.getParkingSessionId()) != null, "Remove by id failed");
+        check(store.get(u) == null && store.remove(u) == null && store.size() == 0, "Still there after remove");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Probing, growth and deletes stay consistent */
+    /* -------------------------------------------------- */
+
+    private static void probingTest() {
+        System.out.println("\n==== PROBING ====");
+        int n = 200_000;
+        ParkingLot lot = lot(1000);
+        CompactSessionStore store = new CompactSessionStore(lot, 16); // forces many resizes
+
+        // Sequential ids cluster badly without the hash mixer
+        List<User> users = new ArrayList<>(n);
+        Map<User, UUID> sessionIds = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            User u = i % 2 == 0 ? user(i) : new User(new UUID(42, i), "seq-" + i, "p");
+            ParkingSession s = session(u, lot, i % 1000);
+            check(store.putIfAbsent(s), "Insert " + i + " failed");
+            users.add(u);
+            sessionIds.put(u, s.getParkingSessionId());
+        }
+        check(store.size() == n, "Size " + store.size());
+
+        Random random = new Random(3);
+        Set<User> removed = new HashSet<>();
+        for (User u : users) {
+            if (random.nextBoolean()) {
+                check(store.remove(u, sessionIds.get(u)) != null, "Remove failed");
+                removed.add(u);
+            }
+        }
+        for (User u : users) {
+            ParkingSession s = store.get(u);
+            if (removed.contains(u)) {
+                check(s == null, "Removed session still found");
+            } else {
+                check(s != null && s.getParkingSessionId().equals(sessionIds.get(u)), "Session lost after deletes");
+            }
+        }
+        check(store.size() == n - removed.size(), "Size after deletes " + store.size());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: ParkingService over the compact store       */
+    /* -------------------------------------------------- */
+
+    private static void serviceChurnTest() throws Exception {
+        System.out.println("\n==== SERVICE CHURN ====");
+        ParkingLot lot = lot(200);
+        CompactSessionStore store = new CompactSessionStore(lot);
+        ParkingService svc = new ParkingService(lot, null, store);
+        List<ParkingSession> ended = new CopyOnWriteArrayList<>();
+        svc.addSessionListener(new ParkingSessionListener() {
+            @Override
+            public void onSessionStarted(ParkingSession session) {
+            }
+
+            @Override
+            public void onSessionEnded(ParkingSession session) {
+                ended.add(session);
+            }
+        });
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 400; i++) users.add(user(i));
+        ExecutorService ex = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            futures.add(ex.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    User u = users.get(random.nextInt(users.size()));
+                    if (random.nextBoolean()) {
+                        svc.startParkingSession(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+                    } else {
+                        svc.endParkingSession(u);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get(120, TimeUnit.SECONDS);
+        ex.shutdown();
+
+        int occupied = lot.getTotalSpots() - lot.getAvailableSpotCount();
+        check(store.size() == occupied, store.size() + " stored sessions but " + occupied + " occupied spots");
+
+        for (User u : users) svc.endParkingSession(u);
+        check(store.size() == 0 && lot.getAvailableSpotCount() == lot.getTotalSpots(), "Sessions or spots leaked");
+        for (ParkingSession s : ended) {
+            check(s.getEndTime() != null && s.getParkingSpot() == lot.spotAt(lot.indexOf(s.getParkingSpot())),
+                    "Ended session not rebuilt around the lot's spot");
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Heap per session, -Dsessions=... (500k)     */
+    /* -------------------------------------------------- */
+
+    private static void footprintTest() throws Exception {
+        System.out.println("\n==== FOOTPRINT ====");
+        int n = Integer.getInteger("sessions", 500_000);
+        ParkingLot lot = lot(n);
+
+        long before = usedHeap();
+        SessionStore map = new MapSessionStore();
+        for (int i = 0; i < n; i++) map.putIfAbsent(new ParkingSession(user(i),
+                new Vehicle(UUID.randomUUID(), VehicleType.CAR, null), lot.spotAt(i)));
+        long mapBytes = usedHeap() - before;
+        check(map.size() == n, "Map store lost sessions");
+        Reference.reachabilityFence(map);
+        map = null;
+
+        before = usedHeap();
+        CompactSessionStore compact = new CompactSessionStore(lot, n);
+        for (int i = 0; i < n; i++) compact.putIfAbsent(new ParkingSession(user(i),
+                new Vehicle(UUID.randomUUID(), VehicleType.CAR, null), lot.spotAt(i)));
+        long compactBytes = usedHeap() - before;
+        check(compact.size() == n, "Compact store lost sessions");
+        Reference.reachabilityFence(compact);
+
+        double mapPerSession = (double) mapBytes / n;
+        double compactPerSession = (double) compactBytes / n;
+        System.out.printf("%d sessions: map %.0f bytes/session, compact %.0f bytes/session (slab %.0f), %.1fx smaller%n",
+                n, mapPerSession, compactPerSession, (double) compact.getSlabBytes() / n, mapPerSession / compactPerSession);
+        check(compactPerSession * 3 < mapPerSession, "Compact store is not much smaller");
+    }
+}
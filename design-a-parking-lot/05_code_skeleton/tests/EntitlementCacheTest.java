@@ -0,0 +1,355 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EntitlementCacheTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            expiryFollowsPassValidityTest();
+            vehicleBoundPassTest();
+            boundedSizeTest();
+            concurrentMissSingleLoadTest();
+            preloadAndLatencyTest();
+            sessionStartTest();
+            invalidationChurnTest();
+            invalidateDuringLoadTest();
+            noSpotHeldDuringLoadTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ ENTITLEMENT FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    // Counts round trips so tests can tell hits from loads
+    private static final class CountingStore implements PassStore {
+        final Map<UUID, List<Pass>> passes = new ConcurrentHashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        void add(Pass pass) {
+            passes.computeIfAbsent(pass.getUserId(), id -> new CopyOnWriteArrayList<>()).add(pass);
+        }
+
+        @Override
+        public List<Pass> loadPasses(UUID userId) {
+            loads.incrementAndGet();
+            return passes.getOrDefault(userId, List.of());
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Entries expire at pass boundaries           */
+    /* -------------------------------------------------- */
+
+    private static void expiryFollowsPassValidityTest() {
+        System.out.println("\n==== EXPIRY FOLLOWS PASS VALIDITY ====");
+        AtomicLong now = new AtomicLong(1_000 * DAY);
+        CountingStore store = new CountingStore();
+        UUID user = UUID.randomUUID();
+        UUID car = UUID.randomUUID();
+        long start = now.get() + DAY;
+        store.add(new Pass(UUID.randomUUID(), user, null, start, start + 30 * DAY));
+
+        EntitlementCache cache = new EntitlementCache(store, 100, 7 * DAY, now::get);
+
+        check(!cache.isCovered(user, car), "Pass not started yet");
+        check(!cache.isCovered(user, car), "Still before the pass");
+        check(store.loads.get() == 1, "Second check should be a hit");
+
+        now.set(start);                      // pass starts: the cached "no" must not survive
+        check(cache.isCovered(user, car), "Pass started but cache still says no");
+        check(store.loads.get() == 2, "Expected a reload at the pass start");
+
+        now.set(start + 6 * DAY);            // staleness bound forces a refresh within the pass
+        check(cache.isCovered(user, car), "Still inside the pass");
+        check(store.loads.get() == 2, "Entry refreshed too early");
+        now.set(start + 7 * DAY);
+        cache.isCovered(user, car);
+        check(store.loads.get() == 3, "Staleness bound ignored");
+
+        now.set(start + 30 * DAY);           // pass ends
+        check(!cache.isCovered(user, car), "Expired pass still honoured");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: A pass bound to one vehicle                 */
+    /* -------------------------------------------------- */
+
+    private static void vehicleBoundPassTest() {
+        System.out.println("\n==== VEHICLE-BOUND PASS ====");
+        CountingStore store = new CountingStore();
+        UUID user = UUID.randomUUID();
+        UUID car = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        store.add(new Pass(UUID.randomUUID(), user, car, now - DAY, now + DAY));
+
+        EntitlementCache cache = new EntitlementCache(store, 100, DAY);
+        check(cache.isCovered(user, car), "Registered vehicle not covered");
+        check(!cache.isCovered(user, UUID.randomUUID()), "Other vehicle covered");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Size stays bounded, hot users survive       */
+    /* -------------------------------------------------- */
+
+    private static void boundedSizeTest() {
+        System.out.println("\n==== BOUNDED SIZE ====");
+        CountingStore store = new CountingStore();
+        EntitlementCache cache = new EntitlementCache(store, 100, DAY);
+        UUID hot = UUID.randomUUID();
+        UUID car = UUID.randomUUID();
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.isCovered(hot, car);
+            cache.isCovered(UUID.randomUUID(), car);
+        }
+        check(cache.size() <= 100, "Cache grew to " + cache.size());
+        check(cache.getEvictionCount() > 0, "Nothing was evicted");
+
+        int before = store.loads.get();
+        cache.isCovered(hot, car);
+        check(store.loads.get() == before, "Hot user was evicted");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Concurrent misses share one load            */
+    /* -------------------------------------------------- */
+
+    private static void concurrentMissSingleLoadTest() throws Exception {
+        System.out.println("\n==== CONCURRENT MISS ====");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        PassStore slowStore = userId -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        };
+        EntitlementCache cache = new EntitlementCache(slowStore, 100, DAY);
+        UUID user = UUID.randomUUID();
+
+        ExecutorService ex = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) futures.add(ex.submit(() -> cache.isCovered(user, UUID.randomUUID())));
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<Boolean> f : futures) check(!f.get(10, TimeUnit.SECONDS), "No pass expected");
+        ex.shutdown();
+
+        check(loads.get() == 1, "Expected one store load, got " + loads.get());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Preload, then sub-microsecond checks        */
+    /* -------------------------------------------------- */
+
+    private static void preloadAndLatencyTest() {
+        System.out.println("\n==== PRELOAD AND LATENCY ====");
+        int users = 100_000;
+        long now = System.currentTimeMillis();
+        CountingStore store = new CountingStore();
+        List<Pass> export = new ArrayList<>(users / 2);
+        UUID[] ids = new UUID[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = UUID.randomUUID();
+            if (i % 2 == 0) export.add(new Pass(UUID.randomUUID(), ids[i], null, now - DAY, now + 30 * DAY));
+        }
+
+        EntitlementCache cache = new EntitlementCache(store, users, DAY);
+        cache.preload(export);
+        // Users without a pass are only known after their first check
+        for (int i = 1; i < users; i += 2) cache.isCovered(ids[i], ids[i]);
+        int loadsAfterWarmup = store.loads.get();
+
+        UUID car = UUID.randomUUID();
+        int covered = 0;
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            int checks = 5_000_000;
+            for (int i = 0; i < checks; i++) {
+                if (cache.isCovered(ids[(int) ((i * 7919L) % users)], car)) covered++;
+            }
+            double nanosPerCheck = (double) (System.nanoTime() - begin) / checks;
+            System.out.printf("%.1f ns per check%n", nanosPerCheck);
+            if (round == 2) check(nanosPerCheck < 1_000, "Check took " + nanosPerCheck + " ns");
+        }
+        check(store.loads.get() == loadsAfterWarmup, "Preloaded users went to the store");
+        check(store.loads.get() == users / 2, "Only users without a pass should have been loaded");
+        check(covered == 3 * 5_000_000 / 2, "Wrong number of covered checks: " + covered);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Pass holders park for free                  */
+    /* -------------------------------------------------- */
+
+    private static void sessionStartTest() throws Exception {
+        System.out.println("\n==== SESSION START ====");
+        long now = System.currentTimeMillis();
+        CountingStore store = new CountingStore();
+        User holder = new User(UUID.randomUUID(), "holder", "p");
+        User payer = new User(UUID.randomUUID(), "payer", "p");
+        store.add(new Pass(UUID.randomUUID(), holder.getUserId(), null, now - DAY, now + DAY));
+
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= 4; i++) spots.add(new ParkingSpot(1, i));
+        ParkingLot lot = new ParkingLot(1, spots);
+        ParkingService svc = new ParkingService(lot, new EntitlementCache(store, 100, DAY));
+        List<ParkingSession> ended = new CopyOnWriteArrayList<>();
+        svc.addSessionListener(new ParkingSessionListener() {
+            @Override
+            public void onSessionStarted(ParkingSession session) {
+            }
+
+            @Override
+            public void onSessionEnded(ParkingSession session) {
+                ended.add(session);
+            }
+        });
+
+        svc.startParkingSession(holder, new Vehicle(UUID.randomUUID(), VehicleType.CAR, holder.getUserId()));
+        svc.startParkingSession(payer, new Vehicle(UUID.randomUUID(), VehicleType.CAR, payer.getUserId()));
+        Thread.sleep(5); // fees are per started hour, so any non-zero stay costs one hour
+        svc.endParkingSession(holder);
+        svc.endParkingSession(payer);
+
+        FeeCalculator fees = new FeeCalculator(HourlyTiersTariff.flat(300));
+        for (ParkingSession session : ended) {
+            boolean isHolder = session.getUser() == holder;
+            check(session.isCoveredByPass() == isHolder, "Wrong pass flag for " + session.getUser().getName());
+            check(fees.feeCents(session) == (isHolder ? 0 : 300), "Wrong fee for " + session.getUser().getName());
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 7: Invalidations don't grow the CLOCK queue    */
+    /* -------------------------------------------------- */
+
+    private static void invalidationChurnTest() {
+        System.out.println("\n==== INVALIDATION CHURN ====");
+        CountingStore store = new CountingStore();
+        EntitlementCache cache = new EntitlementCache(store, 100, DAY);
+        UUID car = UUID.randomUUID();
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) users.add(UUID.randomUUID());
+
+        // Well under the bound, so no insert ever evicts: renewals over and over
+        for (int round = 0; round < 1_000; round++) {
+            for (UUID user : users) {
+                cache.isCovered(user, car);
+                cache.invalidate(user);
+            }
+        }
+        check(cache.getQueuedKeyCount() <= users.size(), "Queue grew to " + cache.getQueuedKeyCount());
+
+        // Users invalidated once and never seen again are swept out too
+        for (int i = 0; i < 10_000; i++) {
+            UUID once = UUID.randomUUID();
+            cache.isCovered(once, car);
+            cache.invalidate(once);
+        }
+        check(cache.getQueuedKeyCount() <= 2 * 100, "Queue grew to " + cache.getQueuedKeyCount());
+        check(cache.getEvictionCount() == 0, "Evicted while within bounds");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 8: Invalidate fences a load in flight          */
+    /* -------------------------------------------------- */
+
+    private static void invalidateDuringLoadTest() throws Exception {
+        System.out.println("\n==== INVALIDATE DURING LOAD ====");
+        long now = System.currentTimeMillis();
+        UUID user = UUID.randomUUID();
+        UUID car = UUID.randomUUID();
+        List<Pass> passes = new CopyOnWriteArrayList<>();
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        // The first load reads the passes, then stalls before returning them
+        PassStore store = userId -> {
+            List<Pass> snapshot = List.copyOf(passes);
+            if (loads.incrementAndGet() == 1) {
+                read.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return snapshot;
+        };
+        EntitlementCache cache = new EntitlementCache(store, 100, DAY);
+
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        Future<Boolean> before = ex.submit(() -> cache.isCovered(user, car));
+        check(read.await(10, TimeUnit.SECONDS), "Load never started");
+
+        // The pass is bought while the old answer is on its way into the cache
+        passes.add(new Pass(UUID.randomUUID(), user, null, now - DAY, now + DAY));
+        cache.invalidate(user);
+        release.countDown();
+        check(!before.get(10, TimeUnit.SECONDS), "The load started before the purchase");
+        ex.shutdown();
+
+        check(cache.isCovered(user, car), "Stale load was cached over the invalidation");
+        check(loads.get() == 2, "Expected a reload, got " + loads.get() + " loads");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 9: No spot is held while a pass loads          */
+    /* -------------------------------------------------- */
+
+    private static void noSpotHeldDuringLoadTest() throws Exception {
+        System.out.println("\n==== NO SPOT HELD DURING LOAD ====");
+        long now = System.currentTimeMillis();
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= 2; i++) spots.add(new ParkingSpot(1, i));
+        ParkingLot lot = new ParkingLot(1, spots);
+
+        // Records how many spots were free at each load, i.e. not held by the caller
+        List<Integer> freeAtLoad = new CopyOnWriteArrayList<>();
+        PassStore store = userId -> {
+            freeAtLoad.add(lot.getOccupancySnapshot().getFreeCount());
+            return List.of(new Pass(UUID.randomUUID(), userId, null, now - DAY, now + DAY));
+        };
+        ParkingService svc = new ParkingService(lot, new EntitlementCache(store, 100, DAY));
+
+        User first = new User(UUID.randomUUID(), "first", "p");
+        User second = new User(UUID.randomUUID(), "second", "p");
+        User waiting = new User(UUID.randomUUID(), "waiting", "p");
+        check(svc.startParkingSession(first, new Vehicle(UUID.randomUUID(), VehicleType.CAR, first.getUserId()))
+                .isPresent(), "First start failed");
+        check(svc.startParkingSessions(List.of(new ParkingRequest(second,
+                new Vehicle(UUID.randomUUID(), VehicleType.CAR, second.getUserId())))).get(0).isPresent(),
+                "Batch start failed");
+        check(freeAtLoad.equals(List.of(2, 1)), "Spot held during a pass load: " + freeAtLoad);
+
+        // A waiter's pass is resolved when it joins, not when a spot is handed to it
+        CompletableFuture<UUID> f = svc.startParkingSessionAsync(waiting,
+                new Vehicle(UUID.randomUUID(), VehicleType.CAR, waiting.getUserId()));
+        check(!f.isDone(), "Waiter served from a full lot");
+        check(freeAtLoad.size() == 3, "Waiter's pass not loaded at join");
+        svc.endParkingSession(first);
+        check(f.isDone() && svc.findParkingSession(f.get()).orElseThrow().isCoveredByPass(),
+                "Waiter's session lost its pass");
+        check(freeAtLoad.size() == 3, "Pass loaded again during the hand-off");
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FederatedParkingServiceTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            balancedRoutingTest();
+            fillAllLotsTest();
+            oneSessionAcrossLotsTest();
+            concurrentChurnTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ FEDERATION FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static ParkingLot lot(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= spots; i++) pool.add(new ParkingSpot(1 + i % 2, i));
+        return new ParkingLot(2, pool);
+    }
+
+    private static FederatedParkingService federation(int... sizes) {
+        FederatedParkingService federation = new FederatedParkingService();
+        for (int size : sizes) federation.register(lot(size));
+        return federation;
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle car(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static int occupied(FederatedParkingService federation) {
+        int occupied = 0;
+        for (ParkingLot lot : federation.getLots()) occupied += lot.getTotalSpots() - lot.getAvailableSpotCount();
+        return occupied;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Lots of different sizes fill evenly         */
+    /* -------------------------------------------------- */
+
+    private static void balancedRoutingTest() throws Exception {
+        System.out.println("\n==== BALANCED ROUTING ====");
+        FederatedParkingService federation = federation(100, 200, 200, 400, 800, 300);
+        int total = 2000;
+
+        for (int i = 0; i < total / 2; i++) {
+            User u = user(i);
+            check(federation.startParkingSession(u, car(u)).isPresent(), "Start failed with half the spots free");
+        }
+
+        double min = 1, max = 0;
+        for (ParkingLot lot : federation.getLots()) {
+            double load = 1 - (double) lot.getAvailableSpotCount() / lot.getTotalSpots();
+            min = Math.min(min, load);
+            max = Math.max(max, load);
+        }
+        System.out.printf("load spread at 50%%: %.3f .. %.3f%n", min, max);
+        check(max - min < 0.1, "Lots filled unevenly: " + min + " .. " + max);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Every spot in every lot gets used           */
+    /* -------------------------------------------------- */
+
+    private static void fillAllLotsTest() throws Exception {
+        System.out.println("\n==== FILL ALL LOTS ====");
+        FederatedParkingService federation = federation(1, 3, 7, 2);
+        List<User> parked = new ArrayList<>();
+
+        for (int i = 0; i < 13; i++) {
+            User u = user(i);
+            check(federation.startParkingSession(u, car(u)).isPresent(), "Spot left unused after " + i + " starts");
+            parked.add(u);
+        }
+        User late = user(99);
+        check(federation.startParkingSession(late, car(late)).isEmpty(), "Started with every lot full");
+        check(federation.getAvailableSpotCount() == 0, "Free count should be 0");
+
+        ParkingLot lot = federation.getActiveLot(parked.get(0)).orElseThrow();
+        check(federation.endParkingSession(parked.get(0)), "End failed");
+        check(!federation.endParkingSession(parked.get(0)), "Ended twice");
+        check(federation.getActiveLot(parked.get(0)).isEmpty(), "Claim survived the end");
+        check(lot.getAvailableSpotCount() == 1, "Spot not returned to its own lot");
+        check(federation.startParkingSession(late, car(late)).isPresent(), "Freed spot not found");
+        check(federation.getActiveLot(late).orElseThrow() == lot, "Routed to a full lot");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: One session per user, across all lots       */
+    /* -------------------------------------------------- */
+
+    private static void oneSessionAcrossLotsTest() throws Exception {
+        System.out.println("\n==== ONE SESSION ACROSS LOTS ====");
+        FederatedParkingService federation = federation(500, 500, 500, 500);
+        int users = 1_000;
+        List<User> all = new ArrayList<>();
+        for (int i = 0; i < users; i++) all.add(user(i));
+
+        // Every thread tries to park every user, so each user races itself on up to 8 gates
+        ExecutorService ex = Executors.newFixedThreadPool(8);
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(ex.submit(() -> {
+                go.await();
+                for (User u : all) {
+                    if (federation.startParkingSession(u, car(u)).isPresent()) started.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        ex.shutdown();
+
+        check(started.get() == users, "Expected " + users + " sessions, got " + started.get());
+        check(occupied(federation) == users, "Occupied spots " + occupied(federation) + " != users " + users);
+        for (User u : all) check(federation.endParkingSession(u), "End failed for " + u.getName());
+        check(occupied(federation) == 0, "Spots leaked");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Start/end churn leaves nothing behind       */
+    /* -------------------------------------------------- */
+
+    private static void concurrentChurnTest() throws Exception {
+        System.out.println("\n==== CONCURRENT CHURN ====");
+        FederatedParkingService federation = federation(20, 50, 30, 100);
+        List<User> all = new ArrayList<>();
+        for (int i = 0; i < 400; i++) all.add(user(i));
+        int threads = 8;
+        int opsPerThread = 100_000;
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            futures.add(ex.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < opsPerThread; i++) {
+                    User u = all.get(random.nextInt(all.size()));
+                    if (random.nextBoolean()) {
+                        federation.startParkingSession(u, car(u));
+                    } else {
+                        federation.endParkingSession(u);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) f.get(120, TimeUnit.SECONDS);
+        ex.shutdown();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        int active = 0;
+        for (User u : all) if (federation.getActiveLot(u).isPresent()) active++;
+        check(active == occupied(federation), active + " claims but " + occupied(federation) + " occupied spots");
+
+        for (User u : all) federation.endParkingSession(u);
+        check(occupied(federation) == 0, "Spots leaked: " + occupied(federation));
+        for (User u : all) check(federation.getActiveLot(u).isEmpty(), "Stale claim for " + u.getName());
+        System.out.println((threads * opsPerThread) + " ops in " + millis + " ms");
+    }
+}
@@ -0,0 +1,170 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FeeCalculatorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            tariffMathTest();
+            invalidTariffTest();
+            allocationFreeTest();
+            settlementTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ FEE FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long MIDNIGHT = 1_700_000_000_000L / HOUR * HOUR;
+
+    // Cars: 3.00/h for the first 2 hours, then 2.00/h, at most 25.00 a day. Bikes: 1.00/h, at most 8.00 a day.
+    private static Tariff tariff() {
+        Map<VehicleType, Tariff> byType = new EnumMap<>(VehicleType.class);
+        byType.put(VehicleType.CAR, new DailyCapTariff(
+                new HourlyTiersTariff(new int[] {2, 24}, new long[] {300, 200}), 2500));
+        byType.put(VehicleType.BIKE, new DailyCapTariff(HourlyTiersTariff.flat(100), 800));
+        return new VehicleTypeTariff(byType);
+    }
+
+    private static ParkingLot lot() {
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        for (int s = 1; s <= 100; s++) spots.add(new ParkingSpot(1 + s % 4, s));
+        return new ParkingLot(4, spots);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static void checkFee(CompiledTariff t, VehicleType type, long millis, long expected) {
+        long actual = t.feeCents(type, millis);
+        check(actual == expected, type + " for " + millis + " ms: expected " + expected + ", got " + actual);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Tiers, per-type rates and daily caps        */
+    /* -------------------------------------------------- */
+
+    private static void tariffMathTest() {
+        System.out.println("\n==== TARIFF MATH ====");
+        CompiledTariff t = tariff().compile();
+
+        checkFee(t, VehicleType.CAR, 0, 0);
+        checkFee(t, VehicleType.CAR, 1, 300);
+        checkFee(t, VehicleType.CAR, HOUR, 300);
+        checkFee(t, VehicleType.CAR, HOUR + 1, 600);
+        checkFee(t, VehicleType.CAR, 3 * HOUR, 800);
+        checkFee(t, VehicleType.CAR, 12 * HOUR, 2500);       // 2600 capped
+        checkFee(t, VehicleType.CAR, 24 * HOUR, 2500);
+        checkFee(t, VehicleType.CAR, 25 * HOUR, 2800);       // a day plus one hour
+        checkFee(t, VehicleType.BIKE, 90 * MINUTE, 200);
+        checkFee(t, VehicleType.BIKE, 30 * HOUR, 1400);
+        check(t.dailyCents(VehicleType.BIKE) == 800, "Bike daily cap");
+
+        FeeCalculator calculator = new FeeCalculator(tariff());
+        User u = new User(UUID.randomUUID(), "u", "p");
+        ParkingSession session = new ParkingSession(UUID.randomUUID(), java.time.Instant.now().minusMillis(HOUR + MINUTE),
+                u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()), new ParkingSpot(1, 1));
+        session.endSession();
+        check(calculator.feeCents(session) == 600, "Session fee: " + calculator.feeCents(session));
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: A curve that gets cheaper is rejected       */
+    /* -------------------------------------------------- */
+
+    private static void invalidTariffTest() {
+        System.out.println("\n==== INVALID TARIFF ====");
+        Tariff broken = (type, hours) -> hours == 5 ? 0 : hours * 100L;
+        try {
+            broken.compile();
+            throw new AssertionError("Decreasing tariff was accepted");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Pricing does not allocate                   */
+    /* -------------------------------------------------- */
+
+    private static void allocationFreeTest() {
+        System.out.println("\n==== ALLOCATION FREE ====");
+        CompiledTariff t = tariff().compile();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long sink = 0;
+        for (int i = 0; i < 2_000_000; i++) sink += t.feeCents(VehicleType.CAR, i * 997L); // warm up
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000_000; i++) {
+            sink += t.feeCents((i & 1) == 0 ? VehicleType.CAR : VehicleType.BIKE, i * 7919L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        check(allocated < 1024, "1M pricings allocated " + allocated + " bytes");
+        System.out.println("allocated=" + allocated + " bytes for 1M pricings (checksum " + sink + ")");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Parallel settlement, -Dsessions=... (2M)    */
+    /* -------------------------------------------------- */
+
+    private static void settlementTest() {
+        System.out.println("\n==== SETTLEMENT ====");
+        int sessions = Integer.getInteger("sessions", 2_000_000);
+        CompiledTariff t = tariff().compile();
+        SessionArchive archive = new SessionArchive(lot());
+
+        Random random = new Random(7);
+        long expectedCents = 0;
+        long expectedSessions = 0;
+        long windowEnd = MIDNIGHT + 24 * HOUR;
+        for (int i = 0; i < sessions; i++) {
+            long start = MIDNIGHT - 2 * HOUR + (long) (random.nextDouble() * 26 * HOUR);
+            long end = start + MINUTE + (long) (random.nextDouble() * 30 * HOUR);
+            VehicleType type = (i % 5 == 0) ? VehicleType.BIKE : VehicleType.CAR;
+            archive.append(start, end, i % 100, 1, type, 0, i);
+            if (end >= MIDNIGHT && end < windowEnd) {
+                expectedCents += t.feeCents(type, end - start);
+                expectedSessions++;
+            }
+        }
+
+        FeeCalculator calculator = new FeeCalculator(tariff());
+        LongAdder billed = new LongAdder();
+        LongAdder billedCents = new LongAdder();
+
+        for (int round = 0; round < 3; round++) {
+            billed.reset();
+            billedCents.reset();
+            long begin = System.nanoTime();
+            FeeCalculator.Settlement settlement = calculator.settle(archive, MIDNIGHT, windowEnd,
+                    (msb, lsb, endMillis, cents) -> {
+                        billed.increment();
+                        billedCents.add(cents);
+                    });
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            check(settlement.getSessionCount() == expectedSessions,
+                    "Billed " + settlement.getSessionCount() + " sessions, expected " + expectedSessions);
+            check(settlement.getTotalCents() == expectedCents,
+                    "Total " + settlement.getTotalCents() + ", expected " + expectedCents);
+            check(billed.sum() == expectedSessions && billedCents.sum() == expectedCents, "Sink missed sessions");
+            System.out.println("settled " + settlement.getSessionCount() + " of " + sessions + " sessions in "
+                    + millis + " ms: " + settlement);
+        }
+    }
+}
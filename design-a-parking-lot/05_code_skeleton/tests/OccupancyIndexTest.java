@@ -0,0 +1,171 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class OccupancyIndexTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            perFloorCountsTest();
+            doubleAcquireAndReleaseTest();
+            lotKeepsIndexInSyncTest();
+            snapshotIsNeverTornTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ OCCUPANCY INDEX FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static List<ParkingSpot> spots(int floors, int perFloor) {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int id = 1;
+        for (int floor = 1; floor <= floors; floor++) {
+            for (int i = 0; i < perFloor; i++) {
+                spots.add(new ParkingSpot(floor, id++));
+            }
+        }
+        return spots;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Per-floor counts                           */
+    /* -------------------------------------------------- */
+
+    private static void perFloorCountsTest() {
+        System.out.println("\n==== PER-FLOOR COUNTS ====");
+        OccupancyIndex index = new OccupancyIndex(spots(3, 40));
+
+        index.markOccupied(0);
+        index.markOccupied(39);
+        index.markOccupied(40);
+        index.markOccupied(119);
+
+        check(index.getFreeCount() == 116, "total free=" + index.getFreeCount());
+        check(index.getFreeCount(1) == 38, "floor 1 free=" + index.getFreeCount(1));
+        check(index.getFreeCount(2) == 39, "floor 2 free=" + index.getFreeCount(2));
+        check(index.getFreeCount(3) == 39, "floor 3 free=" + index.getFreeCount(3));
+        check(index.getFreeCount(7) == 0, "unknown floor must have no free spots");
+
+        OccupancySnapshot snapshot = index.snapshot();
+        check(snapshot.isConsistent(), "Quiet index must give a consistent snapshot");
+        check(snapshot.getFreeCount() == 116 && snapshot.getFreeCount(1) == 38
+                && snapshot.getFreeCount(2) == 39 && snapshot.getFreeCount(3) == 39,
+                "Snapshot counts disagree with live counters: " + snapshot);
+        check(snapshot.isOccupied(39) && !snapshot.isOccupied(38), "Snapshot bits are wrong");
+        System.out.println(snapshot);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Double acquire / release are rejected       */
+    /* -------------------------------------------------- */
+
+    private static void doubleAcquireAndReleaseTest() {
+        System.out.println("\n==== DOUBLE ACQUIRE / RELEASE ====");
+        OccupancyIndex index = new OccupancyIndex(spots(1, 5));
+
+        check(index.markOccupied(3), "First acquire must succeed");
+        check(!index.markOccupied(3), "Second acquire must fail");
+        check(index.markFree(3), "First release must succeed");
+        check(!index.markFree(3), "Second release must fail");
+        check(index.getFreeCount() == 5, "Counts drifted: " + index.getFreeCount());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: ParkingLot keeps pool and index in sync     */
+    /* -------------------------------------------------- */
+
+    private static void lotKeepsIndexInSyncTest() {
+        System.out.println("\n==== LOT KEEPS INDEX IN SYNC ====");
+        ParkingLot lot = new ParkingLot(2, new StripedSpotAllocator(spots(2, 3)));
+
+        ParkingSpot a = lot.tryAcquireSpot(0);
+        ParkingSpot b = lot.tryAcquireSpot(1);
+        check(lot.getAvailableSpotCount() == 4, "free=" + lot.getAvailableSpotCount());
+
+        lot.releaseSpot(a);
+        lot.releaseSpot(a);
+        check(lot.getAvailableSpotCount() == 5, "free=" + lot.getAvailableSpotCount());
+        check(lot.getAvailableParkingSpots().size() == 5, "Duplicate release reached the pool");
+
+        lot.releaseSpot(b);
+        check(lot.getOccupancySnapshot().getFreeCount() == 6, "Snapshot disagrees after release");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Snapshots never tear                        */
+    /* -------------------------------------------------- */
+
+    /*
+     * Each writer owns two spots in different words and moves a car between
+     * them by acquiring the new spot before releasing the old one, so at
+     * every instant at least one of the pair is occupied. A torn snapshot
+     * could show both free; a consistent one never does.
+     */
+    private static void snapshotIsNeverTornTest() throws Exception {
+        System.out.println("\n==== SNAPSHOTS NEVER TEAR ====");
+        final int writers = 8;
+        final int stride = OccupancyIndex.SPOTS_PER_WORD * 2;
+        OccupancyIndex index = new OccupancyIndex(spots(1, stride * writers));
+
+        ExecutorService ex = Executors.newFixedThreadPool(writers + 1);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            final int x = w;
+            final int y = w + stride * (writers - 1) + 1;
+            index.markOccupied(x);
+            futures.add(ex.submit(() -> {
+                int from = x, to = y;
+                while (!stop.get()) {
+                    index.markOccupied(to);
+                    index.markFree(from);
+                    int t = from; from = to; to = t;
+                }
+                return null;
+            }));
+        }
+
+        AtomicLong consistent = new AtomicLong();
+        futures.add(ex.submit(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                OccupancySnapshot s = index.snapshot();
+                if (!s.isConsistent()) continue;
+                consistent.incrementAndGet();
+                for (int w = 0; w < writers; w++) {
+                    int x = w;
+                    int y = w + stride * (writers - 1) + 1;
+                    if (!s.isOccupied(x) && !s.isOccupied(y)) {
+                        throw new AssertionError("Torn snapshot: both spots of writer " + w + " free");
+                    }
+                }
+            }
+            return null;
+        }));
+
+        try {
+            futures.get(futures.size() - 1).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AssertionError) throw (AssertionError) e.getCause();
+            throw e;
+        } finally {
+            stop.set(true);
+            ex.shutdown();
+            ex.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        check(consistent.get() > 0, "No consistent snapshot was ever taken");
+        System.out.println("consistent snapshots=" + consistent.get());
+    }
+}
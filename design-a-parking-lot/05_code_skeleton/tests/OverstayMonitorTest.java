@@ -0,0 +1,263 @@
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OverstayMonitorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            deadlineTest();
+            cancelTest();
+            wheelLevelsTest();
+            serviceTest();
+            hotPathTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ OVERSTAY MONITOR FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final ParkingSpot SPOT = new ParkingSpot(1, 1);
+
+    private static ParkingSession session(long startMillis) {
+        User u = new User(UUID.randomUUID(), "u", "p");
+        Vehicle car = new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+        return new ParkingSession(UUID.randomUUID(), Instant.ofEpochMilli(startMillis), u, car, SPOT);
+    }
+
+    private static ParkingService service(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= spots; i++) pool.add(new ParkingSpot(1, i));
+        return new ParkingService(new ParkingLot(1, pool));
+    }
+
+    // Records batches with the (manual) clock reading when they fired
+    private static class Recorder implements OverstayListener {
+        final AtomicLong clock;
+        final Map<UUID, Long> firedAt = new ConcurrentHashMap<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        Recorder(AtomicLong clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void onOverstay(List<ParkingSession> sessions) {
+            batchSizes.add(sessions.size());
+            for (ParkingSession s : sessions) {
+                check(firedAt.put(s.getParkingSessionId(), clock.get()) == null, "Fired twice: " + s);
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Fires at the deadline, not before, once     */
+    /* -------------------------------------------------- */
+
+    private static void deadlineTest() {
+        System.out.println("\n==== DEADLINE ====");
+        AtomicLong clock = new AtomicLong(1_000_000);
+        Recorder recorder = new Recorder(clock);
+        OverstayMonitor monitor = new OverstayMonitor(1_000, s -> 3_600_000, recorder, clock::get, false);
+
+        // Ten sessions started in the same second: one batch
+        List<ParkingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ParkingSession s = session(clock.get() + 200);
+            sessions.add(s);
+            monitor.onSessionStarted(s);
+        }
+        ParkingSession unlimited = session(clock.get());
+        OverstayMonitor unlimitedMonitor =
+                new OverstayMonitor(1_000, s -> OverstayMonitor.UNLIMITED, recorder, clock::get, false);
+        unlimitedMonitor.onSessionStarted(unlimited);
+        check(unlimitedMonitor.getWatchedCount() == 0, "Unlimited session watched");
+
+        clock.set(1_000_000 + 3_600_000);
+        check(monitor.tick() == 0, "Fired before the deadline");
+        clock.set(1_000_000 + 3_600_200);
+        check(monitor.tick() == 0, "Fired inside the deadline tick");
+        clock.set(1_000_000 + 3_601_000);
+        check(monitor.tick() == 10, "Did not fire at the deadline");
+        check(recorder.batchSizes.equals(List.of(10)), "Batches " + recorder.batchSizes);
+
+        clock.addAndGet(3_600_000);
+        check(monitor.tick() == 0, "Fired again");
+        check(monitor.getWatchedCount() == 0 && monitor.getPendingCount() == 0, "Fired timeouts left behind");
+
+        // Started long ago: flagged on the next tick
+        monitor.watch(session(clock.get() - 7_200_000));
+        check(monitor.tick() == 1, "Already overdue session not flagged");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Ended sessions are cancelled                */
+    /* -------------------------------------------------- */
+
+    private static void cancelTest() {
+        System.out.println("\n==== CANCEL ====");
+        AtomicLong clock = new AtomicLong(0);
+        Recorder recorder = new Recorder(clock);
+        OverstayMonitor monitor = new OverstayMonitor(1_000, s -> 600_000, recorder, clock::get, false);
+
+        List<ParkingSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ParkingSession s = session(i * 10L);
+            sessions.add(s);
+            monitor.onSessionStarted(s);
+        }
+        // Half end before the wheel has even seen them, half after they were linked
+        for (int i = 0; i < 2_500; i++) monitor.onSessionEnded(sessions.get(2 * i));
+        monitor.tick();
+        check(monitor.getPendingCount() == 7_500, "Linked " + monitor.getPendingCount());
+        for (int i = 2_500; i < 5_000; i++) monitor.onSessionEnded(sessions.get(2 * i));
+        monitor.tick();
+        check(monitor.getPendingCount() == 5_000, "Cancelled timeouts still linked: " + monitor.getPendingCount());
+
+        clock.set(800_000);
+        monitor.tick();
+        check(recorder.firedAt.size() == 5_000, "Fired " + recorder.firedAt.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            boolean fired = recorder.firedAt.containsKey(sessions.get(i).getParkingSessionId());
+            check(fired == (i % 2 == 1), "Session " + i + " fired=" + fired);
+        }
+        check(monitor.getPendingCount() == 0 && monitor.getWatchedCount() == 0, "Leftovers");
+
+        // Ending after the flag is harmless
+        monitor.onSessionEnded(sessions.get(1));
+        check(monitor.tick() == 0, "Ended flagged session fired again");
+
+        // An end whose listener ran before the start's is still a cancel
+        ParkingSession overtaken = session(clock.get());
+        monitor.onSessionEnded(overtaken);
+        monitor.tick();
+        monitor.onSessionStarted(overtaken);
+        clock.addAndGet(1_200_000);
+        check(monitor.tick() == 0, "Session whose end overtook its start was flagged");
+        check(monitor.getWatchedCount() == 0, "Overtaken session still watched");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Every level, to the exact tick              */
+    /* -------------------------------------------------- */
+
+    private static void wheelLevelsTest() {
+        System.out.println("\n==== WHEEL LEVELS ====");
+        AtomicLong clock = new AtomicLong(0);
+        Recorder recorder = new Recorder(clock);
+        Map<UUID, Long> allowed = new HashMap<>();
+        OverstayMonitor monitor = new OverstayMonitor(1, s -> allowed.get(s.getParkingSessionId()), recorder,
+                clock::get, false);
+
+        // Deadlines on every level, on level boundaries, and past the top level (64^4 ticks)
+        Random random = new Random(7);
+        List<Long> deadlines = new ArrayList<>(List.of(1L, 63L, 64L, 65L, 4_095L, 4_096L, 4_097L, 262_144L,
+                16_777_215L, 16_777_216L, 16_777_217L, 40_000_000L));
+        for (int i = 0; i < 2_000; i++) deadlines.add(1 + (long) (Math.pow(random.nextDouble(), 4) * 50_000_000L));
+
+        List<ParkingSession> sessions = new ArrayList<>();
+        for (long deadline : deadlines) {
+            ParkingSession s = session(0);
+            allowed.put(s.getParkingSessionId(), deadline);
+            sessions.add(s);
+            monitor.watch(s);
+        }
+
+        // One tick at a time, so each firing is seen at its exact tick
+        long last = deadlines.stream().mapToLong(Long::longValue).max().orElseThrow();
+        for (long t = 1; t <= last; t++) {
+            clock.set(t);
+            monitor.tick();
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            Long firedAt = recorder.firedAt.get(sessions.get(i).getParkingSessionId());
+            check(deadlines.get(i).equals(firedAt),
+                    "Deadline " + deadlines.get(i) + " fired at " + firedAt);
+        }
+        check(monitor.getPendingCount() == 0, "Timeouts left in the wheel");
+        System.out.println("timeouts=" + sessions.size() + " ticks=" + last);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Wired into ParkingService, real clock       */
+    /* -------------------------------------------------- */
+
+    private static void serviceTest() throws Exception {
+        System.out.println("\n==== SERVICE ====");
+        ParkingService svc = service(200);
+        Set<UUID> flagged = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(100);
+        try (OverstayMonitor monitor = new OverstayMonitor(5, s -> 50, sessions -> {
+            for (ParkingSession s : sessions) {
+                flagged.add(s.getParkingSessionId());
+                done.countDown();
+            }
+        })) {
+            svc.addSessionListener(monitor);
+            List<User> users = new ArrayList<>();
+            Map<User, UUID> ids = new HashMap<>();
+            for (int i = 0; i < 200; i++) {
+                User u = new User(UUID.randomUUID(), "u" + i, "p");
+                users.add(u);
+                ids.put(u, svc.startParkingSession(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()))
+                        .orElseThrow());
+            }
+            // Half leave in time
+            for (int i = 0; i < 100; i++) svc.endParkingSession(users.get(i));
+
+            check(done.await(5, TimeUnit.SECONDS), "Overstays not flagged, got " + flagged.size());
+            Thread.sleep(100);
+            check(flagged.size() == 100, "Flagged " + flagged.size());
+            for (int i = 0; i < 200; i++) {
+                check(flagged.contains(ids.get(users.get(i))) == (i >= 100), "User " + i);
+            }
+            svc.removeSessionListener(monitor);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Cost on the gate path                       */
+    /* -------------------------------------------------- */
+
+    private static void hotPathTest() throws Exception {
+        System.out.println("\n==== HOT PATH ====");
+        int rounds = 200_000;
+        double[] nanos = new double[2];
+        for (int pass = 0; pass < 3; pass++) {
+            for (int watched = 0; watched < 2; watched++) {
+                ParkingService svc = service(64);
+                OverstayMonitor monitor = new OverstayMonitor(1_000, s -> 3_600_000, s -> { });
+                if (watched == 1) svc.addSessionListener(monitor);
+                List<User> users = new ArrayList<>();
+                List<Vehicle> cars = new ArrayList<>();
+                for (int i = 0; i < 64; i++) {
+                    User u = new User(UUID.randomUUID(), "u" + i, "p");
+                    users.add(u);
+                    cars.add(new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+                }
+                long begin = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    int k = r & 63;
+                    svc.startParkingSession(users.get(k), cars.get(k));
+                    svc.endParkingSession(users.get((r + 32) & 63));
+                }
+                nanos[watched] = (System.nanoTime() - begin) / (double) rounds;
+                check(monitor.getWatchedCount() <= 64, "Watched " + monitor.getWatchedCount());
+                monitor.close();
+            }
+        }
+        System.out.printf("start+end: %.0f ns plain, %.0f ns watched%n", nanos[0], nanos[1]);
+    }
+}
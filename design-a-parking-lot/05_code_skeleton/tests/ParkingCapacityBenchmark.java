@@ -0,0 +1,345 @@
+/*
+ * Capacity-planning benchmark for sustained park/unpark throughput.
+ *
+ * Unlike ParkingServiceThroughputBenchmark, workers keep the lot between
+ * empty and full: each worker owns at most lotSize / threads cars, so the
+ * numbers measure real parking work instead of the rejection path.
+ *
+ * Methodology follows JMH: every parameter combination runs in fresh
+ * forked JVMs, with warmup iterations that are thrown away and
+ * measurement iterations that are reported as mean +- standard deviation.
+ * Allocation per operation comes from the per-thread allocation counters
+ * of com.sun.management.ThreadMXBean. (JMH itself can't be used here:
+ * it rejects benchmark classes in the default package, and the skeleton
+ * classes live there.)
+ *
+ * Benchmarks:
+ * - lot:     ParkingLot.tryAcquireSpot / releaseSpot
+ * - service: ParkingService.startParkingSession / endParkingSession
+ * - session: ParkingSession construction alone
+ *
+ * Parameters (system properties, comma-separated lists):
+ *   -Dbench=lot,service,session -DlotSize=64,4096 -Dthreads=1,8,32
+ *   -DparkPercent=50,80 -Dforks=2 -DwarmupIterations=3 -Diterations=5
+ *   -DiterationMillis=1000 -Dmetrics=true
+ *
+ * -Dmetrics=false builds the lots with ParkingMetrics.disabled(), to see what
+ * the instrumentation costs.
+ *
+ * parkPercent is the share of operations that try to park while a worker
+ * still has room; the rest unpark one of its cars.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ParkingCapacityBenchmark {
+
+    static final List<String> BENCHMARKS = strings("bench", "lot,service,session");
+    static final List<Integer> LOT_SIZES = ints("lotSize", "64,4096");
+    static final List<Integer> THREAD_COUNTS = ints("threads", "1,8,32");
+    static final List<Integer> PARK_PERCENTS = ints("parkPercent", "50,80");
+    static final int FORKS = Integer.getInteger("forks", 2);
+    static final int WARMUP_ITERATIONS = Integer.getInteger("warmupIterations", 3);
+    static final int MEASUREMENT_ITERATIONS = Integer.getInteger("iterations", 5);
+    static final long ITERATION_MILLIS = Long.getLong("iterationMillis", 1000);
+    static final boolean METRICS = Boolean.parseBoolean(System.getProperty("metrics", "true"));
+
+    static final int SPOTS_PER_FLOOR = 256;
+    static final int PAD = 16; // longs between per-worker counters, keeps them on separate cache lines
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--fork")) {
+            runFork(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            return;
+        }
+
+        System.out.printf("forks=%d, warmup=%d x %d ms, measurement=%d x %d ms, metrics=%s%n%n",
+                FORKS, WARMUP_ITERATIONS, ITERATION_MILLIS, MEASUREMENT_ITERATIONS, ITERATION_MILLIS, METRICS);
+        System.out.printf("%-8s %8s %8s %6s %26s %12s%n", "bench", "lotSize", "threads", "park%", "ops/s", "B/op");
+
+        for (String bench : BENCHMARKS) {
+            // Session construction doesn't touch the lot, so only threads matter
+            List<Integer> lotSizes = bench.equals("session") ? List.of(0) : LOT_SIZES;
+            List<Integer> parkPercents = bench.equals("session") ? List.of(0) : PARK_PERCENTS;
+
+            for (int lotSize : lotSizes) {
+                for (int threads : THREAD_COUNTS) {
+                    for (int parkPercent : parkPercents) {
+                        List<double[]> samples = new ArrayList<>();
+                        for (int fork = 0; fork < FORKS; fork++) {
+                            samples.addAll(fork(bench, lotSize, threads, parkPercent));
+                        }
+                        report(bench, lotSize, threads, parkPercent, samples);
+                    }
+                }
+            }
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* Parent: forking and reporting                       */
+    /* -------------------------------------------------- */
+
+    static List<double[]> fork(String bench, int lotSize, int threads, int parkPercent) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-DwarmupIterations=" + WARMUP_ITERATIONS);
+        command.add("-Diterations=" + MEASUREMENT_ITERATIONS);
+        command.add("-DiterationMillis=" + ITERATION_MILLIS);
+        command.add("-Dmetrics=" + METRICS);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ParkingCapacityBenchmark.class.getName());
+        command.add("--fork");
+        command.add(bench);
+        command.add(String.valueOf(lotSize));
+        command.add(String.valueOf(threads));
+        command.add(String.valueOf(parkPercent));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<double[]> samples = new ArrayList<>();
+
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length == 3 && parts[0].equals("MEASURE")) {
+                    samples.add(new double[] {Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+                } else if (!(parts.length == 3 && parts[0].equals("WARMUP"))) {
+                    System.out.println("  [fork] " + line);
+                }
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Fork failed for " + bench + " lotSize=" + lotSize + " threads=" + threads);
+        }
+        return samples;
+    }
+
+    static void report(String bench, int lotSize, int threads, int parkPercent, List<double[]> samples) {
+        double mean = 0, bytes = 0;
+        for (double[] s : samples) {
+            mean += s[0];
+            bytes += s[1];
+        }
+        mean /= samples.size();
+        bytes /= samples.size();
+
+        double variance = 0;
+        for (double[] s : samples) {
+            variance += (s[0] - mean) * (s[0] - mean);
+        }
+        double stddev = samples.size() > 1 ? Math.sqrt(variance / (samples.size() - 1)) : 0;
+
+        System.out.printf("%-8s %8s %8d %6s %,16.0f +- %,7.0f %12.1f%n",
+                bench,
+                lotSize == 0 ? "-" : String.valueOf(lotSize),
+                threads,
+                bench.equals("session") ? "-" : String.valueOf(parkPercent),
+                mean, stddev, bytes);
+    }
+
+    /* -------------------------------------------------- */
+    /* Child: one parameter combination in a fresh JVM     */
+    /* -------------------------------------------------- */
+
+    static void runFork(String bench, int lotSize, int threads, int parkPercent) throws Exception {
+        Workload workload = workload(bench, lotSize, threads, parkPercent);
+
+        AtomicLongArray ops = new AtomicLongArray(threads * PAD);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        long[] threadIds = new long[threads];
+        CountDownLatch started = new CountDownLatch(threads);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers[t] = new Thread(() -> {
+                threadIds[worker] = Thread.currentThread().threadId();
+                WorkerState state = workload.newWorker(worker);
+                started.countDown();
+                long local = 0;
+                try {
+                    while (!stop.get()) {
+                        workload.operation(state);
+                        ops.lazySet(worker * PAD, ++local);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                workload.sink(state);
+            });
+            workers[t].start();
+        }
+        started.await();
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS; i++) {
+            long opsBefore = sum(ops, threads);
+            long bytesBefore = sum(mx.getThreadAllocatedBytes(threadIds));
+            long begin = System.nanoTime();
+
+            Thread.sleep(ITERATION_MILLIS);
+
+            long elapsed = System.nanoTime() - begin;
+            long opsDone = sum(ops, threads) - opsBefore;
+            long bytes = sum(mx.getThreadAllocatedBytes(threadIds)) - bytesBefore;
+
+            double opsPerSec = opsDone * 1e9 / elapsed;
+            double bytesPerOp = opsDone == 0 ? 0 : (double) bytes / opsDone;
+            System.out.println((i < WARMUP_ITERATIONS ? "WARMUP " : "MEASURE ") + opsPerSec + " " + bytesPerOp);
+        }
+
+        stop.set(true);
+        for (Thread w : workers) w.join();
+    }
+
+    static long sum(AtomicLongArray ops, int threads) {
+        long total = 0;
+        for (int t = 0; t < threads; t++) total += ops.get(t * PAD);
+        return total;
+    }
+
+    static long sum(long[] values) {
+        long total = 0;
+        for (long v : values) total += v;
+        return total;
+    }
+
+    /* -------------------------------------------------- */
+    /* Workloads                                           */
+    /* -------------------------------------------------- */
+
+    static class WorkerState {
+        final int gate;
+        final SplittableRandom random;
+        final int capacity;
+        final ArrayDeque<ParkingSpot> heldSpots = new ArrayDeque<>();
+        final ArrayDeque<Integer> parkedUsers = new ArrayDeque<>();
+        final ArrayDeque<Integer> idleUsers = new ArrayDeque<>();
+        final List<User> users = new ArrayList<>();
+        final List<Vehicle> vehicles = new ArrayList<>();
+        long sink;
+
+        WorkerState(int gate, int capacity) {
+            this.gate = gate;
+            this.random = new SplittableRandom(gate);
+            this.capacity = Math.max(1, capacity);
+            for (int i = 0; i < this.capacity; i++) {
+                User u = new User(UUID.randomUUID(), "u" + i, "p");
+                users.add(u);
+                vehicles.add(new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+                idleUsers.add(i);
+            }
+        }
+
+        boolean shouldPark(int parkPercent, int held) {
+            if (held == 0) return true;
+            if (held >= capacity) return false;
+            return random.nextInt(100) < parkPercent;
+        }
+    }
+
+    interface Workload {
+        WorkerState newWorker(int worker);
+
+        void operation(WorkerState state) throws Exception;
+
+        // Keeps results observable so the JIT can't drop the work
+        default void sink(WorkerState state) {
+            if (state.sink == 42) System.out.println("sink");
+        }
+    }
+
+    static Workload workload(String bench, int lotSize, int threads, int parkPercent) {
+        switch (bench) {
+            case "lot": {
+                ParkingLot lot = lot(lotSize);
+                return new Workload() {
+                    public WorkerState newWorker(int worker) {
+                        return new WorkerState(worker, lotSize / threads);
+                    }
+
+                    public void operation(WorkerState s) {
+                        if (s.shouldPark(parkPercent, s.heldSpots.size())) {
+                            ParkingSpot spot = lot.tryAcquireSpot(s.gate);
+                            if (spot != null) s.heldSpots.add(spot);
+                        } else {
+                            lot.releaseSpot(s.heldSpots.poll());
+                        }
+                    }
+                };
+            }
+            case "service": {
+                ParkingService svc = new ParkingService(lot(lotSize));
+                return new Workload() {
+                    public WorkerState newWorker(int worker) {
+                        return new WorkerState(worker, lotSize / threads);
+                    }
+
+                    public void operation(WorkerState s) throws Exception {
+                        if (s.shouldPark(parkPercent, s.parkedUsers.size())) {
+                            int u = s.idleUsers.poll();
+                            if (svc.startParkingSession(s.users.get(u), s.vehicles.get(u), s.gate).isPresent()) {
+                                s.parkedUsers.add(u);
+                            } else {
+                                s.idleUsers.add(u);
+                            }
+                        } else {
+                            int u = s.parkedUsers.poll();
+                            svc.endParkingSession(s.users.get(u));
+                            s.idleUsers.add(u);
+                        }
+                    }
+                };
+            }
+            case "session": {
+                ParkingSpot spot = new ParkingSpot(1, 1);
+                return new Workload() {
+                    public WorkerState newWorker(int worker) {
+                        return new WorkerState(worker, 1);
+                    }
+
+                    public void operation(WorkerState s) {
+                        ParkingSession session = new ParkingSession(s.users.get(0), s.vehicles.get(0), spot);
+                        s.sink += session.getParkingSessionId().getLeastSignificantBits();
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + bench);
+        }
+    }
+
+    static ParkingLot lot(int lotSize) {
+        List<ParkingSpot> spots = new ArrayList<>(lotSize);
+        for (int i = 0; i < lotSize; i++) {
+            spots.add(new ParkingSpot(1 + i / SPOTS_PER_FLOOR, i + 1));
+        }
+        int floors = (lotSize + SPOTS_PER_FLOOR - 1) / SPOTS_PER_FLOOR;
+        ParkingMetrics metrics = METRICS ? new ParkingMetrics() : ParkingMetrics.disabled();
+        return new ParkingLot(floors, new StripedSpotAllocator(spots), metrics);
+    }
+
+    /* -------------------------------------------------- */
+    /* Parameters                                          */
+    /* -------------------------------------------------- */
+
+    static List<String> strings(String property, String defaults) {
+        return Arrays.asList(System.getProperty(property, defaults).split(","));
+    }
+
+    static List<Integer> ints(String property, String defaults) {
+        List<Integer> values = new ArrayList<>();
+        for (String s : strings(property, defaults)) values.add(Integer.parseInt(s.trim()));
+        return values;
+    }
+}
@@ -0,0 +1,142 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+public class ParkingMetricsTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            histogramBucketsTest();
+            serviceCountersTest();
+            disabledMetricsTest();
+            jmxTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ METRICS FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle vehicle(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Histogram bucket bounds                     */
+    /* -------------------------------------------------- */
+
+    private static void histogramBucketsTest() {
+        System.out.println("\n==== HISTOGRAM BUCKETS ====");
+        SplittableRandom r = new SplittableRandom(7);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            long v = r.nextLong(1L << r.nextInt(1, 62));
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(v));
+            check(upper >= v, "Upper bound " + upper + " below value " + v);
+            check(upper - v <= Math.max(1, v / 4), "Bucket too wide for " + v + ": " + upper);
+        }
+        check(LatencyHistogram.bucketOf(Long.MAX_VALUE) == LatencyHistogram.BUCKET_COUNT - 1, "Last bucket mismatch");
+
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) h.record(i * 1000L);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        check(s.getCount() == 1000, "count=" + s.getCount());
+        check(s.getMaxNanos() == 1_000_000, "max=" + s.getMaxNanos());
+        long p50 = s.percentileNanos(50);
+        check(p50 >= 500_000 && p50 <= 625_000, "p50 out of range: " + p50);
+        System.out.println(s);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Service counters                            */
+    /* -------------------------------------------------- */
+
+    private static void serviceCountersTest() throws Exception {
+        System.out.println("\n==== SERVICE COUNTERS ====");
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= 5; i++) spots.add(new ParkingSpot(1, i));
+        ParkingService svc = new ParkingService(new ParkingLot(1, new QueueSpotAllocator(spots), new ParkingMetrics(1)));
+
+        List<User> parked = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            User u = user(i);
+            if (svc.startParkingSession(u, vehicle(u)).isPresent()) parked.add(u);
+        }
+
+        svc.endParkingSession(parked.get(0));
+        svc.startParkingSession(parked.get(1), vehicle(parked.get(1))); // already parked: spot acquired, then rolled back
+        svc.endParkingSession(user(99));
+
+        ParkingMetrics.Snapshot m = svc.getMetrics().snapshot();
+        System.out.println(m);
+
+        check(m.get(ParkingMetrics.Counter.SESSIONS_STARTED) == 5, "started");
+        check(m.get(ParkingMetrics.Counter.LOT_FULL_REJECTIONS) == 2, "lot full");
+        check(m.get(ParkingMetrics.Counter.RACE_ROLLBACKS) == 1, "race rollbacks");
+        check(m.get(ParkingMetrics.Counter.SESSIONS_ENDED) == 1, "ended");
+        check(m.get(ParkingMetrics.Counter.END_WITHOUT_SESSION) == 1, "end without session");
+        check(m.latency(ParkingMetrics.Operation.START).getCount() == 8, "start latencies");
+        check(m.latency(ParkingMetrics.Operation.END).getCount() == 2, "end latencies");
+        check(m.latency(ParkingMetrics.Operation.ACQUIRE).getCount() == 8, "acquire latencies");
+        check(m.latency(ParkingMetrics.Operation.RELEASE).getCount() == 2, "release latencies");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Disabled metrics record nothing             */
+    /* -------------------------------------------------- */
+
+    private static void disabledMetricsTest() throws Exception {
+        System.out.println("\n==== DISABLED METRICS ====");
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>(List.of(new ParkingSpot(1, 1)));
+        ParkingService svc = new ParkingService(
+                new ParkingLot(1, new QueueSpotAllocator(spots), ParkingMetrics.disabled()));
+
+        User u = user(1);
+        svc.startParkingSession(u, vehicle(u));
+        svc.endParkingSession(u);
+
+        ParkingMetrics.Snapshot m = svc.getMetrics().snapshot();
+        check(m.get(ParkingMetrics.Counter.SESSIONS_STARTED) == 0, "Disabled metrics counted a start");
+        check(m.latency(ParkingMetrics.Operation.START).getCount() == 0, "Disabled metrics timed a start");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: JMX                                         */
+    /* -------------------------------------------------- */
+
+    private static void jmxTest() throws Exception {
+        System.out.println("\n==== JMX ====");
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>(List.of(new ParkingSpot(1, 1)));
+        ParkingService svc = new ParkingService(new ParkingLot(1, new QueueSpotAllocator(spots), new ParkingMetrics(1)));
+        ObjectName name = svc.getMetrics().registerMBean("metrics-test");
+
+        User u = user(1);
+        svc.startParkingSession(u, vehicle(u));
+
+        ParkingMetricsMXBean proxy = JMX.newMXBeanProxy(
+                ManagementFactory.getPlatformMBeanServer(), name, ParkingMetricsMXBean.class);
+
+        check(proxy.getCounters().get("sessions_started") == 1, "JMX counters: " + proxy.getCounters());
+        check(proxy.getLatencyNanos().get("start.count") == 1, "JMX latencies: " + proxy.getLatencyNanos());
+
+        proxy.reset();
+        check(svc.getMetrics().get(ParkingMetrics.Counter.SESSIONS_STARTED) == 0, "Reset via JMX had no effect");
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+}
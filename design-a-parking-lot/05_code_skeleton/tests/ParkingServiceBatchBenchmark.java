@@ -0,0 +1,96 @@
+/*
+ * Per-operation cost of the batch session API versus single calls.
+ *
+ * Each worker repeatedly parks BATCH users and then lets them leave,
+ * either one startParkingSession/endParkingSession call per user or one
+ * startParkingSessions/endParkingSessions call per burst. The lot is big
+ * enough for every worker's burst, so nothing hits the rejection path.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ParkingServiceBatchBenchmark {
+
+    static final int FLOORS = 8;
+    static final int SPOTS_PER_FLOOR = 512;
+    static final int BATCH = 32;
+    static final int ROUNDS = 2_000;
+    static final int[] THREAD_COUNTS = {1, 8, 32};
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Warmup...");
+        for (int i = 0; i < 3; i++) {
+            run(false, 8);
+            run(true, 8);
+        }
+
+        System.out.println("\n=== BENCHMARK (batch size " + BATCH + ") ===");
+        System.out.printf("%-8s %8s %14s%n", "mode", "threads", "ns/op");
+
+        for (int threads : THREAD_COUNTS) {
+            System.out.printf("%-8s %8d %14.1f%n", "single", threads, run(false, threads));
+            System.out.printf("%-8s %8d %14.1f%n", "batch", threads, run(true, threads));
+        }
+    }
+
+    static ParkingService service() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int id = 1;
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int i = 0; i < SPOTS_PER_FLOOR; i++) {
+                spots.add(new ParkingSpot(floor, id++));
+            }
+        }
+        return new ParkingService(new ParkingLot(FLOORS, new StripedSpotAllocator(spots)));
+    }
+
+    // Returns wall-clock nanoseconds per start+end pair, across all threads
+    static double run(boolean batched, int threads) throws Exception {
+        ParkingService svc = service();
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int gate = t;
+            futures.add(ex.submit(() -> {
+                List<User> users = new ArrayList<>();
+                List<ParkingRequest> requests = new ArrayList<>();
+                for (int i = 0; i < BATCH; i++) {
+                    User u = new User(UUID.randomUUID(), "u" + i, "p");
+                    users.add(u);
+                    requests.add(new ParkingRequest(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId())));
+                }
+
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    if (batched) {
+                        svc.startParkingSessions(requests, gate);
+                        svc.endParkingSessions(users);
+                    } else {
+                        for (ParkingRequest r : requests) {
+                            svc.startParkingSession(r.getUser(), r.getVehicle(), gate);
+                        }
+                        for (User u : users) {
+                            svc.endParkingSession(u);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        long elapsed = System.nanoTime() - begin;
+        ex.shutdown();
+
+        return (double) elapsed / ((long) threads * ROUNDS * BATCH);
+    }
+}
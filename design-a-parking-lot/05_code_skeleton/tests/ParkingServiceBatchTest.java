@@ -0,0 +1,121 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ParkingServiceBatchTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            partialBatchTest();
+            duplicateAndParkedUsersTest();
+            batchEndHandsOffToWaitersTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ BATCH FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final int TOTAL_SPOTS = 5;
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static ParkingRequest request(User u) {
+        return new ParkingRequest(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: More requests than spots                    */
+    /* -------------------------------------------------- */
+
+    private static void partialBatchTest() {
+        System.out.println("\n==== PARTIAL BATCH ====");
+        ParkingService svc = new ParkingService();
+
+        List<User> users = new ArrayList<>();
+        List<ParkingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < TOTAL_SPOTS + 3; i++) {
+            User u = user(i);
+            users.add(u);
+            requests.add(request(u));
+        }
+
+        List<Optional<UUID>> started = svc.startParkingSessions(requests);
+        check(started.size() == requests.size(), "One result per request expected");
+        check(started.stream().filter(Optional::isPresent).count() == TOTAL_SPOTS, "Expected the lot to fill exactly");
+        for (int i = 0; i < TOTAL_SPOTS; i++) {
+            check(started.get(i).isPresent(), "Spots must be assigned in request order, missing " + i);
+        }
+        check(svc.getOccupancySnapshot().getFreeCount() == 0, "Lot should be full");
+
+        List<Boolean> ended = svc.endParkingSessions(users);
+        for (int i = 0; i < users.size(); i++) {
+            check(ended.get(i) == started.get(i).isPresent(), "End result mismatch at " + i);
+        }
+        check(svc.getOccupancySnapshot().getFreeCount() == TOTAL_SPOTS, "Spots not returned: "
+                + svc.getOccupancySnapshot());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Duplicates and already parked users         */
+    /* -------------------------------------------------- */
+
+    private static void duplicateAndParkedUsersTest() throws Exception {
+        System.out.println("\n==== DUPLICATES AND PARKED USERS ====");
+        ParkingService svc = new ParkingService();
+
+        User parked = user(1);
+        svc.startParkingSession(parked, request(parked).getVehicle());
+
+        User twice = user(2);
+        List<Optional<UUID>> started = svc.startParkingSessions(
+                List.of(request(parked), request(twice), request(twice)));
+
+        check(started.get(0).isEmpty(), "Already parked user must be rejected");
+        check(started.get(1).isPresent(), "First request of a user must succeed");
+        check(started.get(2).isEmpty(), "Second request of the same user must be rejected");
+        check(svc.getOccupancySnapshot().getFreeCount() == TOTAL_SPOTS - 2, "Rejected requests must not hold spots");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Batch end feeds the waitlist                */
+    /* -------------------------------------------------- */
+
+    private static void batchEndHandsOffToWaitersTest() throws Exception {
+        System.out.println("\n==== BATCH END HANDS OFF TO WAITERS ====");
+        ParkingService svc = new ParkingService();
+
+        List<User> parked = new ArrayList<>();
+        List<ParkingRequest> requests = new ArrayList<>();
+        for (int i = 0; i < TOTAL_SPOTS; i++) {
+            User u = user(i);
+            parked.add(u);
+            requests.add(request(u));
+        }
+        svc.startParkingSessions(requests);
+
+        List<CompletableFuture<UUID>> waiters = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ParkingRequest r = request(user(100 + i));
+            waiters.add(svc.startParkingSessionAsync(r.getUser(), r.getVehicle()));
+        }
+
+        svc.endParkingSessions(parked.subList(0, 3));
+
+        for (CompletableFuture<UUID> w : waiters) {
+            check(w.isDone() && !w.isCompletedExceptionally(), "Waiter not served by batch end");
+        }
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Exactly one spot should be left over");
+    }
+}
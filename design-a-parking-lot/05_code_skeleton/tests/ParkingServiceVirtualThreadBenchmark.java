@@ -0,0 +1,114 @@
+/*
+ * Variant of ParkingServiceThroughputBenchmark for blocking clients.
+ *
+ * CLIENTS clients arrive at once. Each one waits (blocking) for a spot
+ * through BlockingParkingService, stays parked for HOLD_MILLIS and leaves.
+ * Unlike the original benchmark, no request takes the rejection path:
+ * everybody parks eventually, so this measures sustained parking
+ * throughput with many concurrent waiters.
+ *
+ * Compared executors:
+ * - Executors.newFixedThreadPool(32): at most 32 clients are in flight,
+ *   everyone else sits in the executor queue.
+ * - Executors.newVirtualThreadPerTaskExecutor(): every client gets its own
+ *   virtual thread and waits on the parking waitlist.
+ *
+ * Requires JDK 21+.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Supplier;
+
+public class ParkingServiceVirtualThreadBenchmark {
+
+    static final int CLIENTS = 100_000;
+    static final int FLOORS = 4;
+    static final int SPOTS_PER_FLOOR = 250;
+    static final long HOLD_MILLIS = 1;
+    static final Duration MAX_WAIT = Duration.ofSeconds(60);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Supplier<ExecutorService>> executors = new LinkedHashMap<>();
+        executors.put("fixed-32", () -> Executors.newFixedThreadPool(32));
+        executors.put("virtual", Executors::newVirtualThreadPerTaskExecutor);
+
+        System.out.println("Warmup...");
+        for (int i = 0; i < 2; i++) {
+            for (Supplier<ExecutorService> executor : executors.values()) {
+                run(executor.get(), CLIENTS);
+            }
+        }
+
+        System.out.println("\n=== BENCHMARK (" + CLIENTS + " clients, "
+                + FLOORS * SPOTS_PER_FLOOR + " spots, hold " + HOLD_MILLIS + " ms) ===");
+        for (Map.Entry<String, Supplier<ExecutorService>> e : executors.entrySet()) {
+            Result r = run(e.getValue().get(), CLIENTS);
+            System.out.printf("%-9s took %,6d ms  (%,d parks/s, parked=%d, gave up=%d)%n",
+                    e.getKey(), r.millis, r.parked * 1000L / Math.max(1, r.millis), r.parked, r.gaveUp);
+        }
+    }
+
+    static final class Result {
+        long millis;
+        long parked;
+        long gaveUp;
+    }
+
+    static ParkingService service() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int id = 1;
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int i = 0; i < SPOTS_PER_FLOOR; i++) {
+                spots.add(new ParkingSpot(floor, id++));
+            }
+        }
+        return new ParkingService(new ParkingLot(FLOORS, new StripedSpotAllocator(spots)));
+    }
+
+    static Result run(ExecutorService ex, int clients) throws Exception {
+        BlockingParkingService svc = new BlockingParkingService(service());
+
+        List<User> users = new ArrayList<>(clients);
+        List<Vehicle> vehicles = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            User u = new User(UUID.randomUUID(), "u" + i, "p");
+            users.add(u);
+            vehicles.add(new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder parked = new LongAdder();
+        LongAdder gaveUp = new LongAdder();
+
+        for (int i = 0; i < clients; i++) {
+            final int idx = i;
+            ex.submit(() -> {
+                start.await();
+                if (svc.park(users.get(idx), vehicles.get(idx), MAX_WAIT).isPresent()) {
+                    parked.increment();
+                    Thread.sleep(HOLD_MILLIS);
+                    svc.leave(users.get(idx));
+                } else {
+                    gaveUp.increment();
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        ex.shutdown();
+        ex.awaitTermination(10, TimeUnit.MINUTES);
+
+        Result r = new Result();
+        r.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        r.parked = parked.sum();
+        r.gaveUp = gaveUp.sum();
+        return r;
+    }
+}
@@ -0,0 +1,292 @@
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ParkingWaitlistTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            immediateSpotTest();
+            fifoHandOffTest();
+            timeoutTest();
+            cancellationTest();
+            alreadyParkedTest();
+            concurrentChurnTest();
+            blockingNoWaitTest();
+            endDuringHandOffTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ WAITLIST FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final int TOTAL_SPOTS = 5;
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle vehicle(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static List<User> fillLot(ParkingService svc) throws Exception {
+        List<User> parked = new ArrayList<>();
+        for (int i = 0; i < TOTAL_SPOTS; i++) {
+            User u = user(i);
+            if (svc.startParkingSession(u, vehicle(u)).isEmpty()) {
+                throw new AssertionError("Could not fill the lot");
+            }
+            parked.add(u);
+        }
+        return parked;
+    }
+
+    private static int activeSessions(ParkingService svc) {
+        try {
+            var f = ParkingService.class.getDeclaredField("currentParkingSessionsByUserId");
+            f.setAccessible(true);
+            return ((Map<?, ?>) f.get(svc)).size();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Free spot completes immediately             */
+    /* -------------------------------------------------- */
+
+    private static void immediateSpotTest() throws Exception {
+        System.out.println("\n==== IMMEDIATE SPOT ====");
+        ParkingService svc = new ParkingService();
+        User u = user(1);
+
+        CompletableFuture<UUID> f = svc.startParkingSessionAsync(u, vehicle(u));
+        check(f.isDone() && f.get() != null, "Expected an immediate session on an empty lot");
+        check(svc.getWaitlistSize() == 0, "Nobody should be waiting");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Released spots go to waiters in FIFO order  */
+    /* -------------------------------------------------- */
+
+    private static void fifoHandOffTest() throws Exception {
+        System.out.println("\n==== FIFO HAND-OFF ====");
+        ParkingService svc = new ParkingService();
+        List<User> parked = fillLot(svc);
+
+        List<CompletableFuture<UUID>> waiters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User u = user(100 + i);
+            waiters.add(svc.startParkingSessionAsync(u, vehicle(u)));
+        }
+        check(waiters.stream().noneMatch(CompletableFuture::isDone), "Full lot must not complete waiters");
+        check(svc.getWaitlistSize() == 3, "Expected 3 waiters, got " + svc.getWaitlistSize());
+
+        for (int i = 0; i < 3; i++) {
+            svc.endParkingSession(parked.get(i));
+            check(waiters.get(i).isDone(), "Waiter " + i + " not served after release " + i);
+            for (int j = i + 1; j < 3; j++) {
+                check(!waiters.get(j).isDone(), "Waiter " + j + " jumped the queue");
+            }
+            check(svc.getOccupancySnapshot().getFreeCount() == 0, "Handed-off spot went through the pool");
+        }
+        check(activeSessions(svc) == TOTAL_SPOTS, "Expected a full lot after hand-offs");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Timeout                                     */
+    /* -------------------------------------------------- */
+
+    private static void timeoutTest() throws Exception {
+        System.out.println("\n==== TIMEOUT ====");
+        ParkingService svc = new ParkingService();
+        List<User> parked = fillLot(svc);
+
+        User u = user(200);
+        CompletableFuture<UUID> f = svc.startParkingSessionAsync(u, vehicle(u), 50, TimeUnit.MILLISECONDS);
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            throw new AssertionError("Expected a timeout");
+        } catch (ExecutionException e) {
+            check(e.getCause() instanceof TimeoutException, "Unexpected failure: " + e.getCause());
+        }
+        // The waiter leaves the queue in a callback on the timer thread, which
+        // may still be running when get() returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (svc.getWaitlistSize() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        check(svc.getWaitlistSize() == 0, "Timed-out waiter still queued");
+
+        svc.endParkingSession(parked.get(0));
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Released spot should return to the pool");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Cancellation                                */
+    /* -------------------------------------------------- */
+
+    private static void cancellationTest() throws Exception {
+        System.out.println("\n==== CANCELLATION ====");
+        ParkingService svc = new ParkingService();
+        List<User> parked = fillLot(svc);
+
+        User first = user(300);
+        User second = user(301);
+        CompletableFuture<UUID> cancelled = svc.startParkingSessionAsync(first, vehicle(first));
+        CompletableFuture<UUID> next = svc.startParkingSessionAsync(second, vehicle(second));
+
+        cancelled.cancel(false);
+        svc.endParkingSession(parked.get(0));
+
+        check(next.isDone() && !next.isCompletedExceptionally(), "Next waiter should get the spot");
+        check(!svc.endParkingSession(first), "Cancelled waiter must not hold a session");
+        check(svc.getWaitlistSize() == 0, "Waitlist should be empty");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: User already parked                         */
+    /* -------------------------------------------------- */
+
+    private static void alreadyParkedTest() throws Exception {
+        System.out.println("\n==== ALREADY PARKED ====");
+        ParkingService svc = new ParkingService();
+        User u = user(400);
+        svc.startParkingSession(u, vehicle(u));
+
+        CompletableFuture<UUID> f = svc.startParkingSessionAsync(u, vehicle(u));
+        check(f.isCompletedExceptionally(), "Second session for the same user must fail");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Concurrent churn, nobody stranded           */
+    /* -------------------------------------------------- */
+
+    private static void concurrentChurnTest() throws Exception {
+        System.out.println("\n==== CONCURRENT CHURN ====");
+        ParkingService svc = new ParkingService();
+
+        ExecutorService ex = Executors.newFixedThreadPool(16);
+        AtomicInteger served = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 16; t++) {
+            final int id = t;
+            futures.add(ex.submit(() -> {
+                User u = user(500 + id);
+                Vehicle v = vehicle(u);
+                for (int i = 0; i < 500; i++) {
+                    svc.startParkingSessionAsync(u, v).get(10, TimeUnit.SECONDS);
+                    served.incrementAndGet();
+                    svc.endParkingSession(u);
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        ex.shutdown();
+
+        check(served.get() == 16 * 500, "Some requests were never served: " + served.get());
+        check(activeSessions(svc) == 0, "Sessions left behind");
+        check(svc.getOccupancySnapshot().getFreeCount() == TOTAL_SPOTS, "Spot leak after churn");
+        check(svc.getWaitlistSize() == 0, "Waiters left behind");
+        System.out.println("served=" + served.get());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 7: Blocking park with no or a tiny wait        */
+    /* -------------------------------------------------- */
+
+    private static void blockingNoWaitTest() throws Exception {
+        System.out.println("\n==== BLOCKING NO WAIT ====");
+        ParkingService svc = new ParkingService();
+        BlockingParkingService blocking = new BlockingParkingService(svc);
+        List<User> parked = fillLot(svc);
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        try {
+            // Each of these must fail fast on a full lot, not wait forever
+            for (Duration wait : List.of(Duration.ZERO, Duration.ofMillis(-5),
+                    Duration.ofNanos(500_000))) {
+                User u = user(600);
+                Future<Optional<UUID>> f = ex.submit(() -> blocking.park(u, vehicle(u), wait));
+                try {
+                    check(f.get(5, TimeUnit.SECONDS).isEmpty(), "Full lot gave a spot for a wait of " + wait);
+                } catch (TimeoutException e) {
+                    throw new AssertionError("park blocked on a full lot with a wait of " + wait);
+                }
+                check(svc.getWaitlistSize() == 0, "No-wait park left a waiter behind");
+            }
+
+            svc.endParkingSession(parked.get(0));
+            User u = user(601);
+            check(blocking.park(u, vehicle(u), Duration.ZERO).isPresent(), "Free spot not taken at once");
+            try {
+                blocking.park(u, vehicle(u), Duration.ZERO);
+                throw new AssertionError("Second session for the same user accepted");
+            } catch (IllegalStateException expected) {
+            }
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 8: Session ended while its waiter gives up     */
+    /* -------------------------------------------------- */
+
+    private static void endDuringHandOffTest() throws Exception {
+        System.out.println("\n==== END DURING HAND-OFF ====");
+        ParkingService svc = new ParkingService();
+        List<User> parked = fillLot(svc);
+
+        User first = user(10);
+        User second = user(11);
+        CompletableFuture<UUID> firstFuture = svc.startParkingSessionAsync(first, vehicle(first));
+        CompletableFuture<UUID> secondFuture = svc.startParkingSessionAsync(second, vehicle(second));
+
+        // Stages the race on one thread: while the first waiter's session is
+        // being installed, the waiter gives up and the user ends the session
+        AtomicBoolean staged = new AtomicBoolean();
+        svc.addSessionListener(new ParkingSessionListener() {
+            @Override
+            public void onSessionStarted(ParkingSession session) {
+                if (session.getUser() == first && staged.compareAndSet(false, true)) {
+                    firstFuture.cancel(false);
+                    svc.endParkingSession(first);
+                }
+            }
+
+            @Override
+            public void onSessionEnded(ParkingSession session) {
+            }
+        });
+
+        check(svc.endParkingSession(parked.get(0)), "Could not end a parked session");
+        check(staged.get(), "Race was not staged");
+        check(secondFuture.isDone() && !secondFuture.isCompletedExceptionally(),
+                "Second waiter not served by the ended session's hand-off");
+        check(svc.getCurrentParkingSession(first).isEmpty(), "Ended session still active");
+        check(activeSessions(svc) == TOTAL_SPOTS, "Expected a full lot, got " + activeSessions(svc));
+        check(svc.getOccupancySnapshot().getFreeCount() == 0, "Spot handed off twice: it is also in the pool");
+
+        User late = user(12);
+        check(svc.startParkingSession(late, vehicle(late)).isEmpty(), "Spot given to two owners");
+        check(svc.getMetrics().get(ParkingMetrics.Counter.SESSIONS_STARTED)
+                - svc.getMetrics().get(ParkingMetrics.Counter.SESSIONS_ENDED) == TOTAL_SPOTS,
+                "Started and ended counts out of step");
+    }
+}
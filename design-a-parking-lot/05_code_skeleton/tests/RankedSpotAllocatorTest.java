@@ -0,0 +1,212 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class RankedSpotAllocatorTest {
+
+    static final int FLOORS = 3;
+    static final int SPOTS_PER_FLOOR = 100;
+
+    public static void main(String[] args) throws Exception {
+        try {
+            nearestFirstTest();
+            entrancesTest();
+            serviceTest();
+            concurrentTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ RANKED ALLOCATOR FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static List<ParkingSpot> spots() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int i = 0; i < SPOTS_PER_FLOOR; i++) {
+                spots.add(new ParkingSpot(floor, floor * 1_000 + i));
+            }
+        }
+        Collections.shuffle(spots, new Random(3));
+        return spots;
+    }
+
+    /*
+     * Entrance 0 is on floor 1 next to spot 0 of each floor; entrance 1 is
+     * on floor 3 next to spot 99. A ramp costs as much as walking 50 spots.
+     */
+    private static int distance(int entrance, ParkingSpot spot) {
+        int position = spot.getSpotId() % 1_000;
+        return entrance == 0
+                ? (spot.getFloor() - 1) * 50 + position
+                : (FLOORS - spot.getFloor()) * 50 + (SPOTS_PER_FLOOR - 1 - position);
+    }
+
+    private static RankedSpotAllocator allocator() {
+        return new RankedSpotAllocator(spots(), 2, RankedSpotAllocatorTest::distance);
+    }
+
+    // Lowest distance among the free spots, as a brute-force reference
+    private static int bestFreeDistance(RankedSpotAllocator allocator, int entrance) {
+        int best = Integer.MAX_VALUE;
+        for (ParkingSpot spot : allocator.availableSpots()) best = Math.min(best, distance(entrance, spot));
+        return best;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Best free spot first                        */
+    /* -------------------------------------------------- */
+
+    private static void nearestFirstTest() {
+        System.out.println("\n==== NEAREST FIRST ====");
+        RankedSpotAllocator allocator = allocator();
+        int total = FLOORS * SPOTS_PER_FLOOR;
+
+        List<ParkingSpot> taken = new ArrayList<>();
+        int lastDistance = -1;
+        for (int i = 0; i < total; i++) {
+            int best = bestFreeDistance(allocator, 0);
+            ParkingSpot spot = allocator.tryAcquire(0);
+            check(spot != null, "Ran out after " + i);
+            check(distance(0, spot) == best, "Got distance " + distance(0, spot) + ", best was " + best);
+            check(distance(0, spot) >= lastDistance, "Went backwards");
+            lastDistance = distance(0, spot);
+            taken.add(spot);
+        }
+        check(allocator.tryAcquire(0) == null, "Full lot handed out a spot");
+        check(new HashSet<>(taken).size() == total, "Spot handed out twice");
+
+        // A freed spot near the entrance is the next one handed out
+        ParkingSpot near = taken.get(7);
+        ParkingSpot far = taken.get(250);
+        allocator.release(far);
+        allocator.release(near);
+        check(allocator.tryAcquire(0).equals(near), "Nearest freed spot not picked");
+        check(allocator.tryAcquire(0).equals(far), "Remaining spot not picked");
+
+        // remove and claimAll take specific spots
+        allocator.releaseAll(taken.subList(0, 10));
+        check(allocator.remove(taken.get(0)), "Free spot not removed");
+        check(!allocator.remove(taken.get(0)), "Spot removed twice");
+        allocator.claimAll(taken.subList(1, 5));
+        check(allocator.availableSpots().size() == 5, "Free after claims: " + allocator.availableSpots().size());
+        check(allocator.tryAcquire(0).equals(taken.get(5)), "Claimed spot handed out");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Each entrance has its own order             */
+    /* -------------------------------------------------- */
+
+    private static void entrancesTest() {
+        System.out.println("\n==== ENTRANCES ====");
+        RankedSpotAllocator allocator = allocator();
+        check(allocator.getEntranceCount() == 2, "Entrances");
+
+        ParkingSpot first0 = allocator.tryAcquire(0);
+        ParkingSpot first1 = allocator.tryAcquire(1);
+        check(first0.equals(new ParkingSpot(1, 1_000)), "Entrance 0 got " + first0);
+        check(first1.equals(new ParkingSpot(3, 3_099)), "Entrance 1 got " + first1);
+        check(allocator.rankOf(0, first0) == 0 && allocator.rankOf(1, first1) == 0, "Ranks");
+
+        // Gates map onto entrances; the same spot is never given to both sides
+        Set<ParkingSpot> seen = new HashSet<>(List.of(first0, first1));
+        for (int gate = 2; gate < 2 + FLOORS * SPOTS_PER_FLOOR - 2; gate++) {
+            ParkingSpot spot = allocator.tryAcquire(gate);
+            check(spot != null && seen.add(spot), "Duplicate or missing spot at gate " + gate);
+        }
+        check(allocator.tryAcquire(0) == null && allocator.tryAcquire(1) == null, "Lot should be full");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Through ParkingService                      */
+    /* -------------------------------------------------- */
+
+    private static void serviceTest() throws Exception {
+        System.out.println("\n==== SERVICE ====");
+        ParkingService svc = new ParkingService(new ParkingLot(FLOORS, allocator()));
+        int lastDistance = -1;
+        for (int i = 0; i < 120; i++) {
+            User u = new User(UUID.randomUUID(), "u" + i, "p");
+            svc.startParkingSession(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()), 0)
+                    .orElseThrow();
+            int d = distance(0, svc.getCurrentParkingSession(u).orElseThrow().getParkingSpot());
+            check(d >= lastDistance, "Session parked further back than the one before");
+            lastDistance = d;
+        }
+        // Distances 0..49 are one spot each (floor 1), from 50 on two (floor 1 and floor 2): 50 + 2 * 35
+        check(lastDistance == 84, "Last distance " + lastDistance);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Churn from both entrances                   */
+    /* -------------------------------------------------- */
+
+    private static void concurrentTest() throws Exception {
+        System.out.println("\n==== CONCURRENT ====");
+        RankedSpotAllocator allocator = allocator();
+        List<ParkingSpot> all = new ArrayList<>(allocator.availableSpots());
+        Map<ParkingSpot, Integer> ids = new HashMap<>();
+        for (int i = 0; i < all.size(); i++) ids.put(all.get(i), i);
+        AtomicIntegerArray holders = new AtomicIntegerArray(all.size());
+
+        int threads = 8;
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int gate = t;
+                futures.add(ex.submit(() -> {
+                    Random random = new Random(gate);
+                    Deque<ParkingSpot> mine = new ArrayDeque<>();
+                    for (int i = 0; i < 200_000; i++) {
+                        if (mine.size() < 40 && random.nextInt(3) > 0) {
+                            ParkingSpot spot = allocator.tryAcquire(gate);
+                            if (spot == null) continue;
+                            check(holders.getAndIncrement(ids.get(spot)) == 0, "Spot held twice: " + spot);
+                            mine.push(spot);
+                        } else if (!mine.isEmpty()) {
+                            ParkingSpot spot = random.nextBoolean() ? mine.pop() : mine.pollLast();
+                            holders.decrementAndGet(ids.get(spot));
+                            allocator.release(spot);
+                        }
+                    }
+                    while (!mine.isEmpty()) {
+                        ParkingSpot spot = mine.pop();
+                        holders.decrementAndGet(ids.get(spot));
+                        allocator.release(spot);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get(120, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AssertionError) throw (AssertionError) e.getCause();
+            throw e;
+        } finally {
+            ex.shutdownNow();
+        }
+
+        // Quiescent: everything is free again and both entrances still see the best spots
+        check(allocator.availableSpots().size() == all.size(), "Free " + allocator.availableSpots().size());
+        for (int entrance = 0; entrance < 2; entrance++) {
+            List<ParkingSpot> taken = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int best = bestFreeDistance(allocator, entrance);
+                ParkingSpot spot = allocator.tryAcquire(entrance);
+                check(distance(entrance, spot) == best, "Entrance " + entrance + " skipped a nearer spot");
+                taken.add(spot);
+            }
+            allocator.releaseAll(taken);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReservationBookTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            intervalIndexTest();
+            walkInSkipTest();
+            reservedArrivalTest();
+            concurrentBookingTest();
+            walkInVersusBookingRaceTest();
+            freeWindowIndexTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ RESERVATION FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static ParkingLot lot(int cars, int bikes) {
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= cars; i++) spots.add(new ParkingSpot(1, i, VehicleType.CAR));
+        for (int i = 1; i <= bikes; i++) spots.add(new ParkingSpot(2, i, VehicleType.BIKE));
+        return new ParkingLot(2, spots);
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle car(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Interval index per spot                     */
+    /* -------------------------------------------------- */
+
+    private static void intervalIndexTest() {
+        System.out.println("\n==== INTERVAL INDEX ====");
+        ParkingLot lot = lot(2, 1);
+        ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+        long t = System.currentTimeMillis() + 24 * HOUR;
+
+        Reservation a = book.reserve(VehicleType.CAR, t, t + 2 * HOUR).orElseThrow();
+        Reservation b = book.reserve(VehicleType.CAR, t + HOUR, t + 3 * HOUR).orElseThrow();
+        check(!a.getParkingSpot().equals(b.getParkingSpot()), "Overlapping windows share a spot");
+        check(book.reserve(VehicleType.CAR, t + 90 * MINUTE, t + 100 * MINUTE).isEmpty(), "Third overlap booked");
+
+        // Back-to-back windows fit on the same spot
+        check(book.reserve(VehicleType.CAR, t + 3 * HOUR, t + 4 * HOUR).isPresent(), "Adjacent window rejected");
+
+        Reservation bike = book.reserve(VehicleType.BIKE, t, t + HOUR).orElseThrow();
+        check(bike.getParkingSpot().getSpotType() == VehicleType.BIKE, "Bike got a car spot");
+        check(book.reserve(VehicleType.BIKE, t, t + HOUR).isEmpty(), "Only one bike spot exists");
+
+        check(book.cancel(a), "Cancel failed");
+        check(!book.isBooked(a), "Cancelled reservation still booked");
+        check(book.isFree(a.getParkingSpot(), t, t + HOUR), "Cancelled window still taken");
+        check(book.reserve(VehicleType.CAR, t + 90 * MINUTE, t + 100 * MINUTE).isPresent(), "Freed window not bookable");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Walk-ins skip spots reserved soon           */
+    /* -------------------------------------------------- */
+
+    private static void walkInSkipTest() throws Exception {
+        System.out.println("\n==== WALK-IN SKIP ====");
+        ParkingLot lot = lot(3, 0);
+        ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+        ParkingService svc = new ParkingService(lot);
+        long now = System.currentTimeMillis();
+
+        Reservation soon = book.reserve(VehicleType.CAR, now + 10 * MINUTE, now + HOUR).orElseThrow();
+        book.reserve(VehicleType.CAR, now + 5 * HOUR, now + 6 * HOUR).orElseThrow(); // far off, must not matter
+
+        int parked = 0;
+        for (int i = 0; i < 3; i++) {
+            User u = user(i);
+            if (svc.startParkingSession(u, car(u)).isPresent()) parked++;
+        }
+        check(parked == 2, "Expected 2 walk-ins, got " + parked);
+        check(!lot.isOccupied(lot.indexOf(soon.getParkingSpot())), "Walk-in took the reserved spot");
+        check(svc.getMetrics().get(ParkingMetrics.Counter.RESERVATION_SKIPS) > 0, "Skip not counted");
+        check(lot.getAvailableParkingSpots().contains(soon.getParkingSpot()), "Skipped spot not back in the pool");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Holder parks on the reserved spot           */
+    /* -------------------------------------------------- */
+
+    private static void reservedArrivalTest() throws Exception {
+        System.out.println("\n==== RESERVED ARRIVAL ====");
+        ParkingLot lot = lot(2, 0);
+        ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+        ParkingService svc = new ParkingService(lot);
+        long now = System.currentTimeMillis();
+
+        Reservation r = book.reserve(VehicleType.CAR, now + 5 * MINUTE, now + HOUR).orElseThrow();
+        User walkIn = user(1);
+        check(svc.startParkingSession(walkIn, car(walkIn)).isPresent(), "Walk-in should get the other spot");
+
+        User holder = user(2);
+        check(svc.startReservedSession(r, holder, car(holder)).isPresent(), "Holder could not park");
+        check(!book.isBooked(r), "Reservation not used up");
+        check(svc.startReservedSession(r, user(3), car(holder)).isEmpty(), "Reservation used twice");
+
+        // Once the holder leaves, the spot is an ordinary spot again
+        svc.endParkingSession(holder);
+        User late = user(4);
+        check(svc.startParkingSession(late, car(late)).isPresent(), "Freed reserved spot not available to walk-ins");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Concurrent bookings never overlap           */
+    /* -------------------------------------------------- */
+
+    private static void concurrentBookingTest() throws Exception {
+        System.out.println("\n==== CONCURRENT BOOKING ====");
+        ParkingLot lot = lot(20, 0);
+        ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+        long base = System.currentTimeMillis() + 24 * HOUR;
+
+        ExecutorService ex = Executors.newFixedThreadPool(8);
+        ConcurrentLinkedQueue<Reservation> booked = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            futures.add(ex.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5_000; i++) {
+                    long from = base + random.nextInt(48) * 15 * MINUTE;
+                    long to = from + (1 + random.nextInt(8)) * 15 * MINUTE;
+                    book.reserve(VehicleType.CAR, from, to).ifPresent(booked::add);
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        ex.shutdown();
+
+        Map<ParkingSpot, List<Reservation>> bySpot = new HashMap<>();
+        for (Reservation r : booked) bySpot.computeIfAbsent(r.getParkingSpot(), s -> new ArrayList<>()).add(r);
+        for (List<Reservation> list : bySpot.values()) {
+            list.sort(Comparator.comparingLong(Reservation::getFromMillis));
+            for (int i = 1; i < list.size(); i++) {
+                check(list.get(i - 1).getToMillis() <= list.get(i).getFromMillis(),
+                        "Overlap: " + list.get(i - 1) + " and " + list.get(i));
+            }
+        }
+        System.out.println("booked=" + booked.size() + " across " + bySpot.size() + " spots");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Walk-in vs booking on the last spot         */
+    /* -------------------------------------------------- */
+
+    private static void walkInVersusBookingRaceTest() throws Exception {
+        System.out.println("\n==== WALK-IN VS BOOKING RACE ====");
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        AtomicInteger bothWon = new AtomicInteger();
+        int rounds = 2_000;
+
+        for (int i = 0; i < rounds; i++) {
+            ParkingLot lot = lot(1, 0);
+            ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+            long now = System.currentTimeMillis();
+            CountDownLatch go = new CountDownLatch(1);
+
+            Future<ParkingSpot> walkIn = ex.submit(() -> {
+                go.await();
+                return lot.tryAcquireSpot();
+            });
+            Future<Optional<Reservation>> booking = ex.submit(() -> {
+                go.await();
+                return book.reserve(VehicleType.CAR, now + MINUTE, now + HOUR);
+            });
+            go.countDown();
+
+            if (walkIn.get() != null && booking.get().isPresent()) bothWon.incrementAndGet();
+        }
+        ex.shutdown();
+        check(bothWon.get() == 0, bothWon.get() + " rounds gave the spot to a walk-in and a booking");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Free-window index agrees with a full scan   */
+    /* -------------------------------------------------- */
+
+    private static void freeWindowIndexTest() {
+        System.out.println("\n==== FREE-WINDOW INDEX ====");
+        int spots = 40;
+        ParkingLot lot = lot(spots, 0);
+        ReservationBook book = new ReservationBook(lot, 30 * MINUTE);
+        long base = System.currentTimeMillis() + 24 * HOUR;
+        Random random = new Random(6);
+        List<Reservation> booked = new ArrayList<>();
+
+        // Random bookings and cancels; whether a window can be booked must match a scan of every spot
+        for (int i = 0; i < 20_000; i++) {
+            if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                Reservation r = booked.remove(random.nextInt(booked.size()));
+                check(book.cancel(r), "Cancel failed: " + r);
+                continue;
+            }
+            long from = base + random.nextInt(96) * 15 * MINUTE;
+            long to = from + (1 + random.nextInt(12)) * 15 * MINUTE;
+            boolean anyFree = false;
+            for (int s = 0; s < spots; s++) {
+                anyFree |= book.isFree(lot.spotAt(s), from, to);
+            }
+            Optional<Reservation> r = book.reserve(VehicleType.CAR, from, to);
+            check(r.isPresent() == anyFree, "Index says " + r.isPresent() + ", scan says " + anyFree);
+            r.ifPresent(booked::add);
+        }
+
+        // A lot booked solid but for one window on one spot still finds it
+        for (Reservation r : booked) book.cancel(r);
+        for (int s = 0; s < spots; s++) {
+            check(book.reserve(VehicleType.CAR, base, base + 10 * HOUR).isPresent(), "Empty lot refused a booking");
+        }
+        Reservation last = book.reserve(VehicleType.CAR, base + 10 * HOUR, base + 20 * HOUR).orElseThrow();
+        check(book.reserve(VehicleType.CAR, base + HOUR, base + 2 * HOUR).isEmpty(), "Booked-solid lot took a booking");
+        Reservation hole = book.reserve(VehicleType.CAR, base + 12 * HOUR, base + 13 * HOUR).orElseThrow();
+        check(!hole.getParkingSpot().equals(last.getParkingSpot()), "Hole landed on the busy spot");
+    }
+}
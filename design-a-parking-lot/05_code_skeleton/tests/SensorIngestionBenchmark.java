@@ -0,0 +1,195 @@
+/*
+ * Sensor ingestion under a simulated feed.
+ *
+ * SimulatedSensorFeed plays the sensors of a whole lot: every reading
+ * reports a random spot as the lot currently has it, except for a few
+ * broken or cheated spots that always report the opposite. Like a real
+ * feed it repeats some readings and delivers some a batch late. Gate
+ * threads keep starting and ending sessions meanwhile.
+ *
+ * The paced run sends 100k readings/s in 10 ms batches and reports the
+ * rate achieved and how long a batch takes to ingest; the flat-out run
+ * shows how much headroom there is above that.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class SensorIngestionBenchmark {
+
+    static final int FLOORS = 8;
+    static final int SPOTS_PER_FLOOR = 512;
+    static final int EVENTS_PER_SECOND = 100_000;
+    static final int BATCH_MILLIS = 10;
+    static final int LYING_SPOTS = 16;
+    static final long GRACE_MILLIS = 500;
+    static final int SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Warmup...");
+        flatOut(1);
+
+        System.out.println("\n=== PACED (" + EVENTS_PER_SECOND + " readings/s, " + BATCH_MILLIS + " ms batches) ===");
+        paced();
+
+        System.out.println("\n=== FLAT OUT ===");
+        flatOut(SECONDS);
+    }
+
+    /* Feed */
+
+    static class SimulatedSensorFeed {
+        private final ParkingLot lot;
+        private final Random random = new Random(42);
+        private final Set<Integer> lyingSpots = new HashSet<>();
+        private List<SensorReading> late = new ArrayList<>();
+
+        SimulatedSensorFeed(ParkingLot lot, int lyingSpots) {
+            this.lot = lot;
+            while (this.lyingSpots.size() < lyingSpots) {
+                this.lyingSpots.add(random.nextInt(lot.getTotalSpots()));
+            }
+        }
+
+        // size readings stamped nowMillis: ~10% repeated, ~5% held back for the next batch
+        List<SensorReading> nextBatch(int size, long nowMillis) {
+            List<SensorReading> batch = new ArrayList<>(size + late.size());
+            batch.addAll(late);
+            late = new ArrayList<>();
+            while (batch.size() < size) {
+                int index = random.nextInt(lot.getTotalSpots());
+                ParkingSpot spot = lot.spotAt(index);
+                boolean occupied = lot.isOccupied(index) != lyingSpots.contains(index);
+                SensorReading reading = new SensorReading(spot.getFloor(), spot.getSpotId(), occupied, nowMillis);
+                int roll = random.nextInt(100);
+                if (roll < 5) {
+                    late.add(reading);
+                    continue;
+                }
+                batch.add(reading);
+                if (roll < 15) batch.add(reading);
+            }
+            return batch;
+        }
+    }
+
+    /* Runs */
+
+    static ParkingService service() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int id = 1;
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int i = 0; i < SPOTS_PER_FLOOR; i++) {
+                spots.add(new ParkingSpot(floor, id++));
+            }
+        }
+        return new ParkingService(new ParkingLot(FLOORS, new StripedSpotAllocator(spots)));
+    }
+
+    // Two gates churning sessions over 3000 drivers until stopped
+    static ExecutorService startGates(ParkingService svc, AtomicBoolean running) {
+        ExecutorService gates = Executors.newFixedThreadPool(2);
+        for (int g = 0; g < 2; g++) {
+            final int seed = g;
+            gates.submit(() -> {
+                Random random = new Random(seed);
+                List<User> users = new ArrayList<>();
+                List<Vehicle> cars = new ArrayList<>();
+                for (int i = 0; i < 1_500; i++) {
+                    User u = new User(UUID.randomUUID(), "u" + i, "p");
+                    users.add(u);
+                    cars.add(new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+                }
+                while (running.get()) {
+                    int k = random.nextInt(users.size());
+                    if (random.nextBoolean()) {
+                        svc.startParkingSession(users.get(k), cars.get(k));
+                    } else {
+                        svc.endParkingSession(users.get(k));
+                    }
+                    Thread.sleep(0, 200_000);
+                }
+                return null;
+            });
+        }
+        return gates;
+    }
+
+    static void paced() throws Exception {
+        ParkingService svc = service();
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        SimulatedSensorFeed feed = new SimulatedSensorFeed(svc.getParkingLot(), LYING_SPOTS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService gates = startGates(svc, running);
+
+        int batchSize = EVENTS_PER_SECOND * BATCH_MILLIS / 1_000;
+        List<Long> batchMicros = new ArrayList<>();
+        long readings = 0;
+        long begin = System.nanoTime();
+        long nextBatch = begin;
+        try {
+            for (int b = 0; b < SECONDS * 1_000 / BATCH_MILLIS; b++) {
+                List<SensorReading> batch = feed.nextBatch(batchSize, System.currentTimeMillis());
+                long t0 = System.nanoTime();
+                ingestor.ingest(batch);
+                batchMicros.add((System.nanoTime() - t0) / 1_000);
+                readings += batch.size();
+
+                nextBatch += BATCH_MILLIS * 1_000_000L;
+                long wait = nextBatch - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        } finally {
+            running.set(false);
+            gates.shutdown();
+            gates.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        Collections.sort(batchMicros);
+        System.out.printf("readings/s        %,12.0f%n", readings / seconds);
+        System.out.printf("batch p50 / p99   %,9d / %,d us (budget %,d us)%n",
+                batchMicros.get(batchMicros.size() / 2), batchMicros.get(batchMicros.size() * 99 / 100),
+                BATCH_MILLIS * 1_000);
+        System.out.printf("applied %,d  duplicate %,d  out of order %,d%n",
+                ingestor.getAppliedCount(), ingestor.getDuplicateCount(), ingestor.getOutOfOrderCount());
+        System.out.printf("open discrepancies %d (lying spots %d), flagged in total %d%n",
+                ingestor.getDiscrepancies().size(), LYING_SPOTS, ingestor.getFlaggedCount());
+    }
+
+    static void flatOut(int seconds) throws Exception {
+        ParkingService svc = service();
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        SimulatedSensorFeed feed = new SimulatedSensorFeed(svc.getParkingLot(), LYING_SPOTS);
+
+        // Batches are prepared up front so only ingestion is timed
+        List<List<SensorReading>> batches = new ArrayList<>();
+        long clock = 0;
+        for (int b = 0; b < 200; b++) {
+            batches.add(feed.nextBatch(EVENTS_PER_SECOND * BATCH_MILLIS / 1_000, clock += BATCH_MILLIS));
+        }
+
+        long readings = 0;
+        long begin = System.nanoTime();
+        long end = begin + seconds * 1_000_000_000L;
+        long shift = 0;
+        while (System.nanoTime() < end) {
+            for (List<SensorReading> batch : batches) {
+                // Re-stamp so every pass is newer than the last one
+                List<SensorReading> stamped = new ArrayList<>(batch.size());
+                for (SensorReading r : batch) {
+                    stamped.add(new SensorReading(r.getFloor(), r.getSpotId(), r.isOccupied(),
+                            r.getTimestampMillis() + shift));
+                }
+                ingestor.ingest(stamped);
+                readings += stamped.size();
+            }
+            shift += clock;
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("readings/s        %,12.0f (single thread)%n", readings / elapsed);
+    }
+}
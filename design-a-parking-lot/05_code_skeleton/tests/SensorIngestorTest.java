@@ -0,0 +1,249 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SensorIngestorTest {
+
+    private static final long GRACE_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        try {
+            dedupeAndOrderTest();
+            ghostOccupancyTest();
+            unpaidParkingTest();
+            graceTest();
+            concurrentBatchesTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ SENSOR INGESTION FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static ParkingService service(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= spots; i++) pool.add(new ParkingSpot(1 + i % 2, i));
+        return new ParkingService(new ParkingLot(2, pool));
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle car(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static SensorReading reading(ParkingSpot spot, boolean occupied, long millis) {
+        return new SensorReading(spot.getFloor(), spot.getSpotId(), occupied, millis);
+    }
+
+    // Records what listeners are told
+    private static class Recorder implements SensorDiscrepancyListener {
+        final List<SensorDiscrepancy> flagged = new CopyOnWriteArrayList<>();
+        final List<SensorDiscrepancy> resolved = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onDiscrepancy(SensorDiscrepancy discrepancy) {
+            flagged.add(discrepancy);
+        }
+
+        @Override
+        public void onResolved(SensorDiscrepancy discrepancy) {
+            resolved.add(discrepancy);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Duplicates and late readings are dropped    */
+    /* -------------------------------------------------- */
+
+    private static void dedupeAndOrderTest() {
+        System.out.println("\n==== DEDUPE AND ORDER ====");
+        ParkingService svc = service(10);
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        ParkingSpot spot = svc.getParkingLot().spotAt(3);
+
+        // Out of order within the batch: all three are applied, newest last
+        int applied = ingestor.ingest(List.of(
+                reading(spot, false, 300), reading(spot, true, 100), reading(spot, false, 200),
+                reading(spot, false, 300), new SensorReading(7, 999, true, 150)));
+        check(applied == 3, "Applied " + applied);
+        check(ingestor.getDuplicateCount() == 1, "Duplicates " + ingestor.getDuplicateCount());
+        check(ingestor.getUnknownSpotCount() == 1, "Unknown spots " + ingestor.getUnknownSpotCount());
+        check(ingestor.getSensorOccupied(spot).equals(Optional.of(false)), "Newest reading is not the state");
+
+        // A later batch with an older reading does not roll the spot back
+        check(ingestor.ingest(List.of(reading(spot, true, 250))) == 0, "Late reading applied");
+        check(ingestor.getOutOfOrderCount() == 1, "Late reading not counted");
+        check(ingestor.getSensorOccupied(spot).equals(Optional.of(false)), "Late reading changed the state");
+        check(ingestor.getSensorOccupied(svc.getParkingLot().spotAt(4)).isEmpty(), "Silent sensor has a state");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Session on a spot the sensor sees empty     */
+    /* -------------------------------------------------- */
+
+    private static void ghostOccupancyTest() throws Exception {
+        System.out.println("\n==== GHOST OCCUPANCY ====");
+        ParkingService svc = service(10);
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        Recorder recorder = new Recorder();
+        ingestor.addDiscrepancyListener(recorder);
+
+        User u = user(1);
+        UUID sessionId = svc.startParkingSession(u, car(u)).orElseThrow();
+        ParkingSpot spot = svc.getCurrentParkingSession(u).orElseThrow().getParkingSpot();
+
+        for (long t = 0; t <= 2 * GRACE_MILLIS; t += 10_000) {
+            ingestor.ingest(List.of(reading(spot, false, t)));
+        }
+        check(recorder.flagged.size() == 1, "Flagged " + recorder.flagged.size() + " times");
+        SensorDiscrepancy ghost = recorder.flagged.get(0);
+        check(ghost.getKind() == SensorDiscrepancy.Kind.GHOST_OCCUPANCY, "Kind " + ghost.getKind());
+        check(ghost.getParkingSession().getParkingSessionId().equals(sessionId), "Wrong session");
+        check(ghost.getSinceMillis() == 0 && ghost.getDetectedMillis() == GRACE_MILLIS, "Timing " + ghost);
+        check(ingestor.getDiscrepancies().size() == 1, "Not listed as open");
+
+        // The car shows up: resolved
+        ingestor.ingest(List.of(reading(spot, true, 3 * GRACE_MILLIS)));
+        check(recorder.resolved.size() == 1 && recorder.resolved.get(0) == ghost, "Not resolved");
+        check(ingestor.getDiscrepancies().isEmpty(), "Still listed as open");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Car still there after the session ended     */
+    /* -------------------------------------------------- */
+
+    private static void unpaidParkingTest() throws Exception {
+        System.out.println("\n==== UNPAID PARKING ====");
+        ParkingService svc = service(10);
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        Recorder recorder = new Recorder();
+        ingestor.addDiscrepancyListener(recorder);
+
+        User u = user(1);
+        svc.startParkingSession(u, car(u)).orElseThrow();
+        ParkingSpot spot = svc.getCurrentParkingSession(u).orElseThrow().getParkingSpot();
+        ingestor.ingest(List.of(reading(spot, true, 0)));
+        check(ingestor.getDiscrepancies().isEmpty(), "Paid car flagged");
+
+        svc.endParkingSession(u);
+        List<SensorReading> batch = new ArrayList<>();
+        for (long t = 10_000; t <= 2 * GRACE_MILLIS; t += 10_000) batch.add(reading(spot, true, t));
+        ingestor.ingest(batch);
+
+        check(recorder.flagged.size() == 1, "Flagged " + recorder.flagged.size() + " times");
+        SensorDiscrepancy unpaid = recorder.flagged.get(0);
+        check(unpaid.getKind() == SensorDiscrepancy.Kind.UNPAID_PARKING, "Kind " + unpaid.getKind());
+        check(unpaid.getParkingSession() == null, "Unpaid parking has a session");
+        check(unpaid.getSinceMillis() == 10_000, "Since " + unpaid.getSinceMillis());
+
+        // The car leaves
+        ingestor.ingest(List.of(reading(spot, false, 3 * GRACE_MILLIS)));
+        check(recorder.resolved.size() == 1, "Not resolved");
+        check(ingestor.getFlaggedCount() == 1, "Flagged count " + ingestor.getFlaggedCount());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Short disagreements are not flagged         */
+    /* -------------------------------------------------- */
+
+    private static void graceTest() throws Exception {
+        System.out.println("\n==== GRACE ====");
+        ParkingService svc = service(10);
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        Recorder recorder = new Recorder();
+        ingestor.addDiscrepancyListener(recorder);
+
+        // Session starts at the gate; the sensor sees the car 40s later
+        User u = user(1);
+        svc.startParkingSession(u, car(u)).orElseThrow();
+        ParkingSpot spot = svc.getCurrentParkingSession(u).orElseThrow().getParkingSpot();
+        ingestor.ingest(List.of(reading(spot, false, 0), reading(spot, false, 20_000),
+                reading(spot, false, 40_000), reading(spot, true, 45_000)));
+
+        // Driver leaves the spot 30s before ending the session at the gate
+        ingestor.ingest(List.of(reading(spot, false, 600_000), reading(spot, false, 620_000)));
+        svc.endParkingSession(u);
+        ingestor.ingest(List.of(reading(spot, false, 640_000), reading(spot, false, 700_000)));
+
+        check(recorder.flagged.isEmpty(), "Flagged " + recorder.flagged);
+        check(ingestor.getDiscrepancies().isEmpty(), "Open discrepancies");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Many feeds at once                          */
+    /* -------------------------------------------------- */
+
+    private static void concurrentBatchesTest() throws Exception {
+        System.out.println("\n==== CONCURRENT BATCHES ====");
+        ParkingService svc = service(2_000);
+        ParkingLot lot = svc.getParkingLot();
+        SensorIngestor ingestor = new SensorIngestor(svc, GRACE_MILLIS);
+        Recorder recorder = new Recorder();
+        ingestor.addDiscrepancyListener(recorder);
+
+        // Sessions on the first half of the spots
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            User u = user(i);
+            svc.startParkingSession(u, car(u)).orElseThrow();
+            users.add(u);
+        }
+
+        // Each feed reports its quarter of the spots truthfully, with repeats, except
+        // spot 0 of each quarter shows a car on a free spot or no car on a taken one
+        int feeds = 4;
+        int perFeed = lot.getTotalSpots() / feeds;
+        ExecutorService ex = Executors.newFixedThreadPool(feeds);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int f = 0; f < feeds; f++) {
+                final int first = f * perFeed;
+                results.add(ex.submit(() -> {
+                    int applied = 0;
+                    for (long t = 0; t <= 2 * GRACE_MILLIS; t += 5_000) {
+                        List<SensorReading> batch = new ArrayList<>();
+                        for (int i = first; i < first + perFeed; i++) {
+                            boolean taken = lot.isOccupied(i);
+                            boolean occupied = i == first ? !taken : taken;
+                            batch.add(reading(lot.spotAt(i), occupied, t));
+                            batch.add(reading(lot.spotAt(i), occupied, t)); // repeat
+                        }
+                        applied += ingestor.ingest(batch);
+                    }
+                    return applied;
+                }));
+            }
+            long applied = 0;
+            for (Future<Integer> result : results) applied += result.get(60, TimeUnit.SECONDS);
+
+            long rounds = 2 * GRACE_MILLIS / 5_000 + 1;
+            check(applied == rounds * lot.getTotalSpots(), "Applied " + applied);
+            check(ingestor.getAppliedCount() == applied, "Applied counter");
+            check(ingestor.getDuplicateCount() == applied, "Duplicates " + ingestor.getDuplicateCount());
+        } finally {
+            ex.shutdownNow();
+        }
+
+        check(recorder.flagged.size() == feeds, "Flagged " + recorder.flagged);
+        for (SensorDiscrepancy discrepancy : ingestor.getDiscrepancies()) {
+            int index = lot.indexOf(discrepancy.getParkingSpot());
+            check(index % perFeed == 0, "Flagged an honest spot " + discrepancy);
+            check(discrepancy.getKind() == (lot.isOccupied(index)
+                    ? SensorDiscrepancy.Kind.GHOST_OCCUPANCY : SensorDiscrepancy.Kind.UNPAID_PARKING),
+                    "Wrong kind " + discrepancy);
+        }
+        System.out.println("applied=" + ingestor.getAppliedCount() + " flagged=" + recorder.flagged.size());
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SessionArchiveTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            reportMathTest();
+            listenerTest();
+            concurrentAppendTest();
+            largeScanTest();
+            retentionTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ ARCHIVE FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long HOUR = 3_600_000L;
+    private static final long MIDNIGHT = 1_700_000_000_000L / HOUR * HOUR;
+
+    private static ParkingLot lot(int floors, int spotsPerFloor) {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int f = 1; f <= floors; f++) {
+            for (int s = 1; s <= spotsPerFloor; s++) {
+                spots.add(new ParkingSpot(f, s));
+            }
+        }
+        return new ParkingLot(floors, new QueueSpotAllocator(new ConcurrentLinkedQueue<>(spots)));
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static void checkClose(double actual, double expected, String message) {
+        check(Math.abs(actual - expected) < 1e-9, message + ": expected " + expected + ", got " + actual);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Report math on hand-made rows               */
+    /* -------------------------------------------------- */
+
+    private static void reportMathTest() {
+        System.out.println("\n==== REPORT MATH ====");
+        ParkingLot lot = lot(2, 4);
+        SessionArchive archive = new SessionArchive(lot);
+
+        // Floor 1: one full hour 0, and half of hour 1 plus a quarter of hour 2
+        archive.append(MIDNIGHT, MIDNIGHT + HOUR, 0, 1, VehicleType.CAR, 0, 1);
+        archive.append(MIDNIGHT + HOUR + HOUR / 2, MIDNIGHT + 2 * HOUR + HOUR / 4, 1, 1, VehicleType.CAR, 0, 2);
+        // Floor 2: starts before the window, so only hour 0 counts
+        archive.append(MIDNIGHT - HOUR, MIDNIGHT + HOUR / 2, 4, 2, VehicleType.BIKE, 0, 3);
+
+        Map<Integer, double[]> occupancy = archive.averageOccupancyByFloorPerHour(MIDNIGHT, 3);
+        check(occupancy.keySet().equals(Set.of(1, 2)), "Unexpected floors " + occupancy.keySet());
+        double[] floor1 = occupancy.get(1);
+        checkClose(floor1[0], 1.0, "Floor 1 hour 0");
+        checkClose(floor1[1], 0.5, "Floor 1 hour 1");
+        checkClose(floor1[2], 0.25, "Floor 1 hour 2");
+        double[] floor2 = occupancy.get(2);
+        checkClose(floor2[0], 0.5, "Floor 2 hour 0");
+        checkClose(floor2[1] + floor2[2], 0.0, "Floor 2 after the session");
+
+        Map<VehicleType, Double> durations = archive.averageDurationMillisByVehicleType();
+        checkClose(durations.get(VehicleType.CAR), (HOUR + 3 * HOUR / 4) / 2.0, "Average car duration");
+        checkClose(durations.get(VehicleType.BIKE), HOUR + HOUR / 2.0, "Average bike duration");
+        check(archive.size() == 3, "Expected 3 rows, got " + archive.size());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Ended sessions stream in via the listener   */
+    /* -------------------------------------------------- */
+
+    private static void listenerTest() throws Exception {
+        System.out.println("\n==== LISTENER ====");
+        ParkingLot lot = lot(2, 4);
+        ParkingService svc = new ParkingService(lot);
+        SessionArchive archive = new SessionArchive(lot);
+        svc.addSessionListener(archive);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User u = user(i);
+            VehicleType type = i % 2 == 0 ? VehicleType.CAR : VehicleType.BIKE;
+            svc.startParkingSession(u, new Vehicle(UUID.randomUUID(), type, u.getUserId()));
+            users.add(u);
+        }
+        check(archive.size() == 0, "Active sessions must not be archived");
+
+        for (int i = 0; i < 4; i++) {
+            svc.endParkingSession(users.get(i));
+        }
+        check(archive.size() == 4, "Expected 4 archived sessions, got " + archive.size());
+        check(archive.averageDurationMillisByVehicleType().keySet().equals(EnumSet.allOf(VehicleType.class)),
+                "Both vehicle types should be reported");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Concurrent appends are all committed        */
+    /* -------------------------------------------------- */
+
+    private static void concurrentAppendTest() throws Exception {
+        System.out.println("\n==== CONCURRENT APPEND ====");
+        ParkingLot lot = lot(4, 25);
+        SessionArchive archive = new SessionArchive(lot);
+        int threads = 8;
+        int perThread = 100_000;
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            futures.add(ex.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int spot = (id * perThread + i) % 100;
+                    archive.append(MIDNIGHT, MIDNIGHT + 60_000, spot, 1 + spot / 25, VehicleType.CAR, id, i);
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        ex.shutdown();
+
+        check(archive.size() == (long) threads * perThread, "Lost rows: " + archive.size());
+        checkClose(archive.averageDurationMillisByVehicleType().get(VehicleType.CAR), 60_000, "Torn duration");
+
+        double total = 0;
+        for (double[] perHour : archive.averageOccupancyByFloorPerHour(MIDNIGHT, 1).values()) total += perHour[0];
+        checkClose(total, threads * perThread / 60.0, "Occupancy over all floors");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Scan speed, -Drows=... (default 10M)        */
+    /* -------------------------------------------------- */
+
+    private static void largeScanTest() {
+        System.out.println("\n==== LARGE SCAN ====");
+        int rows = Integer.getInteger("rows", 10_000_000);
+        ParkingLot lot = lot(10, 100);
+        SessionArchive archive = new SessionArchive(lot);
+
+        Random random = new Random(42);
+        long begin = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            int spot = random.nextInt(1000);
+            long start = MIDNIGHT + random.nextInt(24 * 30) * HOUR / 2 + random.nextInt((int) HOUR);
+            long end = start + 5 * 60_000 + random.nextInt((int) (4 * HOUR));
+            VehicleType type = (i & 3) == 0 ? VehicleType.BIKE : VehicleType.CAR;
+            archive.append(start, end, spot, 1 + spot / 100, type, i, i);
+        }
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        for (int round = 0; round < 3; round++) {
+            begin = System.nanoTime();
+            Map<Integer, double[]> occupancy = archive.averageOccupancyByFloorPerHour(MIDNIGHT, 24 * 16);
+            long occupancyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            begin = System.nanoTime();
+            Map<VehicleType, Double> durations = archive.averageDurationMillisByVehicleType();
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            check(occupancy.size() == 10, "Expected 10 floors");
+            check(durations.size() == 2, "Expected both vehicle types");
+            System.out.printf("rows=%d load=%d ms occupancyByFloorPerHour=%d ms avgDurationByType=%d ms%n",
+                    rows, loadMillis, occupancyMillis, durationMillis);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: Only the newest maxRows rows are kept       */
+    /* -------------------------------------------------- */
+
+    private static void retentionTest() {
+        System.out.println("\n==== RETENTION ====");
+        int segmentRows = 1 << 16;
+        SessionArchive archive = new SessionArchive(lot(1, 4), 2L * segmentRows);
+
+        // Segment k holds sessions lasting k + 1 minutes
+        for (int k = 0; k < 5; k++) {
+            for (int i = 0; i < segmentRows; i++) {
+                archive.append(MIDNIGHT, MIDNIGHT + (k + 1) * 60_000L, i & 3, 1, VehicleType.CAR, k, i);
+            }
+        }
+
+        check(archive.size() == 2L * segmentRows, "Expected two segments kept, got " + archive.size() + " rows");
+        check(archive.getDroppedRowCount() == 3L * segmentRows, "Dropped " + archive.getDroppedRowCount());
+        // Only the 4- and 5-minute segments are left
+        checkClose(archive.averageDurationMillisByVehicleType().get(VehicleType.CAR), 4.5 * 60_000,
+                "Dropped rows still in reports");
+
+        try {
+            new SessionArchive(lot(1, 4), 0);
+            throw new AssertionError("Empty retention accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
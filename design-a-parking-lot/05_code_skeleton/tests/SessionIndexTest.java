@@ -0,0 +1,216 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class SessionIndexTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            lookupTest(null);
+            lookupTest("compact");
+            churnTest(null);
+            churnTest("compact");
+            sessionIdSupplierTest(null);
+            sessionIdSupplierTest("compact");
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ SESSION INDEX FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static ParkingLot lot(int spots) {
+        ConcurrentLinkedQueue<ParkingSpot> pool = new ConcurrentLinkedQueue<>();
+        for (int i = 1; i <= spots; i++) pool.add(new ParkingSpot(1 + i % 3, i));
+        return new ParkingLot(3, pool);
+    }
+
+    private static ParkingService service(ParkingLot lot, String store) {
+        return new ParkingService(lot, null, "compact".equals(store) ? new CompactSessionStore(lot) : null);
+    }
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    // Index entries by session id, to catch entries left behind by ended sessions
+    private static int indexedSessionIds(ParkingService svc) {
+        try {
+            var indexField = ParkingService.class.getDeclaredField("sessionIndex");
+            indexField.setAccessible(true);
+            var mapField = SessionIndex.class.getDeclaredField("userBySessionId");
+            mapField.setAccessible(true);
+            return ((Map<?, ?>) mapField.get(indexField.get(svc))).size();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Find by session id, vehicle and spot        */
+    /* -------------------------------------------------- */
+
+    private static void lookupTest(String store) throws Exception {
+        System.out.println("\n==== LOOKUP (" + (store == null ? "map" : store) + " store) ====");
+        ParkingLot lot = lot(10);
+        ParkingService svc = service(lot, store);
+        User u = user(1);
+        Vehicle car = new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+
+        UUID id = svc.startParkingSession(u, car).orElseThrow();
+        ParkingSession byId = svc.findParkingSession(id).orElseThrow();
+        check(byId.getUser() == u, "Wrong user");
+        ParkingSpot spot = byId.getParkingSpot();
+
+        check(svc.getCurrentParkingSession(u).orElseThrow().getParkingSessionId().equals(id), "Current session");
+        check(svc.findParkingSessionByVehicle(car.getVehicleId()).orElseThrow().getParkingSessionId().equals(id),
+                "By vehicle");
+        check(svc.findParkingSessionBySpot(spot).orElseThrow().getParkingSessionId().equals(id), "By spot");
+        check(svc.findParkingSession(UUID.randomUUID()).isEmpty(), "Unknown id found");
+        check(svc.findParkingSessionByVehicle(UUID.randomUUID()).isEmpty(), "Unknown vehicle found");
+
+        svc.endParkingSession(u);
+        check(svc.getCurrentParkingSession(u).isEmpty(), "Ended session is current");
+        check(svc.findParkingSession(id).isEmpty(), "Ended session found by id");
+        check(svc.findParkingSessionByVehicle(car.getVehicleId()).isEmpty(), "Ended session found by vehicle");
+        check(svc.findParkingSessionBySpot(spot).isEmpty(), "Ended session found by spot");
+        check(indexedSessionIds(svc) == 0, "Index entry left behind");
+
+        // Parking the same car again indexes the new session
+        UUID again = svc.startParkingSession(u, car).orElseThrow();
+        check(svc.findParkingSessionByVehicle(car.getVehicleId()).orElseThrow().getParkingSessionId().equals(again),
+                "Re-parked car not found");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Readers never see a half-done session       */
+    /* -------------------------------------------------- */
+
+    private static void churnTest(String store) throws Exception {
+        System.out.println("\n==== CHURN (" + (store == null ? "map" : store) + " store) ====");
+        ParkingLot lot = lot(60);
+        ParkingService svc = service(lot, store);
+        List<User> users = new ArrayList<>();
+        List<Vehicle> cars = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            User u = user(i);
+            users.add(u);
+            cars.add(new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong hits = new AtomicLong();
+        ExecutorService ex = Executors.newFixedThreadPool(8);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        for (int t = 0; t < 5; t++) {
+            final int seed = t;
+            writers.add(ex.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 60_000; i++) {
+                    int k = random.nextInt(users.size());
+                    if (random.nextBoolean()) {
+                        svc.startParkingSession(users.get(k), cars.get(k));
+                    } else {
+                        svc.endParkingSession(users.get(k));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < 3; t++) {
+            final int seed = 100 + t;
+            readers.add(ex.submit(() -> {
+                Random random = new Random(seed);
+                while (running.get()) {
+                    ParkingSpot spot = lot.spotAt(random.nextInt(lot.getTotalSpots()));
+                    Optional<ParkingSession> bySpot = svc.findParkingSessionBySpot(spot);
+                    if (bySpot.isPresent()) {
+                        ParkingSession s = bySpot.get();
+                        check(s.getParkingSpot().equals(spot), "Spot lookup returned a session on " + s.getParkingSpot());
+                        hits.incrementAndGet();
+                    }
+
+                    int k = random.nextInt(users.size());
+                    svc.findParkingSessionByVehicle(cars.get(k).getVehicleId()).ifPresent(s -> {
+                        check(s.getVehicle().getVehicleId().equals(cars.get(k).getVehicleId()), "Vehicle lookup mismatch");
+                        check(s.getUser().getUserId().equals(users.get(k).getUserId()), "Vehicle lookup: wrong user");
+                    });
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> f : writers) f.get(120, TimeUnit.SECONDS);
+            running.set(false);
+            for (Future<?> f : readers) f.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AssertionError) throw (AssertionError) e.getCause();
+            throw e;
+        } finally {
+            running.set(false);
+            ex.shutdownNow();
+        }
+
+        // Quiescent: the indexes agree exactly with the store
+        int active = 0;
+        for (int k = 0; k < users.size(); k++) {
+            Optional<ParkingSession> current = svc.getCurrentParkingSession(users.get(k));
+            if (current.isEmpty()) {
+                check(svc.findParkingSessionByVehicle(cars.get(k).getVehicleId()).isEmpty(), "Stale vehicle entry");
+                continue;
+            }
+            active++;
+            ParkingSession s = current.get();
+            check(svc.findParkingSession(s.getParkingSessionId()).isPresent(), "Active session missing by id");
+            check(svc.findParkingSessionByVehicle(cars.get(k).getVehicleId()).isPresent(), "Active session missing by vehicle");
+            check(svc.findParkingSessionBySpot(s.getParkingSpot()).orElseThrow().getParkingSessionId()
+                    .equals(s.getParkingSessionId()), "Active session missing by spot");
+        }
+        check(indexedSessionIds(svc) == active, indexedSessionIds(svc) + " indexed ids for " + active + " sessions");
+        System.out.println("active=" + active + " spot hits=" + hits.get());
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Session ids from a plugged-in generator     */
+    /* -------------------------------------------------- */
+
+    private static void sessionIdSupplierTest(String store) throws Exception {
+        System.out.println("\n==== SESSION ID SUPPLIER (" + (store == null ? "map" : store) + " store) ====");
+        ParkingLot lot = lot(10);
+        ParkingService svc = service(lot, store);
+        // Shaped like UniqueIDGenerator.toUUID: a sortable 64-bit id in the high half
+        AtomicLong next = new AtomicLong(1_000);
+        Supplier<UUID> ids = () -> new UUID(next.incrementAndGet(), 0L);
+        svc.setSessionIdSupplier(ids);
+
+        List<UUID> started = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User u = user(i);
+            UUID id = svc.startParkingSession(u, new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId()))
+                    .orElseThrow();
+            check(id.equals(new UUID(1_001 + i, 0L)), "Session id not from the supplier: " + id);
+            check(svc.getCurrentParkingSession(u).orElseThrow().getParkingSessionId().equals(id), "Stored id");
+            started.add(id);
+        }
+        for (UUID id : started) {
+            check(svc.findParkingSession(id).isPresent(), "Not found by id " + id);
+        }
+        List<UUID> sorted = new ArrayList<>(started);
+        Collections.sort(sorted);
+        check(sorted.equals(started), "Ids not in start order");
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+public class SessionJournalTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            restartRecoveryTest();
+            tornRecordTest();
+            concurrentRollTest();
+            largeReplayTest();
+            headerChecksumTest();
+            rollFailureTest();
+            listenerFailureTest();
+            spotTypeRestoreTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ JOURNAL FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final int TOTAL_SPOTS = 5;
+
+    private static User user(int i) {
+        return new User(UUID.randomUUID(), "user-" + i, "p");
+    }
+
+    private static Vehicle vehicle(User u) {
+        return new Vehicle(UUID.randomUUID(), VehicleType.CAR, u.getUserId());
+    }
+
+    private static int activeSessions(ParkingService svc) {
+        try {
+            var f = ParkingService.class.getDeclaredField("currentParkingSessionsByUserId");
+            f.setAccessible(true);
+            return ((Map<?, ?>) f.get(svc)).size();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Path tempDir() throws IOException {
+        Path dir = Files.createTempDirectory("session-journal");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Active sessions survive a restart           */
+    /* -------------------------------------------------- */
+
+    private static void restartRecoveryTest() throws Exception {
+        System.out.println("\n==== RESTART RECOVERY ====");
+        Path dir = tempDir();
+
+        ParkingService before = new ParkingService();
+        List<User> users = new ArrayList<>();
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC)) {
+            before.addSessionListener(journal);
+            for (int i = 0; i < 4; i++) {
+                User u = user(i);
+                check(before.startParkingSession(u, vehicle(u)).isPresent(), "Could not park user " + i);
+                users.add(u);
+            }
+            before.endParkingSession(users.get(0));
+        }
+
+        ParkingService after = new ParkingService();
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC)) {
+            check(journal.getRecoveredRecords().size() == 3,
+                    "Expected 3 recovered sessions, got " + journal.getRecoveredRecords().size());
+            check(after.restoreSessions(journal.recoverSessions()) == 3, "Not every session was restored");
+            after.addSessionListener(journal);
+
+            check(activeSessions(after) == 3, "Restored sessions missing from the service");
+            check(after.getOccupancySnapshot().getFreeCount() == TOTAL_SPOTS - 3, "Restored spots still free");
+            check(!after.endParkingSession(users.get(0)), "Ended session came back");
+
+            // Placeholder users only need the id to end a session
+            User sameId = new User(users.get(1).getUserId(), null, null);
+            check(after.endParkingSession(sameId), "Recovered session could not be ended");
+
+            for (int i = 0; i < 3; i++) {
+                User u = user(10 + i);
+                check(after.startParkingSession(u, vehicle(u)).isPresent(), "Free spot not usable after restore");
+            }
+            User late = user(20);
+            check(after.startParkingSession(late, vehicle(late)).isEmpty(), "Restored spot handed out twice");
+        }
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            check(journal.getRecoveredRecords().size() == TOTAL_SPOTS,
+                    "Second restart should see a full lot, got " + journal.getRecoveredRecords().size());
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: A torn slot is skipped, neighbours survive  */
+    /* -------------------------------------------------- */
+
+    private static void tornRecordTest() throws Exception {
+        System.out.println("\n==== TORN RECORD ====");
+        Path dir = tempDir();
+
+        ParkingService svc = new ParkingService();
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.GROUP_COMMIT)) {
+            svc.addSessionListener(journal);
+            for (int i = 0; i < 3; i++) {
+                User u = user(i);
+                svc.startParkingSession(u, vehicle(u));
+            }
+        }
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Flip a byte inside the user id of the middle record
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), SessionJournal.RECORD_SIZE + 30);
+        }
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            check(journal.getSkippedRecordCount() == 1, "Expected 1 skipped slot, got " + journal.getSkippedRecordCount());
+            check(journal.getRecoveredRecords().size() == 2,
+                    "Records around the torn slot were lost: " + journal.getRecoveredRecords().size());
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Concurrent churn across segment rolls       */
+    /* -------------------------------------------------- */
+
+    private static void concurrentRollTest() throws Exception {
+        System.out.println("\n==== CONCURRENT ROLL ====");
+        Path dir = tempDir();
+
+        ParkingService svc = new ParkingService();
+        // 16 slots per segment, so the churn below rolls hundreds of times
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC, 1,
+                16L * SessionJournal.RECORD_SIZE)) {
+            svc.addSessionListener(journal);
+
+            ExecutorService ex = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(ex.submit(() -> {
+                    User u = user(0);
+                    Vehicle v = vehicle(u);
+                    for (int i = 0; i < 300; i++) {
+                        if (svc.startParkingSession(u, v).isPresent() && i % 7 != 6) {
+                            svc.endParkingSession(u);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+            ex.shutdown();
+        }
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            check(journal.getSkippedRecordCount() == 0, "Clean shutdown left torn slots");
+            check(journal.getRecoveredRecords().size() == activeSessions(svc),
+                    "Journal has " + journal.getRecoveredRecords().size() + " sessions, service has "
+                            + activeSessions(svc));
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Replay time for a large journal             */
+    /* -------------------------------------------------- */
+
+    private static void largeReplayTest() throws Exception {
+        System.out.println("\n==== LARGE REPLAY ====");
+        Path dir = tempDir();
+        int sessions = 600_000;
+        int ended = 500_000;
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            for (int i = 0; i < sessions; i++) {
+                User u = new User(new UUID(0, i), null, null);
+                ParkingSession s = new ParkingSession(new UUID(1, i), Instant.now(), u, vehicle(u),
+                        new ParkingSpot(1 + i % 4, i));
+                journal.onSessionStarted(s);
+                if (i < ended) {
+                    s.endSession();
+                    journal.onSessionEnded(s);
+                }
+            }
+        }
+
+        long begin = System.nanoTime();
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            check(journal.getReplayedRecordCount() == sessions + ended,
+                    "Replayed " + journal.getReplayedRecordCount() + " records");
+            check(journal.getRecoveredRecords().size() == sessions - ended,
+                    "Recovered " + journal.getRecoveredRecords().size() + " sessions");
+            System.out.println("replayed=" + journal.getReplayedRecordCount() + " records in " + millis + " ms");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: The header bytes are checksummed too        */
+    /* -------------------------------------------------- */
+
+    private static void headerChecksumTest() throws Exception {
+        System.out.println("\n==== HEADER CHECKSUM ====");
+        Path dir = tempDir();
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC)) {
+            for (int i = 0; i < 3; i++) {
+                User u = user(i);
+                journal.onSessionStarted(new ParkingSession(u, vehicle(u), new ParkingSpot(1, i), false));
+            }
+        }
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Set the covered-by-pass flag of the first record, and change the vehicle type of the last
+            channel.write(ByteBuffer.wrap(new byte[] {1}), 2);
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) VehicleType.BIKE.ordinal()}),
+                    2L * SessionJournal.RECORD_SIZE + 1);
+        }
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            check(journal.getSkippedRecordCount() == 2, "Expected 2 skipped slots, got " + journal.getSkippedRecordCount());
+            check(journal.getRecoveredRecords().size() == 1, "Recovered " + journal.getRecoveredRecords().size());
+            check(journal.getRecoveredRecords().stream().noneMatch(JournalRecord::isCoveredByPass),
+                    "A flipped pass flag replayed");
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: A failed roll fails every writer            */
+    /* -------------------------------------------------- */
+
+    private static void rollFailureTest() throws Exception {
+        System.out.println("\n==== ROLL FAILURE ====");
+        Path dir = tempDir();
+        int slots = 4;
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS, 1,
+                (long) slots * SessionJournal.RECORD_SIZE)) {
+            // Takes the name of the next segment, so creating it fails
+            Path blocker = dir.resolve("journal-00000002.log");
+            Files.createFile(blocker);
+
+            ExecutorService ex = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(ex.submit(() -> {
+                    int written = 0;
+                    for (int i = 0; i < 10; i++) {
+                        User u = user(i);
+                        try {
+                            journal.onSessionStarted(new ParkingSession(u, vehicle(u), new ParkingSpot(1, i)));
+                            written++;
+                        } catch (UncheckedIOException expected) {
+                        }
+                    }
+                    return written;
+                }));
+            }
+            int written = 0;
+            try {
+                for (Future<Integer> f : futures) written += f.get(10, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                throw new AssertionError("Writers hung after a failed roll");
+            } finally {
+                ex.shutdownNow();
+            }
+            check(written == slots, "Expected " + slots + " records before the failure, got " + written);
+
+            try {
+                User u = user(99);
+                journal.onSessionStarted(new ParkingSession(u, vehicle(u), new ParkingSpot(1, 99)));
+                throw new AssertionError("Append after a failed roll succeeded");
+            } catch (UncheckedIOException expected) {
+            }
+            Files.delete(blocker);
+        }
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS)) {
+            check(journal.getRecoveredRecords().size() == slots, "Recovered " + journal.getRecoveredRecords().size());
+        }
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 7: A throwing listener never strands a spot    */
+    /* -------------------------------------------------- */
+
+    private static void listenerFailureTest() throws Exception {
+        System.out.println("\n==== LISTENER FAILURE ====");
+        Path dir = tempDir();
+        ParkingService svc = new ParkingService();
+        SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.OS);
+        svc.addSessionListener(journal);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < TOTAL_SPOTS; i++) {
+            User u = user(i);
+            check(svc.startParkingSession(u, vehicle(u)).isPresent(), "Could not park user " + i);
+            users.add(u);
+        }
+        journal.close();
+
+        // Every append now throws; the end still goes through first
+        try {
+            svc.endParkingSession(users.get(0));
+            throw new AssertionError("End with a closed journal succeeded");
+        } catch (IllegalStateException expected) {
+        }
+        check(activeSessions(svc) == TOTAL_SPOTS - 1, "Failed end listener kept the session");
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Failed end listener leaked the spot");
+
+        // A refused start is taken back
+        User refused = user(10);
+        try {
+            svc.startParkingSession(refused, vehicle(refused));
+            throw new AssertionError("Start with a closed journal succeeded");
+        } catch (IllegalStateException expected) {
+        }
+        check(svc.getCurrentParkingSession(refused).isEmpty(), "Refused start left a session");
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Refused start leaked the spot");
+
+        check(svc.startParkingSessionAsync(refused, vehicle(refused)).isCompletedExceptionally(),
+                "Async start with a closed journal succeeded");
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Refused async start leaked the spot");
+
+        User second = user(11);
+        List<ParkingRequest> batch = List.of(new ParkingRequest(refused, vehicle(refused)),
+                new ParkingRequest(second, vehicle(second)));
+        try {
+            svc.startParkingSessions(batch);
+            throw new AssertionError("Batch start with a closed journal succeeded");
+        } catch (IllegalStateException expected) {
+        }
+        check(activeSessions(svc) == TOTAL_SPOTS - 1, "Refused batch start left a session");
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Refused batch start leaked a spot");
+
+        try {
+            svc.endParkingSessions(users.subList(1, 3));
+            throw new AssertionError("Batch end with a closed journal succeeded");
+        } catch (IllegalStateException expected) {
+        }
+        check(svc.getOccupancySnapshot().getFreeCount() == 3, "Failed batch end leaked a spot");
+
+        // A waiter handed a spot whose start is refused fails, and the spot goes back
+        svc.removeSessionListener(journal);
+        for (int i = 0; i < 3; i++) {
+            User u = user(20 + i);
+            check(svc.startParkingSession(u, vehicle(u)).isPresent(), "Could not refill the lot");
+        }
+        User waiting = user(30);
+        CompletableFuture<UUID> waiter = svc.startParkingSessionAsync(waiting, vehicle(waiting));
+        check(!waiter.isDone(), "Waiter served from a full lot");
+        svc.addSessionListener(journal);
+        try {
+            svc.endParkingSession(users.get(3));
+            throw new AssertionError("End with a closed journal succeeded");
+        } catch (IllegalStateException expected) {
+        }
+        check(waiter.isCompletedExceptionally(), "Waiter not told its start was refused");
+        check(svc.getCurrentParkingSession(waiting).isEmpty(), "Refused waiter left a session");
+        check(svc.getOccupancySnapshot().getFreeCount() == 1, "Refused hand-off leaked the spot");
+        check(svc.getMetrics().get(ParkingMetrics.Counter.LISTENER_FAILURES) > 0, "Listener failures not counted");
+
+        deleteAll(dir);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 8: Restored sessions keep the lot's own spots  */
+    /* -------------------------------------------------- */
+
+    private static void spotTypeRestoreTest() throws Exception {
+        System.out.println("\n==== SPOT TYPE RESTORE ====");
+        Path dir = tempDir();
+        ParkingSpot bikeSpot = new ParkingSpot(1, 1, VehicleType.BIKE);
+        User rider = user(0);
+        Vehicle bike = new Vehicle(UUID.randomUUID(), VehicleType.BIKE, rider.getUserId());
+        User stranger = user(1);
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC)) {
+            journal.onSessionStarted(new ParkingSession(rider, bike, bikeSpot));
+            // A spot this lot does not have
+            journal.onSessionStarted(new ParkingSession(stranger, vehicle(stranger), new ParkingSpot(9, 9)));
+        }
+
+        ConcurrentLinkedQueue<ParkingSpot> spots = new ConcurrentLinkedQueue<>();
+        spots.add(bikeSpot);
+        spots.add(new ParkingSpot(1, 2, VehicleType.CAR));
+        ParkingLot lot = new ParkingLot(1, spots);
+        ParkingService svc = new ParkingService(lot);
+
+        try (SessionJournal journal = SessionJournal.open(dir, SessionJournal.Durability.SYNC)) {
+            List<ParkingSession> recovered = journal.recoverSessions();
+            check(recovered.size() == 2, "Expected 2 recovered sessions, got " + recovered.size());
+            check(svc.restoreSessions(recovered) == 1, "Session on an unknown spot was restored");
+        }
+
+        ParkingSession restored = svc.getCurrentParkingSession(rider).orElseThrow();
+        check(restored.getParkingSpot() == bikeSpot, "Restored session kept the placeholder spot");
+        check(svc.findParkingSessionBySpot(bikeSpot).isPresent(), "Restored session not indexed by its spot");
+        check(svc.getCurrentParkingSession(stranger).isEmpty(), "Session on an unknown spot installed");
+
+        check(svc.endParkingSession(rider), "Restored session could not be ended");
+        boolean back = false;
+        for (ParkingSpot spot : lot.getAvailableParkingSpots()) {
+            if (spot.equals(bikeSpot)) {
+                check(spot == bikeSpot && spot.getSpotType() == VehicleType.BIKE,
+                        "Bike spot came back as a " + spot.getSpotType());
+                back = true;
+            }
+        }
+        check(back, "Bike spot not back in the pool");
+        deleteAll(dir);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Throughput comparison of the single-queue allocator against the
+ * per-floor striped allocator and the nearest-to-entrance ranked
+ * allocator (two entrances, at opposite ends of the bottom floor).
+ *
+ * Every worker acts as one gate and loops acquire -> release for a fixed
+ * amount of time, so the lot never runs dry and the numbers reflect
+ * sustained allocation throughput rather than the rejection path.
+ *
+ * Lot shape: FLOORS floors x SPOTS_PER_FLOOR spots.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Supplier;
+
+public class SpotAllocatorThroughputBenchmark {
+
+    static final int FLOORS = 16;
+    static final int SPOTS_PER_FLOOR = 250;
+    static final int[] THREAD_COUNTS = {8, 32, 128};
+    static final long RUN_MILLIS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Supplier<SpotAllocator>> allocators = new LinkedHashMap<>();
+        allocators.put("single-queue", () -> new QueueSpotAllocator(new ConcurrentLinkedQueue<>(spots())));
+        allocators.put("striped", () -> new StripedSpotAllocator(spots()));
+        allocators.put("ranked", () -> new RankedSpotAllocator(spots(), 2, (entrance, spot) -> {
+            int position = (spot.getSpotId() - 1) % SPOTS_PER_FLOOR;
+            return (spot.getFloor() - 1) * SPOTS_PER_FLOOR
+                    + (entrance == 0 ? position : SPOTS_PER_FLOOR - 1 - position);
+        }));
+
+        System.out.println("Warmup...");
+        for (Supplier<SpotAllocator> allocator : allocators.values()) {
+            run(allocator.get(), 8);
+        }
+
+        System.out.println("\n=== BENCHMARK (" + FLOORS * SPOTS_PER_FLOOR + " spots, " + FLOORS + " floors) ===");
+        System.out.printf("%-14s %8s %16s%n", "allocator", "threads", "ops/s");
+
+        for (int threads : THREAD_COUNTS) {
+            for (Map.Entry<String, Supplier<SpotAllocator>> e : allocators.entrySet()) {
+                long opsPerSec = run(e.getValue().get(), threads);
+                System.out.printf("%-14s %8d %,16d%n", e.getKey(), threads, opsPerSec);
+            }
+        }
+    }
+
+    static List<ParkingSpot> spots() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        int id = 1;
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int i = 0; i < SPOTS_PER_FLOOR; i++) {
+                spots.add(new ParkingSpot(floor, id++));
+            }
+        }
+        return spots;
+    }
+
+    static long run(SpotAllocator allocator, int threads) throws Exception {
+        ParkingLot lot = new ParkingLot(FLOORS, allocator);
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder ops = new LongAdder();
+
+        for (int t = 0; t < threads; t++) {
+            final int gate = t;
+            ex.submit(() -> {
+                start.await();
+                long local = 0;
+                while (!stop.get()) {
+                    ParkingSpot spot = lot.tryAcquireSpot(gate);
+                    if (spot != null) {
+                        lot.releaseSpot(spot);
+                        local++;
+                    }
+                }
+                ops.add(local);
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(RUN_MILLIS);
+        stop.set(true);
+        ex.shutdown();
+        ex.awaitTermination(30, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - begin;
+
+        return ops.sum() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+}
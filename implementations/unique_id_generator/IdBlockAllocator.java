@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Central source of id blocks: reserve(n) hands out the next n sequence
+ * values, and no value is handed out twice, across restarts included.
+ *
+ * The file holds a high-water mark: every id ever handed out is below it.
+ * Handing out a block is one getAndAdd; only a block that crosses the
+ * mark writes the file, moving the mark reserveAhead ids past the block,
+ * so the file is written once per reserveAhead ids rather than per block.
+ * A block is returned only once the file covers it.
+ *
+ * After a restart, ids start at the mark. Whatever was reserved in the
+ * file but never handed out is skipped, so ids have gaps but never
+ * repeat. The file is replaced by a forced temp file and an atomic move,
+ * so a crash mid-write leaves the old mark, never a torn one. The move is
+ * forced too, through the directory, before any id under the new mark is
+ * handed out: a rename lost to a power cut would bring the old mark back.
+ *
+ * Writers of the file take a ReentrantLock rather than a monitor, so a
+ * virtual thread waiting on the write parks instead of pinning its carrier.
+ */
+public class IdBlockAllocator {
+
+    public static final long DEFAULT_RESERVE_AHEAD = 1 << 20;
+
+    private final Path file;
+    private final long reserveAhead;
+
+    private final ReentrantLock persistLock = new ReentrantLock();
+    private final AtomicLong next;          // first id not handed out yet
+    private volatile long highWaterMark;    // what the file says
+    private volatile long writes;
+
+    private IdBlockAllocator(Path file, long reserveAhead, long highWaterMark) {
+        this.file = file;
+        this.reserveAhead = reserveAhead;
+        this.next = new AtomicLong(highWaterMark);
+        this.highWaterMark = highWaterMark;
+    }
+
+    public static IdBlockAllocator open(Path file) throws IOException {
+        return open(file, DEFAULT_RESERVE_AHEAD);
+    }
+
+    public static IdBlockAllocator open(Path file, long reserveAhead) throws IOException {
+        if (reserveAhead < 0) {
+            throw new IllegalArgumentException("reserveAhead must not be negative");
+        }
+        long mark = 0;
+        if (Files.exists(file)) {
+            String text = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+            try {
+                mark = Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt high-water mark in " + file + ": '" + text + "'");
+            }
+            if (mark < 0) {
+                throw new IOException("Negative high-water mark in " + file + ": " + mark);
+            }
+        }
+        return new IdBlockAllocator(file, reserveAhead, mark);
+    }
+
+    // First id of a block of size ids
+    public long reserve(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        long start = next.getAndAdd(size);
+        if (start + size > highWaterMark) {
+            persist(start + size);
+        }
+        return start;
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    // Times the file was written, for tests
+    long getWrites() {
+        return writes;
+    }
+
+    private void persist(long end) {
+        persistLock.lock();
+        try {
+            if (end <= highWaterMark) return; // someone else's write covered us
+            long mark = end + reserveAhead;
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap((mark + "\n").getBytes(StandardCharsets.US_ASCII)));
+                channel.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write id high-water mark", e);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(),
+                        StandardOpenOption.READ)) {
+                    directory.force(true);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot replace id high-water mark", e);
+            }
+            writes++;
+            highWaterMark = mark;
+        } finally {
+            persistLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Issues unique 64-bit ids without a shared hot spot, by leasing blocks
+ * from an IdBlockAllocator.
+ *
+ * Every platform thread owns a lease: its current block and the next one.
+ * An id is a plain increment of the lease's counter, with no atomics.
+ * When a quarter of the block is left, the lease asks a background thread
+ * for the next block, so the allocator (and its occasional file write)
+ * stays off the caller's path. Only a thread that outruns the refill
+ * fetches a block itself.
+ *
+ * Virtual threads live for a task or two, so a block each would mostly
+ * go to waste and every new thread would hit the allocator. They share
+ * a fixed set of striped leases instead. A virtual thread claims a
+ * stripe picked by its thread id with an uncontended tryLock, and moves on
+ * to the next stripe if that one is busy. With every stripe busy it parks
+ * on its own stripe's lock rather than spinning, which frees its carrier
+ * while a holder is in the allocator's file write.
+ *
+ * Ids are unique across threads and restarts, but they are not ordered
+ * across threads. A lease abandoned by a thread that ended leaves a gap.
+ */
+public class LeasedIdGenerator implements AutoCloseable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final long NONE = -1;
+
+    private final IdBlockAllocator allocator;
+    private final int blockSize;
+    private final int refillAt; // ids left in the block when the next one is requested
+
+    private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+    private final Lease[] shared;
+    private final int sharedMask;
+
+    private final ExecutorService refiller;
+    private final LongAdder backgroundRefills = new LongAdder();
+    private final LongAdder inlineRefills = new LongAdder();
+
+    public LeasedIdGenerator(IdBlockAllocator allocator) {
+        this(allocator, DEFAULT_BLOCK_SIZE);
+    }
+
+    public LeasedIdGenerator(IdBlockAllocator allocator, int blockSize) {
+        if (blockSize < 4) {
+            throw new IllegalArgumentException("blockSize must be at least 4");
+        }
+        this.allocator = allocator;
+        this.blockSize = blockSize;
+        this.refillAt = blockSize / 4;
+
+        int stripes = Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+        this.shared = new Lease[stripes];
+        for (int i = 0; i < stripes; i++) {
+            shared[i] = new Lease();
+        }
+        this.sharedMask = stripes - 1;
+
+        this.refiller = Executors.newSingleThreadExecutor(
+                r -> Thread.ofPlatform().daemon().name("id-block-refill").unstarted(r));
+    }
+
+    public long nextId() {
+        Thread thread = Thread.currentThread();
+        if (!thread.isVirtual()) {
+            return issue(leases.get());
+        }
+
+        int home = (int) (thread.threadId() * 0x9E3779B97F4A7C15L >>> 32) & sharedMask;
+        for (int i = 0; i < shared.length; i++) {
+            Lease lease = shared[(home + i) & sharedMask];
+            if (lease.lock.tryLock()) {
+                try {
+                    return issue(lease);
+                } finally {
+                    lease.lock.unlock();
+                }
+            }
+        }
+        // Every stripe busy: wait for the home one
+        Lease lease = shared[home];
+        lease.lock.lock();
+        try {
+            return issue(lease);
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Blocks fetched ahead by the refill thread
+    public long getBackgroundRefills() {
+        return backgroundRefills.sum();
+    }
+
+    // Blocks a caller had to fetch itself (first blocks, or the refill was late)
+    public long getInlineRefills() {
+        return inlineRefills.sum();
+    }
+
+    // Later refills happen on the calling thread
+    @Override
+    public void close() {
+        refiller.shutdown();
+    }
+
+    // Caller is the lease's only holder
+    private long issue(Lease lease) {
+        if (lease.next == lease.end) {
+            nextBlock(lease);
+        }
+        long id = lease.next++;
+        if (!lease.refillRequested && lease.end - lease.next <= refillAt) {
+            requestRefill(lease);
+        }
+        return id;
+    }
+
+    private void nextBlock(Lease lease) {
+        long start = lease.prefetched;
+        if (start != NONE) {
+            lease.prefetched = NONE;
+            lease.refillRequested = false;
+        } else {
+            // Still on its way (or never asked for); it becomes the block after this one
+            start = allocator.reserve(blockSize);
+            inlineRefills.increment();
+        }
+        lease.next = start;
+        lease.end = start + blockSize;
+    }
+
+    private void requestRefill(Lease lease) {
+        lease.refillRequested = true;
+        try {
+            refiller.execute(() -> {
+                lease.prefetched = allocator.reserve(blockSize);
+                backgroundRefills.increment();
+            });
+        } catch (RejectedExecutionException closed) {
+            lease.refillRequested = false;
+        }
+    }
+
+    private static final class Lease {
+        // Shared leases only: held by the virtual thread issuing from it
+        final ReentrantLock lock = new ReentrantLock();
+        // Holder only
+        long next;
+        long end;
+        boolean refillRequested;
+        // Written by the refill thread, taken by the holder
+        volatile long prefetched = NONE;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * A ULID (https://github.com/ulid/spec): 128 bits, a 48-bit millisecond
+ * timestamp followed by 80 bits of randomness, held as two longs.
+ *
+ *   msb = 48 bits millis | 16 high bits of randomness
+ *   lsb = 64 low bits of randomness
+ *
+ * Text is 26 characters of Crockford base32, 5 bits each with the first
+ * one carrying the top 3 bits, so text order, binary order and
+ * compareTo all agree. The binary form is the 16 bytes big-endian.
+ *
+ * The static encode/write methods fill a caller's char[] or byte[] and
+ * allocate nothing; parsing reads a CharSequence, char[] or byte[] in
+ * place, with the returned Ulid as the only allocation. Parsing accepts
+ * lower case and Crockford's aliases (I and L for 1, O for 0).
+ */
+public final class Ulid implements Comparable<Ulid> {
+
+    public static final int TEXT_LENGTH = 26;
+    public static final int BYTES = 16;
+    public static final long MAX_TIMESTAMP = (1L << 48) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128]; // char -> 5 bits, -1 if not base32
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+            VALUES[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+        VALUES['I'] = VALUES['i'] = VALUES['L'] = VALUES['l'] = 1;
+        VALUES['O'] = VALUES['o'] = 0;
+    }
+
+    private final long msb;
+    private final long lsb;
+
+    public Ulid(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+    }
+
+    public static Ulid of(long timestampMillis, long randomHigh16, long randomLow64) {
+        if (timestampMillis < 0 || timestampMillis > MAX_TIMESTAMP) {
+            throw new IllegalArgumentException("Timestamp does not fit in 48 bits: " + timestampMillis);
+        }
+        return new Ulid(timestampMillis << 16 | (randomHigh16 & 0xFFFF), randomLow64);
+    }
+
+    public long getMostSignificantBits() {
+        return msb;
+    }
+
+    public long getLeastSignificantBits() {
+        return lsb;
+    }
+
+    public long timestampMillis() {
+        return msb >>> 16;
+    }
+
+    /* ----- encoding ----- */
+
+    public void encode(char[] dst, int offset) {
+        encode(msb, lsb, dst, offset);
+    }
+
+    public void writeBytes(byte[] dst, int offset) {
+        writeBytes(msb, lsb, dst, offset);
+    }
+
+    public static void encode(long msb, long lsb, char[] dst, int offset) {
+        if (offset < 0 || offset > dst.length - TEXT_LENGTH) {
+            throw new IndexOutOfBoundsException("Need " + TEXT_LENGTH + " chars at " + offset);
+        }
+        // Character i holds bits [shift, shift + 5) of the 128, counted from the bottom
+        for (int i = 0, shift = 125; i < TEXT_LENGTH; i++, shift -= 5) {
+            int bits;
+            if (shift >= 64) {
+                bits = (int) (msb >>> (shift - 64));
+            } else if (shift > 59) {
+                bits = (int) (msb << (64 - shift) | lsb >>> shift); // straddles the two longs
+            } else {
+                bits = (int) (lsb >>> shift);
+            }
+            dst[offset + i] = ALPHABET[bits & 31];
+        }
+    }
+
+    public static void writeBytes(long msb, long lsb, byte[] dst, int offset) {
+        if (offset < 0 || offset > dst.length - BYTES) {
+            throw new IndexOutOfBoundsException("Need " + BYTES + " bytes at " + offset);
+        }
+        for (int i = 0; i < 8; i++) {
+            dst[offset + i] = (byte) (msb >>> (56 - 8 * i));
+            dst[offset + 8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+    }
+
+    /* ----- parsing ----- */
+
+    public static Ulid parse(CharSequence text) {
+        if (text.length() != TEXT_LENGTH) {
+            throw new IllegalArgumentException("A ULID is " + TEXT_LENGTH + " characters, got " + text.length());
+        }
+        return parse(text, 0);
+    }
+
+    public static Ulid parse(CharSequence text, int offset) {
+        if (offset < 0 || offset > text.length() - TEXT_LENGTH) {
+            throw new IllegalArgumentException("No ULID at " + offset + " in " + text.length() + " characters");
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            int bits = valueOf(text.charAt(offset + i), i);
+            msb = msb << 5 | lsb >>> 59;
+            lsb = lsb << 5 | bits;
+        }
+        return new Ulid(msb, lsb);
+    }
+
+    public static Ulid parse(char[] text, int offset) {
+        if (offset < 0 || offset > text.length - TEXT_LENGTH) {
+            throw new IllegalArgumentException("No ULID at " + offset + " in " + text.length + " characters");
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            int bits = valueOf(text[offset + i], i);
+            msb = msb << 5 | lsb >>> 59;
+            lsb = lsb << 5 | bits;
+        }
+        return new Ulid(msb, lsb);
+    }
+
+    public static Ulid readBytes(byte[] src, int offset) {
+        if (offset < 0 || offset > src.length - BYTES) {
+            throw new IndexOutOfBoundsException("Need " + BYTES + " bytes at " + offset);
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = msb << 8 | (src[offset + i] & 0xFF);
+            lsb = lsb << 8 | (src[offset + 8 + i] & 0xFF);
+        }
+        return new Ulid(msb, lsb);
+    }
+
+    private static int valueOf(char c, int position) {
+        int bits = c < 128 ? VALUES[c] : -1;
+        if (bits < 0) {
+            throw new IllegalArgumentException("Not a base32 character at " + position + ": '" + c + "'");
+        }
+        // 26 characters carry 130 bits; the first may only use the low 3
+        if (position == 0 && bits > 7) {
+            throw new IllegalArgumentException("ULID out of range: first character must be 0-7");
+        }
+        return bits;
+    }
+
+    /* ----- value ----- */
+
+    @Override
+    public int compareTo(Ulid other) {
+        int c = Long.compareUnsigned(msb, other.msb);
+        return c != 0 ? c : Long.compareUnsigned(lsb, other.lsb);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Ulid)) return false;
+        Ulid other = (Ulid) o;
+        return msb == other.msb && lsb == other.lsb;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(msb ^ lsb);
+    }
+
+    @Override
+    public String toString() {
+        char[] text = new char[TEXT_LENGTH];
+        encode(text, 0);
+        return new String(text);
+    }
+}
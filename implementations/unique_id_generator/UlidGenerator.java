@@ -0,0 +1,98 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/*
+ * Generates ULIDs: 48 bits of milliseconds, then 80 random bits.
+ *
+ * In monotonic mode (as in the spec), the first id of a millisecond gets
+ * fresh randomness and every further id in that millisecond is the
+ * previous one plus 1, so ids from a thread are strictly increasing even
+ * at millions per millisecond. A clock that steps back keeps counting on
+ * from the last millisecond rather than going backwards. Without
+ * monotonic mode, every id is freshly random.
+ *
+ * No shared lock: each thread keeps its own (millis, randomness) state,
+ * and randomness comes from ThreadLocalRandom. Ids from different threads
+ * in the same millisecond are ordered by their random part, and can't
+ * collide in practice because every thread starts each millisecond at an
+ * independent random 80-bit point. ThreadLocalRandom is not a secure
+ * generator, so don't use these ids where guessing the next one matters.
+ *
+ * nextInto writes an id straight into a caller's char[] or byte[] and
+ * allocates nothing.
+ */
+public class UlidGenerator {
+
+    private static final long RANDOM_HIGH_MASK = 0xFFFF;
+
+    private final boolean monotonic;
+    private final LongSupplier clock;
+    private final LongSupplier random;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public UlidGenerator() {
+        this(true);
+    }
+
+    public UlidGenerator(boolean monotonic) {
+        this(monotonic, System::currentTimeMillis);
+    }
+
+    public UlidGenerator(boolean monotonic, LongSupplier clock) {
+        this(monotonic, clock, () -> ThreadLocalRandom.current().nextLong());
+    }
+
+    // Must be safe to call from any thread
+    UlidGenerator(boolean monotonic, LongSupplier clock, LongSupplier random) {
+        this.monotonic = monotonic;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    public Ulid next() {
+        State state = advance();
+        return new Ulid(state.msb, state.lsb);
+    }
+
+    // 26 Crockford base32 characters at dst[offset]
+    public void nextInto(char[] dst, int offset) {
+        State state = advance();
+        Ulid.encode(state.msb, state.lsb, dst, offset);
+    }
+
+    // 16 bytes, big-endian, at dst[offset]
+    public void nextInto(byte[] dst, int offset) {
+        State state = advance();
+        Ulid.writeBytes(state.msb, state.lsb, dst, offset);
+    }
+
+    private State advance() {
+        State state = states.get();
+        long now = clock.getAsLong();
+        if (now < 0 || now > Ulid.MAX_TIMESTAMP) {
+            throw new IllegalStateException("Clock is outside the ULID range: " + now);
+        }
+
+        if (!monotonic || now > state.millis) {
+            state.millis = now;
+            state.msb = now << 16 | (random.getAsLong() & RANDOM_HIGH_MASK);
+            state.lsb = random.getAsLong();
+        } else {
+            // Same (or an earlier) millisecond: previous randomness + 1
+            if (state.lsb == -1L && (state.msb & RANDOM_HIGH_MASK) == RANDOM_HIGH_MASK) {
+                // The spec's answer to 2^80 ids in one millisecond
+                throw new IllegalStateException("ULID randomness exhausted in millisecond " + state.millis);
+            }
+            if (++state.lsb == 0) {
+                state.msb++;
+            }
+        }
+        return state;
+    }
+
+    private static final class State {
+        long millis = -1;
+        long msb;
+        long lsb;
+    }
+}
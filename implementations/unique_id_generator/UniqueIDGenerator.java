@@ -1,3 +1,218 @@
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/*
+ * Snowflake-style 64-bit ids: unique per node without coordination, and
+ * sortable by creation time.
+ *
+ *   0 | 41 bits millis since epoch | 10 bits node | 12 bits sequence
+ *
+ * 41 bits of milliseconds last about 69 years from the epoch, and a node
+ * can issue 4096 ids per millisecond.
+ *
+ * Lock-free: the last (millis, sequence) pair handed out is one AtomicLong,
+ * and every id is a single CAS on it. If the clock has moved on, the
+ * sequence restarts at 0; otherwise the pair is incremented, so when the
+ * sequence runs out within a millisecond it carries into the next one.
+ * Ids are therefore strictly increasing per node, even when the clock
+ * stands still or steps back.
+ *
+ * Running ahead of the clock is allowed by one millisecond (the carry).
+ * Beyond that we wait for the clock, up to maxBackwardMillis; a clock
+ * that stepped back further than that makes nextId throw rather than
+ * stall the caller, as Snowflake itself does. Ids issued before a restart
+ * are only safe from reuse if the clock hasn't moved back across it.
+ *
+ * The same generator also issues UUIDv7 (RFC 9562), for code that keys on
+ * java.util.UUID but wants ids in time order:
+ *
+ *   48 bits unix millis | ver 7 | 12 bits counter | var 10 | 3 bits counter | 59 random bits
+ *
+ * The 15-bit counter is the RFC's "fixed-length dedicated counter": it
+ * starts each millisecond at a random point in its lower half and is
+ * incremented after that, carrying into the timestamp, with the same
+ * CAS and clock rules as above on a second AtomicLong. UUIDs from one
+ * generator are therefore strictly increasing under UUID.compareTo, and
+ * the 59 random bits (ThreadLocalRandom, so never blocking like the
+ * SecureRandom behind UUID.randomUUID) keep separate generators apart.
+ * nextBatch and fill reserve up to half a millisecond of counter values
+ * with a single CAS.
+ */
 public class UniqueIDGenerator {
-    
+
+    public static final long DEFAULT_EPOCH_MILLIS = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+    public static final long DEFAULT_MAX_BACKWARD_MILLIS = 50;
+
+    static final int SEQUENCE_BITS = 12;
+    static final int NODE_BITS = 10;
+    static final int TIMESTAMP_BITS = 41;
+
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+    static final int V7_COUNTER_BITS = 15;
+    private static final long V7_COUNTER_MASK = (1L << V7_COUNTER_BITS) - 1;
+    private static final int V7_MAX_RESERVATION = 1 << (V7_COUNTER_BITS - 1);
+    private static final long V7_MAX_MILLIS = (1L << 48) - 1;
+    private static final long V7_RANDOM_MASK = (1L << 59) - 1;
+
+    private final long nodeBits;
+    private final long epochMillis;
+    private final long maxBackwardMillis;
+    private final LongSupplier clock;
+
+    // Last issued (millis << SEQUENCE_BITS | sequence)
+    private final AtomicLong last = new AtomicLong();
+    // Last issued UUIDv7 (unix millis << V7_COUNTER_BITS | counter)
+    private final AtomicLong lastV7 = new AtomicLong();
+
+    public UniqueIDGenerator(int nodeId) {
+        this(nodeId, DEFAULT_EPOCH_MILLIS, DEFAULT_MAX_BACKWARD_MILLIS, System::currentTimeMillis);
+    }
+
+    public UniqueIDGenerator(int nodeId, long epochMillis, long maxBackwardMillis, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be in [0, " + MAX_NODE_ID + "]");
+        }
+        if (maxBackwardMillis < 0) {
+            throw new IllegalArgumentException("maxBackwardMillis must not be negative");
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.epochMillis = epochMillis;
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long now = millis();
+            long current = last.get();
+            long next = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+
+            long ahead = (next >>> SEQUENCE_BITS) - now;
+            if (ahead > 1) {
+                // The clock is behind ids we already issued
+                if (ahead > maxBackwardMillis + 1) {
+                    throw new IllegalStateException("Clock moved backwards by " + (ahead - 1) + " ms");
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                continue;
+            }
+            if (last.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // For code that keys on UUID: the id in the high half, so UUIDs sort like the ids
+    public UUID nextUUID() {
+        return toUUID(nextId());
+    }
+
+    public static UUID toUUID(long id) {
+        return new UUID(id, 0L);
+    }
+
+    public UUID nextUUIDv7() {
+        long counter = reserveV7(1);
+        return new UUID(v7Msb(counter), v7Lsb(counter, ThreadLocalRandom.current().nextLong()));
+    }
+
+    // n time-ordered UUIDv7s, in increasing order
+    public UUID[] nextBatch(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative");
+        }
+        long[] msb = new long[n];
+        long[] lsb = new long[n];
+        fill(msb, lsb);
+        UUID[] uuids = new UUID[n];
+        for (int i = 0; i < n; i++) {
+            uuids[i] = new UUID(msb[i], lsb[i]);
+        }
+        return uuids;
+    }
+
+    // Fills both arrays with the halves of msb.length UUIDv7s, without allocating
+    public void fill(long[] msb, long[] lsb) {
+        if (msb.length != lsb.length) {
+            throw new IllegalArgumentException("msb and lsb must have the same length");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = 0;
+        while (i < msb.length) {
+            int n = Math.min(msb.length - i, V7_MAX_RESERVATION);
+            long counter = reserveV7(n);
+            for (int end = i + n; i < end; i++, counter++) {
+                msb[i] = v7Msb(counter);
+                lsb[i] = v7Lsb(counter, random.nextLong());
+            }
+        }
+    }
+
+    public static long unixMillisOfV7(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a UUIDv7: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    public long timestampMillisOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + epochMillis;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    public static int sequenceOf(long id) {
+        return (int) (id & SEQUENCE_MASK);
+    }
+
+    // First of n consecutive (millis, counter) values; same clock rules as nextId
+    private long reserveV7(int n) {
+        while (true) {
+            long now = clock.getAsLong();
+            if (now < 0 || now > V7_MAX_MILLIS) {
+                throw new IllegalStateException("Clock is outside the UUIDv7 range: " + now);
+            }
+            long current = lastV7.get();
+            long first = (current >>> V7_COUNTER_BITS) < now
+                    ? now << V7_COUNTER_BITS | ThreadLocalRandom.current().nextInt(1 << (V7_COUNTER_BITS - 1))
+                    : current + 1;
+
+            long ahead = (first >>> V7_COUNTER_BITS) - now;
+            if (ahead > 1) {
+                if (ahead > maxBackwardMillis + 1) {
+                    throw new IllegalStateException("Clock moved backwards by " + (ahead - 1) + " ms");
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                continue;
+            }
+            if (lastV7.compareAndSet(current, first + n - 1)) {
+                return first;
+            }
+        }
+    }
+
+    private static long v7Msb(long counter) {
+        return (counter >>> V7_COUNTER_BITS) << 16 | 0x7000L | (counter & V7_COUNTER_MASK) >>> 3;
+    }
+
+    private static long v7Lsb(long counter, long random) {
+        return Long.MIN_VALUE | (counter & 7) << 59 | (random & V7_RANDOM_MASK);
+    }
+
+    private long millis() {
+        long millis = clock.getAsLong() - epochMillis;
+        if (millis < 0 || millis > MAX_TIMESTAMP) {
+            throw new IllegalStateException("Clock is outside the id range of epoch " + epochMillis);
+        }
+        return millis;
+    }
 }
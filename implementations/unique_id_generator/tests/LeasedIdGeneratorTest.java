@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class LeasedIdGeneratorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            highWaterMarkTest();
+            backgroundRefillTest();
+            concurrentTest();
+            restartTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ LEASED ID FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static Path markFile() throws IOException {
+        Path dir = Files.createTempDirectory("id-blocks");
+        dir.toFile().deleteOnExit();
+        Path file = dir.resolve("high-water-mark");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static long[] generate(LeasedIdGenerator generator, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) ids[i] = generator.nextId();
+        return ids;
+    }
+
+    private static void checkUnique(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            check(sorted[i] != sorted[i - 1], "Duplicate id " + sorted[i]);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: The file covers every block handed out      */
+    /* -------------------------------------------------- */
+
+    private static void highWaterMarkTest() throws Exception {
+        System.out.println("\n==== HIGH-WATER MARK ====");
+        Path file = markFile();
+        IdBlockAllocator allocator = IdBlockAllocator.open(file, 10_000);
+        check(allocator.getHighWaterMark() == 0, "Fresh file");
+
+        long expected = 0;
+        for (int i = 0; i < 100; i++) {
+            long start = allocator.reserve(1_000);
+            check(start == expected, "Block " + i + " starts at " + start);
+            expected += 1_000;
+            long onDisk = Long.parseLong(Files.readString(file).trim());
+            check(onDisk >= start + 1_000 && onDisk == allocator.getHighWaterMark(), "File behind the blocks: " + onDisk);
+        }
+        // 100k ids, 10k reserved ahead per write
+        check(allocator.getWrites() <= 10, "Writes " + allocator.getWrites());
+
+        // A restart continues from the mark
+        long mark = allocator.getHighWaterMark();
+        check(IdBlockAllocator.open(file, 10_000).reserve(10) == mark, "Restart did not start at the mark");
+
+        Files.writeString(file, "garbage");
+        try {
+            IdBlockAllocator.open(file);
+            throw new AssertionError("Corrupt file accepted");
+        } catch (IOException expectedFailure) {
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Next block arrives before it's needed       */
+    /* -------------------------------------------------- */
+
+    private static void backgroundRefillTest() throws Exception {
+        System.out.println("\n==== BACKGROUND REFILL ====");
+        try (LeasedIdGenerator generator = new LeasedIdGenerator(IdBlockAllocator.open(markFile()), 1_024)) {
+            long previous = -1;
+            for (int i = 0; i < 20 * 1_024; i++) {
+                long id = generator.nextId();
+                check(id > previous, "A thread's ids went backwards at " + i);
+                previous = id;
+                // Give the refill thread a chance, as a caller doing real work would
+                if (i % 128 == 0) Thread.sleep(1);
+            }
+            System.out.println("Inline: " + generator.getInlineRefills() + ", background: " + generator.getBackgroundRefills());
+            check(generator.getInlineRefills() == 1, "Only the first block should be fetched inline");
+            check(generator.getBackgroundRefills() >= 19, "Background refills " + generator.getBackgroundRefills());
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Platform and virtual threads, no duplicates */
+    /* -------------------------------------------------- */
+
+    private static void concurrentTest() throws Exception {
+        System.out.println("\n==== CONCURRENT ====");
+        try (LeasedIdGenerator generator = new LeasedIdGenerator(IdBlockAllocator.open(markFile()), 512)) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            ExecutorService platform = Executors.newFixedThreadPool(64);
+            ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                for (int t = 0; t < 64; t++) {
+                    futures.add(platform.submit(() -> generate(generator, 20_000)));
+                }
+                for (int t = 0; t < 10_000; t++) {
+                    futures.add(virtual.submit(() -> {
+                        long[] ids = new long[50];
+                        for (int i = 0; i < ids.length; i++) {
+                            ids[i] = generator.nextId();
+                            if (i % 10 == 0) Thread.yield(); // unmount mid-task
+                        }
+                        return ids;
+                    }));
+                }
+
+                long[] all = new long[64 * 20_000 + 10_000 * 50];
+                int n = 0;
+                for (Future<long[]> f : futures) {
+                    long[] ids = f.get(120, TimeUnit.SECONDS);
+                    System.arraycopy(ids, 0, all, n, ids.length);
+                    n += ids.length;
+                }
+                checkUnique(all);
+            } finally {
+                platform.shutdownNow();
+                virtual.shutdownNow();
+            }
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: No reuse after a restart                    */
+    /* -------------------------------------------------- */
+
+    private static void restartTest() throws Exception {
+        System.out.println("\n==== RESTART ====");
+        Path file = markFile();
+
+        // Not closed: stands in for a crash
+        LeasedIdGenerator before = new LeasedIdGenerator(IdBlockAllocator.open(file, 5_000), 256);
+        long[] first = generate(before, 10_000);
+        long maxBefore = Arrays.stream(first).max().getAsLong();
+
+        IdBlockAllocator reopened = IdBlockAllocator.open(file, 5_000);
+        check(reopened.getHighWaterMark() > maxBefore, "Mark " + reopened.getHighWaterMark() + " <= issued " + maxBefore);
+        try (LeasedIdGenerator after = new LeasedIdGenerator(reopened, 256)) {
+            long[] second = generate(after, 10_000);
+            check(Arrays.stream(second).min().getAsLong() > maxBefore, "Id reused after restart");
+        }
+        before.close();
+    }
+}
@@ -0,0 +1,230 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UlidGeneratorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            encodingTest();
+            monotonicTest();
+            concurrentTest();
+            allocationTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ ULID FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    private static void rejects(String text) {
+        try {
+            Ulid.parse(text);
+            throw new AssertionError("Parsed " + text);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Crockford text and binary round trip        */
+    /* -------------------------------------------------- */
+
+    private static void encodingTest() {
+        System.out.println("\n==== ENCODING ====");
+
+        // Timestamp from the spec's reference tests
+        Ulid example = Ulid.parse("01ARYZ6S41TSV4RRFFQ69G5FAV");
+        check(example.timestampMillis() == 1_469_918_176_385L, "Timestamp " + example.timestampMillis());
+        check(example.toString().equals("01ARYZ6S41TSV4RRFFQ69G5FAV"), "Round trip " + example);
+
+        // Lower case and Crockford's aliases
+        check(Ulid.parse("01aryz6s41tsv4rrffq69g5fav").equals(example), "Lower case");
+        check(Ulid.parse("0IARYZ6S41TSV4RRFFQ69G5FAV").equals(example), "I for 1");
+        check(Ulid.parse("OlARYZ6S41TSV4RRFFQ69G5FAV").equals(example), "O for 0, l for 1");
+
+        // Extremes
+        check(Ulid.parse("00000000000000000000000000").equals(new Ulid(0, 0)), "Zero");
+        check(Ulid.parse("7ZZZZZZZZZZZZZZZZZZZZZZZZZ").equals(new Ulid(-1L, -1L)), "Max");
+        check(new Ulid(-1L, -1L).toString().equals("7ZZZZZZZZZZZZZZZZZZZZZZZZZ"), "Max text");
+
+        rejects("8ZZZZZZZZZZZZZZZZZZZZZZZZZ"); // 129 bits
+        rejects("01ARYZ6S41TSV4RRFFQ69G5FAU"); // U is not in the alphabet
+        rejects("01ARYZ6S41TSV4RRFFQ69G5FA");
+        rejects("01ARYZ6S41TSV4RRFFQ69G5FAé");
+
+        // In place: inside a larger buffer, as chars and as bytes
+        StringBuilder line = new StringBuilder("id=").append(example).append(";");
+        check(Ulid.parse(line, 3).equals(example), "Offset in a CharSequence");
+        char[] chars = new char[40];
+        example.encode(chars, 7);
+        check(Ulid.parse(chars, 7).equals(example), "Offset in a char[]");
+        byte[] bytes = new byte[20];
+        example.writeBytes(bytes, 4);
+        check(Ulid.readBytes(bytes, 4).equals(example), "Binary round trip");
+        check(bytes[4] == 0x01 && bytes[5] == 0x56, "Binary is big-endian: " + bytes[4] + " " + bytes[5]);
+
+        // Text order, binary order and compareTo agree
+        Random random = new Random(7);
+        List<Ulid> ulids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ulids.add(Ulid.of(random.nextLong() & Ulid.MAX_TIMESTAMP, random.nextLong(), random.nextLong()));
+        }
+        List<Ulid> byText = new ArrayList<>(ulids);
+        byText.sort(Comparator.comparing(Ulid::toString));
+        List<Ulid> byValue = new ArrayList<>(ulids);
+        Collections.sort(byValue);
+        check(byText.equals(byValue), "Text order differs from compareTo");
+        List<Ulid> byBytes = new ArrayList<>(ulids);
+        byBytes.sort((a, b) -> {
+            byte[] x = new byte[16], y = new byte[16];
+            a.writeBytes(x, 0);
+            b.writeBytes(y, 0);
+            return Arrays.compareUnsigned(x, y);
+        });
+        check(byBytes.equals(byValue), "Binary order differs from compareTo");
+        for (Ulid u : ulids) {
+            check(Ulid.parse(u.toString()).equals(u), "Round trip " + u);
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Monotonic within a millisecond              */
+    /* -------------------------------------------------- */
+
+    private static void monotonicTest() {
+        System.out.println("\n==== MONOTONIC ====");
+        AtomicLong clock = new AtomicLong(T0);
+        UlidGenerator generator = new UlidGenerator(true, clock::get);
+
+        Ulid previous = generator.next();
+        check(previous.timestampMillis() == T0, "Timestamp " + previous.timestampMillis());
+        for (int i = 0; i < 1_000; i++) {
+            Ulid next = generator.next();
+            check(next.compareTo(previous) > 0, "Not increasing");
+            check(next.getLeastSignificantBits() - previous.getLeastSignificantBits() == 1
+                    || next.getLeastSignificantBits() == 0, "Not incremented by one");
+            previous = next;
+        }
+
+        // The clock steps back: keep counting in the last millisecond
+        clock.addAndGet(-10);
+        Ulid afterStep = generator.next();
+        check(afterStep.compareTo(previous) > 0 && afterStep.timestampMillis() == T0, "Went backwards with the clock");
+
+        // A new millisecond starts from fresh randomness
+        clock.set(T0 + 1);
+        check(generator.next().timestampMillis() == T0 + 1, "New millisecond");
+
+        // The increment carries from the low 64 bits into the high 16
+        long[] randoms = {0x1234, -1L};
+        int[] calls = {0};
+        UlidGenerator carrying = new UlidGenerator(true, clock::get, () -> randoms[calls[0]++ % 2]);
+        Ulid low = carrying.next();
+        Ulid carried = carrying.next();
+        check(carried.getLeastSignificantBits() == 0 && carried.getMostSignificantBits() == low.getMostSignificantBits() + 1,
+                "No carry: " + low + " -> " + carried);
+
+        // 2^80 ids in a millisecond: fails, and keeps failing rather than wrapping
+        UlidGenerator full = new UlidGenerator(true, clock::get, () -> -1L);
+        full.next();
+        for (int i = 0; i < 2; i++) {
+            try {
+                full.next();
+                throw new AssertionError("Overflow not reported");
+            } catch (IllegalStateException expected) {
+            }
+        }
+
+        // Not monotonic: fresh randomness every time
+        UlidGenerator random = new UlidGenerator(false, clock::get);
+        Set<Ulid> seen = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            Ulid u = random.next();
+            check(u.timestampMillis() == T0 + 1 && seen.add(u), "Duplicate or wrong timestamp");
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: Threads without a shared lock               */
+    /* -------------------------------------------------- */
+
+    private static void concurrentTest() throws Exception {
+        System.out.println("\n==== CONCURRENT ====");
+        UlidGenerator generator = new UlidGenerator();
+        int threads = 8;
+        int perThread = 200_000;
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<List<Ulid>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final boolean asText = t % 2 == 0;
+                futures.add(ex.submit(() -> {
+                    List<Ulid> mine = new ArrayList<>(perThread);
+                    char[] text = new char[Ulid.TEXT_LENGTH];
+                    byte[] bytes = new byte[Ulid.BYTES];
+                    for (int i = 0; i < perThread; i++) {
+                        if (asText) {
+                            generator.nextInto(text, 0);
+                            mine.add(Ulid.parse(text, 0));
+                        } else {
+                            generator.nextInto(bytes, 0);
+                            mine.add(Ulid.readBytes(bytes, 0));
+                        }
+                    }
+                    return mine;
+                }));
+            }
+
+            Set<Ulid> all = new HashSet<>();
+            for (Future<List<Ulid>> f : futures) {
+                List<Ulid> mine = f.get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < mine.size(); i++) {
+                    check(mine.get(i).compareTo(mine.get(i - 1)) > 0, "Thread's ids not increasing at " + i);
+                }
+                all.addAll(mine);
+            }
+            check(all.size() == threads * perThread, "Duplicates: " + (threads * perThread - all.size()));
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: nextInto allocates nothing                  */
+    /* -------------------------------------------------- */
+
+    private static void allocationTest() {
+        System.out.println("\n==== ALLOCATION ====");
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        UlidGenerator generator = new UlidGenerator();
+        char[] text = new char[Ulid.TEXT_LENGTH];
+        byte[] bytes = new byte[Ulid.BYTES];
+        long threadId = Thread.currentThread().threadId();
+
+        for (int round = 0; round < 3; round++) {
+            long before = bean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 1_000_000; i++) {
+                generator.nextInto(text, 0);
+                generator.nextInto(bytes, 0);
+            }
+            long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+            System.out.println("Round " + round + ": " + allocated + " bytes for 2M ids");
+            // A round that allocated per id would be tens of megabytes
+            check(allocated < 64 * 1024, "nextInto allocated " + allocated + " bytes");
+        }
+    }
+}
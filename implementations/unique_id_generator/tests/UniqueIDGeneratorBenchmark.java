@@ -0,0 +1,129 @@
+/*
+ * Throughput of UniqueIDGenerator (Snowflake ids and UUIDv7),
+ * UlidGenerator and LeasedIdGenerator against UUID.randomUUID().
+ *
+ * Every worker generates ids in a loop for a fixed time. UUID.randomUUID
+ * draws 16 bytes from a shared SecureRandom; the Snowflake generator is
+ * one CAS on a shared AtomicLong. nextUUID is the Snowflake id wrapped in
+ * a UUID, which is what code keyed on UUID (e.g. ParkingSession) pays.
+ *
+ * One node issues at most 4096 ids per millisecond, so a single shared
+ * generator tops out at ~4.1M ids/s by design. The per-thread-node row
+ * gives each thread its own node id to show the cost of the call itself.
+ *
+ * The ULID rows share one monotonic generator (per-thread state, no
+ * lock): "ulid" allocates a Ulid per id, "ulid char[]" encodes 26
+ * characters into a reused buffer and allocates nothing.
+ *
+ * "uuidv7" is one UUIDv7 per call; "uuidv7 fill" fills arrays of 256
+ * (one CAS per batch) and counts every UUID.
+ *
+ * "leased" issues from per-thread blocks of a file-backed allocator: a
+ * plain increment per id, the allocator once per 4096.
+ *
+ * NOTE:
+ * This benchmark does NOT validate correctness.
+ */
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Supplier;
+
+public class UniqueIDGeneratorBenchmark {
+
+    static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+    static final long RUN_MILLIS = 2_000;
+    static final int FILL_SIZE = 256;
+
+    // Keeps the JIT from dropping the generated ids
+    static final LongAdder sink = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        UniqueIDGenerator generator = new UniqueIDGenerator(1);
+        Map<String, Supplier<Runnable>> generators = new LinkedHashMap<>();
+        generators.put("UUID.randomUUID", () -> () -> sink.add(UUID.randomUUID().getLeastSignificantBits()));
+        generators.put("snowflake", () -> () -> sink.add(generator.nextId()));
+        generators.put("snowflake UUID", () -> () -> sink.add(generator.nextUUID().getMostSignificantBits()));
+        generators.put("snowflake/thread", () -> {
+            AtomicInteger nodes = new AtomicInteger();
+            ThreadLocal<UniqueIDGenerator> perThread =
+                    ThreadLocal.withInitial(() -> new UniqueIDGenerator(nodes.incrementAndGet()));
+            return () -> sink.add(perThread.get().nextId());
+        });
+        generators.put("uuidv7", () -> () -> sink.add(generator.nextUUIDv7().getLeastSignificantBits()));
+        generators.put("uuidv7 fill", () -> {
+            ThreadLocal<long[][]> buffers = ThreadLocal.withInitial(() -> new long[2][FILL_SIZE]);
+            return () -> {
+                long[][] halves = buffers.get();
+                generator.fill(halves[0], halves[1]);
+                sink.add(halves[1][FILL_SIZE - 1]);
+            };
+        });
+        UlidGenerator ulids = new UlidGenerator();
+        generators.put("ulid", () -> () -> sink.add(ulids.next().getLeastSignificantBits()));
+        generators.put("ulid char[]", () -> {
+            ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[Ulid.TEXT_LENGTH]);
+            return () -> {
+                char[] text = buffers.get();
+                ulids.nextInto(text, 0);
+                sink.add(text[25]);
+            };
+        });
+        Path markFile = Files.createTempDirectory("id-blocks").resolve("high-water-mark");
+        LeasedIdGenerator leased = new LeasedIdGenerator(IdBlockAllocator.open(markFile));
+        generators.put("leased", () -> () -> sink.add(leased.nextId()));
+
+        System.out.println("Warmup...");
+        for (Map.Entry<String, Supplier<Runnable>> e : generators.entrySet()) {
+            run(e.getValue().get(), idsPerCall(e.getKey()), 4, 500);
+        }
+
+        System.out.println("\n=== BENCHMARK ===");
+        System.out.printf("%-16s %8s %16s%n", "generator", "threads", "ids/s");
+        for (int threads : THREAD_COUNTS) {
+            for (Map.Entry<String, Supplier<Runnable>> e : generators.entrySet()) {
+                System.out.printf("%-16s %8d %,16d%n", e.getKey(), threads, run(e.getValue().get(), idsPerCall(e.getKey()), threads, RUN_MILLIS));
+            }
+        }
+
+        leased.close();
+        Files.deleteIfExists(markFile);
+        Files.deleteIfExists(markFile.getParent());
+    }
+
+    static int idsPerCall(String generator) {
+        return generator.endsWith("fill") ? FILL_SIZE : 1;
+    }
+
+    static long run(Runnable next, int idsPerCall, int threads, long millis) throws Exception {
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder ops = new LongAdder();
+
+        for (int t = 0; t < threads; t++) {
+            ex.submit(() -> {
+                start.await();
+                long local = 0;
+                while (!stop.get()) {
+                    next.run();
+                    local += idsPerCall;
+                }
+                ops.add(local);
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        ex.shutdown();
+        ex.awaitTermination(30, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - begin;
+
+        return ops.sum() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UniqueIDGeneratorTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            layoutTest();
+            concurrentUniquenessTest();
+            sequenceExhaustionTest();
+            clockBackwardTest();
+            uuidV7Test();
+            uuidV7BatchTest();
+        } catch (AssertionError ae) {
+            System.err.println("\n❌ UNIQUE ID FAILURE");
+            ae.printStackTrace();
+            System.exit(1);
+        }
+
+        System.out.println("\n  ALL TESTS PASSED!");
+    }
+
+    /* -------------------------------------------------- */
+    /* Helpers                                            */
+    /* -------------------------------------------------- */
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static UniqueIDGenerator generator(int node, AtomicLong clock) {
+        return new UniqueIDGenerator(node, UniqueIDGenerator.DEFAULT_EPOCH_MILLIS,
+                UniqueIDGenerator.DEFAULT_MAX_BACKWARD_MILLIS, clock::get);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 1: Fields round trip                           */
+    /* -------------------------------------------------- */
+
+    private static void layoutTest() {
+        System.out.println("\n==== LAYOUT ====");
+        AtomicLong clock = new AtomicLong(T0);
+        UniqueIDGenerator generator = generator(777, clock);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+        check(first > 0, "Id must be positive");
+        check(generator.timestampMillisOf(first) == T0, "Timestamp " + generator.timestampMillisOf(first));
+        check(UniqueIDGenerator.nodeOf(first) == 777, "Node " + UniqueIDGenerator.nodeOf(first));
+        check(UniqueIDGenerator.sequenceOf(first) == 0 && UniqueIDGenerator.sequenceOf(second) == 1, "Sequence");
+
+        clock.addAndGet(5);
+        long later = generator.nextId();
+        check(UniqueIDGenerator.sequenceOf(later) == 0, "Sequence not reset in a new millisecond");
+        check(later > second, "Not sortable by time");
+        check(UniqueIDGenerator.toUUID(second).compareTo(UniqueIDGenerator.toUUID(later)) < 0, "UUIDs not sortable");
+
+        for (int bad : new int[] {-1, UniqueIDGenerator.MAX_NODE_ID + 1}) {
+            try {
+                new UniqueIDGenerator(bad);
+                throw new AssertionError("Node " + bad + " accepted");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 2: Many threads, many nodes, no duplicates     */
+    /* -------------------------------------------------- */
+
+    private static void concurrentUniquenessTest() throws Exception {
+        System.out.println("\n==== CONCURRENT UNIQUENESS ====");
+        UniqueIDGenerator node1 = new UniqueIDGenerator(1);
+        UniqueIDGenerator node2 = new UniqueIDGenerator(2);
+        int threads = 8;
+        int perThread = 200_000;
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                UniqueIDGenerator generator = t % 2 == 0 ? node1 : node2;
+                futures.add(ex.submit(() -> {
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) ids[i] = generator.nextId();
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<long[]> f : futures) {
+                long[] ids = f.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < ids.length; i++) {
+                    check(i == 0 || ids[i] > ids[i - 1], "Not increasing within a thread");
+                    check(all.add(ids[i]), "Duplicate id " + ids[i]);
+                }
+            }
+            System.out.println("ids=" + all.size());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 3: 4096 ids in one millisecond                 */
+    /* -------------------------------------------------- */
+
+    private static void sequenceExhaustionTest() throws Exception {
+        System.out.println("\n==== SEQUENCE EXHAUSTION ====");
+        AtomicLong clock = new AtomicLong(T0);
+        UniqueIDGenerator generator = generator(3, clock);
+
+        long previous = -1;
+        for (int i = 0; i < 8_192; i++) {
+            long id = generator.nextId();
+            check(id > previous, "Not increasing at " + i);
+            previous = id;
+        }
+        // The second 4096 borrowed the next millisecond
+        check(generator.timestampMillisOf(previous) == T0 + 1, "Carry " + generator.timestampMillisOf(previous));
+        check(UniqueIDGenerator.sequenceOf(previous) == 4_095, "Sequence " + UniqueIDGenerator.sequenceOf(previous));
+
+        // Two milliseconds ahead is too far: wait for the clock
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(generator::nextId);
+        Thread.sleep(50);
+        check(!waiting.isDone(), "Ran more than a millisecond ahead of the clock");
+        clock.addAndGet(1);
+        long id = waiting.get(5, TimeUnit.SECONDS);
+        check(id > previous && generator.timestampMillisOf(id) == T0 + 2, "Id after waiting " + id);
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 4: Clock steps back                            */
+    /* -------------------------------------------------- */
+
+    private static void clockBackwardTest() throws Exception {
+        System.out.println("\n==== CLOCK BACKWARD ====");
+        AtomicLong clock = new AtomicLong(T0);
+        UniqueIDGenerator generator = generator(4, clock);
+        long before = generator.nextId();
+
+        // A small step back: ids keep increasing once the clock catches up
+        clock.addAndGet(-20);
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(generator::nextId);
+        Thread.sleep(50);
+        check(!waiting.isDone(), "Issued an id while the clock was behind");
+        clock.set(T0);
+        check(waiting.get(5, TimeUnit.SECONDS) > before, "Id went backwards");
+
+        // A large step back: refused
+        clock.addAndGet(-5_000);
+        try {
+            generator.nextId();
+            throw new AssertionError("Clock five seconds back was accepted");
+        } catch (IllegalStateException expected) {
+            System.out.println("refused: " + expected.getMessage());
+        }
+        clock.set(T0 + 1);
+        check(generator.nextId() > before, "Did not recover once the clock was back");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 5: UUIDv7 layout and order                     */
+    /* -------------------------------------------------- */
+
+    private static void uuidV7Test() {
+        System.out.println("\n==== UUIDv7 ====");
+        AtomicLong clock = new AtomicLong(T0);
+        UniqueIDGenerator generator = generator(5, clock);
+
+        UUID first = generator.nextUUIDv7();
+        check(first.version() == 7 && first.variant() == 2, "Version " + first.version() + ", variant " + first.variant());
+        check(UniqueIDGenerator.unixMillisOfV7(first) == T0, "Timestamp " + UniqueIDGenerator.unixMillisOfV7(first));
+
+        // Within a frozen millisecond: strictly increasing, as UUIDs and as text
+        UUID previous = first;
+        long[] msb = new long[20_000];
+        long[] lsb = new long[20_000];
+        generator.fill(msb, lsb);
+        for (int i = 0; i < msb.length; i++) {
+            UUID next = new UUID(msb[i], lsb[i]);
+            check(next.version() == 7 && next.variant() == 2, "Layout at " + i);
+            check(next.compareTo(previous) > 0, "Not increasing at " + i);
+            check(next.toString().compareTo(previous.toString()) > 0, "Text not increasing at " + i);
+            previous = next;
+        }
+        // The counter starts in its lower half, so 20k fit in the millisecond or spill into the next
+        long last = UniqueIDGenerator.unixMillisOfV7(previous);
+        check(last == T0 || last == T0 + 1, "Ran ahead to " + last);
+
+        check(generator.nextBatch(0).length == 0, "Empty batch");
+        try {
+            generator.fill(new long[2], new long[3]);
+            throw new AssertionError("Mismatched arrays accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            UniqueIDGenerator.unixMillisOfV7(UUID.randomUUID());
+            throw new AssertionError("Version 4 accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Same clock rules as nextId
+        clock.addAndGet(-5_000);
+        try {
+            generator.nextUUIDv7();
+            throw new AssertionError("Clock five seconds back was accepted");
+        } catch (IllegalStateException expected) {
+        }
+        clock.set(T0 + 2);
+        check(generator.nextUUIDv7().compareTo(previous) > 0, "Did not recover once the clock was back");
+    }
+
+    /* -------------------------------------------------- */
+    /* TEST 6: Batches from many threads                   */
+    /* -------------------------------------------------- */
+
+    private static void uuidV7BatchTest() throws Exception {
+        System.out.println("\n==== UUIDv7 BATCHES ====");
+        UniqueIDGenerator generator = new UniqueIDGenerator(6);
+        int threads = 8;
+
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+        List<Future<List<UUID>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(ex.submit(() -> {
+                    List<UUID> mine = new ArrayList<>();
+                    long[] msb = new long[1_000];
+                    long[] lsb = new long[1_000];
+                    for (int round = 0; round < 50; round++) {
+                        generator.fill(msb, lsb);
+                        for (int i = 0; i < msb.length; i++) mine.add(new UUID(msb[i], lsb[i]));
+                        mine.addAll(Arrays.asList(generator.nextBatch(500)));
+                        mine.add(generator.nextUUIDv7());
+                    }
+                    return mine;
+                }));
+            }
+            List<UUID> all = new ArrayList<>();
+            for (Future<List<UUID>> f : futures) {
+                List<UUID> mine = f.get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < mine.size(); i++) {
+                    check(mine.get(i).compareTo(mine.get(i - 1)) > 0, "Not increasing within a thread at " + i);
+                }
+                all.addAll(mine);
+            }
+            check(new HashSet<>(all).size() == all.size(), "Duplicate UUIDv7");
+            System.out.println("uuids=" + all.size());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+}